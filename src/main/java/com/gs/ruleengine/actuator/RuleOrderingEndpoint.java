@@ -0,0 +1,36 @@
+package com.gs.ruleengine.actuator;
+
+import com.gs.ruleengine.engine.compiler.ExpressionCompiler;
+import com.gs.ruleengine.engine.compiler.ReorderLog;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint ({@code /actuator/ruleordering}) listing the recent child reorders
+ * of adaptive AND/OR nodes.
+ */
+@Component
+@Endpoint(id = "ruleordering")
+public class RuleOrderingEndpoint {
+    
+    private final ExpressionCompiler expressionCompiler;
+    
+    @Autowired
+    public RuleOrderingEndpoint(ExpressionCompiler expressionCompiler) {
+        this.expressionCompiler = expressionCompiler;
+    }
+    
+    @ReadOperation
+    public Map<String, Object> ordering() {
+        ReorderLog reorderLog = expressionCompiler.getReorderLog();
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("totalReorders", reorderLog.getTotal());
+        result.put("recentReorders", reorderLog.getRecentEvents());
+        return result;
+    }
+}
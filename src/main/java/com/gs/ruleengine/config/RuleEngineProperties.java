@@ -0,0 +1,139 @@
+package com.gs.ruleengine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings bound from the {@code rule-engine} section of application.yml.
+ */
+@Component
+@ConfigurationProperties(prefix = "rule-engine")
+public class RuleEngineProperties {
+    
+    private int maxRulesPerRequest = 100;
+    private int maxExpressionDepth = 10;
+    private boolean enableCaching = true;
+    private long cacheExpirationSeconds = 300;
+    private int compileThreshold = 100;
+    private double traceSampleRate = 0.0;
+    private String evaluator = "default";
+    private int reorderSampleInterval = 16;
+    private int reorderSamples = 256;
+    private int batchChunkSize = 4096;
+    private boolean regexSafeMode = false;
+    private int parallelThreshold = 0;
+    private int parallelism = 0;
+    private boolean projectionQueries = true;
+    
+    public int getMaxRulesPerRequest() {
+        return maxRulesPerRequest;
+    }
+    
+    public void setMaxRulesPerRequest(int maxRulesPerRequest) {
+        this.maxRulesPerRequest = maxRulesPerRequest;
+    }
+    
+    public int getMaxExpressionDepth() {
+        return maxExpressionDepth;
+    }
+    
+    public void setMaxExpressionDepth(int maxExpressionDepth) {
+        this.maxExpressionDepth = maxExpressionDepth;
+    }
+    
+    public boolean isEnableCaching() {
+        return enableCaching;
+    }
+    
+    public void setEnableCaching(boolean enableCaching) {
+        this.enableCaching = enableCaching;
+    }
+    
+    public long getCacheExpirationSeconds() {
+        return cacheExpirationSeconds;
+    }
+    
+    public void setCacheExpirationSeconds(long cacheExpirationSeconds) {
+        this.cacheExpirationSeconds = cacheExpirationSeconds;
+    }
+    
+    public int getCompileThreshold() {
+        return compileThreshold;
+    }
+    
+    public void setCompileThreshold(int compileThreshold) {
+        this.compileThreshold = compileThreshold;
+    }
+    
+    public double getTraceSampleRate() {
+        return traceSampleRate;
+    }
+    
+    public void setTraceSampleRate(double traceSampleRate) {
+        this.traceSampleRate = traceSampleRate;
+    }
+    
+    public String getEvaluator() {
+        return evaluator;
+    }
+    
+    public void setEvaluator(String evaluator) {
+        this.evaluator = evaluator;
+    }
+    
+    public int getReorderSampleInterval() {
+        return reorderSampleInterval;
+    }
+    
+    public void setReorderSampleInterval(int reorderSampleInterval) {
+        this.reorderSampleInterval = reorderSampleInterval;
+    }
+    
+    public int getReorderSamples() {
+        return reorderSamples;
+    }
+    
+    public void setReorderSamples(int reorderSamples) {
+        this.reorderSamples = reorderSamples;
+    }
+    
+    public int getBatchChunkSize() {
+        return batchChunkSize;
+    }
+    
+    public void setBatchChunkSize(int batchChunkSize) {
+        this.batchChunkSize = batchChunkSize;
+    }
+    
+    public boolean isRegexSafeMode() {
+        return regexSafeMode;
+    }
+    
+    public void setRegexSafeMode(boolean regexSafeMode) {
+        this.regexSafeMode = regexSafeMode;
+    }
+    
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+    
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+    
+    public boolean isProjectionQueries() {
+        return projectionQueries;
+    }
+    
+    public void setProjectionQueries(boolean projectionQueries) {
+        this.projectionQueries = projectionQueries;
+    }
+}
@@ -1,9 +1,14 @@
 package com.gs.ruleengine.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.ruleengine.config.RuleEngineProperties;
 import com.gs.ruleengine.dto.RuleDto;
+import com.gs.ruleengine.engine.ExpressionCodec;
 import com.gs.ruleengine.engine.ExpressionDeserializer;
+import com.gs.ruleengine.engine.compiler.ExpressionOptimizer;
+import com.gs.ruleengine.engine.compiler.RegexSafety;
 import com.gs.ruleengine.model.Rule;
+import com.gs.ruleengine.model.expression.Expression;
 import com.gs.ruleengine.service.RuleService;
 import javax.validation.Valid;
 import java.util.List;
@@ -20,11 +25,14 @@ public class RuleController {
     
     private final RuleService ruleService;
     private final ExpressionDeserializer expressionDeserializer;
+    private final RuleEngineProperties properties;
     
     @Autowired
-    public RuleController(RuleService ruleService, ExpressionDeserializer expressionDeserializer) {
+    public RuleController(RuleService ruleService, ExpressionDeserializer expressionDeserializer,
+            RuleEngineProperties properties) {
         this.ruleService = ruleService;
         this.expressionDeserializer = expressionDeserializer;
+        this.properties = properties;
     }
     
     @GetMapping
@@ -48,9 +56,12 @@ public class RuleController {
             rule.setDescription(ruleDto.getDescription());
             rule.setActive(ruleDto.isActive());
             
+            RegexSafety.checkPatterns(ruleDto.getExpression(), properties.isRegexSafeMode());
+            
             // Serialize expression to JSON
             String expressionJson = expressionDeserializer.serialize(ruleDto.getExpression());
             rule.setExpressionJson(expressionJson);
+            setOptimizedExpression(rule, ruleDto.getExpression());
             
             Rule savedRule = ruleService.save(rule);
             return ResponseEntity.status(HttpStatus.CREATED).body(savedRule);
@@ -69,9 +80,12 @@ public class RuleController {
                         rule.setDescription(ruleDto.getDescription());
                         rule.setActive(ruleDto.isActive());
                         
+                        RegexSafety.checkPatterns(ruleDto.getExpression(), properties.isRegexSafeMode());
+                        
                         // Serialize expression to JSON
                         String expressionJson = expressionDeserializer.serialize(ruleDto.getExpression());
                         rule.setExpressionJson(expressionJson);
+                        setOptimizedExpression(rule, ruleDto.getExpression());
                         
                         return ResponseEntity.ok(ruleService.save(rule));
                     } catch (Exception e) {
@@ -89,4 +103,35 @@ public class RuleController {
         ruleService.deleteById(id);
         return ResponseEntity.noContent().build();
     }
+    
+    /**
+     * Records the optimized form of a rule's expression and whether its outcome is
+     * constant, which are informational, and the binary form of the expression the
+     * rule registry loads.
+     */
+    private void setOptimizedExpression(Rule rule, Expression expression) {
+        Expression optimized = ExpressionOptimizer.optimize(expression);
+        rule.setOptimizedExpressionJson(expressionDeserializer.serialize(optimized));
+        rule.setSatisfiability(ExpressionOptimizer.satisfiability(optimized));
+        rule.setCompiledExpression(encodeExpression(rule.getExpressionJson()));
+    }
+    
+    /**
+     * Encodes the expression the rule registry would otherwise parse and optimize from
+     * the stored expression JSON.
+     * 
+     * @return The encoded expression, or null if the JSON cannot be parsed or contains
+     *         constants the codec does not support, in which case the registry parses the JSON
+     */
+    private byte[] encodeExpression(String expressionJson) {
+        Expression parsed = expressionJson != null ? expressionDeserializer.deserialize(expressionJson) : null;
+        if (parsed == null) {
+            return null;
+        }
+        try {
+            return ExpressionCodec.encode(ExpressionOptimizer.optimize(parsed), expressionJson);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
@@ -1,48 +1,80 @@
 package com.gs.ruleengine.controller;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.ruleengine.dto.BatchRuleExecutionRequest;
 import com.gs.ruleengine.dto.RuleExecutionRequest;
 import com.gs.ruleengine.dto.RuleExecutionResponse;
 import com.gs.ruleengine.engine.ActionEngine;
 import com.gs.ruleengine.engine.RuleEngine;
+import com.gs.ruleengine.engine.batch.BatchRuleEvaluator;
 import com.gs.ruleengine.model.ActionOutput;
+import com.gs.ruleengine.model.EntityType;
 import com.gs.ruleengine.model.RuleEngineOutput;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 @RequestMapping("/api/rule-engine")
 public class RuleEngineController {
     
+    /** Async timeout meaning none, as for {@link javax.servlet.AsyncContext#setTimeout(long)}. */
+    private static final long NO_TIMEOUT = -1;
+    
     private final RuleEngine ruleEngine;
     private final ActionEngine actionEngine;
+    private final BatchRuleEvaluator batchRuleEvaluator;
+    private final ObjectMapper objectMapper;
     
     @Autowired
-    public RuleEngineController(RuleEngine ruleEngine, ActionEngine actionEngine) {
+    public RuleEngineController(
+            RuleEngine ruleEngine,
+            ActionEngine actionEngine,
+            BatchRuleEvaluator batchRuleEvaluator,
+            ObjectMapper objectMapper) {
         this.ruleEngine = ruleEngine;
         this.actionEngine = actionEngine;
+        this.batchRuleEvaluator = batchRuleEvaluator;
+        this.objectMapper = objectMapper;
     }
     
     @PostMapping("/execute")
-    public ResponseEntity<RuleExecutionResponse> executeRules(@Valid @RequestBody RuleExecutionRequest request) {
+    public ResponseEntity<RuleExecutionResponse> executeRules(
+            @Valid @RequestBody RuleExecutionRequest request,
+            @RequestParam(defaultValue = "false") boolean explain) {
         List<RuleEngineOutput> ruleEngineOutputs;
+        boolean explainRequested = explain || request.isExplain();
         
         if (request.getRuleIds() != null && !request.getRuleIds().isEmpty()) {
             // Execute specific rules
             ruleEngineOutputs = new ArrayList<>();
             
             for (Long ruleId : request.getRuleIds()) {
-                RuleEngineOutput output = ruleEngine.evaluateRule(ruleId, request.getEntityId());
+                RuleEngineOutput output = explainRequested
+                        ? ruleEngine.evaluateRule(ruleId, request.getEntityId(), true)
+                        : ruleEngine.evaluateRule(ruleId, request.getEntityId());
                 if (output != null) {
                     ruleEngineOutputs.add(output);
                 }
             }
         } else {
             // Execute all active rules for the entity type
-            ruleEngineOutputs = ruleEngine.evaluateRules(request.getEntityType(), request.getEntityId());
+            ruleEngineOutputs = explainRequested
+                    ? ruleEngine.evaluateRules(request.getEntityType(), request.getEntityId(), true)
+                    : ruleEngine.evaluateRules(request.getEntityType(), request.getEntityId());
         }
         
         // Execute actions for rule engine outputs
@@ -51,4 +83,57 @@ public class RuleEngineController {
         RuleExecutionResponse response = new RuleExecutionResponse(ruleEngineOutputs, actionOutputs);
         return ResponseEntity.ok(response);
     }
+    
+    /**
+     * Evaluates the active rules of an entity type against many entities, then executes
+     * the actions for all of their outputs in one dispatch.
+     */
+    @PostMapping("/execute/batch")
+    public ResponseEntity<RuleExecutionResponse> executeRulesBatch(@Valid @RequestBody BatchRuleExecutionRequest request) {
+        List<RuleEngineOutput> ruleEngineOutputs = ruleEngine.evaluateRulesBatch(request.getEntityType(), request.getEntityIds());
+        List<ActionOutput> actionOutputs = actionEngine.executeActions(ruleEngineOutputs);
+        
+        return ResponseEntity.ok(new RuleExecutionResponse(ruleEngineOutputs, actionOutputs));
+    }
+    
+    /**
+     * Evaluates the active rules of an entity type against every entity of that type.
+     * No actions are executed.
+     */
+    @GetMapping("/matches")
+    public ResponseEntity<Map<Long, List<Long>>> findMatchingEntities(@RequestParam EntityType entityType) {
+        return ResponseEntity.ok(batchRuleEvaluator.findMatchingEntities(entityType));
+    }
+    
+    /**
+     * Evaluates the active rules of an entity type against every entity of that type,
+     * streaming one output per line as it goes. No actions are executed.
+     * 
+     * The evaluation runs as long as the table takes, so this request has no async
+     * timeout; other async requests keep {@code spring.mvc.async.request-timeout}.
+     */
+    @GetMapping(value = "/evaluate-all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> evaluateAll(@RequestParam EntityType entityType, HttpServletResponse response) {
+        return new WebAsyncTask<>(NO_TIMEOUT, () -> {
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            batchRuleEvaluator.writeOutputs(entityType, response.getOutputStream());
+            return null;
+        });
+    }
+    
+    /**
+     * Evaluates the active rules of an entity type against entity data posted as a JSON
+     * object. The body is parsed as the rules read it, so only the fields they reference
+     * are bound and the others are skipped. No actions are executed.
+     */
+    @PostMapping(value = "/evaluate", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<RuleEngineOutput>> evaluateData(
+            @RequestParam EntityType entityType,
+            InputStream body) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            return ResponseEntity.ok(ruleEngine.evaluateRulesWithJson(entityType, parser));
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid entity data: " + e.getOriginalMessage());
+        }
+    }
 }
@@ -0,0 +1,21 @@
+package com.gs.ruleengine.dto;
+
+import com.gs.ruleengine.model.EntityType;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+public class BatchRuleExecutionRequest {
+    @NotNull(message = "Entity type is required")
+    private EntityType entityType;
+    
+    @NotEmpty(message = "Entity IDs are required")
+    private List<Long> entityIds;
+    
+    // Getters and setters
+    public EntityType getEntityType() { return entityType; }
+    public void setEntityType(EntityType entityType) { this.entityType = entityType; }
+    
+    public List<Long> getEntityIds() { return entityIds; }
+    public void setEntityIds(List<Long> entityIds) { this.entityIds = entityIds; }
+}
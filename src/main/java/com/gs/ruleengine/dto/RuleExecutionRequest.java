@@ -13,6 +13,8 @@ public class RuleExecutionRequest {
     
     private List<Long> ruleIds;
     
+    private boolean explain;
+    
     // Getters and setters
     public EntityType getEntityType() { return entityType; }
     public void setEntityType(EntityType entityType) { this.entityType = entityType; }
@@ -22,4 +24,7 @@ public class RuleExecutionRequest {
     
     public List<Long> getRuleIds() { return ruleIds; }
     public void setRuleIds(List<Long> ruleIds) { this.ruleIds = ruleIds; }
+    
+    public boolean isExplain() { return explain; }
+    public void setExplain(boolean explain) { this.explain = explain; }
 }
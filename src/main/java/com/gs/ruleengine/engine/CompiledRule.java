@@ -0,0 +1,82 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.engine.compiler.CompiledPredicate;
+import com.gs.ruleengine.engine.compiler.EntityPredicate;
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.expression.Expression;
+
+/**
+ * Immutable, pre-parsed form of a {@link com.gs.ruleengine.model.Rule} held by the {@link RuleRegistry}.
+ */
+public final class CompiledRule {
+    
+    private final Long id;
+    private final String name;
+    private final EntityType entityType;
+    private final Expression expression;
+    private final CompiledPredicate predicate;
+    private final EntityPredicate entityPredicate;
+    private final EntityPredicate recordPredicate;
+    
+    public CompiledRule(Long id, String name, EntityType entityType, Expression expression, CompiledPredicate predicate) {
+        this(id, name, entityType, expression, predicate, null);
+    }
+    
+    public CompiledRule(Long id, String name, EntityType entityType, Expression expression, CompiledPredicate predicate,
+                        EntityPredicate entityPredicate) {
+        this(id, name, entityType, expression, predicate, entityPredicate, null);
+    }
+    
+    public CompiledRule(Long id, String name, EntityType entityType, Expression expression, CompiledPredicate predicate,
+                        EntityPredicate entityPredicate, EntityPredicate recordPredicate) {
+        this.id = id;
+        this.name = name;
+        this.entityType = entityType;
+        this.expression = expression;
+        this.predicate = predicate;
+        this.entityPredicate = entityPredicate;
+        this.recordPredicate = recordPredicate;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public EntityType getEntityType() {
+        return entityType;
+    }
+    
+    /**
+     * @return The parsed and optimized expression, or null if the rule's expression JSON could not be deserialized
+     */
+    public Expression getExpression() {
+        return expression;
+    }
+    
+    /**
+     * @return The predicate evaluating the expression, or null if there is no expression
+     */
+    public CompiledPredicate getPredicate() {
+        return predicate;
+    }
+    
+    /**
+     * @return The predicate evaluating the expression directly on entity objects, or null
+     *         if there is no expression or it is only evaluated on extracted entity data
+     */
+    public EntityPredicate getEntityPredicate() {
+        return entityPredicate;
+    }
+    
+    /**
+     * @return The predicate evaluating the expression on {@link EntityRecord}s, or null
+     *         if there is no expression or it is only evaluated on entity data by name
+     */
+    public EntityPredicate getRecordPredicate() {
+        return recordPredicate;
+    }
+}
@@ -3,6 +3,7 @@ package com.gs.ruleengine.engine;
 import com.gs.ruleengine.engine.action.ActionHandler;
 import com.gs.ruleengine.model.ActionConfiguration;
 import com.gs.ruleengine.model.ActionOutput;
+import com.gs.ruleengine.model.EntityType;
 import com.gs.ruleengine.model.Leave;
 import com.gs.ruleengine.model.Roster;
 import com.gs.ruleengine.model.RuleEngineOutput;
@@ -12,9 +13,12 @@ import com.gs.ruleengine.service.LeaveService;
 import com.gs.ruleengine.service.RosterService;
 import com.gs.ruleengine.service.TicketService;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,6 +58,21 @@ public class DefaultActionEngine implements ActionEngine {
     @Override
     public List<ActionOutput> executeActions(RuleEngineOutput ruleEngineOutput) {
         List<ActionConfiguration> actionConfigurations = actionConfigurationService.findByRuleId(ruleEngineOutput.getRuleId());
+        return executeActions(ruleEngineOutput, actionConfigurations, this::getEntityData);
+    }
+    
+    /**
+     * Executes the actions configured for a rule engine output.
+     * 
+     * @param ruleEngineOutput The output from the rule engine
+     * @param actionConfigurations The action configurations of the output's rule
+     * @param entityDataLoader Gets the entity data by entity type and ID, empty if the entity does not exist
+     * @return List of outputs from the action executions
+     */
+    private List<ActionOutput> executeActions(
+            RuleEngineOutput ruleEngineOutput,
+            List<ActionConfiguration> actionConfigurations,
+            BiFunction<EntityType, Long, Map<String, Object>> entityDataLoader) {
         List<ActionOutput> actionOutputs = new ArrayList<>();
         
         if (actionConfigurations.isEmpty()) {
@@ -61,7 +80,7 @@ public class DefaultActionEngine implements ActionEngine {
             return actionOutputs;
         }
         
-        Map<String, Object> entityData = getEntityData(ruleEngineOutput.getEntityType(), ruleEngineOutput.getEntityId());
+        Map<String, Object> entityData = entityDataLoader.apply(ruleEngineOutput.getEntityType(), ruleEngineOutput.getEntityId());
         
         if (entityData.isEmpty()) {
             logger.error("Entity not found with ID: {} and type: {}", ruleEngineOutput.getEntityId(), ruleEngineOutput.getEntityType());
@@ -102,12 +121,24 @@ public class DefaultActionEngine implements ActionEngine {
         return actionOutputs;
     }
     
+    /**
+     * Executes the actions for multiple rule engine outputs as one dispatch: the action
+     * configurations of each rule and the data of each entity are looked up once, however
+     * many outputs share them, so every action on an entity sees the same entity data.
+     */
     @Override
     public List<ActionOutput> executeActions(List<RuleEngineOutput> ruleEngineOutputs) {
         List<ActionOutput> actionOutputs = new ArrayList<>();
+        Map<Long, List<ActionConfiguration>> actionConfigurationsByRule = new HashMap<>();
+        Map<EntityType, Map<Long, Map<String, Object>>> entityDataByType = new EnumMap<>(EntityType.class);
+        BiFunction<EntityType, Long, Map<String, Object>> entityDataLoader = (entityType, entityId) ->
+                entityDataByType.computeIfAbsent(entityType, type -> new HashMap<>())
+                        .computeIfAbsent(entityId, id -> getEntityData(entityType, id));
         
         for (RuleEngineOutput ruleEngineOutput : ruleEngineOutputs) {
-            actionOutputs.addAll(executeActions(ruleEngineOutput));
+            List<ActionConfiguration> actionConfigurations = actionConfigurationsByRule.computeIfAbsent(
+                    ruleEngineOutput.getRuleId(), actionConfigurationService::findByRuleId);
+            actionOutputs.addAll(executeActions(ruleEngineOutput, actionConfigurations, entityDataLoader));
         }
         
         return actionOutputs;
@@ -136,7 +167,7 @@ public class DefaultActionEngine implements ActionEngine {
      * @param entityId The ID of the entity
      * @return Map of entity field names to values
      */
-    private Map<String, Object> getEntityData(com.gs.ruleengine.model.EntityType entityType, Long entityId) {
+    private Map<String, Object> getEntityData(EntityType entityType, Long entityId) {
         switch (entityType) {
             case TICKET:
                 Optional<Ticket> ticketOpt = ticketService.findById(entityId);
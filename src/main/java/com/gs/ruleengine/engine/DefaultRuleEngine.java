@@ -1,160 +1,479 @@
 package com.gs.ruleengine.engine;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.gs.ruleengine.config.RuleEngineProperties;
+import com.gs.ruleengine.engine.compiler.CompiledPredicate;
+import com.gs.ruleengine.engine.compiler.EntityPredicate;
+import com.gs.ruleengine.engine.index.RuleIndex;
+import com.gs.ruleengine.model.BaseEntity;
 import com.gs.ruleengine.model.EntityType;
-import com.gs.ruleengine.model.Leave;
-import com.gs.ruleengine.model.Roster;
-import com.gs.ruleengine.model.Rule;
 import com.gs.ruleengine.model.RuleEngineOutput;
-import com.gs.ruleengine.model.Ticket;
-import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.TraceStep;
+import com.gs.ruleengine.model.expression.RequestClock;
 import com.gs.ruleengine.service.LeaveService;
 import com.gs.ruleengine.service.RosterService;
-import com.gs.ruleengine.service.RuleService;
 import com.gs.ruleengine.service.TicketService;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 /**
- * Default implementation of the rule engine.
+ * Default implementation of the rule engine. Evaluates the compiled predicate of
+ * every rule independently.
+ * 
+ * Rule sets are evaluated on stored entities through an {@link EntityRowLoader}
+ * projection query that selects only the columns the rules reference, unless
+ * {@code rule-engine.projection-queries} is off or some referenced field is not a column.
+ * The selected columns, and entity data passed in, are bound into an {@link EntityRecord}
+ * that rules read by slot through their {@link CompiledRule#getRecordPredicate() record predicate}.
+ * Entity data posted as JSON is bound into a record as it is parsed, without building a map.
+ * 
+ * Rules evaluated on a loaded entity without explain mode read the entity's fields
+ * through their {@link CompiledRule#getEntityPredicate() entity predicate}. Rules that
+ * have none, and explain mode, evaluate a lazy {@link EntityProjection} view of the
+ * entity holding only the fields the rules reference, never the full entity data.
+ * 
+ * Each request freezes the {@link RequestClock}, so relative date conditions in all
+ * rules of the request are resolved against the same day.
+ * 
+ * Rule sets with at least {@code rule-engine.parallel-threshold} rules are split into
+ * slices evaluated on a dedicated fork/join pool of {@code rule-engine.parallelism}
+ * threads; outputs keep the rule set order either way.
  */
 @Service
-public class DefaultRuleEngine implements RuleEngine {
+@ConditionalOnProperty(prefix = "rule-engine", name = "evaluator", havingValue = "default", matchIfMissing = true)
+public class DefaultRuleEngine implements RuleEngine, DisposableBean {
     
     private static final Logger logger = LoggerFactory.getLogger(DefaultRuleEngine.class);
     
-    private final RuleService ruleService;
+    /** Slices per pool thread when evaluating in parallel, so that idle threads can steal work. */
+    private static final int SLICES_PER_THREAD = 4;
+    /** Fewest rules evaluated by one task, below which forking costs more than it saves. */
+    private static final int MIN_SLICE_SIZE = 32;
+    
+    private final RuleRegistry ruleRegistry;
     private final TicketService ticketService;
     private final RosterService rosterService;
     private final LeaveService leaveService;
-    private final EntityDataExtractor entityDataExtractor;
-    private final ExpressionDeserializer expressionDeserializer;
+    private final EntityRowLoader rowLoader;
+    private final RuleEngineProperties properties;
+    private final ForkJoinPool pool;
     
     @Autowired
     public DefaultRuleEngine(
-            RuleService ruleService,
+            RuleRegistry ruleRegistry,
             TicketService ticketService,
             RosterService rosterService,
             LeaveService leaveService,
-            EntityDataExtractor entityDataExtractor,
-            ExpressionDeserializer expressionDeserializer) {
-        this.ruleService = ruleService;
+            EntityRowLoader rowLoader,
+            RuleEngineProperties properties) {
+        this.ruleRegistry = ruleRegistry;
         this.ticketService = ticketService;
         this.rosterService = rosterService;
         this.leaveService = leaveService;
-        this.entityDataExtractor = entityDataExtractor;
-        this.expressionDeserializer = expressionDeserializer;
+        this.rowLoader = rowLoader;
+        this.properties = properties;
+        this.pool = properties.getParallelThreshold() > 0 ? newPool(properties.getParallelism()) : null;
+    }
+    
+    private static ForkJoinPool newPool(int parallelism) {
+        AtomicInteger threads = new AtomicInteger();
+        return new ForkJoinPool(
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                forkJoinPool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                    thread.setName("rule-evaluation-" + threads.incrementAndGet());
+                    return thread;
+                },
+                null,
+                false);
     }
     
     @Override
-    public RuleEngineOutput evaluateRule(Long ruleId, Long entityId) {
-        Optional<Rule> ruleOpt = ruleService.findById(ruleId);
-        
-        if (ruleOpt.isEmpty()) {
-            logger.error("Rule not found with ID: {}", ruleId);
-            return null;
+    public void destroy() {
+        if (pool != null) {
+            pool.shutdownNow();
         }
-        
-        Rule rule = ruleOpt.get();
-        Map<String, Object> entityData = getEntityData(rule.getEntityType(), entityId);
-        
-        if (entityData.isEmpty()) {
-            logger.error("Entity not found with ID: {} and type: {}", entityId, rule.getEntityType());
-            return null;
+    }
+    
+    @Override
+    public RuleEngineOutput evaluateRule(Long ruleId, Long entityId) {
+        return evaluateRule(ruleId, entityId, sampleTrace());
+    }
+    
+    @Override
+    public RuleEngineOutput evaluateRule(Long ruleId, Long entityId, boolean explain) {
+        try (RequestClock.Scope clock = RequestClock.freeze()) {
+            Optional<CompiledRule> ruleOpt = ruleRegistry.findRule(ruleId);
+            
+            if (ruleOpt.isEmpty()) {
+                logger.error("Rule not found with ID: {}", ruleId);
+                return null;
+            }
+            
+            CompiledRule rule = ruleOpt.get();
+            Optional<?> entity = findEntity(rule.getEntityType(), entityId);
+            
+            if (entity.isEmpty()) {
+                logger.error("Entity not found with ID: {} and type: {}", entityId, rule.getEntityType());
+                return null;
+            }
+            
+            if (!explain && rule.getEntityPredicate() != null) {
+                return evaluateRuleOnEntity(rule, entityId, entity.get());
+            }
+            EntityProjection projection = EntityProjection.of(
+                    EntitySchema.forEntityType(rule.getEntityType()), ExpressionFields.referencedBy(rule.getExpression()));
+            return evaluateRuleWithData(rule, entityId, projection.view(entity.get()), explain);
         }
-        
-        return evaluateRuleWithData(rule, entityId, entityData);
     }
     
     @Override
     public List<RuleEngineOutput> evaluateRules(EntityType entityType, Long entityId) {
-        List<Rule> rules = ruleService.findActiveRulesByEntityType(entityType);
-        List<RuleEngineOutput> outputs = new ArrayList<>();
-        
-        if (rules.isEmpty()) {
-            logger.info("No active rules found for entity type: {}", entityType);
-            return outputs;
+        return evaluateRules(entityType, entityId, sampleTrace());
+    }
+    
+    @Override
+    public List<RuleEngineOutput> evaluateRules(EntityType entityType, Long entityId, boolean explain) {
+        try (RequestClock.Scope clock = RequestClock.freeze()) {
+            RuleSet ruleSet = ruleRegistry.getRuleSet(entityType);
+            
+            if (ruleSet.getRules().isEmpty()) {
+                logger.info("No active rules found for entity type: {}", entityType);
+                return new ArrayList<>();
+            }
+            
+            Map<Long, EntityRecord> records = findRecords(ruleSet, List.of(entityId));
+            if (records != null) {
+                EntityRecord record = records.get(entityId);
+                if (record == null) {
+                    logger.error("Entity not found with ID: {} and type: {}", entityId, entityType);
+                    return new ArrayList<>();
+                }
+                if (!explain) {
+                    return evaluateRecord(ruleSet, entityId, record);
+                }
+                return evaluateRuleSet(ruleSet, entityId, record.asMap(), true);
+            }
+            
+            Optional<?> entity = findEntity(entityType, entityId);
+            
+            if (entity.isEmpty()) {
+                logger.error("Entity not found with ID: {} and type: {}", entityId, entityType);
+                return new ArrayList<>();
+            }
+            
+            if (!explain) {
+                return evaluateRuleSet(ruleSet, entityId, entity.get());
+            }
+            return evaluateRuleSet(ruleSet, entityId, ruleSet.getProjection().view(entity.get()), true);
         }
-        
-        Map<String, Object> entityData = getEntityData(entityType, entityId);
-        
-        if (entityData.isEmpty()) {
-            logger.error("Entity not found with ID: {} and type: {}", entityId, entityType);
+    }
+    
+    @Override
+    public List<RuleEngineOutput> evaluateRulesBatch(EntityType entityType, Collection<Long> entityIds) {
+        try (RequestClock.Scope clock = RequestClock.freeze()) {
+            RuleSet ruleSet = ruleRegistry.getRuleSet(entityType);
+            
+            if (ruleSet.getRules().isEmpty()) {
+                logger.info("No active rules found for entity type: {}", entityType);
+                return new ArrayList<>();
+            }
+            
+            List<Long> ids = new ArrayList<>(new LinkedHashSet<>(entityIds));
+            int chunkSize = Math.max(1, properties.getBatchChunkSize());
+            List<RuleEngineOutput> outputs = new ArrayList<>(ids.size() * ruleSet.getRules().size());
+            
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + chunkSize));
+                Map<Long, EntityRecord> records = findRecords(ruleSet, chunk);
+                Map<Long, Object> entities = records == null ? findEntities(entityType, chunk) : null;
+                
+                for (Long entityId : chunk) {
+                    Object entity = records != null ? records.get(entityId) : entities.get(entityId);
+                    if (entity == null) {
+                        logger.error("Entity not found with ID: {} and type: {}", entityId, entityType);
+                        continue;
+                    }
+                    outputs.addAll(records != null
+                            ? evaluateRecord(ruleSet, entityId, (EntityRecord) entity)
+                            : evaluateRuleSet(ruleSet, entityId, entity));
+                }
+            }
+            
+            logger.info("Evaluated {} rules against {} entities of type {}", ruleSet.getRules().size(), ids.size(), entityType);
             return outputs;
         }
-        
-        for (Rule rule : rules) {
-            RuleEngineOutput output = evaluateRuleWithData(rule, entityId, entityData);
-            if (output != null) {
-                outputs.add(output);
+    }
+    
+    @Override
+    public RuleEngineOutput evaluateRuleWithData(Long ruleId, Map<String, Object> entityData) {
+        try (RequestClock.Scope clock = RequestClock.freeze()) {
+            Optional<CompiledRule> ruleOpt = ruleRegistry.findRule(ruleId);
+            
+            if (ruleOpt.isEmpty()) {
+                logger.error("Rule not found with ID: {}", ruleId);
+                return null;
             }
+            
+            CompiledRule rule = ruleOpt.get();
+            // Assuming entityId is in the entityData map
+            Long entityId = (Long) entityData.getOrDefault("id", null);
+            
+            return evaluateRuleWithData(rule, entityId, entityData, sampleTrace());
         }
-        
-        return outputs;
     }
     
     @Override
-    public RuleEngineOutput evaluateRuleWithData(Long ruleId, Map<String, Object> entityData) {
-        Optional<Rule> ruleOpt = ruleService.findById(ruleId);
-        
-        if (ruleOpt.isEmpty()) {
-            logger.error("Rule not found with ID: {}", ruleId);
-            return null;
+    public List<RuleEngineOutput> evaluateRulesWithData(EntityType entityType, Map<String, Object> entityData) {
+        try (RequestClock.Scope clock = RequestClock.freeze()) {
+            RuleSet ruleSet = ruleRegistry.getRuleSet(entityType);
+            
+            if (ruleSet.getRules().isEmpty()) {
+                logger.info("No active rules found for entity type: {}", entityType);
+                return new ArrayList<>();
+            }
+            
+            // Assuming entityId is in the entityData map
+            Long entityId = (Long) entityData.getOrDefault("id", null);
+            
+            return evaluateRuleSet(ruleSet, entityId, entityData, sampleTrace());
+        }
+    }
+    
+    @Override
+    public List<RuleEngineOutput> evaluateRulesWithJson(EntityType entityType, JsonParser parser) throws IOException {
+        try (RequestClock.Scope clock = RequestClock.freeze()) {
+            RuleSet ruleSet = ruleRegistry.getRuleSet(entityType);
+            
+            if (ruleSet.getRules().isEmpty()) {
+                logger.info("No active rules found for entity type: {}", entityType);
+                return new ArrayList<>();
+            }
+            
+            // Rules on fields outside the schema read them from the full entity data
+            if (!ruleSet.isProjectionComplete()) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> entityData = parser.readValueAs(Map.class);
+                if (entityData == null) {
+                    throw new JsonParseException(parser, "Entity data must be a JSON object");
+                }
+                Object id = entityData.get("id");
+                Long entityId = id instanceof Number ? ((Number) id).longValue() : null;
+                return evaluateRuleSet(ruleSet, entityId, entityData, sampleTrace());
+            }
+            
+            EntityRecord record = ruleSet.getProjection().record(parser);
+            if (!sampleTrace()) {
+                return evaluateRecord(ruleSet, record.getEntityId(), record);
+            }
+            return evaluateRuleSet(ruleSet, record.getEntityId(), record.asMap(), true);
+        }
+    }
+    
+    /**
+     * Evaluates all rules of a rule set against entity data. Rules without an
+     * expression are skipped. Unless explaining, indexed rules that are not candidates
+     * for the entity data according to the rule set's {@link RuleIndex} are
+     * reported as not matching without being evaluated.
+     * 
+     * @param ruleSet The rules to evaluate
+     * @param entityId The ID of the entity
+     * @param entityData The entity data
+     * @param explain Whether to record the decision path
+     * @return List of outputs from the rule evaluations, in rule set order
+     */
+    protected List<RuleEngineOutput> evaluateRuleSet(RuleSet ruleSet, Long entityId, Map<String, Object> entityData, boolean explain) {
+        if (!explain) {
+            return evaluateRecord(ruleSet, entityId, ruleSet.getProjection().record(entityData), entityData);
         }
         
-        Rule rule = ruleOpt.get();
-        // Assuming entityId is in the entityData map
-        Long entityId = (Long) entityData.getOrDefault("id", null);
+        return evaluateEach(ruleSet.getRules(), rule -> evaluateRuleWithData(rule, entityId, entityData, true));
+    }
+    
+    /**
+     * Evaluates all rules of a rule set against a record of the rule set's
+     * {@link RuleSet#getProjection() projection}, without explaining. Rules are skipped
+     * as in {@link #evaluateRuleSet(RuleSet, Long, Map, boolean)}.
+     * 
+     * @param ruleSet The rules to evaluate
+     * @param entityId The ID of the entity
+     * @param record The record of the entity
+     * @return List of outputs from the rule evaluations, in rule set order
+     */
+    protected List<RuleEngineOutput> evaluateRecord(RuleSet ruleSet, Long entityId, EntityRecord record) {
+        return evaluateRecord(ruleSet, entityId, record, record.asMap());
+    }
+    
+    /**
+     * Evaluates rules with a {@link CompiledRule#getRecordPredicate() record predicate}
+     * on the record, reading fields by slot, and the others on the entity data by name.
+     */
+    private List<RuleEngineOutput> evaluateRecord(RuleSet ruleSet, Long entityId, EntityRecord record, Map<String, Object> entityData) {
+        RuleIndex index = ruleSet.getRuleIndex();
+        Set<CompiledRule> candidates = index.candidates(entityData);
         
-        return evaluateRuleWithData(rule, entityId, entityData);
+        return evaluateEach(ruleSet.getRules(), rule -> {
+            if (rule.getPredicate() != null && index.isIndexed(rule) && !candidates.contains(rule)) {
+                return new RuleEngineOutput(rule.getId(), rule.getName(), rule.getEntityType(), entityId, false);
+            }
+            if (rule.getRecordPredicate() != null) {
+                return evaluatePredicate(rule, rule.getRecordPredicate(), entityId, record);
+            }
+            return evaluateRuleWithData(rule, entityId, entityData, false);
+        });
     }
     
-    @Override
-    public List<RuleEngineOutput> evaluateRulesWithData(EntityType entityType, Map<String, Object> entityData) {
-        List<Rule> rules = ruleService.findActiveRulesByEntityType(entityType);
-        List<RuleEngineOutput> outputs = new ArrayList<>();
+    /**
+     * Evaluates all rules of a rule set directly on an entity, without explaining.
+     * Rules with an {@link CompiledRule#getEntityPredicate() entity predicate} read the
+     * entity's fields through it; the others evaluate the rule set's
+     * {@link RuleSet#getProjection() projection} of the entity. Rules ruled out by the rule set's {@link RuleIndex} are
+     * skipped as in {@link #evaluateRuleSet(RuleSet, Long, Map, boolean)}.
+     * 
+     * @param ruleSet The rules to evaluate
+     * @param entityId The ID of the entity
+     * @param entity The entity, of the rule set's entity type
+     * @return List of outputs from the rule evaluations, in rule set order
+     */
+    protected List<RuleEngineOutput> evaluateRuleSet(RuleSet ruleSet, Long entityId, Object entity) {
+        RuleIndex index = ruleSet.getRuleIndex();
+        Set<CompiledRule> candidates = index.candidates(entity, EntitySchema.forEntityType(ruleSet.getEntityType()));
+        Map<String, Object> entityData = ruleSet.requiresEntityData() ? ruleSet.getProjection().view(entity) : null;
         
-        if (rules.isEmpty()) {
-            logger.info("No active rules found for entity type: {}", entityType);
+        return evaluateEach(ruleSet.getRules(), rule -> {
+            if (rule.getPredicate() != null && index.isIndexed(rule) && !candidates.contains(rule)) {
+                return new RuleEngineOutput(rule.getId(), rule.getName(), rule.getEntityType(), entityId, false);
+            }
+            if (rule.getEntityPredicate() != null) {
+                return evaluateRuleOnEntity(rule, entityId, entity);
+            }
+            return evaluateRuleWithData(rule, entityId, entityData, false);
+        });
+    }
+    
+    /**
+     * Applies an evaluation to every rule, in parallel on the evaluation pool if there
+     * are at least {@code rule-engine.parallel-threshold} rules. The frozen
+     * {@link RequestClock} date of the calling thread is carried over to the pool.
+     * 
+     * @param rules The rules
+     * @param evaluation Evaluates one rule, returning null to leave it out of the outputs;
+     *                   must be safe to call from several threads at once
+     * @return The non-null outputs, in rule order
+     */
+    private List<RuleEngineOutput> evaluateEach(List<CompiledRule> rules, Function<CompiledRule, RuleEngineOutput> evaluation) {
+        List<RuleEngineOutput> outputs = new ArrayList<>(rules.size());
+        
+        if (pool == null || rules.size() < properties.getParallelThreshold()) {
+            for (CompiledRule rule : rules) {
+                RuleEngineOutput output = evaluation.apply(rule);
+                if (output != null) {
+                    outputs.add(output);
+                }
+            }
             return outputs;
         }
         
-        // Assuming entityId is in the entityData map
-        Long entityId = (Long) entityData.getOrDefault("id", null);
+        RuleEngineOutput[] results = new RuleEngineOutput[rules.size()];
+        int slices = pool.getParallelism() * SLICES_PER_THREAD;
+        int sliceSize = Math.max(MIN_SLICE_SIZE, (rules.size() + slices - 1) / slices);
+        pool.invoke(new EvaluationTask(rules, evaluation, results, 0, rules.size(), sliceSize, RequestClock.today()));
         
-        for (Rule rule : rules) {
-            RuleEngineOutput output = evaluateRuleWithData(rule, entityId, entityData);
+        for (RuleEngineOutput output : results) {
             if (output != null) {
                 outputs.add(output);
             }
         }
-        
         return outputs;
     }
     
+    /**
+     * Evaluates a rule directly on an entity through its entity predicate.
+     * 
+     * @param rule The rule to evaluate, which must have an entity predicate
+     * @param entityId The ID of the entity
+     * @param entity The entity, of the rule's entity type
+     * @return The output of the rule evaluation
+     */
+    protected RuleEngineOutput evaluateRuleOnEntity(CompiledRule rule, Long entityId, Object entity) {
+        return evaluatePredicate(rule, rule.getEntityPredicate(), entityId, entity);
+    }
+    
+    /**
+     * Evaluates a rule through one of its compiled predicates; an exception counts as not matching.
+     */
+    private RuleEngineOutput evaluatePredicate(CompiledRule rule, EntityPredicate predicate, Long entityId, Object target) {
+        boolean result;
+        try {
+            result = predicate.test(target);
+        } catch (Exception e) {
+            logger.error("Error evaluating rule {}: {}", rule.getId(), e.getMessage(), e);
+            result = false;
+        }
+        return new RuleEngineOutput(
+                rule.getId(),
+                rule.getName(),
+                rule.getEntityType(),
+                entityId,
+                result
+        );
+    }
+    
     /**
      * Evaluates a rule against entity data.
      * 
      * @param rule The rule to evaluate
      * @param entityId The ID of the entity
      * @param entityData The entity data
+     * @param explain Whether to record the decision path
      * @return The output of the rule evaluation
      */
-    private RuleEngineOutput evaluateRuleWithData(Rule rule, Long entityId, Map<String, Object> entityData) {
+    protected RuleEngineOutput evaluateRuleWithData(CompiledRule rule, Long entityId, Map<String, Object> entityData, boolean explain) {
         try {
-            Expression expression = expressionDeserializer.deserialize(rule.getExpressionJson());
+            CompiledPredicate predicate = rule.getPredicate();
             
-            if (expression == null) {
+            if (predicate == null) {
                 logger.error("Failed to deserialize expression for rule: {}", rule.getId());
                 return null;
             }
             
-            boolean result = expression.evaluate(entityData);
+            if (explain) {
+                List<TraceStep> trace = new ArrayList<>();
+                boolean result = ExpressionTracer.evaluate(rule.getExpression(), entityData, trace);
+                
+                RuleEngineOutput output = new RuleEngineOutput(
+                        rule.getId(),
+                        rule.getName(),
+                        rule.getEntityType(),
+                        entityId,
+                        result
+                );
+                output.setTrace(trace);
+                return output;
+            }
+            
+            boolean result = predicate.test(entityData);
             
             return new RuleEngineOutput(
                     rule.getId(),
@@ -177,26 +496,121 @@ public class DefaultRuleEngine implements RuleEngine {
     }
     
     /**
-     * Gets entity data for a specific entity type and ID.
+     * Decides whether a request without explain mode is traced anyway, based on
+     * {@code rule-engine.trace-sample-rate}. Called once per request.
+     * 
+     * @return true if the request should be traced
+     */
+    private boolean sampleTrace() {
+        double sampleRate = properties.getTraceSampleRate();
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+    
+    /**
+     * Finds an entity by type and ID.
      * 
      * @param entityType The type of entity
      * @param entityId The ID of the entity
-     * @return Map of entity field names to values
+     * @return The entity, or empty if it does not exist or the type is unsupported
      */
-    private Map<String, Object> getEntityData(EntityType entityType, Long entityId) {
+    private Optional<?> findEntity(EntityType entityType, Long entityId) {
         switch (entityType) {
             case TICKET:
-                Optional<Ticket> ticketOpt = ticketService.findById(entityId);
-                return ticketOpt.map(entityDataExtractor::extractData).orElse(Map.of());
+                return ticketService.findById(entityId);
             case ROSTER:
-                Optional<Roster> rosterOpt = rosterService.findById(entityId);
-                return rosterOpt.map(entityDataExtractor::extractData).orElse(Map.of());
+                return rosterService.findById(entityId);
             case LEAVE:
-                Optional<Leave> leaveOpt = leaveService.findById(entityId);
-                return leaveOpt.map(entityDataExtractor::extractData).orElse(Map.of());
+                return leaveService.findById(entityId);
+            default:
+                logger.error("Unsupported entity type: {}", entityType);
+                return Optional.empty();
+        }
+    }
+    
+    /**
+     * Loads the fields a rule set references for entities with a projection query,
+     * unless {@code rule-engine.projection-queries} is off.
+     * 
+     * @param ruleSet The rule set
+     * @param entityIds The IDs of the entities
+     * @return Map of IDs to records of the rule set's projection for the entities that
+     *         exist, or null if the entities must be loaded instead
+     */
+    private Map<Long, EntityRecord> findRecords(RuleSet ruleSet, Collection<Long> entityIds) {
+        if (!properties.isProjectionQueries()) {
+            return null;
+        }
+        return rowLoader.findRecords(ruleSet.getEntityType(), ruleSet.getProjection(), entityIds);
+    }
+    
+    /**
+     * Finds entities by type and IDs in a single query.
+     * 
+     * @param entityType The type of entity
+     * @param entityIds The IDs of the entities
+     * @return Map of IDs to the entities that exist; empty if the type is unsupported
+     */
+    private Map<Long, Object> findEntities(EntityType entityType, Collection<Long> entityIds) {
+        List<? extends BaseEntity> entities;
+        switch (entityType) {
+            case TICKET:
+                entities = ticketService.findAllById(entityIds);
+                break;
+            case ROSTER:
+                entities = rosterService.findAllById(entityIds);
+                break;
+            case LEAVE:
+                entities = leaveService.findAllById(entityIds);
+                break;
             default:
                 logger.error("Unsupported entity type: {}", entityType);
                 return Map.of();
         }
+        
+        Map<Long, Object> byId = new HashMap<>();
+        for (BaseEntity entity : entities) {
+            byId.put(entity.getId(), entity);
+        }
+        return byId;
+    }
+    
+    /**
+     * Evaluates a range of rules, splitting it in halves down to the slice size.
+     */
+    private static final class EvaluationTask extends RecursiveAction {
+        
+        private final List<CompiledRule> rules;
+        private final Function<CompiledRule, RuleEngineOutput> evaluation;
+        private final RuleEngineOutput[] results;
+        private final int from;
+        private final int to;
+        private final int sliceSize;
+        private final LocalDate today;
+        
+        EvaluationTask(List<CompiledRule> rules, Function<CompiledRule, RuleEngineOutput> evaluation,
+                RuleEngineOutput[] results, int from, int to, int sliceSize, LocalDate today) {
+            this.rules = rules;
+            this.evaluation = evaluation;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.sliceSize = sliceSize;
+            this.today = today;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > sliceSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new EvaluationTask(rules, evaluation, results, from, middle, sliceSize, today),
+                        new EvaluationTask(rules, evaluation, results, middle, to, sliceSize, today));
+                return;
+            }
+            try (RequestClock.Scope clock = RequestClock.freeze(today)) {
+                for (int i = from; i < to; i++) {
+                    results[i] = evaluation.apply(rules.get(i));
+                }
+            }
+        }
     }
 }
@@ -3,13 +3,10 @@ package com.gs.ruleengine.engine;
 import com.gs.ruleengine.model.Leave;
 import com.gs.ruleengine.model.Roster;
 import com.gs.ruleengine.model.Ticket;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Component;
 
 /**
@@ -51,37 +48,27 @@ public class EntityDataExtractor {
     }
     
     /**
-     * Generic method to extract data from any entity using reflection.
+     * Extracts the data of any entity through the accessors of its {@link EntitySchema},
+     * built once per entity class.
      * 
      * @param entity The entity object
      * @return Map of field names to values
      */
     private Map<String, Object> extractEntityData(Object entity) {
-        Map<String, Object> data = new HashMap<>();
-        
         if (entity == null) {
-            return data;
+            return new HashMap<>();
         }
         
-        PropertyDescriptor[] propertyDescriptors = BeanUtils.getPropertyDescriptors(entity.getClass());
+        EntitySchema schema = EntitySchema.forEntityClass(entity.getClass());
+        String[] fieldNames = schema.fieldNames();
+        FieldAccessor[] accessors = schema.fieldAccessors();
+        Map<String, Object> data = new HashMap<>((int) (fieldNames.length / 0.75f) + 1);
         
-        for (PropertyDescriptor propertyDescriptor : propertyDescriptors) {
-            String propertyName = propertyDescriptor.getName();
-            
-            // Skip class property
-            if ("class".equals(propertyName)) {
-                continue;
-            }
-            
-            Method readMethod = propertyDescriptor.getReadMethod();
-            
-            if (readMethod != null) {
-                try {
-                    Object value = readMethod.invoke(entity);
-                    data.put(propertyName, value);
-                } catch (Exception e) {
-                    logger.error("Error extracting property {} from entity {}", propertyName, entity.getClass().getSimpleName(), e);
-                }
+        for (int i = 0; i < fieldNames.length; i++) {
+            try {
+                data.put(fieldNames[i], accessors[i].get(entity));
+            } catch (RuntimeException e) {
+                logger.error("Error extracting property {} from entity {}", fieldNames[i], entity.getClass().getSimpleName(), e);
             }
         }
         
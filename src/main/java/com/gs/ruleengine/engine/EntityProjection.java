@@ -0,0 +1,287 @@
+package com.gs.ruleengine.engine;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The fields of an entity type that a set of rules reads, used to evaluate the rules on
+ * a {@link #view(Object) view} of an entity instead of its fully extracted data.
+ * 
+ * A view is a read-only map of the projected fields only. Each field is read through its
+ * {@link FieldAccessor} on first access and kept for later ones, so fields no condition
+ * asks for, such as long descriptions, are never read, copied or boxed. A getter that
+ * fails reads as null, as a property {@link EntityDataExtractor} fails to extract is
+ * missing from the extracted data. Reading a field twice reads the same value, so a
+ * view can be shared by the threads evaluating the rules of one request.
+ * 
+ * The projected fields can also be bound into an {@link EntityRecord}, which holds them
+ * at their schema slots, from entity data, from selected columns or straight from a
+ * JSON document.
+ */
+public final class EntityProjection {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EntityProjection.class);
+    
+    private static final Object UNREAD = new Object();
+    
+    private final EntitySchema schema;
+    private final String[] fields;
+    private final FieldAccessor[] accessors;
+    private final int[] recordSlots;
+    private final Map<String, Integer> indexes;
+    
+    private EntityProjection(EntitySchema schema, String[] fields, FieldAccessor[] accessors) {
+        this.schema = schema;
+        this.fields = fields;
+        this.accessors = accessors;
+        this.recordSlots = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            recordSlots[i] = schema.getSlot(fields[i]);
+        }
+        
+        Map<String, Integer> byIndex = new HashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            byIndex.put(fields[i], i);
+        }
+        this.indexes = Collections.unmodifiableMap(byIndex);
+    }
+    
+    /**
+     * Creates the projection of an entity type on some of its fields.
+     * 
+     * @param schema The schema of the entity type, or null for an empty projection
+     * @param fields The field names; names the schema does not know are left out
+     * @return The projection
+     */
+    public static EntityProjection of(EntitySchema schema, Collection<String> fields) {
+        Set<String> known = new LinkedHashSet<>();
+        if (schema != null) {
+            for (String field : fields) {
+                if (schema.getAccessor(field) != null) {
+                    known.add(field);
+                }
+            }
+        }
+        
+        String[] names = known.toArray(new String[0]);
+        FieldAccessor[] fieldAccessors = new FieldAccessor[names.length];
+        for (int i = 0; i < names.length; i++) {
+            fieldAccessors[i] = schema.getAccessor(names[i]);
+        }
+        return new EntityProjection(schema, names, fieldAccessors);
+    }
+    
+    /**
+     * @return The projected field names
+     */
+    public Set<String> getFields() {
+        return indexes.keySet();
+    }
+    
+    /**
+     * Creates a lazy view of an entity.
+     * 
+     * @param entity An instance of the entity class
+     * @return Read-only map of the projected field names to their values
+     */
+    public Map<String, Object> view(Object entity) {
+        return new View(entity);
+    }
+    
+    /**
+     * Binds entity data into a record holding the projected fields. Fields are looked
+     * up in the data once, here; rules then read the record by slot.
+     * 
+     * @param entityData Map of entity field names to their values
+     * @return The record
+     */
+    public EntityRecord record(Map<String, Object> entityData) {
+        EntityRecord record = newRecord();
+        for (int i = 0; i < fields.length; i++) {
+            record.set(recordSlots[i], entityData.get(fields[i]));
+        }
+        return record;
+    }
+    
+    /**
+     * Binds a JSON object into a record holding the projected fields, reading it from the
+     * parser without building a map of it. Values of projected fields are read as an
+     * untyped map would hold them: strings, numbers as Jackson reads them, booleans,
+     * null, and nested maps or lists; every other field is skipped unread. A numeric
+     * {@code id} field is kept as the {@link EntityRecord#getEntityId() entity ID}.
+     * 
+     * @param parser The parser, positioned before or at the start of the object
+     * @return The record
+     * @throws IOException If the JSON cannot be read or is not an object
+     */
+    public EntityRecord record(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Entity data must be a JSON object");
+        }
+        
+        EntityRecord record = newRecord();
+        for (String name = parser.nextFieldName(); name != null; name = parser.nextFieldName()) {
+            JsonToken value = parser.nextToken();
+            if ("id".equals(name)) {
+                record.setEntityId(value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : null);
+            }
+            
+            Integer index = indexes.get(name);
+            if (index == null) {
+                parser.skipChildren();
+                continue;
+            }
+            record.set(recordSlots[index], readValue(parser, value));
+        }
+        return record;
+    }
+    
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                return parser.readValueAs(Object.class);
+        }
+    }
+    
+    /**
+     * @return An empty record of the projection, to be filled at the {@link #recordSlots() record slots}
+     */
+    EntityRecord newRecord() {
+        return new EntityRecord(this, schema != null ? schema.getSlotCount() : 0);
+    }
+    
+    /**
+     * @return The schema slots of the projected fields, in {@link #fieldNames()} order; not to be modified
+     */
+    int[] recordSlots() {
+        return recordSlots;
+    }
+    
+    /**
+     * @return The projected field names; not to be modified
+     */
+    String[] fieldNames() {
+        return fields;
+    }
+    
+    /**
+     * Creates a map view of a record of this projection.
+     */
+    Map<String, Object> recordView(EntityRecord record) {
+        return new ProjectedMap() {
+            @Override
+            Object value(int index) {
+                return record.get(recordSlots[index]);
+            }
+        };
+    }
+    
+    /**
+     * Read-only map of the projected fields, with values looked up by their index in the projection.
+     */
+    private abstract class ProjectedMap extends AbstractMap<String, Object> {
+        
+        @Override
+        public Object get(Object key) {
+            Integer index = indexes.get(key);
+            return index != null ? value(index) : null;
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            return indexes.containsKey(key);
+        }
+        
+        @Override
+        public int size() {
+            return fields.length;
+        }
+        
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+                        
+                        @Override
+                        public boolean hasNext() {
+                            return next < fields.length;
+                        }
+                        
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (next >= fields.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int index = next++;
+                            return new SimpleImmutableEntry<>(fields[index], value(index));
+                        }
+                    };
+                }
+                
+                @Override
+                public int size() {
+                    return fields.length;
+                }
+            };
+        }
+        
+        abstract Object value(int index);
+    }
+    
+    private final class View extends ProjectedMap {
+        
+        private final Object entity;
+        private final Object[] values;
+        
+        View(Object entity) {
+            this.entity = entity;
+            this.values = new Object[fields.length];
+            Arrays.fill(values, UNREAD);
+        }
+        
+        @Override
+        Object value(int index) {
+            Object value = values[index];
+            if (value == UNREAD) {
+                try {
+                    value = accessors[index].get(entity);
+                } catch (RuntimeException e) {
+                    logger.error("Error reading property {} from entity {}", fields[index], entity.getClass().getSimpleName(), e);
+                    value = null;
+                }
+                values[index] = value;
+            }
+            return value;
+        }
+    }
+}
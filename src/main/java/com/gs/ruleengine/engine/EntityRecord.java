@@ -0,0 +1,64 @@
+package com.gs.ruleengine.engine;
+
+import java.util.Map;
+
+/**
+ * The values of the fields of one entity that an {@link EntityProjection} holds, stored
+ * in an array at the slots their {@link EntitySchema} assigns them.
+ * 
+ * Rules compiled for records ({@link CompiledRule#getRecordPredicate()}) resolve each
+ * field name to its slot when they are compiled, so evaluating them reads the array by
+ * index instead of looking fields up by name in a map. Slots of fields outside the
+ * projection hold null.
+ */
+public final class EntityRecord {
+    
+    private final EntityProjection projection;
+    private final Object[] values;
+    private Long entityId;
+    
+    EntityRecord(EntityProjection projection, int slotCount) {
+        this.projection = projection;
+        this.values = new Object[slotCount];
+    }
+    
+    /**
+     * Gets the value at a slot.
+     * 
+     * @param slot The slot, as given by {@link EntitySchema#getSlot(String)}
+     * @return The value
+     */
+    public Object get(int slot) {
+        return values[slot];
+    }
+    
+    void set(int slot, Object value) {
+        values[slot] = value;
+    }
+    
+    /**
+     * @return The ID of the entity, or null if the record was bound without one
+     */
+    public Long getEntityId() {
+        return entityId;
+    }
+    
+    void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+    
+    /**
+     * @return The projection the record holds the fields of
+     */
+    public EntityProjection getProjection() {
+        return projection;
+    }
+    
+    /**
+     * @return Read-only map view of the projected field names to their values, for
+     *         evaluations that need entity data by name
+     */
+    public Map<String, Object> asMap() {
+        return projection.recordView(this);
+    }
+}
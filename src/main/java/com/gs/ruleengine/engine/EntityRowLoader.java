@@ -0,0 +1,139 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.model.EntityType;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.Tuple;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Loads the fields of entities that an {@link EntityProjection} holds into
+ * {@link EntityRecord}s with a projection query selecting only their columns, such as
+ * {@code select e.id, e.status, e.priority from Ticket e where e.id in :ids}, instead of
+ * loading managed entities to read a few of their fields.
+ * 
+ * Queries run in a read-only transaction without flushing the persistence context, and
+ * their rows are plain values rather than entities, so nothing is added to the
+ * persistence context and Hibernate keeps no snapshot of them for dirty checking.
+ * 
+ * The query of an entity type is generated for the projection of its current
+ * {@link RuleSet} and regenerated when a call passes another projection, i.e. when the
+ * rule set changed. A projection on a field that is not a basic persistent attribute
+ * cannot be selected; records are not loaded for it and callers load the entities instead.
+ */
+@Component
+public class EntityRowLoader {
+    
+    private static final Logger logger = LoggerFactory.getLogger(EntityRowLoader.class);
+    
+    private static final String HINT_READ_ONLY = "org.hibernate.readOnly";
+    
+    private final EntityManager entityManager;
+    private final ConcurrentMap<EntityType, RowQuery> queries = new ConcurrentHashMap<>();
+    
+    @Autowired
+    public EntityRowLoader(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+    
+    /**
+     * Loads the projected fields of entities in a single query.
+     * 
+     * @param entityType The type of entity
+     * @param projection The fields to load, typically the projection of the entity type's rule set
+     * @param entityIds The IDs of the entities
+     * @return Map of IDs to records of the projection for the entities that exist, or
+     *         null if the projection cannot be loaded with a projection query
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, EntityRecord> findRecords(EntityType entityType, EntityProjection projection, Collection<Long> entityIds) {
+        RowQuery query = queryFor(entityType, projection);
+        if (query.jpql == null) {
+            return null;
+        }
+        
+        List<Tuple> tuples = entityManager.createQuery(query.jpql, Tuple.class)
+                .setParameter("ids", entityIds)
+                .setFlushMode(FlushModeType.COMMIT)
+                .setHint(HINT_READ_ONLY, true)
+                .getResultList();
+        
+        int[] slots = projection.recordSlots();
+        Map<Long, EntityRecord> records = new HashMap<>(capacity(tuples.size()));
+        for (Tuple tuple : tuples) {
+            EntityRecord record = projection.newRecord();
+            record.setEntityId((Long) tuple.get(0));
+            for (int i = 0; i < slots.length; i++) {
+                record.set(slots[i], tuple.get(i + 1));
+            }
+            records.put(record.getEntityId(), record);
+        }
+        return records;
+    }
+    
+    private RowQuery queryFor(EntityType entityType, EntityProjection projection) {
+        RowQuery query = queries.get(entityType);
+        if (query == null || query.projection != projection) {
+            query = new RowQuery(entityType, projection);
+            queries.put(entityType, query);
+        }
+        return query;
+    }
+    
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+    
+    /**
+     * The projection query of an entity type for one projection.
+     */
+    private final class RowQuery {
+        
+        private final EntityProjection projection;
+        /** The JPQL query selecting the ID and the projected fields in order, or null if some field is not a column */
+        private final String jpql;
+        
+        RowQuery(EntityType entityType, EntityProjection projection) {
+            this.projection = projection;
+            this.jpql = generate(entityType);
+        }
+        
+        private String generate(EntityType entityType) {
+            EntitySchema schema = EntitySchema.forEntityType(entityType);
+            if (schema == null) {
+                return null;
+            }
+            
+            javax.persistence.metamodel.EntityType<?> model = entityManager.getMetamodel().entity(schema.getEntityClass());
+            StringBuilder jpql = new StringBuilder("select e.id");
+            for (String field : projection.fieldNames()) {
+                if (!isColumn(model, field)) {
+                    logger.info("Field {} of {} is not a column, entities are loaded to evaluate its rules", field, entityType);
+                    return null;
+                }
+                jpql.append(", e.").append(field);
+            }
+            return jpql.append(" from ").append(model.getName()).append(" e where e.id in :ids").toString();
+        }
+        
+        private boolean isColumn(ManagedType<?> model, String field) {
+            try {
+                return model.getAttribute(field).getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+    }
+}
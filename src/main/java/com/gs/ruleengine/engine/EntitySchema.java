@@ -0,0 +1,237 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.Leave;
+import com.gs.ruleengine.model.Roster;
+import com.gs.ruleengine.model.Ticket;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.BeanUtils;
+
+/**
+ * Describes the readable fields of an entity type and their Java types.
+ * 
+ * Fields are read through {@link FieldAccessor}s generated once per getter with
+ * {@link LambdaMetafactory}, so that reading a field is a plain interface call to the
+ * getter, as if written {@code Ticket::getStatus}, which the JIT can inline. Getters a
+ * generated class cannot link to are called through a method handle instead.
+ * 
+ * Each field is also assigned a slot, its index in property order, at which
+ * {@link EntityRecord}s hold its value.
+ * 
+ * The schemas of the entity types are built when the class is initialized; those of
+ * other entity classes are built on first use by {@link #forEntityClass(Class)}.
+ */
+public final class EntitySchema {
+    
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType ACCESSOR_FACTORY = MethodType.methodType(FieldAccessor.class);
+    private static final MethodType ACCESSOR_METHOD = MethodType.methodType(Object.class, Object.class);
+    
+    private static final Map<EntityType, EntitySchema> SCHEMAS = createSchemas();
+    
+    private static final ClassValue<EntitySchema> SCHEMAS_BY_CLASS = new ClassValue<>() {
+        @Override
+        protected EntitySchema computeValue(Class<?> entityClass) {
+            for (EntitySchema schema : SCHEMAS.values()) {
+                if (schema.entityClass == entityClass) {
+                    return schema;
+                }
+            }
+            return new EntitySchema(null, entityClass);
+        }
+    };
+    
+    private final EntityType entityType;
+    private final Class<?> entityClass;
+    private final Map<String, Class<?>> fieldTypes;
+    private final Map<String, FieldAccessor> accessors;
+    private final String[] fieldNames;
+    private final FieldAccessor[] fieldAccessors;
+    private final Map<String, Integer> slots;
+    
+    private EntitySchema(EntityType entityType, Class<?> entityClass) {
+        this.entityType = entityType;
+        this.entityClass = entityClass;
+        
+        Map<String, Class<?>> types = new LinkedHashMap<>();
+        Map<String, FieldAccessor> readers = new LinkedHashMap<>();
+        for (PropertyDescriptor propertyDescriptor : BeanUtils.getPropertyDescriptors(entityClass)) {
+            if ("class".equals(propertyDescriptor.getName()) || propertyDescriptor.getReadMethod() == null) {
+                continue;
+            }
+            types.put(propertyDescriptor.getName(), propertyDescriptor.getPropertyType());
+            readers.put(propertyDescriptor.getName(), accessor(propertyDescriptor.getName(), propertyDescriptor.getReadMethod()));
+        }
+        this.fieldTypes = Collections.unmodifiableMap(types);
+        this.accessors = Collections.unmodifiableMap(readers);
+        this.fieldNames = readers.keySet().toArray(new String[0]);
+        this.fieldAccessors = readers.values().toArray(new FieldAccessor[0]);
+        
+        Map<String, Integer> bySlot = new HashMap<>();
+        for (int i = 0; i < fieldNames.length; i++) {
+            bySlot.put(fieldNames[i], i);
+        }
+        this.slots = Collections.unmodifiableMap(bySlot);
+    }
+    
+    /**
+     * Gets the schema for an entity type.
+     * 
+     * @param entityType The type of entity
+     * @return The schema, or null if the entity type is null
+     */
+    public static EntitySchema forEntityType(EntityType entityType) {
+        return entityType != null ? SCHEMAS.get(entityType) : null;
+    }
+    
+    /**
+     * Gets the schema for an entity class, building and caching it on first use if the
+     * class is not the class of an entity type.
+     * 
+     * @param entityClass The entity class
+     * @return The schema; its entity type is null for classes of no entity type
+     */
+    public static EntitySchema forEntityClass(Class<?> entityClass) {
+        return SCHEMAS_BY_CLASS.get(entityClass);
+    }
+    
+    public EntityType getEntityType() {
+        return entityType;
+    }
+    
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+    
+    /**
+     * @return Map of field names to their declared types, in property order
+     */
+    public Map<String, Class<?>> getFieldTypes() {
+        return fieldTypes;
+    }
+    
+    /**
+     * Gets the declared type of a field.
+     * 
+     * @param field The field name
+     * @return The field type, or null if the entity has no such field
+     */
+    public Class<?> getFieldType(String field) {
+        return fieldTypes.get(field);
+    }
+    
+    /**
+     * Gets the accessor of a field.
+     * 
+     * @param field The field name
+     * @return The accessor, or null if the entity has no such field
+     */
+    public FieldAccessor getAccessor(String field) {
+        return accessors.get(field);
+    }
+    
+    /**
+     * Reads a field of an entity.
+     * 
+     * @param entity An instance of the entity class
+     * @param field The field name
+     * @return The field value, or null if the entity has no such field
+     * @throws RuntimeException if the getter throws
+     */
+    public Object read(Object entity, String field) {
+        FieldAccessor accessor = accessors.get(field);
+        return accessor != null ? accessor.get(entity) : null;
+    }
+    
+    /**
+     * Gets the slot of a field in the {@link EntityRecord records} of the entity type.
+     * Slots are numbered from 0 in property order.
+     * 
+     * @param field The field name
+     * @return The slot, or -1 if the entity has no such field
+     */
+    public int getSlot(String field) {
+        Integer slot = slots.get(field);
+        return slot != null ? slot : -1;
+    }
+    
+    /**
+     * @return The number of slots, i.e. of fields
+     */
+    public int getSlotCount() {
+        return fieldNames.length;
+    }
+    
+    /**
+     * @return The field names, in property order; not to be modified
+     */
+    String[] fieldNames() {
+        return fieldNames;
+    }
+    
+    /**
+     * @return The accessors of the {@link #fieldNames() fields}, in the same order; not to be modified
+     */
+    FieldAccessor[] fieldAccessors() {
+        return fieldAccessors;
+    }
+    
+    private FieldAccessor accessor(String field, Method readMethod) {
+        MethodHandle getter;
+        try {
+            getter = LOOKUP.unreflect(readMethod);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access getter of field '" + field + "' of " + entityClass.getSimpleName(), e);
+        }
+        try {
+            return generatedAccessor(getter);
+        } catch (LambdaConversionException e) {
+            return handleAccessor(field, getter.asType(ACCESSOR_METHOD));
+        }
+    }
+    
+    /**
+     * Generates a class implementing {@link FieldAccessor} by calling the getter.
+     */
+    private static FieldAccessor generatedAccessor(MethodHandle getter) throws LambdaConversionException {
+        CallSite site = LambdaMetafactory.metafactory(
+                LOOKUP, "get", ACCESSOR_FACTORY, ACCESSOR_METHOD, getter, getter.type().wrap());
+        try {
+            return (FieldAccessor) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create accessor for " + getter, e);
+        }
+    }
+    
+    private FieldAccessor handleAccessor(String field, MethodHandle getter) {
+        return entity -> {
+            try {
+                return (Object) getter.invokeExact(entity);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot read field '" + field + "' of " + entityClass.getSimpleName(), e);
+            }
+        };
+    }
+    
+    private static Map<EntityType, EntitySchema> createSchemas() {
+        Map<EntityType, EntitySchema> schemas = new EnumMap<>(EntityType.class);
+        schemas.put(EntityType.TICKET, new EntitySchema(EntityType.TICKET, Ticket.class));
+        schemas.put(EntityType.ROSTER, new EntitySchema(EntityType.ROSTER, Roster.class));
+        schemas.put(EntityType.LEAVE, new EntitySchema(EntityType.LEAVE, Leave.class));
+        return Collections.unmodifiableMap(schemas);
+    }
+}
@@ -0,0 +1,363 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.OrExpression;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary form of an optimized expression, stored with a rule next to its
+ * expression JSON so that the {@link RuleRegistry} can load it without Jackson.
+ * 
+ * The encoding starts with a header: a magic number, a format version, the CRC-32 of
+ * the expression JSON it was produced from and the CRC-32 of the payload. The payload
+ * is the expression tree in prefix order, with constants tagged by their Java type so
+ * that they decode to exactly the values the JSON would (an Integer stays an Integer,
+ * a Long a Long). Decoding rejects data of another format version, data that is
+ * corrupt, and data produced from different expression JSON; callers then parse the
+ * JSON instead.
+ */
+public final class ExpressionCodec {
+    
+    private static final int MAGIC = 0x52584250;
+    private static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = 4 + 1 + 4 + 4;
+    
+    private static final byte AND = 1;
+    private static final byte OR = 2;
+    private static final byte CONDITION = 3;
+    
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte INTEGER = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte BIG_INTEGER = 6;
+    private static final byte BIG_DECIMAL = 7;
+    private static final byte LIST = 8;
+    private static final byte MAP = 9;
+    private static final byte ENUM = 10;
+    private static final byte LOCAL_DATE = 11;
+    private static final byte LOCAL_DATE_TIME = 12;
+    
+    /** Enum constants are only decoded for types of the model package. */
+    private static final String ENUM_PACKAGE = "com.gs.ruleengine.model.";
+    
+    private ExpressionCodec() {
+    }
+    
+    /**
+     * Encodes an expression.
+     * 
+     * @param expression The expression, normally optimized
+     * @param expressionJson The expression JSON the expression was parsed from
+     * @return The encoded expression
+     * @throws IllegalArgumentException if the expression contains a constant of an unsupported type
+     */
+    public static byte[] encode(Expression expression, String expressionJson) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(checksum(expressionJson.getBytes(StandardCharsets.UTF_8)));
+            out.writeInt(0);
+            writeExpression(out, expression);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        byte[] data = bytes.toByteArray();
+        ByteBuffer.wrap(data).putInt(HEADER_LENGTH - 4, checksum(data, HEADER_LENGTH));
+        return data;
+    }
+    
+    /**
+     * Decodes an expression.
+     * 
+     * @param data The encoded expression
+     * @param expressionJson The current expression JSON of the rule
+     * @return The expression
+     * @throws IllegalArgumentException if the data is not a valid encoding of the current
+     *                                  format version, or was produced from other expression JSON
+     */
+    public static Expression decode(byte[] data, String expressionJson) {
+        if (data.length < HEADER_LENGTH) {
+            throw new IllegalArgumentException("Encoded expression is truncated");
+        }
+        ByteBuffer header = ByteBuffer.wrap(data);
+        if (header.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not an encoded expression");
+        }
+        byte version = header.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported encoded expression version " + version);
+        }
+        if (expressionJson == null || header.getInt() != checksum(expressionJson.getBytes(StandardCharsets.UTF_8))) {
+            throw new IllegalArgumentException("Encoded expression is out of date with the expression JSON");
+        }
+        if (header.getInt() != checksum(data, HEADER_LENGTH)) {
+            throw new IllegalArgumentException("Encoded expression is corrupt");
+        }
+        
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, HEADER_LENGTH, data.length - HEADER_LENGTH))) {
+            Expression expression = readExpression(in);
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Encoded expression has trailing data");
+            }
+            return expression;
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Encoded expression is truncated");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static void writeExpression(DataOutputStream out, Expression expression) throws IOException {
+        if (expression instanceof Condition) {
+            Condition condition = (Condition) expression;
+            out.writeByte(CONDITION);
+            writeString(out, condition.getField());
+            writeString(out, condition.getOperator() != null ? condition.getOperator().name() : null);
+            writeValue(out, condition.getValue());
+        } else if (expression instanceof AndExpression) {
+            out.writeByte(AND);
+            writeChildren(out, ((AndExpression) expression).getExpressions());
+        } else if (expression instanceof OrExpression) {
+            out.writeByte(OR);
+            writeChildren(out, ((OrExpression) expression).getExpressions());
+        } else {
+            throw new IllegalArgumentException("Cannot encode expression: " + expression);
+        }
+    }
+    
+    private static void writeChildren(DataOutputStream out, List<Expression> children) throws IOException {
+        if (children == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(children.size());
+        for (Expression child : children) {
+            writeExpression(out, child);
+        }
+    }
+    
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeString(out, value.toString());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            writeString(out, value.toString());
+        } else if (value instanceof List) {
+            out.writeByte(LIST);
+            Collection<?> elements = (Collection<?>) value;
+            out.writeInt(elements.size());
+            for (Object element : elements) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof Map) {
+            out.writeByte(MAP);
+            Map<?, ?> entries = (Map<?, ?>) value;
+            out.writeInt(entries.size());
+            for (Map.Entry<?, ?> entry : entries.entrySet()) {
+                if (!(entry.getKey() instanceof String)) {
+                    throw new IllegalArgumentException("Cannot encode map key: " + entry.getKey());
+                }
+                writeString(out, (String) entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof Enum && ((Enum<?>) value).getDeclaringClass().getName().startsWith(ENUM_PACKAGE)) {
+            out.writeByte(ENUM);
+            writeString(out, ((Enum<?>) value).getDeclaringClass().getName());
+            writeString(out, ((Enum<?>) value).name());
+        } else if (value instanceof LocalDate) {
+            out.writeByte(LOCAL_DATE);
+            out.writeLong(((LocalDate) value).toEpochDay());
+        } else if (value instanceof LocalDateTime) {
+            out.writeByte(LOCAL_DATE_TIME);
+            writeString(out, value.toString());
+        } else {
+            throw new IllegalArgumentException("Cannot encode constant of type " + value.getClass().getName());
+        }
+    }
+    
+    /**
+     * Writes a nullable string as its UTF-8 length (-1 for null) and bytes, which unlike
+     * {@link DataOutputStream#writeUTF} has no 64 KB limit.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+    
+    private static Expression readExpression(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case CONDITION:
+                String field = readString(in);
+                String operator = readString(in);
+                return new Condition(field, operator != null ? operator(operator) : null, readValue(in));
+            case AND:
+                return new AndExpression(readChildren(in));
+            case OR:
+                return new OrExpression(readChildren(in));
+            default:
+                throw new IllegalArgumentException("Unknown expression tag " + tag);
+        }
+    }
+    
+    private static Operator operator(String name) {
+        try {
+            return Operator.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown operator " + name);
+        }
+    }
+    
+    private static List<Expression> readChildren(DataInputStream in) throws IOException {
+        int size = readSize(in, true);
+        if (size < 0) {
+            return null;
+        }
+        List<Expression> children = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            children.add(readExpression(in));
+        }
+        return children;
+    }
+    
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case BOOLEAN:
+                return in.readBoolean();
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case BIG_INTEGER:
+                return new BigInteger(readString(in));
+            case BIG_DECIMAL:
+                return new BigDecimal(readString(in));
+            case LIST:
+                int length = readSize(in, false);
+                List<Object> elements = new ArrayList<>(length);
+                for (int i = 0; i < length; i++) {
+                    elements.add(readValue(in));
+                }
+                return elements;
+            case MAP:
+                int size = readSize(in, false);
+                Map<String, Object> entries = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    entries.put(readString(in), readValue(in));
+                }
+                return entries;
+            case ENUM:
+                return enumConstant(readString(in), readString(in));
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(in.readLong());
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.parse(readString(in));
+            default:
+                throw new IllegalArgumentException("Unknown constant tag " + tag);
+        }
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumConstant(String className, String name) {
+        if (className == null || !className.startsWith(ENUM_PACKAGE)) {
+            throw new IllegalArgumentException("Cannot decode enum type " + className);
+        }
+        try {
+            Class<?> type = Class.forName(className, false, ExpressionCodec.class.getClassLoader());
+            if (!type.isEnum()) {
+                throw new IllegalArgumentException("Not an enum type: " + className);
+            }
+            return Enum.valueOf((Class) type, name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown enum type " + className);
+        }
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readSize(in, true);
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Reads a length, checking it against the remaining data so that corrupt data
+     * cannot cause a huge allocation.
+     */
+    private static int readSize(DataInputStream in, boolean nullable) throws IOException {
+        int size = in.readInt();
+        if ((size < 0 && !(nullable && size == -1)) || size > in.available()) {
+            throw new IllegalArgumentException("Encoded expression has an invalid length " + size);
+        }
+        return size;
+    }
+    
+    private static int checksum(byte[] data) {
+        return checksum(data, 0);
+    }
+    
+    private static int checksum(byte[] data, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, data.length - offset);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,65 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.OrExpression;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the entity fields an expression reads.
+ */
+public final class ExpressionFields {
+    
+    private ExpressionFields() {
+    }
+    
+    /**
+     * Gets the fields referenced by the conditions of an expression.
+     * 
+     * @param expression The expression, may be null
+     * @return The field names, in order of first reference
+     */
+    public static Set<String> referencedBy(Expression expression) {
+        Set<String> fields = new LinkedHashSet<>();
+        collect(expression, fields);
+        return fields;
+    }
+    
+    /**
+     * Gets the fields referenced by the conditions of any of the given rules.
+     * 
+     * @param rules The rules
+     * @return The field names, in order of first reference
+     */
+    public static Set<String> referencedBy(List<CompiledRule> rules) {
+        Set<String> fields = new LinkedHashSet<>();
+        for (CompiledRule rule : rules) {
+            collect(rule.getExpression(), fields);
+        }
+        return fields;
+    }
+    
+    private static void collect(Expression expression, Set<String> fields) {
+        if (expression instanceof Condition) {
+            String field = ((Condition) expression).getField();
+            if (field != null) {
+                fields.add(field);
+            }
+        } else if (expression instanceof AndExpression) {
+            collectAll(((AndExpression) expression).getExpressions(), fields);
+        } else if (expression instanceof OrExpression) {
+            collectAll(((OrExpression) expression).getExpressions(), fields);
+        }
+    }
+    
+    private static void collectAll(List<Expression> expressions, Set<String> fields) {
+        if (expressions != null) {
+            for (Expression expression : expressions) {
+                collect(expression, fields);
+            }
+        }
+    }
+}
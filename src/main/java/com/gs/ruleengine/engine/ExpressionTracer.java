@@ -0,0 +1,84 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.model.TraceStep;
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.OrExpression;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interprets an expression tree while recording the decision path.
+ * 
+ * Used only for requests in explain mode or selected by trace sampling; the
+ * regular evaluation path runs the compiled predicate and records nothing.
+ */
+final class ExpressionTracer {
+    
+    private ExpressionTracer() {
+    }
+    
+    /**
+     * Evaluates an expression and appends a step for every node visited.
+     * 
+     * @param expression The expression to evaluate
+     * @param entityData Map of entity field names to their values
+     * @param steps The list receiving the trace steps
+     * @return The result of the evaluation
+     */
+    static boolean evaluate(Expression expression, Map<String, Object> entityData, List<TraceStep> steps) {
+        return evaluate(expression, entityData, steps, 0);
+    }
+    
+    private static boolean evaluate(Expression expression, Map<String, Object> entityData, List<TraceStep> steps, int depth) {
+        if (expression instanceof Condition) {
+            Condition condition = (Condition) expression;
+            boolean result = condition.evaluate(entityData);
+            steps.add(new TraceStep(depth, condition.getField(), condition.getOperator(), condition.getValue(),
+                    entityData.get(condition.getField()), result));
+            return result;
+        }
+        
+        if (expression instanceof AndExpression) {
+            TraceStep step = new TraceStep(depth, "AND");
+            steps.add(step);
+            
+            boolean result = true;
+            List<Expression> children = ((AndExpression) expression).getExpressions();
+            if (children != null) {
+                for (Expression child : children) {
+                    if (!evaluate(child, entityData, steps, depth + 1)) {
+                        result = false;
+                        break;
+                    }
+                }
+            }
+            step.setResult(result);
+            return result;
+        }
+        
+        if (expression instanceof OrExpression) {
+            TraceStep step = new TraceStep(depth, "OR");
+            steps.add(step);
+            
+            boolean result = false;
+            List<Expression> children = ((OrExpression) expression).getExpressions();
+            if (children != null) {
+                for (Expression child : children) {
+                    if (evaluate(child, entityData, steps, depth + 1)) {
+                        result = true;
+                        break;
+                    }
+                }
+            }
+            step.setResult(result);
+            return result;
+        }
+        
+        TraceStep step = new TraceStep(depth, expression.getClass().getSimpleName());
+        step.setResult(expression.evaluate(entityData));
+        steps.add(step);
+        return step.isResult();
+    }
+}
@@ -0,0 +1,17 @@
+package com.gs.ruleengine.engine;
+
+/**
+ * Reads one field of an entity, obtained from {@link EntitySchema#getAccessor(String)}.
+ */
+@FunctionalInterface
+public interface FieldAccessor {
+    
+    /**
+     * Reads the field.
+     * 
+     * @param entity An instance of the entity class
+     * @return The field value
+     * @throws RuntimeException if the getter throws
+     */
+    Object get(Object entity);
+}
@@ -0,0 +1,135 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.config.RuleEngineProperties;
+import com.gs.ruleengine.engine.compiler.ExpressionCompiler;
+import com.gs.ruleengine.engine.index.RuleIndex;
+import com.gs.ruleengine.engine.rete.ReteNetwork;
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.RuleEngineOutput;
+import com.gs.ruleengine.service.LeaveService;
+import com.gs.ruleengine.service.RosterService;
+import com.gs.ruleengine.service.TicketService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Rule engine that evaluates all active rules of an entity type through a shared
+ * {@link ReteNetwork}, so each distinct condition is evaluated once per entity no
+ * matter how many rules use it. Rules ruled out by the rule set's {@link RuleIndex}
+ * are not evaluated. Enabled with {@code rule-engine.evaluator=rete}.
+ * 
+ * A network is built for each {@link RuleSet} snapshot and replaced when the
+ * registry swaps in a new one. Single-rule evaluation and explain mode go through
+ * {@link DefaultRuleEngine}.
+ */
+@Service
+@ConditionalOnProperty(prefix = "rule-engine", name = "evaluator", havingValue = "rete")
+public class ReteRuleEngine extends DefaultRuleEngine {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReteRuleEngine.class);
+    
+    private final ExpressionCompiler expressionCompiler;
+    private final Map<EntityType, AtomicReference<ReteNetwork>> networks;
+    
+    @Autowired
+    public ReteRuleEngine(
+            RuleRegistry ruleRegistry,
+            TicketService ticketService,
+            RosterService rosterService,
+            LeaveService leaveService,
+            EntityRowLoader rowLoader,
+            RuleEngineProperties properties,
+            ExpressionCompiler expressionCompiler) {
+        super(ruleRegistry, ticketService, rosterService, leaveService, rowLoader, properties);
+        this.expressionCompiler = expressionCompiler;
+        
+        Map<EntityType, AtomicReference<ReteNetwork>> refs = new EnumMap<>(EntityType.class);
+        for (EntityType entityType : EntityType.values()) {
+            refs.put(entityType, new AtomicReference<>());
+        }
+        this.networks = Collections.unmodifiableMap(refs);
+    }
+    
+    @Override
+    protected List<RuleEngineOutput> evaluateRuleSet(RuleSet ruleSet, Long entityId, Map<String, Object> entityData, boolean explain) {
+        if (explain) {
+            return super.evaluateRuleSet(ruleSet, entityId, entityData, true);
+        }
+        
+        ReteNetwork.Session session = getNetwork(ruleSet).newSession(entityData);
+        List<CompiledRule> rules = ruleSet.getRules();
+        List<RuleEngineOutput> outputs = new ArrayList<>(rules.size());
+        RuleIndex index = ruleSet.getRuleIndex();
+        Set<CompiledRule> candidates = index.candidates(entityData);
+        
+        for (int i = 0; i < rules.size(); i++) {
+            CompiledRule rule = rules.get(i);
+            
+            if (!session.hasExpression(i)) {
+                logger.error("Failed to deserialize expression for rule: {}", rule.getId());
+                continue;
+            }
+            
+            boolean result;
+            try {
+                result = (!index.isIndexed(rule) || candidates.contains(rule)) && session.matches(i);
+            } catch (Exception e) {
+                logger.error("Error evaluating rule {}: {}", rule.getId(), e.getMessage(), e);
+                result = false;
+            }
+            
+            outputs.add(new RuleEngineOutput(
+                    rule.getId(),
+                    rule.getName(),
+                    rule.getEntityType(),
+                    entityId,
+                    result
+            ));
+        }
+        
+        return outputs;
+    }
+    
+    @Override
+    protected List<RuleEngineOutput> evaluateRuleSet(RuleSet ruleSet, Long entityId, Object entity) {
+        // The network shares condition results through the entity data
+        return evaluateRuleSet(ruleSet, entityId, ruleSet.getProjection().view(entity), false);
+    }
+    
+    @Override
+    protected List<RuleEngineOutput> evaluateRecord(RuleSet ruleSet, Long entityId, EntityRecord record) {
+        return evaluateRuleSet(ruleSet, entityId, record.asMap(), false);
+    }
+    
+    /**
+     * Gets the network for a rule set, building it if the cached network was built
+     * from a different snapshot.
+     * 
+     * @param ruleSet The rule set
+     * @return The network for the rule set
+     */
+    ReteNetwork getNetwork(RuleSet ruleSet) {
+        AtomicReference<ReteNetwork> ref = networks.get(ruleSet.getEntityType());
+        ReteNetwork current = ref.get();
+        
+        if (current != null && current.getRuleSet() == ruleSet) {
+            return current;
+        }
+        
+        ReteNetwork network = ReteNetwork.build(ruleSet, expressionCompiler);
+        ref.compareAndSet(current, network);
+        logger.debug("Built network for entity type {}: {} rules, {} distinct conditions, {} nodes",
+                ruleSet.getEntityType(), ruleSet.getRules().size(), network.getConditionCount(), network.getNodeCount());
+        return network;
+    }
+}
@@ -1,7 +1,10 @@
 package com.gs.ruleengine.engine;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.gs.ruleengine.model.EntityType;
 import com.gs.ruleengine.model.RuleEngineOutput;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +22,16 @@ public interface RuleEngine {
      */
     RuleEngineOutput evaluateRule(Long ruleId, Long entityId);
     
+    /**
+     * Evaluates a single rule against an entity, optionally recording the decision path.
+     * 
+     * @param ruleId The ID of the rule to evaluate
+     * @param entityId The ID of the entity to evaluate against
+     * @param explain Whether to record the decision path in {@link RuleEngineOutput#getTrace()}
+     * @return The output of the rule evaluation
+     */
+    RuleEngineOutput evaluateRule(Long ruleId, Long entityId, boolean explain);
+    
     /**
      * Evaluates all active rules for a specific entity type against an entity.
      * 
@@ -28,6 +41,29 @@ public interface RuleEngine {
      */
     List<RuleEngineOutput> evaluateRules(EntityType entityType, Long entityId);
     
+    /**
+     * Evaluates all active rules for a specific entity type against an entity,
+     * optionally recording the decision path of each rule.
+     * 
+     * @param entityType The type of entity
+     * @param entityId The ID of the entity to evaluate against
+     * @param explain Whether to record the decision path in {@link RuleEngineOutput#getTrace()}
+     * @return List of outputs from the rule evaluations
+     */
+    List<RuleEngineOutput> evaluateRules(EntityType entityType, Long entityId, boolean explain);
+    
+    /**
+     * Evaluates all active rules for a specific entity type against many entities,
+     * loading the rule set once and the entities in chunks.
+     * 
+     * @param entityType The type of entity
+     * @param entityIds The IDs of the entities to evaluate against; IDs of entities
+     *                  that do not exist are skipped
+     * @return List of outputs from the rule evaluations, grouped by entity in the
+     *         order of the IDs and in rule set order within each entity
+     */
+    List<RuleEngineOutput> evaluateRulesBatch(EntityType entityType, Collection<Long> entityIds);
+    
     /**
      * Evaluates a rule against entity data directly.
      * 
@@ -45,4 +81,18 @@ public interface RuleEngine {
      * @return List of outputs from the rule evaluations
      */
     List<RuleEngineOutput> evaluateRulesWithData(EntityType entityType, Map<String, Object> entityData);
+    
+    /**
+     * Evaluates all active rules for a specific entity type against entity data read
+     * from a JSON object, as {@link #evaluateRulesWithData(EntityType, Map)} would
+     * evaluate the object parsed into a map, but reading only the fields the rules
+     * reference and skipping the others.
+     * 
+     * @param entityType The type of entity
+     * @param parser Parser positioned before or at the start of the object of entity
+     *               field names to their values; the entity ID is read from its {@code id} field
+     * @return List of outputs from the rule evaluations
+     * @throws IOException If the JSON cannot be read or is not an object
+     */
+    List<RuleEngineOutput> evaluateRulesWithJson(EntityType entityType, JsonParser parser) throws IOException;
 }
@@ -0,0 +1,213 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.config.RuleEngineProperties;
+import com.gs.ruleengine.engine.compiler.ExpressionCompiler;
+import com.gs.ruleengine.engine.compiler.ExpressionOptimizer;
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.Rule;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.service.RuleChangedEvent;
+import com.gs.ruleengine.service.RuleService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds a pre-parsed snapshot of the active rules per entity type, so that rule
+ * evaluation does not query the database or parse expression JSON per request.
+ * Expressions are normalized by {@link ExpressionOptimizer} before they are compiled.
+ * Rules saved with a binary form of the optimized expression ({@link ExpressionCodec})
+ * are loaded from it, without parsing or optimizing the JSON again.
+ * 
+ * Snapshots are updated atomically, one rule at a time, when {@link RuleService}
+ * reports a change and are reloaded in full once they are older than {@code rule-engine.cache-expiration-seconds}.
+ * Rules are loaded in ID order and updates keep that order, so rules are evaluated in
+ * the same order whether a snapshot was updated or reloaded.
+ * With {@code rule-engine.enable-caching=false} every lookup goes to the database.
+ */
+@Component
+public class RuleRegistry {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RuleRegistry.class);
+    
+    private final RuleService ruleService;
+    private final ExpressionDeserializer expressionDeserializer;
+    private final ExpressionCompiler expressionCompiler;
+    private final RuleEngineProperties properties;
+    private final Map<EntityType, AtomicReference<RuleSet>> snapshots;
+    
+    @Autowired
+    public RuleRegistry(
+            RuleService ruleService,
+            ExpressionDeserializer expressionDeserializer,
+            ExpressionCompiler expressionCompiler,
+            RuleEngineProperties properties) {
+        this.ruleService = ruleService;
+        this.expressionDeserializer = expressionDeserializer;
+        this.expressionCompiler = expressionCompiler;
+        this.properties = properties;
+        
+        Map<EntityType, AtomicReference<RuleSet>> refs = new EnumMap<>(EntityType.class);
+        for (EntityType entityType : EntityType.values()) {
+            refs.put(entityType, new AtomicReference<>());
+        }
+        this.snapshots = Collections.unmodifiableMap(refs);
+    }
+    
+    /**
+     * Gets the active rules for an entity type.
+     * 
+     * @param entityType The type of entity
+     * @return The compiled active rules, in repository order
+     */
+    public List<CompiledRule> getActiveRules(EntityType entityType) {
+        return getRuleSet(entityType).getRules();
+    }
+    
+    /**
+     * Gets the current snapshot of active rules for an entity type, loading it if
+     * it is missing or expired.
+     * 
+     * @param entityType The type of entity
+     * @return The rule set snapshot
+     */
+    public RuleSet getRuleSet(EntityType entityType) {
+        if (!properties.isEnableCaching()) {
+            return load(entityType);
+        }
+        
+        AtomicReference<RuleSet> ref = snapshots.get(entityType);
+        RuleSet current = ref.get();
+        
+        if (current != null && !isExpired(current)) {
+            return current;
+        }
+        
+        RuleSet loaded = load(entityType);
+        // Keep a snapshot swapped in concurrently by a rule change
+        if (!ref.compareAndSet(current, loaded)) {
+            RuleSet swapped = ref.get();
+            return swapped != null ? swapped : loaded;
+        }
+        return loaded;
+    }
+    
+    /**
+     * Finds a rule by ID. Active rules are served from the loaded snapshots; any
+     * other rule is loaded from the database and compiled on demand.
+     * 
+     * @param ruleId The ID of the rule
+     * @return The compiled rule, or empty if no rule exists with that ID
+     */
+    public Optional<CompiledRule> findRule(Long ruleId) {
+        if (properties.isEnableCaching()) {
+            for (AtomicReference<RuleSet> ref : snapshots.values()) {
+                RuleSet ruleSet = ref.get();
+                if (ruleSet != null && !isExpired(ruleSet)) {
+                    CompiledRule rule = ruleSet.getRule(ruleId);
+                    if (rule != null) {
+                        return Optional.of(rule);
+                    }
+                }
+            }
+        }
+        
+        return ruleService.findById(ruleId).map(this::compile);
+    }
+    
+    /**
+     * Applies a rule change to every loaded snapshot: the changed rule is recompiled and
+     * replaced in, added to or removed from each snapshot, while the other rules keep
+     * their compiled form. Snapshots that are not loaded are left to the next lookup.
+     * 
+     * @param event The rule change event
+     */
+    @EventListener
+    public void onRuleChanged(RuleChangedEvent event) {
+        if (!properties.isEnableCaching()) {
+            return;
+        }
+        
+        Optional<CompiledRule> changed = event.getEntityType() != null
+                ? ruleService.findById(event.getRuleId()).filter(Rule::isActive).map(this::compile)
+                : Optional.empty();
+        
+        for (Map.Entry<EntityType, AtomicReference<RuleSet>> entry : snapshots.entrySet()) {
+            AtomicReference<RuleSet> ref = entry.getValue();
+            RuleSet current;
+            RuleSet updated;
+            do {
+                current = ref.get();
+                if (current == null) {
+                    break;
+                }
+                updated = changed.isPresent() && changed.get().getEntityType() == entry.getKey()
+                        ? current.withRule(changed.get())
+                        : current.withoutRule(event.getRuleId());
+            } while (updated != current && !ref.compareAndSet(current, updated));
+            
+            if (current != null) {
+                logger.debug("Applied change to rule {} to the snapshot for entity type {}",
+                        event.getRuleId(), entry.getKey());
+            }
+        }
+    }
+    
+    private RuleSet load(EntityType entityType) {
+        List<Rule> rules = ruleService.findActiveRulesByEntityType(entityType);
+        List<CompiledRule> compiledRules = new ArrayList<>(rules.size());
+        
+        for (Rule rule : rules) {
+            compiledRules.add(compile(rule));
+        }
+        
+        return new RuleSet(entityType, compiledRules, System.nanoTime());
+    }
+    
+    private CompiledRule compile(Rule rule) {
+        Expression expression = parse(rule);
+        if (expression == null) {
+            return new CompiledRule(rule.getId(), rule.getName(), rule.getEntityType(), null, null);
+        }
+        EntitySchema schema = EntitySchema.forEntityType(rule.getEntityType());
+        return new CompiledRule(rule.getId(), rule.getName(), rule.getEntityType(), expression,
+                expressionCompiler.tiered(expression, schema), expressionCompiler.entityPredicate(expression, schema),
+                expressionCompiler.recordPredicate(expression, schema));
+    }
+    
+    /**
+     * Gets the optimized expression of a rule from its binary form, or by parsing and
+     * optimizing its expression JSON if there is no usable binary form.
+     * 
+     * @return The expression, or null if the rule has none or its JSON cannot be parsed
+     */
+    private Expression parse(Rule rule) {
+        if (rule.getCompiledExpression() != null) {
+            try {
+                return ExpressionCodec.decode(rule.getCompiledExpression(), rule.getExpressionJson());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Parsing expression JSON of rule {}: {}", rule.getId(), e.getMessage());
+            }
+        }
+        Expression expression = rule.getExpressionJson() != null
+                ? expressionDeserializer.deserialize(rule.getExpressionJson())
+                : null;
+        return expression != null ? ExpressionOptimizer.optimize(expression) : null;
+    }
+    
+    private boolean isExpired(RuleSet ruleSet) {
+        long expirationSeconds = properties.getCacheExpirationSeconds();
+        return expirationSeconds > 0
+                && System.nanoTime() - ruleSet.getLoadedAtNanos() > TimeUnit.SECONDS.toNanos(expirationSeconds);
+    }
+}
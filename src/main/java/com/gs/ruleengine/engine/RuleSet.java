@@ -0,0 +1,138 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.engine.index.RuleIndex;
+import com.gs.ruleengine.model.EntityType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the active rules for one entity type, with an
+ * {@link RuleIndex} over their EQUALS and range conditions and the
+ * {@link EntityProjection} of the fields their conditions reference.
+ */
+public final class RuleSet {
+    
+    private final EntityType entityType;
+    private final List<CompiledRule> rules;
+    private final Map<Long, CompiledRule> rulesById;
+    private final RuleIndex ruleIndex;
+    private final long loadedAtNanos;
+    private final boolean requiresEntityData;
+    private final EntityProjection projection;
+    private final boolean projectionComplete;
+    
+    public RuleSet(EntityType entityType, List<CompiledRule> rules, long loadedAtNanos) {
+        this(entityType, rules, RuleIndex.of(rules), loadedAtNanos);
+    }
+    
+    private RuleSet(EntityType entityType, List<CompiledRule> rules, RuleIndex ruleIndex, long loadedAtNanos) {
+        this.entityType = entityType;
+        this.rules = List.copyOf(rules);
+        this.ruleIndex = ruleIndex;
+        this.loadedAtNanos = loadedAtNanos;
+        
+        Map<Long, CompiledRule> byId = new HashMap<>();
+        for (CompiledRule rule : this.rules) {
+            byId.put(rule.getId(), rule);
+        }
+        this.rulesById = Collections.unmodifiableMap(byId);
+        this.requiresEntityData = this.rules.stream()
+                .anyMatch(rule -> rule.getPredicate() != null && rule.getEntityPredicate() == null);
+        Set<String> fields = ExpressionFields.referencedBy(this.rules);
+        this.projection = EntityProjection.of(EntitySchema.forEntityType(entityType), fields);
+        this.projectionComplete = projection.getFields().size() == fields.size();
+    }
+    
+    public EntityType getEntityType() {
+        return entityType;
+    }
+    
+    public List<CompiledRule> getRules() {
+        return rules;
+    }
+    
+    public CompiledRule getRule(Long ruleId) {
+        return rulesById.get(ruleId);
+    }
+    
+    public RuleIndex getRuleIndex() {
+        return ruleIndex;
+    }
+    
+    /**
+     * @return true if some rule can only be evaluated on extracted entity data, because
+     *         it has a predicate but no {@link CompiledRule#getEntityPredicate() entity predicate}
+     */
+    public boolean requiresEntityData() {
+        return requiresEntityData;
+    }
+    
+    /**
+     * @return The projection of the entity type on the fields the rules reference, to
+     *         evaluate the rules on entity data without extracting every field
+     */
+    public EntityProjection getProjection() {
+        return projection;
+    }
+    
+    /**
+     * @return true if the projection holds every field the rules reference, so that
+     *         rules evaluated on a record of it see the same data as on the full entity data;
+     *         false if some rule references a field the entity type's schema does not know
+     */
+    public boolean isProjectionComplete() {
+        return projectionComplete;
+    }
+    
+    /**
+     * Returns a snapshot that also contains a rule. A rule with the same ID keeps its
+     * position; a new rule is inserted before the first rule with a greater ID, so that
+     * rules loaded in ID order stay in the order a full reload would give them. The
+     * index is updated rather than rebuilt.
+     * 
+     * @param rule The rule to add or replace
+     * @return The updated snapshot, with the same load time
+     */
+    public RuleSet withRule(CompiledRule rule) {
+        List<CompiledRule> newRules = new ArrayList<>(rules);
+        CompiledRule existing = rulesById.get(rule.getId());
+        if (existing != null) {
+            newRules.set(rules.indexOf(existing), rule);
+        } else {
+            newRules.add(insertionPoint(rule.getId()), rule);
+        }
+        return new RuleSet(entityType, newRules, ruleIndex.withRule(rule), loadedAtNanos);
+    }
+    
+    /**
+     * Returns a snapshot without a rule.
+     * 
+     * @param ruleId The ID of the rule to remove
+     * @return The updated snapshot with the same load time, or this snapshot if it does not contain the rule
+     */
+    public RuleSet withoutRule(Long ruleId) {
+        if (!rulesById.containsKey(ruleId)) {
+            return this;
+        }
+        List<CompiledRule> newRules = new ArrayList<>(rules);
+        newRules.removeIf(rule -> rule.getId().equals(ruleId));
+        return new RuleSet(entityType, newRules, ruleIndex.withoutRule(ruleId), loadedAtNanos);
+    }
+    
+    private int insertionPoint(Long ruleId) {
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).getId().compareTo(ruleId) > 0) {
+                return i;
+            }
+        }
+        return rules.size();
+    }
+    
+    public long getLoadedAtNanos() {
+        return loadedAtNanos;
+    }
+}
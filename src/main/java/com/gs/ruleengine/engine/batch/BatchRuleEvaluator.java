@@ -0,0 +1,231 @@
+package com.gs.ruleengine.engine.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.ruleengine.config.RuleEngineProperties;
+import com.gs.ruleengine.engine.CompiledRule;
+import com.gs.ruleengine.engine.EntitySchema;
+import com.gs.ruleengine.engine.ExpressionFields;
+import com.gs.ruleengine.engine.RuleRegistry;
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.RuleEngineOutput;
+import com.gs.ruleengine.model.expression.RequestClock;
+import com.gs.ruleengine.service.LeaveService;
+import com.gs.ruleengine.service.RosterService;
+import com.gs.ruleengine.service.TicketService;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Evaluates the active rules of an entity type against every entity of that type.
+ * 
+ * Entities are read in chunks of {@code rule-engine.batch-chunk-size}, loaded into a
+ * {@link ColumnBatch} holding only the fields the rules reference, and evaluated by
+ * {@link ColumnarEvaluator} one rule at a time over the whole chunk.
+ * 
+ * {@link #writeOutputs(EntityType, OutputStream)} reads the entities through a database
+ * cursor instead of pages and detaches each chunk once evaluated, so its memory use
+ * stays flat however large the table is.
+ */
+@Service
+public class BatchRuleEvaluator {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BatchRuleEvaluator.class);
+    
+    private final RuleRegistry ruleRegistry;
+    private final TicketService ticketService;
+    private final RosterService rosterService;
+    private final LeaveService leaveService;
+    private final RuleEngineProperties properties;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    
+    @Autowired
+    public BatchRuleEvaluator(
+            RuleRegistry ruleRegistry,
+            TicketService ticketService,
+            RosterService rosterService,
+            LeaveService leaveService,
+            RuleEngineProperties properties,
+            EntityManager entityManager,
+            ObjectMapper objectMapper) {
+        this.ruleRegistry = ruleRegistry;
+        this.ticketService = ticketService;
+        this.rosterService = rosterService;
+        this.leaveService = leaveService;
+        this.properties = properties;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Finds the entities matching each active rule of an entity type.
+     * 
+     * @param entityType The type of entity
+     * @return Map of rule IDs to the IDs of the matching entities, in rule order;
+     *         rules without a valid expression are left out
+     */
+    public Map<Long, List<Long>> findMatchingEntities(EntityType entityType) {
+        List<CompiledRule> rules = findEvaluableRules(entityType);
+        Map<Long, List<Long>> matches = new LinkedHashMap<>();
+        
+        for (CompiledRule rule : rules) {
+            matches.put(rule.getId(), new ArrayList<>());
+        }
+        if (rules.isEmpty()) {
+            return matches;
+        }
+        
+        EntitySchema schema = EntitySchema.forEntityType(entityType);
+        Set<String> fields = ExpressionFields.referencedBy(rules);
+        int chunkSize = Math.max(1, properties.getBatchChunkSize());
+        Pageable pageable = PageRequest.of(0, chunkSize, Sort.by("id"));
+        long entities = 0;
+        
+        // Every chunk sees the same day
+        try (RequestClock.Scope clock = RequestClock.freeze()) {
+            while (true) {
+                Page<?> page = findPage(entityType, pageable);
+                ColumnBatch batch = ColumnBatch.load(schema, page.getContent(), fields);
+                entities += batch.size();
+                
+                for (CompiledRule rule : rules) {
+                    BitSet rows = ColumnarEvaluator.evaluate(rule.getExpression(), batch);
+                    List<Long> ids = matches.get(rule.getId());
+                    for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                        ids.add(batch.getId(row));
+                    }
+                }
+                
+                if (!page.hasNext()) {
+                    break;
+                }
+                pageable = pageable.next();
+            }
+        }
+        
+        logger.info("Evaluated {} rules against {} entities of type {}", rules.size(), entities, entityType);
+        return matches;
+    }
+    
+    /**
+     * Evaluates the active rules of an entity type against every entity of that type and
+     * writes the outputs as newline-delimited JSON, one {@link RuleEngineOutput} per line,
+     * grouped by entity in ID order and in rule set order within each entity. Rules
+     * without a valid expression are left out. No actions are executed.
+     * 
+     * @param entityType The type of entity
+     * @param out The stream to write to, e.g. a response body or a file; flushed but not closed
+     * @return The number of entities evaluated
+     * @throws IOException if writing to the stream fails
+     */
+    @Transactional(readOnly = true)
+    public long writeOutputs(EntityType entityType, OutputStream out) throws IOException {
+        List<CompiledRule> rules = findEvaluableRules(entityType);
+        if (rules.isEmpty()) {
+            return 0;
+        }
+        
+        EntitySchema schema = EntitySchema.forEntityType(entityType);
+        Set<String> fields = ExpressionFields.referencedBy(rules);
+        int chunkSize = Math.max(1, properties.getBatchChunkSize());
+        List<Object> chunk = new ArrayList<>(chunkSize);
+        OutputStream buffered = new BufferedOutputStream(out);
+        long entities = 0;
+        
+        // Every chunk sees the same day
+        try (RequestClock.Scope clock = RequestClock.freeze(); Stream<?> stream = streamAll(entityType)) {
+            Iterator<?> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    writeChunk(entityType, rules, ColumnBatch.load(schema, chunk, fields), buffered);
+                    entities += chunk.size();
+                    // Release the chunk from the persistence context before reading the next
+                    chunk.forEach(entityManager::detach);
+                    chunk.clear();
+                }
+            }
+        }
+        buffered.flush();
+        
+        logger.info("Streamed {} rules against {} entities of type {}", rules.size(), entities, entityType);
+        return entities;
+    }
+    
+    private void writeChunk(EntityType entityType, List<CompiledRule> rules, ColumnBatch batch, OutputStream out)
+            throws IOException {
+        BitSet[] results = new BitSet[rules.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = ColumnarEvaluator.evaluate(rules.get(i).getExpression(), batch);
+        }
+        
+        for (int row = 0; row < batch.size(); row++) {
+            Long entityId = batch.getId(row);
+            for (int i = 0; i < results.length; i++) {
+                CompiledRule rule = rules.get(i);
+                RuleEngineOutput output = new RuleEngineOutput(
+                        rule.getId(), rule.getName(), entityType, entityId, results[i].get(row));
+                out.write(objectMapper.writeValueAsBytes(output));
+                out.write('\n');
+            }
+        }
+    }
+    
+    /**
+     * Gets the active rules of an entity type that have a valid expression, in rule set order.
+     */
+    private List<CompiledRule> findEvaluableRules(EntityType entityType) {
+        List<CompiledRule> rules = new ArrayList<>();
+        for (CompiledRule rule : ruleRegistry.getRuleSet(entityType).getRules()) {
+            if (rule.getExpression() != null) {
+                rules.add(rule);
+            }
+        }
+        return rules;
+    }
+    
+    private Stream<?> streamAll(EntityType entityType) {
+        switch (entityType) {
+            case TICKET:
+                return ticketService.streamAll();
+            case ROSTER:
+                return rosterService.streamAll();
+            case LEAVE:
+                return leaveService.streamAll();
+            default:
+                throw new IllegalArgumentException("Unsupported entity type: " + entityType);
+        }
+    }
+    
+    private Page<?> findPage(EntityType entityType, Pageable pageable) {
+        switch (entityType) {
+            case TICKET:
+                return ticketService.findAll(pageable);
+            case ROSTER:
+                return rosterService.findAll(pageable);
+            case LEAVE:
+                return leaveService.findAll(pageable);
+            default:
+                throw new IllegalArgumentException("Unsupported entity type: " + entityType);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.gs.ruleengine.engine.batch;
+
+import com.gs.ruleengine.engine.EntitySchema;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A chunk of entities of one type, stored column by column.
+ * 
+ * Only the requested fields are loaded. Integer, Long and Double fields become
+ * primitive arrays, enum fields become ordinal arrays, String fields are
+ * dictionary-encoded and LocalDate fields become epoch-day arrays; any other type is
+ * kept as objects. Every column tracks which rows are non-null in a bitmap with one
+ * bit per row, in the layout of {@link java.util.BitSet#toLongArray()}.
+ */
+public final class ColumnBatch {
+    
+    private static final String ID_FIELD = "id";
+    
+    private final EntitySchema schema;
+    private final int size;
+    private final Map<String, Column> columns;
+    
+    private ColumnBatch(EntitySchema schema, int size, Map<String, Column> columns) {
+        this.schema = schema;
+        this.size = size;
+        this.columns = columns;
+    }
+    
+    /**
+     * Loads a chunk of entities into columns. The ID column is always loaded.
+     * 
+     * @param schema The schema of the entities
+     * @param entities The entities, all instances of the schema's entity class
+     * @param fields The fields to load; fields the schema does not know are ignored
+     * @return The batch
+     */
+    public static ColumnBatch load(EntitySchema schema, List<?> entities, Collection<String> fields) {
+        Map<String, Column> columns = new HashMap<>();
+        List<String> loaded = new ArrayList<>(fields);
+        loaded.add(ID_FIELD);
+        
+        for (String field : loaded) {
+            Class<?> type = schema.getFieldType(field);
+            if (type == null || columns.containsKey(field)) {
+                continue;
+            }
+            
+            Object[] values = new Object[entities.size()];
+            for (int row = 0; row < values.length; row++) {
+                values[row] = schema.read(entities.get(row), field);
+            }
+            columns.put(field, Column.of(type, values));
+        }
+        
+        return new ColumnBatch(schema, entities.size(), Collections.unmodifiableMap(columns));
+    }
+    
+    public EntitySchema getSchema() {
+        return schema;
+    }
+    
+    /**
+     * @return The number of rows
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Gets the ID of the entity in a row.
+     * 
+     * @param row The row
+     * @return The entity ID
+     */
+    public Long getId(int row) {
+        Column column = columns.get(ID_FIELD);
+        return column != null ? (Long) column.get(row) : null;
+    }
+    
+    /**
+     * @return The column of a field, or null if the field was not loaded
+     */
+    Column getColumn(String field) {
+        return columns.get(field);
+    }
+    
+    /**
+     * @return The names of the loaded fields
+     */
+    Collection<String> getFields() {
+        return columns.keySet();
+    }
+    
+    static int words(int size) {
+        return (size + 63) >>> 6;
+    }
+    
+    /**
+     * A column of values with a bitmap of the non-null rows.
+     */
+    abstract static class Column {
+        
+        final long[] present;
+        
+        Column(int size) {
+            this.present = new long[words(size)];
+        }
+        
+        /**
+         * @return The boxed value of a row, as it would appear in extracted entity data
+         */
+        abstract Object get(int row);
+        
+        boolean isPresent(int row) {
+            return (present[row >>> 6] & (1L << row)) != 0;
+        }
+        
+        void setPresent(int row) {
+            present[row >>> 6] |= 1L << row;
+        }
+        
+        static Column of(Class<?> type, Object[] values) {
+            if (type == Integer.class || type == int.class) {
+                return new IntColumn(values);
+            }
+            if (type == Long.class || type == long.class) {
+                return new LongColumn(values);
+            }
+            if (type == Double.class || type == double.class) {
+                return new DoubleColumn(values);
+            }
+            if (type.isEnum()) {
+                return new EnumColumn(type, values);
+            }
+            if (type == String.class) {
+                return new DictionaryColumn(values);
+            }
+            if (type == LocalDate.class) {
+                return new EpochDayColumn(values);
+            }
+            return new ObjectColumn(values);
+        }
+    }
+    
+    static final class IntColumn extends Column {
+        
+        final int[] values;
+        
+        IntColumn(Object[] boxed) {
+            super(boxed.length);
+            values = new int[boxed.length];
+            for (int row = 0; row < boxed.length; row++) {
+                if (boxed[row] != null) {
+                    values[row] = (Integer) boxed[row];
+                    setPresent(row);
+                }
+            }
+        }
+        
+        @Override
+        Object get(int row) {
+            return isPresent(row) ? values[row] : null;
+        }
+    }
+    
+    static final class LongColumn extends Column {
+        
+        final long[] values;
+        
+        LongColumn(Object[] boxed) {
+            super(boxed.length);
+            values = new long[boxed.length];
+            for (int row = 0; row < boxed.length; row++) {
+                if (boxed[row] != null) {
+                    values[row] = (Long) boxed[row];
+                    setPresent(row);
+                }
+            }
+        }
+        
+        @Override
+        Object get(int row) {
+            return isPresent(row) ? values[row] : null;
+        }
+    }
+    
+    static final class DoubleColumn extends Column {
+        
+        final double[] values;
+        
+        DoubleColumn(Object[] boxed) {
+            super(boxed.length);
+            values = new double[boxed.length];
+            for (int row = 0; row < boxed.length; row++) {
+                if (boxed[row] != null) {
+                    values[row] = (Double) boxed[row];
+                    setPresent(row);
+                }
+            }
+        }
+        
+        @Override
+        Object get(int row) {
+            return isPresent(row) ? values[row] : null;
+        }
+    }
+    
+    /**
+     * Column with a small set of distinct values, stored as codes into a dictionary.
+     * Conditions are decided once per dictionary entry.
+     */
+    abstract static class CodedColumn extends Column {
+        
+        final int[] codes;
+        
+        CodedColumn(int size) {
+            super(size);
+            codes = new int[size];
+        }
+        
+        /**
+         * @return The distinct values; codes index into this list
+         */
+        abstract List<?> dictionary();
+        
+        @Override
+        Object get(int row) {
+            return isPresent(row) ? dictionary().get(codes[row]) : null;
+        }
+    }
+    
+    static final class EnumColumn extends CodedColumn {
+        
+        private final List<?> constants;
+        
+        EnumColumn(Class<?> type, Object[] boxed) {
+            super(boxed.length);
+            constants = List.of(type.getEnumConstants());
+            for (int row = 0; row < boxed.length; row++) {
+                if (boxed[row] != null) {
+                    codes[row] = ((Enum<?>) boxed[row]).ordinal();
+                    setPresent(row);
+                }
+            }
+        }
+        
+        @Override
+        List<?> dictionary() {
+            return constants;
+        }
+    }
+    
+    static final class DictionaryColumn extends CodedColumn {
+        
+        private final List<String> entries = new ArrayList<>();
+        
+        DictionaryColumn(Object[] boxed) {
+            super(boxed.length);
+            Map<String, Integer> codesByValue = new HashMap<>();
+            for (int row = 0; row < boxed.length; row++) {
+                if (boxed[row] != null) {
+                    String value = (String) boxed[row];
+                    Integer code = codesByValue.get(value);
+                    if (code == null) {
+                        code = entries.size();
+                        codesByValue.put(value, code);
+                        entries.add(value);
+                    }
+                    codes[row] = code;
+                    setPresent(row);
+                }
+            }
+        }
+        
+        @Override
+        List<?> dictionary() {
+            return entries;
+        }
+    }
+    
+    static final class EpochDayColumn extends Column {
+        
+        final long[] epochDays;
+        
+        EpochDayColumn(Object[] boxed) {
+            super(boxed.length);
+            epochDays = new long[boxed.length];
+            for (int row = 0; row < boxed.length; row++) {
+                if (boxed[row] != null) {
+                    epochDays[row] = ((LocalDate) boxed[row]).toEpochDay();
+                    setPresent(row);
+                }
+            }
+        }
+        
+        @Override
+        Object get(int row) {
+            return isPresent(row) ? LocalDate.ofEpochDay(epochDays[row]) : null;
+        }
+    }
+    
+    static final class ObjectColumn extends Column {
+        
+        final Object[] values;
+        
+        ObjectColumn(Object[] boxed) {
+            super(boxed.length);
+            values = boxed;
+            for (int row = 0; row < boxed.length; row++) {
+                if (boxed[row] != null) {
+                    setPresent(row);
+                }
+            }
+        }
+        
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+    }
+}
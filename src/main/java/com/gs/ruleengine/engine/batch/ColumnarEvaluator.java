@@ -0,0 +1,432 @@
+package com.gs.ruleengine.engine.batch;
+
+import com.gs.ruleengine.engine.batch.ColumnBatch.CodedColumn;
+import com.gs.ruleengine.engine.batch.ColumnBatch.Column;
+import com.gs.ruleengine.engine.batch.ColumnBatch.DoubleColumn;
+import com.gs.ruleengine.engine.batch.ColumnBatch.EpochDayColumn;
+import com.gs.ruleengine.engine.batch.ColumnBatch.IntColumn;
+import com.gs.ruleengine.engine.batch.ColumnBatch.LongColumn;
+import com.gs.ruleengine.engine.collection.IntHashSet;
+import com.gs.ruleengine.engine.collection.LongHashSet;
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.DateRange;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.OrExpression;
+import com.gs.ruleengine.model.expression.RequestClock;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates expressions over a {@link ColumnBatch}, producing a bitmap of the matching rows.
+ * 
+ * Conditions on numeric columns with a constant of the column's type (or a string
+ * that parses to it) and on date columns with a LocalDate constant run as a loop over
+ * the primitive array. Conditions on enum and string columns are decided once per
+ * distinct value and then mapped over the codes. IN and NOT_IN on numeric columns
+ * probe a primitive hash set of the elements, and the date operators on date columns
+ * compare the epoch days with bounds resolved once per batch. AND and OR intersect and union the
+ * child bitmaps. Anything else falls back to {@link Condition#evaluate(Map)} row by
+ * row, and a rule whose conditions throw is interpreted row by row as a whole, so the
+ * result always equals evaluating each entity on its own.
+ */
+public final class ColumnarEvaluator {
+    
+    private ColumnarEvaluator() {
+    }
+    
+    /**
+     * Evaluates an expression against every row of a batch.
+     * 
+     * @param expression The expression to evaluate
+     * @param batch The batch, which must contain the fields the expression references
+     * @return The rows matching the expression
+     */
+    public static BitSet evaluate(Expression expression, ColumnBatch batch) {
+        long[] matches;
+        try {
+            matches = evaluateNode(expression, batch);
+        } catch (RuntimeException e) {
+            matches = interpret(expression, batch);
+        }
+        return BitSet.valueOf(matches);
+    }
+    
+    private static long[] evaluateNode(Expression expression, ColumnBatch batch) {
+        if (expression instanceof Condition) {
+            return evaluateCondition((Condition) expression, batch);
+        }
+        if (expression instanceof AndExpression) {
+            long[] result = allRows(batch.size());
+            List<Expression> children = ((AndExpression) expression).getExpressions();
+            if (children != null) {
+                for (Expression child : children) {
+                    if (isEmpty(result)) {
+                        break;
+                    }
+                    and(result, evaluateNode(child, batch));
+                }
+            }
+            return result;
+        }
+        if (expression instanceof OrExpression) {
+            long[] result = new long[ColumnBatch.words(batch.size())];
+            List<Expression> children = ((OrExpression) expression).getExpressions();
+            if (children != null) {
+                for (Expression child : children) {
+                    or(result, evaluateNode(child, batch));
+                }
+            }
+            return result;
+        }
+        return interpret(expression, batch);
+    }
+    
+    private static long[] evaluateCondition(Condition condition, ColumnBatch batch) {
+        Operator operator = condition.getOperator();
+        Column column = batch.getColumn(condition.getField());
+        int size = batch.size();
+        
+        if (operator == Operator.IS_NULL) {
+            long[] result = allRows(size);
+            if (column != null) {
+                andNot(result, column.present);
+            }
+            return result;
+        }
+        if (operator == Operator.IS_NOT_NULL) {
+            return column != null ? column.present.clone() : new long[ColumnBatch.words(size)];
+        }
+        if (column == null) {
+            // Every other operator is false for a null field value
+            return new long[ColumnBatch.words(size)];
+        }
+        
+        long[] result = null;
+        if (operator == Operator.IN || operator == Operator.NOT_IN) {
+            result = memberColumn(column, condition.getValue(), size);
+            if (result != null && operator == Operator.NOT_IN) {
+                not(result, size);
+            }
+        } else if (operator == Operator.BETWEEN || operator == Operator.WITHIN_DAYS || operator == Operator.BEFORE_TODAY) {
+            result = column instanceof EpochDayColumn ? dayColumn((EpochDayColumn) column, condition, size) : null;
+        } else if (operator != null && operator != Operator.CONTAINS && operator != Operator.STARTS_WITH
+                && operator != Operator.ENDS_WITH && operator != Operator.MATCHES) {
+            result = compareColumn(column, operator, condition.getValue(), size);
+        }
+        if (result == null && column instanceof CodedColumn) {
+            result = decodeColumn((CodedColumn) column, condition, size);
+        }
+        if (result == null) {
+            result = interpret(condition, column, size);
+        }
+        
+        and(result, column.present);
+        return result;
+    }
+    
+    /**
+     * Compares a primitive column with a constant, or returns null if the constant is
+     * not of the column's type.
+     */
+    private static long[] compareColumn(Column column, Operator operator, Object value, int size) {
+        long[] result = new long[ColumnBatch.words(size)];
+        
+        if (column instanceof IntColumn) {
+            Integer constant;
+            try {
+                constant = value instanceof String ? Integer.valueOf((String) value)
+                        : value instanceof Integer ? (Integer) value : null;
+            } catch (NumberFormatException e) {
+                return result;
+            }
+            if (constant == null) {
+                return null;
+            }
+            int[] values = ((IntColumn) column).values;
+            int c = constant;
+            for (int row = 0; row < size; row++) {
+                if (matches(operator, Integer.compare(values[row], c))) {
+                    result[row >>> 6] |= 1L << row;
+                }
+            }
+            return result;
+        }
+        
+        if (column instanceof LongColumn) {
+            Long constant;
+            try {
+                constant = value instanceof String ? Long.valueOf((String) value)
+                        : value instanceof Long ? (Long) value : null;
+            } catch (NumberFormatException e) {
+                return result;
+            }
+            if (constant == null) {
+                return null;
+            }
+            long[] values = ((LongColumn) column).values;
+            long c = constant;
+            for (int row = 0; row < size; row++) {
+                if (matches(operator, Long.compare(values[row], c))) {
+                    result[row >>> 6] |= 1L << row;
+                }
+            }
+            return result;
+        }
+        
+        if (column instanceof DoubleColumn) {
+            Double constant;
+            try {
+                constant = value instanceof String ? Double.valueOf((String) value)
+                        : value instanceof Double ? (Double) value : null;
+            } catch (NumberFormatException e) {
+                return result;
+            }
+            if (constant == null) {
+                return null;
+            }
+            double[] values = ((DoubleColumn) column).values;
+            double c = constant;
+            for (int row = 0; row < size; row++) {
+                if (matches(operator, Double.compare(values[row], c))) {
+                    result[row >>> 6] |= 1L << row;
+                }
+            }
+            return result;
+        }
+        
+        if (column instanceof EpochDayColumn && value instanceof LocalDate) {
+            long[] epochDays = ((EpochDayColumn) column).epochDays;
+            long c = ((LocalDate) value).toEpochDay();
+            for (int row = 0; row < size; row++) {
+                if (matches(operator, Long.compare(epochDays[row], c))) {
+                    result[row >>> 6] |= 1L << row;
+                }
+            }
+            return result;
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Tests an epoch-day column with a date operator. Dates are tested at the start of
+     * their day, as {@link DateRange} does.
+     */
+    private static long[] dayColumn(EpochDayColumn column, Condition condition, int size) {
+        DateRange range = null;
+        long fromDay = Long.MIN_VALUE;
+        long toDay;
+        if (condition.getOperator() == Operator.BETWEEN) {
+            range = DateRange.between(condition.getField(), condition.getValue());
+            toDay = Long.MAX_VALUE;
+        } else if (condition.getOperator() == Operator.WITHIN_DAYS) {
+            long days = DateRange.days(condition.getField(), condition.getValue());
+            long today = RequestClock.today().toEpochDay();
+            fromDay = Math.min(today, today + days);
+            toDay = Math.max(today, today + days);
+        } else {
+            toDay = RequestClock.today().toEpochDay() - 1;
+        }
+        
+        long[] result = new long[ColumnBatch.words(size)];
+        long[] epochDays = column.epochDays;
+        for (int row = 0; row < size; row++) {
+            long day = epochDays[row];
+            if (range != null ? range.contains(day, 0) : day >= fromDay && day <= toDay) {
+                result[row >>> 6] |= 1L << row;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Tests a primitive column for membership in the elements of an IN condition, or
+     * returns null if the column is not numeric.
+     */
+    private static long[] memberColumn(Column column, Object value, int size) {
+        if (!(value instanceof Collection)) {
+            return null;
+        }
+        Collection<?> elements = (Collection<?>) value;
+        long[] result = new long[ColumnBatch.words(size)];
+        
+        if (column instanceof IntColumn) {
+            IntHashSet set = new IntHashSet(elements.size());
+            for (Object element : elements) {
+                try {
+                    if (element instanceof Integer || element instanceof String) {
+                        set.add(element instanceof String ? Integer.parseInt((String) element) : (Integer) element);
+                    }
+                } catch (NumberFormatException e) {
+                    // Never equal to a value of the column
+                }
+            }
+            int[] values = ((IntColumn) column).values;
+            for (int row = 0; row < size; row++) {
+                if (set.contains(values[row])) {
+                    result[row >>> 6] |= 1L << row;
+                }
+            }
+            return result;
+        }
+        
+        if (column instanceof LongColumn || column instanceof DoubleColumn) {
+            boolean isLong = column instanceof LongColumn;
+            LongHashSet set = new LongHashSet(elements.size());
+            for (Object element : elements) {
+                try {
+                    if (isLong && (element instanceof Long || element instanceof String)) {
+                        set.add(element instanceof String ? Long.parseLong((String) element) : (Long) element);
+                    } else if (!isLong && (element instanceof Double || element instanceof String)) {
+                        double d = element instanceof String ? Double.parseDouble((String) element) : (Double) element;
+                        set.add(Double.doubleToLongBits(d));
+                    }
+                } catch (NumberFormatException e) {
+                    // Never equal to a value of the column
+                }
+            }
+            if (isLong) {
+                long[] values = ((LongColumn) column).values;
+                for (int row = 0; row < size; row++) {
+                    if (set.contains(values[row])) {
+                        result[row >>> 6] |= 1L << row;
+                    }
+                }
+            } else {
+                double[] values = ((DoubleColumn) column).values;
+                for (int row = 0; row < size; row++) {
+                    if (set.contains(Double.doubleToLongBits(values[row]))) {
+                        result[row >>> 6] |= 1L << row;
+                    }
+                }
+            }
+            return result;
+        }
+        
+        return null;
+    }
+    
+    private static boolean matches(Operator operator, int cmp) {
+        switch (operator) {
+            case EQUALS:
+                return cmp == 0;
+            case NOT_EQUALS:
+                return cmp != 0;
+            case GREATER_THAN:
+                return cmp > 0;
+            case GREATER_THAN_OR_EQUALS:
+                return cmp >= 0;
+            case LESS_THAN:
+                return cmp < 0;
+            case LESS_THAN_OR_EQUALS:
+                return cmp <= 0;
+            default:
+                throw new IllegalArgumentException("Not a comparison operator: " + operator);
+        }
+    }
+    
+    /**
+     * Decides a condition once per dictionary entry and maps the decisions over the codes.
+     */
+    private static long[] decodeColumn(CodedColumn column, Condition condition, int size) {
+        List<?> dictionary = column.dictionary();
+        boolean[] decisions = new boolean[dictionary.size()];
+        for (int code = 0; code < decisions.length; code++) {
+            decisions[code] = condition.evaluate(Collections.singletonMap(condition.getField(), dictionary.get(code)));
+        }
+        
+        long[] result = new long[ColumnBatch.words(size)];
+        int[] codes = column.codes;
+        for (int row = 0; row < size; row++) {
+            if (decisions[codes[row]]) {
+                result[row >>> 6] |= 1L << row;
+            }
+        }
+        return result;
+    }
+    
+    private static long[] interpret(Condition condition, Column column, int size) {
+        long[] result = new long[ColumnBatch.words(size)];
+        for (int row = 0; row < size; row++) {
+            if (condition.evaluate(Collections.singletonMap(condition.getField(), column.get(row)))) {
+                result[row >>> 6] |= 1L << row;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Interprets an expression row by row, treating rows whose evaluation throws as
+     * non-matching like the per-entity rule engine does.
+     */
+    private static long[] interpret(Expression expression, ColumnBatch batch) {
+        long[] result = new long[ColumnBatch.words(batch.size())];
+        Map<String, Object> row = new HashMap<>();
+        
+        for (int i = 0; i < batch.size(); i++) {
+            for (String field : batch.getFields()) {
+                row.put(field, batch.getColumn(field).get(i));
+            }
+            try {
+                if (expression.evaluate(row)) {
+                    result[i >>> 6] |= 1L << i;
+                }
+            } catch (RuntimeException e) {
+                // Not a match
+            }
+        }
+        return result;
+    }
+    
+    private static long[] allRows(int size) {
+        long[] words = new long[ColumnBatch.words(size)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = -1L;
+        }
+        if (size % 64 != 0) {
+            words[words.length - 1] = (1L << size) - 1;
+        }
+        return words;
+    }
+    
+    private static boolean isEmpty(long[] words) {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static void and(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= other[i];
+        }
+    }
+    
+    private static void andNot(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= ~other[i];
+        }
+    }
+    
+    private static void not(long[] target, int size) {
+        long[] all = allRows(size);
+        for (int i = 0; i < target.length; i++) {
+            target[i] = ~target[i] & all[i];
+        }
+    }
+    
+    private static void or(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= other[i];
+        }
+    }
+}
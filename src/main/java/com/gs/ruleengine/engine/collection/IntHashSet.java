@@ -0,0 +1,85 @@
+package com.gs.ruleengine.engine.collection;
+
+/**
+ * Set of int values using open addressing with linear probing, so that membership
+ * tests do not box the value.
+ */
+public final class IntHashSet {
+    
+    private int[] slots;
+    private boolean[] used;
+    private int size;
+    
+    public IntHashSet() {
+        this(8);
+    }
+    
+    /**
+     * @param expectedSize The number of values the set should hold without resizing
+     */
+    public IntHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.slots = new int[capacity];
+        this.used = new boolean[capacity];
+    }
+    
+    /**
+     * Adds a value.
+     * 
+     * @param value The value
+     * @return true if the value was not in the set
+     */
+    public boolean add(int value) {
+        if ((size + 1) * 2 > slots.length) {
+            resize();
+        }
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            if (!used[i]) {
+                slots[i] = value;
+                used[i] = true;
+                size++;
+                return true;
+            }
+            if (slots[i] == value) {
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * @param value The value
+     * @return true if the set contains the value
+     */
+    public boolean contains(int value) {
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; used[i]; i = (i + 1) & mask) {
+            if (slots[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    private void resize() {
+        int[] oldSlots = slots;
+        boolean[] oldUsed = used;
+        slots = new int[oldSlots.length * 2];
+        used = new boolean[oldSlots.length * 2];
+        size = 0;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldUsed[i]) {
+                add(oldSlots[i]);
+            }
+        }
+    }
+    
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
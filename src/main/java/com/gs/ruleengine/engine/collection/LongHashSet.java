@@ -0,0 +1,85 @@
+package com.gs.ruleengine.engine.collection;
+
+/**
+ * Set of long values using open addressing with linear probing, so that membership
+ * tests do not box the value.
+ */
+public final class LongHashSet {
+    
+    private long[] slots;
+    private boolean[] used;
+    private int size;
+    
+    public LongHashSet() {
+        this(8);
+    }
+    
+    /**
+     * @param expectedSize The number of values the set should hold without resizing
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.slots = new long[capacity];
+        this.used = new boolean[capacity];
+    }
+    
+    /**
+     * Adds a value.
+     * 
+     * @param value The value
+     * @return true if the value was not in the set
+     */
+    public boolean add(long value) {
+        if ((size + 1) * 2 > slots.length) {
+            resize();
+        }
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            if (!used[i]) {
+                slots[i] = value;
+                used[i] = true;
+                size++;
+                return true;
+            }
+            if (slots[i] == value) {
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * @param value The value
+     * @return true if the set contains the value
+     */
+    public boolean contains(long value) {
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; used[i]; i = (i + 1) & mask) {
+            if (slots[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    private void resize() {
+        long[] oldSlots = slots;
+        boolean[] oldUsed = used;
+        slots = new long[oldSlots.length * 2];
+        used = new boolean[oldSlots.length * 2];
+        size = 0;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldUsed[i]) {
+                add(oldSlots[i]);
+            }
+        }
+    }
+    
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
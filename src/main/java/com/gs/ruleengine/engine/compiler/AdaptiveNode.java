@@ -0,0 +1,164 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.OrExpression;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of an AND/OR of a {@link FlatProgram}, from which it ranks its children
+ * by observed pass rate and cost.
+ * 
+ * The program records the outcome and cost of every child on each sample evaluation,
+ * regardless of short-circuiting, so that the statistics are not biased by the current
+ * order. On {@link #reorder()} the children are ranked by expected cost per decisive
+ * result (cost divided by the probability of failing for AND, of passing for OR) and
+ * the statistics are reset; the program then reassembles its code with the new order.
+ * Children are side-effect free, so the order does not change the result.
+ */
+final class AdaptiveNode {
+    
+    private static final double MIN_PROBABILITY = 1e-3;
+    
+    private final boolean conjunction;
+    private final String[] labels;
+    private final ReorderLog reorderLog;
+    
+    private final LongAdder[] evaluations;
+    private final LongAdder[] passes;
+    private final LongAdder[] nanos;
+    
+    private volatile int[] order;
+    
+    /**
+     * @param conjunction true for an AND, false for an OR
+     * @param children The children, in the order of the expression
+     * @param reorderLog The log that reorders are recorded in
+     */
+    AdaptiveNode(boolean conjunction, List<Expression> children, ReorderLog reorderLog) {
+        this.conjunction = conjunction;
+        this.labels = new String[children.size()];
+        this.reorderLog = reorderLog;
+        
+        this.evaluations = newAdders(labels.length);
+        this.passes = newAdders(labels.length);
+        this.nanos = newAdders(labels.length);
+        
+        int[] initial = new int[labels.length];
+        for (int i = 0; i < initial.length; i++) {
+            labels[i] = describe(children.get(i));
+            initial[i] = i;
+        }
+        this.order = initial;
+    }
+    
+    /**
+     * @return The positions of the children in the expression, in the order they are
+     *         evaluated; not to be modified
+     */
+    int[] order() {
+        return order;
+    }
+    
+    /**
+     * Records a sampled evaluation of a child.
+     * 
+     * @param child The position of the child in the expression
+     * @param passed The outcome of the child
+     * @param childNanos The time the child took
+     */
+    void record(int child, boolean passed, long childNanos) {
+        nanos[child].add(childNanos);
+        evaluations[child].increment();
+        if (passed) {
+            passes[child].increment();
+        }
+    }
+    
+    /**
+     * Ranks the children by the statistics recorded since the last call, then resets them.
+     * 
+     * @return true if the order changed
+     */
+    boolean reorder() {
+        int[] previous = order;
+        double[] passRates = new double[labels.length];
+        double[] costs = new double[labels.length];
+        Integer[] ranked = new Integer[labels.length];
+        
+        for (int i = 0; i < labels.length; i++) {
+            long count = Math.max(1, evaluations[i].sum());
+            passRates[i] = (double) passes[i].sum() / count;
+            costs[i] = (double) nanos[i].sum() / count;
+            ranked[i] = previous[i];
+        }
+        
+        Arrays.sort(ranked, Comparator.comparingDouble(child -> rank(costs[child], passRates[child])));
+        int[] next = new int[ranked.length];
+        for (int i = 0; i < next.length; i++) {
+            next[i] = ranked[i];
+        }
+        
+        for (int i = 0; i < labels.length; i++) {
+            evaluations[i].reset();
+            passes[i].reset();
+            nanos[i].reset();
+        }
+        
+        if (Arrays.equals(previous, next)) {
+            return false;
+        }
+        order = next;
+        
+        List<Double> nextPassRates = new ArrayList<>(next.length);
+        List<Long> nextCosts = new ArrayList<>(next.length);
+        for (int child : next) {
+            nextPassRates.add(passRates[child]);
+            nextCosts.add(Math.round(costs[child]));
+        }
+        reorderLog.record(new ReorderEvent(Instant.now().toString(), conjunction ? "AND" : "OR",
+                labels(previous), labels(next), nextPassRates, nextCosts));
+        return true;
+    }
+    
+    private double rank(double cost, double passRate) {
+        double decisive = conjunction ? 1 - passRate : passRate;
+        return (cost + 1) / Math.max(decisive, MIN_PROBABILITY);
+    }
+    
+    private List<String> labels(int[] childOrder) {
+        List<String> result = new ArrayList<>(childOrder.length);
+        for (int child : childOrder) {
+            result.add(labels[child]);
+        }
+        return result;
+    }
+    
+    private static String describe(Expression expression) {
+        if (expression instanceof Condition) {
+            Condition condition = (Condition) expression;
+            return condition.getField() + " " + condition.getOperator() + " " + condition.getValue();
+        }
+        if (expression instanceof AndExpression) {
+            return "AND(" + ((AndExpression) expression).getExpressions().size() + ")";
+        }
+        if (expression instanceof OrExpression) {
+            return "OR(" + ((OrExpression) expression).getExpressions().size() + ")";
+        }
+        return String.valueOf(expression);
+    }
+    
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
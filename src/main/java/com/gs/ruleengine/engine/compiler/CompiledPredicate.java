@@ -0,0 +1,18 @@
+package com.gs.ruleengine.engine.compiler;
+
+import java.util.Map;
+
+/**
+ * Executable form of a rule expression produced by the {@link ExpressionCompiler}.
+ */
+@FunctionalInterface
+public interface CompiledPredicate {
+    
+    /**
+     * Tests the predicate against the provided entity data.
+     * 
+     * @param entityData Map of entity field names to their values
+     * @return true if the entity data satisfies the predicate, false otherwise
+     */
+    boolean test(Map<String, Object> entityData);
+}
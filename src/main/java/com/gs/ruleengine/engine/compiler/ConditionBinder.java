@@ -0,0 +1,902 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.engine.EntityRecord;
+import com.gs.ruleengine.engine.EntitySchema;
+import com.gs.ruleengine.engine.FieldAccessor;
+import com.gs.ruleengine.engine.collection.IntHashSet;
+import com.gs.ruleengine.engine.collection.LongHashSet;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.DateRange;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.RequestClock;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Binds a {@link Condition} against an {@link EntitySchema}, producing an immutable
+ * predicate node whose constant is already converted to the field's declared type.
+ * 
+ * Bound nodes compare unboxed values with a type-specific comparator. When a field
+ * value at runtime does not have the declared type (e.g. entity data posted as JSON
+ * with enum names as strings), the node delegates to a generic node that follows
+ * the conversion rules of {@link Condition#evaluate(Map)}. Ordering conditions on a
+ * number field with a number constant of another type, such as a Long constant on an
+ * Integer field, compare the two numerically.
+ * 
+ * IN and NOT_IN are bound to a set of the converted elements: an EnumSet for enum
+ * fields, an {@link IntHashSet} or {@link LongHashSet} for numeric fields (doubles
+ * by their bits, as {@link Double#equals(Object)} compares them) and a HashSet otherwise.
+ * 
+ * MATCHES compiles its pattern once, into a node shared by every thread evaluating
+ * the rule. A pattern without metacharacters is tested with {@link String#contains}
+ * instead, and one that is a literal anchored with {@code ^} with {@link String#startsWith}.
+ * 
+ * BETWEEN is bound to its {@link DateRange}, parsed once. WITHIN_DAYS and
+ * BEFORE_TODAY are bound to day offsets from today, which is read from the
+ * {@link RequestClock} on each test and compared with the field value's epoch day.
+ */
+final class ConditionBinder {
+    
+    private static final String REGEX_METACHARACTERS = "^$.|?*+()[]{}";
+    
+    private ConditionBinder() {
+    }
+    
+    /**
+     * Binds a condition.
+     * 
+     * @param condition The condition to bind
+     * @param schema The schema of the entity type the condition applies to, or null if unknown
+     * @return The bound predicate
+     * @throws IllegalArgumentException if the condition is incomplete
+     */
+    static ValueNode bind(Condition condition, EntitySchema schema) {
+        String field = condition.getField();
+        Operator operator = condition.getOperator();
+        Object value = condition.getValue();
+        
+        if (operator == null) {
+            throw new IllegalArgumentException("Condition on field '" + field + "' has no operator");
+        }
+        if (operator == Operator.IS_NULL || operator == Operator.IS_NOT_NULL) {
+            return new NullCheckNode(field, operator == Operator.IS_NULL);
+        }
+        
+        Class<?> fieldType = schema != null ? schema.getFieldType(field) : null;
+        if (operator == Operator.IN || operator == Operator.NOT_IN) {
+            if (!(value instanceof Collection)) {
+                throw new IllegalArgumentException("Operator " + operator + " on field '" + field + "' requires an array value");
+            }
+            return bindMembership(field, (Collection<?>) value, operator == Operator.NOT_IN, fieldType);
+        }
+        if (operator == Operator.MATCHES) {
+            if (value == null) {
+                throw new IllegalArgumentException("Operator " + operator + " on field '" + field + "' requires a value");
+            }
+            return bindPattern(field, value.toString());
+        }
+        if (operator == Operator.BETWEEN) {
+            return new DateRangeNode(field, DateRange.between(field, value));
+        }
+        if (operator == Operator.WITHIN_DAYS) {
+            long days = DateRange.days(field, value);
+            return new RelativeDaysNode(field, Math.min(0, days), Math.max(0, days));
+        }
+        if (operator == Operator.BEFORE_TODAY) {
+            return new RelativeDaysNode(field, Long.MIN_VALUE, -1);
+        }
+        
+        ValueTest test = ValueTest.of(operator);
+        if (test.isText() && value == null) {
+            throw new IllegalArgumentException("Operator " + operator + " on field '" + field + "' requires a value");
+        }
+        
+        GenericNode generic = new GenericNode(field, value, test);
+        
+        return fieldType != null ? bindTyped(field, boxed(fieldType), value, test, generic) : generic;
+    }
+    
+    /**
+     * Binds a condition for evaluation against entity objects. The field is read
+     * through the schema's accessor and tested by the node {@link #bind} creates, whose
+     * type-specific test always applies because the value has the declared type.
+     * 
+     * @param condition The condition to bind
+     * @param schema The schema of the entity type the condition applies to
+     * @return The bound predicate
+     * @throws IllegalArgumentException if the condition is incomplete
+     */
+    static EntityPredicate bindEntity(Condition condition, EntitySchema schema) {
+        ValueNode node = bind(condition, schema);
+        FieldAccessor accessor = schema.getAccessor(condition.getField());
+        // A field the entity does not have is null, as in the extracted entity data
+        return new EntityFieldNode(accessor != null ? accessor : entity -> null, node,
+                condition.getOperator() == Operator.IS_NULL);
+    }
+    
+    /**
+     * Binds a condition for evaluation against {@link EntityRecord}s. The field is read
+     * from its slot, resolved here, and tested by the node {@link #bind} creates.
+     * 
+     * @param condition The condition to bind
+     * @param schema The schema of the entity type the condition applies to
+     * @return The bound predicate, which tests EntityRecords
+     * @throws IllegalArgumentException if the condition is incomplete or its field is not in the schema
+     */
+    static EntityPredicate bindRecord(Condition condition, EntitySchema schema) {
+        ValueNode node = bind(condition, schema);
+        int slot = schema.getSlot(condition.getField());
+        if (slot < 0) {
+            // Entity data may hold fields the entity does not have, which records cannot
+            throw new IllegalArgumentException("Field '" + condition.getField() + "' is not a field of the entity");
+        }
+        return new EntityFieldNode(record -> ((EntityRecord) record).get(slot), node,
+                condition.getOperator() == Operator.IS_NULL);
+    }
+    
+    private static ValueNode bindTyped(String field, Class<?> type, Object value, ValueTest test, GenericNode generic) {
+        Object constant;
+        try {
+            constant = typedConstant(type, value);
+        } catch (IllegalArgumentException e) {
+            // Condition.evaluate returns false when the constant does not convert to the field's type
+            return new UnsatisfiableNode(field, type, generic);
+        }
+        
+        if (constant == null) {
+            return isOrdering(test) && isNumber(type) && value != null && isNumber(value.getClass())
+                    ? new WideningNode(field, type, (Number) value, test, generic)
+                    : generic;
+        }
+        if (test.isText()) {
+            return new TextNode(field, type, constant.toString(), test, generic);
+        }
+        if (type == Integer.class) {
+            return new IntNode(field, (Integer) constant, test, generic);
+        }
+        if (type == Long.class) {
+            return new LongNode(field, (Long) constant, test, generic);
+        }
+        if (type == Double.class) {
+            return new DoubleNode(field, (Double) constant, test, generic);
+        }
+        if (type == String.class) {
+            return new StringNode(field, (String) constant, test, generic);
+        }
+        return new EnumNode(field, type, ((Enum<?>) constant).ordinal(), test, generic);
+    }
+    
+    private static ValueNode bindPattern(String field, String regex) {
+        // Compiled even when rewritten, so that an invalid pattern fails to bind
+        Pattern pattern = Pattern.compile(regex);
+        
+        // MATCHES never converts its value, so a literal is exact for values of every type
+        String literal = literal(regex);
+        if (literal != null) {
+            return new LiteralPatternNode(field, literal, ValueTest.CONTAINS);
+        }
+        literal = regex.startsWith("^") ? literal(regex.substring(1)) : null;
+        if (literal != null) {
+            return new LiteralPatternNode(field, literal, ValueTest.STARTS_WITH);
+        }
+        return new PatternNode(field, pattern);
+    }
+    
+    /**
+     * Gets the text a pattern matches if it has no metacharacters other than escaped
+     * punctuation.
+     * 
+     * @return The unescaped text, or null if the pattern is not a plain literal
+     */
+    private static String literal(String regex) {
+        StringBuilder literal = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 == regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    return null;
+                }
+                literal.append(regex.charAt(++i));
+            } else if (REGEX_METACHARACTERS.indexOf(c) >= 0) {
+                return null;
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.toString();
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ValueNode bindMembership(String field, Collection<?> elements, boolean negated, Class<?> fieldType) {
+        GenericMembershipNode generic = new GenericMembershipNode(field, elements, negated);
+        if (fieldType == null) {
+            return generic;
+        }
+        
+        Class<?> type = boxed(fieldType);
+        if (type != Integer.class && type != Long.class && type != Double.class && type != String.class && !type.isEnum()) {
+            return generic;
+        }
+        
+        IntHashSet ints = new IntHashSet(elements.size());
+        LongHashSet longs = new LongHashSet(elements.size());
+        Set<Object> objects = type.isEnum() ? (Set) EnumSet.noneOf((Class<? extends Enum>) type) : new HashSet<>();
+        for (Object element : elements) {
+            Object constant;
+            try {
+                constant = element != null ? typedConstant(type, element) : null;
+            } catch (IllegalArgumentException e) {
+                // Condition.evaluate skips elements that do not convert to the field's type
+                continue;
+            }
+            if (constant == null) {
+                // Not of the field's type, so never equal to a value of it
+                continue;
+            }
+            
+            if (type == Integer.class) {
+                ints.add((Integer) constant);
+            } else if (type == Long.class) {
+                longs.add((Long) constant);
+            } else if (type == Double.class) {
+                longs.add(Double.doubleToLongBits((Double) constant));
+            } else {
+                objects.add(constant);
+            }
+        }
+        
+        if (type == Integer.class) {
+            return new IntMembershipNode(field, ints, negated, generic);
+        }
+        if (type == Long.class) {
+            return new LongMembershipNode(field, longs, negated, generic);
+        }
+        if (type == Double.class) {
+            return new DoubleMembershipNode(field, longs, negated, generic);
+        }
+        return new ObjectMembershipNode(field, type, objects, negated, generic);
+    }
+    
+    /**
+     * Converts a condition constant to a field type using the same rules as
+     * {@link Condition#evaluate(Map)}: only string constants are converted.
+     * 
+     * @return The typed constant, or null if conditions on this type are not bound
+     * @throws IllegalArgumentException if a string constant is not valid for the type
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object typedConstant(Class<?> type, Object value) {
+        if (type.isEnum()) {
+            if (value instanceof String) {
+                return Enum.valueOf((Class<? extends Enum>) type, (String) value);
+            }
+            return type.isInstance(value) ? value : null;
+        }
+        if (type == Integer.class) {
+            return value instanceof String ? Integer.valueOf((String) value) : type.isInstance(value) ? value : null;
+        }
+        if (type == Long.class) {
+            return value instanceof String ? Long.valueOf((String) value) : type.isInstance(value) ? value : null;
+        }
+        if (type == Double.class) {
+            return value instanceof String ? Double.valueOf((String) value) : type.isInstance(value) ? value : null;
+        }
+        if (type == String.class) {
+            return value instanceof String ? value : null;
+        }
+        return null;
+    }
+    
+    private static boolean isOrdering(ValueTest test) {
+        return !test.isEquality() && !test.isText();
+    }
+    
+    private static boolean isNumber(Class<?> type) {
+        return type == Integer.class || type == Long.class || type == Double.class;
+    }
+    
+    private static Class<?> boxed(Class<?> type) {
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        return type;
+    }
+    
+    /**
+     * Base class for nodes bound to a field type.
+     */
+    private abstract static class BoundNode implements ValueNode {
+        
+        private final String field;
+        private final Class<?> type;
+        private final ValueNode generic;
+        
+        BoundNode(String field, Class<?> type, ValueNode generic) {
+            this.field = field;
+            this.type = type;
+            this.generic = generic;
+        }
+        
+        @Override
+        public final boolean test(Map<String, Object> entityData) {
+            Object fieldValue = entityData.get(field);
+            if (fieldValue == null) {
+                return false;
+            }
+            return testValue(fieldValue);
+        }
+        
+        @Override
+        public final boolean testValue(Object fieldValue) {
+            if (!type.isInstance(fieldValue)) {
+                return generic.testValue(fieldValue);
+            }
+            return testBound(fieldValue);
+        }
+        
+        abstract boolean testBound(Object fieldValue);
+    }
+    
+    private static final class UnsatisfiableNode extends BoundNode {
+        UnsatisfiableNode(String field, Class<?> type, GenericNode generic) {
+            super(field, type, generic);
+        }
+        
+        @Override
+        boolean testBound(Object fieldValue) {
+            return false;
+        }
+    }
+    
+    private static final class IntNode extends BoundNode {
+        
+        private final int constant;
+        private final ValueTest test;
+        
+        IntNode(String field, int constant, ValueTest test, GenericNode generic) {
+            super(field, Integer.class, generic);
+            this.constant = constant;
+            this.test = test;
+        }
+        
+        @Override
+        boolean testBound(Object fieldValue) {
+            return test.testComparison(Integer.compare(((Integer) fieldValue).intValue(), constant));
+        }
+    }
+    
+    private static final class LongNode extends BoundNode {
+        
+        private final long constant;
+        private final ValueTest test;
+        
+        LongNode(String field, long constant, ValueTest test, GenericNode generic) {
+            super(field, Long.class, generic);
+            this.constant = constant;
+            this.test = test;
+        }
+        
+        @Override
+        boolean testBound(Object fieldValue) {
+            return test.testComparison(Long.compare(((Long) fieldValue).longValue(), constant));
+        }
+    }
+    
+    private static final class DoubleNode extends BoundNode {
+        
+        private final double constant;
+        private final ValueTest test;
+        
+        DoubleNode(String field, double constant, ValueTest test, GenericNode generic) {
+            super(field, Double.class, generic);
+            this.constant = constant;
+            this.test = test;
+        }
+        
+        @Override
+        boolean testBound(Object fieldValue) {
+            // Double.compare agrees with Double.equals for NaN and signed zeros
+            return test.testComparison(Double.compare(((Double) fieldValue).doubleValue(), constant));
+        }
+    }
+    
+    /**
+     * Ordering node for a number field and a number constant of another type, compared
+     * numerically as {@link Condition#compareValues(Object, Object)} does.
+     */
+    private static final class WideningNode extends BoundNode {
+        
+        private final boolean floating;
+        private final long integral;
+        private final double real;
+        private final ValueTest test;
+        
+        WideningNode(String field, Class<?> type, Number constant, ValueTest test, GenericNode generic) {
+            super(field, type, generic);
+            this.floating = type == Double.class || constant instanceof Double;
+            this.integral = constant.longValue();
+            this.real = constant.doubleValue();
+            this.test = test;
+        }
+        
+        @Override
+        boolean testBound(Object fieldValue) {
+            Number number = (Number) fieldValue;
+            return test.testComparison(floating
+                    ? Double.compare(number.doubleValue(), real)
+                    : Long.compare(number.longValue(), integral));
+        }
+    }
+    
+    private static final class StringNode extends BoundNode {
+        
+        private final String constant;
+        private final ValueTest test;
+        
+        StringNode(String field, String constant, ValueTest test, GenericNode generic) {
+            super(field, String.class, generic);
+            this.constant = constant;
+            this.test = test;
+        }
+        
+        @Override
+        boolean testBound(Object fieldValue) {
+            return test.testComparison(((String) fieldValue).compareTo(constant));
+        }
+    }
+    
+    private static final class EnumNode extends BoundNode {
+        
+        private final int ordinal;
+        private final ValueTest test;
+        
+        EnumNode(String field, Class<?> type, int ordinal, ValueTest test, GenericNode generic) {
+            super(field, type, generic);
+            this.ordinal = ordinal;
+            this.test = test;
+        }
+        
+        @Override
+        boolean testBound(Object fieldValue) {
+            return test.testComparison(Integer.compare(((Enum<?>) fieldValue).ordinal(), ordinal));
+        }
+    }
+    
+    private static final class TextNode extends BoundNode {
+        
+        private final String operand;
+        private final ValueTest test;
+        
+        TextNode(String field, Class<?> type, String operand, ValueTest test, GenericNode generic) {
+            super(field, type, generic);
+            this.operand = operand;
+            this.test = test;
+        }
+        
+        @Override
+        boolean testBound(Object fieldValue) {
+            return test.testText(fieldValue.toString(), operand);
+        }
+    }
+    
+    private static final class IntMembershipNode extends BoundNode {
+        
+        private final IntHashSet values;
+        private final boolean negated;
+        
+        IntMembershipNode(String field, IntHashSet values, boolean negated, ValueNode generic) {
+            super(field, Integer.class, generic);
+            this.values = values;
+            this.negated = negated;
+        }
+        
+        @Override
+        boolean testBound(Object fieldValue) {
+            return negated != values.contains(((Integer) fieldValue).intValue());
+        }
+    }
+    
+    private static final class LongMembershipNode extends BoundNode {
+        
+        private final LongHashSet values;
+        private final boolean negated;
+        
+        LongMembershipNode(String field, LongHashSet values, boolean negated, ValueNode generic) {
+            super(field, Long.class, generic);
+            this.values = values;
+            this.negated = negated;
+        }
+        
+        @Override
+        boolean testBound(Object fieldValue) {
+            return negated != values.contains(((Long) fieldValue).longValue());
+        }
+    }
+    
+    private static final class DoubleMembershipNode extends BoundNode {
+        
+        private final LongHashSet bits;
+        private final boolean negated;
+        
+        DoubleMembershipNode(String field, LongHashSet bits, boolean negated, ValueNode generic) {
+            super(field, Double.class, generic);
+            this.bits = bits;
+            this.negated = negated;
+        }
+        
+        @Override
+        boolean testBound(Object fieldValue) {
+            return negated != bits.contains(Double.doubleToLongBits(((Double) fieldValue).doubleValue()));
+        }
+    }
+    
+    private static final class ObjectMembershipNode extends BoundNode {
+        
+        private final Set<Object> values;
+        private final boolean negated;
+        
+        ObjectMembershipNode(String field, Class<?> type, Set<Object> values, boolean negated, ValueNode generic) {
+            super(field, type, generic);
+            this.values = values;
+            this.negated = negated;
+        }
+        
+        @Override
+        boolean testBound(Object fieldValue) {
+            return negated != values.contains(fieldValue);
+        }
+    }
+    
+    /**
+     * Node testing a field read from an entity object or record with a value node.
+     */
+    private static final class EntityFieldNode implements EntityPredicate {
+        
+        private final FieldAccessor accessor;
+        private final ValueNode node;
+        private final boolean nullResult;
+        
+        EntityFieldNode(FieldAccessor accessor, ValueNode node, boolean nullResult) {
+            this.accessor = accessor;
+            this.node = node;
+            this.nullResult = nullResult;
+        }
+        
+        @Override
+        public boolean test(Object entity) {
+            Object fieldValue = accessor.get(entity);
+            return fieldValue != null ? node.testValue(fieldValue) : nullResult;
+        }
+    }
+    
+    /**
+     * IS_NULL or IS_NOT_NULL node.
+     */
+    private static final class NullCheckNode implements ValueNode {
+        
+        private final String field;
+        private final boolean isNull;
+        
+        NullCheckNode(String field, boolean isNull) {
+            this.field = field;
+            this.isNull = isNull;
+        }
+        
+        @Override
+        public boolean test(Map<String, Object> entityData) {
+            return (entityData.get(field) == null) == isNull;
+        }
+        
+        @Override
+        public boolean testValue(Object fieldValue) {
+            return !isNull;
+        }
+    }
+    
+    /**
+     * MATCHES node, which shares one compiled pattern across threads.
+     */
+    private static final class PatternNode implements ValueNode {
+        
+        private final String field;
+        private final Pattern pattern;
+        
+        PatternNode(String field, Pattern pattern) {
+            this.field = field;
+            this.pattern = pattern;
+        }
+        
+        @Override
+        public boolean test(Map<String, Object> entityData) {
+            Object fieldValue = entityData.get(field);
+            return fieldValue != null && testValue(fieldValue);
+        }
+        
+        @Override
+        public boolean testValue(Object fieldValue) {
+            return pattern.matcher(fieldValue.toString()).find();
+        }
+    }
+    
+    /**
+     * MATCHES node for a pattern that is a literal, optionally anchored at the start.
+     */
+    private static final class LiteralPatternNode implements ValueNode {
+        
+        private final String field;
+        private final String literal;
+        private final ValueTest test;
+        
+        LiteralPatternNode(String field, String literal, ValueTest test) {
+            this.field = field;
+            this.literal = literal;
+            this.test = test;
+        }
+        
+        @Override
+        public boolean test(Map<String, Object> entityData) {
+            Object fieldValue = entityData.get(field);
+            return fieldValue != null && testValue(fieldValue);
+        }
+        
+        @Override
+        public boolean testValue(Object fieldValue) {
+            return test.testText(fieldValue.toString(), literal);
+        }
+    }
+    
+    /**
+     * BETWEEN node.
+     */
+    private static final class DateRangeNode implements ValueNode {
+        
+        private final String field;
+        private final DateRange range;
+        
+        DateRangeNode(String field, DateRange range) {
+            this.field = field;
+            this.range = range;
+        }
+        
+        @Override
+        public boolean test(Map<String, Object> entityData) {
+            return range.contains(entityData.get(field));
+        }
+        
+        @Override
+        public boolean testValue(Object fieldValue) {
+            return range.contains(fieldValue);
+        }
+    }
+    
+    /**
+     * WITHIN_DAYS or BEFORE_TODAY node: the field value must fall on a day between two
+     * offsets from today, where Long.MIN_VALUE is unbounded.
+     */
+    private static final class RelativeDaysNode implements ValueNode {
+        
+        private final String field;
+        private final long fromOffset;
+        private final long toOffset;
+        
+        RelativeDaysNode(String field, long fromOffset, long toOffset) {
+            this.field = field;
+            this.fromOffset = fromOffset;
+            this.toOffset = toOffset;
+        }
+        
+        @Override
+        public boolean test(Map<String, Object> entityData) {
+            Object fieldValue = entityData.get(field);
+            return fieldValue != null && testValue(fieldValue);
+        }
+        
+        @Override
+        public boolean testValue(Object fieldValue) {
+            long today = RequestClock.today().toEpochDay();
+            return DateRange.isOnDays(fieldValue, fromOffset == Long.MIN_VALUE ? Long.MIN_VALUE : today + fromOffset, today + toOffset);
+        }
+    }
+    
+    /**
+     * A predicate on the value of a single field. Every node returned by
+     * {@link #bind(Condition, EntitySchema)} is one; a bound node also uses a generic
+     * one for field values that do not have the declared type.
+     */
+    interface ValueNode extends CompiledPredicate {
+        
+        /**
+         * Tests a non-null field value.
+         */
+        boolean testValue(Object fieldValue);
+    }
+    
+    /**
+     * Node for fields whose type is not known at bind time. A string constant is
+     * converted to the type of the field value the first time a value of that type
+     * is seen, and the immutable conversion result is reused while the type stays the same.
+     */
+    static final class GenericNode implements ValueNode {
+        
+        private final String field;
+        private final Object value;
+        private final ValueTest test;
+        private final Operand literal;
+        
+        private volatile Operand lastOperand;
+        
+        GenericNode(String field, Object value, ValueTest test) {
+            this.field = field;
+            this.value = value;
+            this.test = test;
+            this.literal = new Operand(null, value, false);
+        }
+        
+        @Override
+        public boolean test(Map<String, Object> entityData) {
+            Object fieldValue = entityData.get(field);
+            return fieldValue != null && testValue(fieldValue);
+        }
+        
+        @Override
+        public boolean testValue(Object fieldValue) {
+            Operand operand = operandFor(fieldValue);
+            if (operand.invalid) {
+                return false;
+            }
+            if (test.isEquality()) {
+                return test.testEquality(Objects.equals(fieldValue, operand.value));
+            }
+            if (test.isText()) {
+                return test.testText(fieldValue.toString(), operand.text);
+            }
+            return test.testComparison(Condition.compareValues(fieldValue, operand.value));
+        }
+        
+        private Operand operandFor(Object fieldValue) {
+            if (!(value instanceof String)) {
+                return literal;
+            }
+            
+            Class<?> type = fieldValue.getClass();
+            Operand cached = lastOperand;
+            if (cached != null && cached.type == type) {
+                return cached;
+            }
+            
+            Operand operand = coerce(type, fieldValue, (String) value);
+            lastOperand = operand;
+            return operand;
+        }
+        
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static Operand coerce(Class<?> type, Object fieldValue, String value) {
+            try {
+                if (fieldValue instanceof Enum) {
+                    Class<? extends Enum> enumClass = ((Enum) fieldValue).getDeclaringClass();
+                    return new Operand(type, Enum.valueOf(enumClass, value), false);
+                }
+                if (fieldValue instanceof Integer) {
+                    return new Operand(type, Integer.valueOf(value), false);
+                }
+                if (fieldValue instanceof Long) {
+                    return new Operand(type, Long.valueOf(value), false);
+                }
+                if (fieldValue instanceof Double) {
+                    return new Operand(type, Double.valueOf(value), false);
+                }
+            } catch (IllegalArgumentException e) {
+                return new Operand(type, null, true);
+            }
+            return new Operand(type, value, false);
+        }
+        
+    }
+    
+    /**
+     * IN or NOT_IN node for fields whose type is not known at bind time. The elements
+     * are converted to the type of the field value like single constants, and the set
+     * of converted elements is reused while the type stays the same.
+     */
+    static final class GenericMembershipNode implements ValueNode {
+        
+        private final String field;
+        private final Collection<?> elements;
+        private final boolean negated;
+        private final boolean converts;
+        private final Members literal;
+        
+        private volatile Members lastMembers;
+        
+        GenericMembershipNode(String field, Collection<?> elements, boolean negated) {
+            this.field = field;
+            // Null elements never equal a non-null field value
+            this.elements = elements.stream().filter(Objects::nonNull).collect(Collectors.toUnmodifiableList());
+            this.negated = negated;
+            this.converts = this.elements.stream().anyMatch(element -> element instanceof String);
+            this.literal = new Members(null, new HashSet<>(this.elements));
+        }
+        
+        @Override
+        public boolean test(Map<String, Object> entityData) {
+            Object fieldValue = entityData.get(field);
+            return fieldValue != null && testValue(fieldValue);
+        }
+        
+        @Override
+        public boolean testValue(Object fieldValue) {
+            return negated != membersFor(fieldValue).values.contains(fieldValue);
+        }
+        
+        private Members membersFor(Object fieldValue) {
+            if (!converts) {
+                return literal;
+            }
+            
+            Class<?> type = fieldValue.getClass();
+            Members cached = lastMembers;
+            if (cached != null && cached.type == type) {
+                return cached;
+            }
+            
+            Set<Object> values = new HashSet<>();
+            for (Object element : elements) {
+                if (!(element instanceof String)) {
+                    values.add(element);
+                    continue;
+                }
+                Operand operand = GenericNode.coerce(type, fieldValue, (String) element);
+                if (!operand.invalid) {
+                    values.add(operand.value);
+                }
+            }
+            Members members = new Members(type, values);
+            lastMembers = members;
+            return members;
+        }
+    }
+    
+    /**
+     * Elements of an IN or NOT_IN condition converted for one field value type.
+     */
+    private static final class Members {
+        
+        final Class<?> type;
+        final Set<Object> values;
+        
+        Members(Class<?> type, Set<Object> values) {
+            this.type = type;
+            this.values = values;
+        }
+    }
+    
+    /**
+     * A constant converted for one field value type, with its string form precomputed.
+     */
+    private static final class Operand {
+        
+        final Class<?> type;
+        final Object value;
+        final String text;
+        final boolean invalid;
+        
+        Operand(Class<?> type, Object value, boolean invalid) {
+            this.type = type;
+            this.value = value;
+            this.text = value != null ? value.toString() : null;
+            this.invalid = invalid;
+        }
+    }
+}
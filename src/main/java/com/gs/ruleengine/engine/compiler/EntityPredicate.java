@@ -0,0 +1,19 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.engine.EntitySchema;
+
+/**
+ * Executable form of a rule expression that reads the fields of an entity object
+ * directly, produced by {@link ExpressionCompiler#compileForEntity(com.gs.ruleengine.model.expression.Expression, EntitySchema)}.
+ */
+@FunctionalInterface
+public interface EntityPredicate {
+    
+    /**
+     * Tests the predicate against an entity.
+     * 
+     * @param entity An instance of the entity class of the schema the predicate was compiled for
+     * @return true if the entity satisfies the predicate, false otherwise
+     */
+    boolean test(Object entity);
+}
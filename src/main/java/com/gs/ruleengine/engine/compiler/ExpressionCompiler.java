@@ -0,0 +1,311 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.config.RuleEngineProperties;
+import com.gs.ruleengine.engine.EntityProjection;
+import com.gs.ruleengine.engine.EntityRecord;
+import com.gs.ruleengine.engine.EntitySchema;
+import com.gs.ruleengine.engine.ExpressionFields;
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.OrExpression;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compiles expression trees into operator-specialized predicates.
+ * 
+ * Compared to {@link Expression#evaluate(Map)}, the compiled form resolves the
+ * operator once and binds each condition against the {@link EntitySchema} so that
+ * constants are converted to the field's type at compile time (see {@link ConditionBinder}).
+ * An AND/OR expression is compiled into a {@link FlatProgram}, evaluated by a loop over
+ * an instruction array rather than a tree of nodes. The result of evaluating a compiled
+ * predicate is the same as interpreting the tree.
+ * 
+ * Unless {@code rule-engine.reorder-sample-interval} is 0, programs reorder the children
+ * of their AND/ORs at runtime so that the cheapest, most decisive children run first (see
+ * {@link AdaptiveNode}), and reassemble their code with the new order; reorders are
+ * recorded in the {@link #getReorderLog() reorder log}. With reordering disabled, children
+ * run in the order of the expression.
+ * 
+ * Expressions can also be {@link #compileForEntity compiled for entity objects}, reading
+ * each field through the schema's accessor instead of from extracted entity data.
+ * Such predicates are programs as above, which allocate nothing per evaluation other
+ * than samples. Expressions compiled for {@link #compileForRecord records} are the same
+ * predicates, reading each field from its {@link EntityRecord} slot instead.
+ */
+@Component
+public class ExpressionCompiler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ExpressionCompiler.class);
+    
+    private static final CompiledPredicate ALWAYS_TRUE = entityData -> true;
+    private static final CompiledPredicate ALWAYS_FALSE = entityData -> false;
+    private static final EntityPredicate ENTITY_ALWAYS_TRUE = entity -> true;
+    private static final EntityPredicate ENTITY_ALWAYS_FALSE = entity -> false;
+    
+    private static final int REORDER_LOG_CAPACITY = 100;
+    
+    private final RuleEngineProperties properties;
+    private final ReorderLog reorderLog = new ReorderLog(REORDER_LOG_CAPACITY);
+    
+    @Autowired
+    public ExpressionCompiler(RuleEngineProperties properties) {
+        this.properties = properties;
+    }
+    
+    /**
+     * Gets the log of child reorders made by adaptive AND/OR nodes compiled by this compiler.
+     * 
+     * @return The reorder log
+     */
+    public ReorderLog getReorderLog() {
+        return reorderLog;
+    }
+    
+    /**
+     * Creates the predicate used to evaluate a rule. The expression is interpreted
+     * until it reaches {@code rule-engine.compile-threshold} evaluations, then compiled.
+     * A threshold of 0 compiles immediately and a negative threshold never compiles.
+     * 
+     * @param expression The expression to evaluate
+     * @param schema The schema of the entity type the expression applies to, or null if unknown
+     * @return The predicate for the expression
+     */
+    public CompiledPredicate tiered(Expression expression, EntitySchema schema) {
+        int threshold = properties.getCompileThreshold();
+        
+        if (threshold < 0) {
+            return expression::evaluate;
+        }
+        if (threshold == 0) {
+            return compileOrInterpret(expression, schema);
+        }
+        return new TieredPredicate(expression, schema, this, threshold);
+    }
+    
+    /**
+     * Compiles an expression, falling back to the interpreter if it cannot be compiled.
+     * 
+     * @param expression The expression to compile
+     * @param schema The schema of the entity type the expression applies to, or null if unknown
+     * @return The compiled predicate, or a predicate interpreting the expression
+     */
+    public CompiledPredicate compileOrInterpret(Expression expression, EntitySchema schema) {
+        try {
+            return compile(expression, schema);
+        } catch (RuntimeException e) {
+            logger.warn("Falling back to interpreter for expression: {}", e.getMessage());
+            return expression::evaluate;
+        }
+    }
+    
+    /**
+     * Compiles an expression.
+     * 
+     * @param expression The expression to compile
+     * @param schema The schema of the entity type the expression applies to, or null if unknown
+     * @return The compiled predicate
+     * @throws IllegalArgumentException if the expression cannot be compiled
+     */
+    public CompiledPredicate compile(Expression expression, EntitySchema schema) {
+        if (expression instanceof AndExpression) {
+            List<Expression> children = ((AndExpression) expression).getExpressions();
+            if (children == null || children.isEmpty()) {
+                return ALWAYS_TRUE;
+            }
+            if (children.size() == 1) {
+                return compile(children.get(0), schema);
+            }
+            return join(expression, schema);
+        }
+        if (expression instanceof OrExpression) {
+            List<Expression> children = ((OrExpression) expression).getExpressions();
+            if (children == null || children.isEmpty()) {
+                return ALWAYS_FALSE;
+            }
+            if (children.size() == 1) {
+                return compile(children.get(0), schema);
+            }
+            return join(expression, schema);
+        }
+        return compileLeaf(expression, schema);
+    }
+    
+    private static CompiledPredicate compileLeaf(Expression expression, EntitySchema schema) {
+        if (expression instanceof Condition) {
+            return ConditionBinder.bind((Condition) expression, schema);
+        }
+        if (expression == null) {
+            throw new IllegalArgumentException("Expression is null");
+        }
+        
+        // Unknown expression types keep their own evaluation logic
+        return expression::evaluate;
+    }
+    
+    /**
+     * Creates the predicate used to evaluate a rule directly on entity objects. Like
+     * {@link #tiered(Expression, EntitySchema)}, the predicate interprets the expression,
+     * on a view of the entity's referenced fields, until it reaches
+     * {@code rule-engine.compile-threshold} evaluations, then compiles it.
+     * 
+     * @param expression The expression to evaluate
+     * @param schema The schema of the entity type the expression applies to, or null if unknown
+     * @return The predicate, or null if the schema is unknown, the expression is not made
+     *         of conditions, cannot be compiled with a threshold of 0, or
+     *         {@code rule-engine.compile-threshold} is negative
+     */
+    public EntityPredicate entityPredicate(Expression expression, EntitySchema schema) {
+        int threshold = properties.getCompileThreshold();
+        if (schema == null || threshold < 0 || !hasOnlyConditions(expression, condition -> true)) {
+            return null;
+        }
+        if (threshold == 0) {
+            return compileForEntityOrNull(expression, schema);
+        }
+        
+        EntityProjection projection = EntityProjection.of(schema, ExpressionFields.referencedBy(expression));
+        return new TieredEntityPredicate(expression, projection::view,
+                () -> compileForEntityOrNull(expression, schema), threshold);
+    }
+    
+    private EntityPredicate compileForEntityOrNull(Expression expression, EntitySchema schema) {
+        try {
+            return compileForEntity(expression, schema);
+        } catch (RuntimeException e) {
+            logger.warn("Evaluating expression on entity data only: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Compiles an expression for evaluation against entity objects. The result is the
+     * same as interpreting the expression on the entity's extracted data.
+     * 
+     * @param expression The expression to compile
+     * @param schema The schema of the entity type the expression applies to
+     * @return The compiled predicate
+     * @throws IllegalArgumentException if the expression cannot be compiled
+     */
+    public EntityPredicate compileForEntity(Expression expression, EntitySchema schema) {
+        return compileFields(expression, condition -> ConditionBinder.bindEntity(condition, schema));
+    }
+    
+    /**
+     * Creates the predicate used to evaluate a rule on {@link EntityRecord}s. Like
+     * {@link #entityPredicate entity predicates}, the predicate interprets the expression,
+     * on the record's map view, until it reaches {@code rule-engine.compile-threshold}
+     * evaluations, then compiles it.
+     * 
+     * @param expression The expression to evaluate
+     * @param schema The schema of the entity type the expression applies to, or null if unknown
+     * @return The predicate, or null if the schema is unknown, the expression is not made
+     *         of conditions on fields of the schema, cannot be compiled with a threshold
+     *         of 0, or {@code rule-engine.compile-threshold} is negative
+     */
+    public EntityPredicate recordPredicate(Expression expression, EntitySchema schema) {
+        int threshold = properties.getCompileThreshold();
+        // A record holds no other fields, so the interpreter would read them as null
+        if (schema == null || threshold < 0
+                || !hasOnlyConditions(expression, condition -> schema.getSlot(condition.getField()) >= 0)) {
+            return null;
+        }
+        if (threshold == 0) {
+            return compileForRecordOrNull(expression, schema);
+        }
+        return new TieredEntityPredicate(expression, record -> ((EntityRecord) record).asMap(),
+                () -> compileForRecordOrNull(expression, schema), threshold);
+    }
+    
+    private EntityPredicate compileForRecordOrNull(Expression expression, EntitySchema schema) {
+        try {
+            return compileForRecord(expression, schema);
+        } catch (RuntimeException e) {
+            logger.warn("Evaluating expression on entity data by name: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Compiles an expression for evaluation against {@link EntityRecord}s of an entity
+     * type, reading each field from its slot. The result is the same as interpreting the
+     * expression on the entity data the record was bound from.
+     * 
+     * @param expression The expression to compile
+     * @param schema The schema of the entity type the expression applies to
+     * @return The compiled predicate, which tests EntityRecords
+     * @throws IllegalArgumentException if the expression cannot be compiled or references
+     *         a field the schema does not have
+     */
+    public EntityPredicate compileForRecord(Expression expression, EntitySchema schema) {
+        return compileFields(expression, condition -> ConditionBinder.bindRecord(condition, schema));
+    }
+    
+    private EntityPredicate compileFields(Expression expression, Function<Condition, EntityPredicate> binder) {
+        if (expression instanceof Condition) {
+            return binder.apply((Condition) expression);
+        }
+        boolean conjunction = expression instanceof AndExpression;
+        if (!conjunction && !(expression instanceof OrExpression)) {
+            throw new IllegalArgumentException("Cannot compile expression for entities: " + expression);
+        }
+        
+        List<Expression> children = conjunction
+                ? ((AndExpression) expression).getExpressions()
+                : ((OrExpression) expression).getExpressions();
+        if (children == null || children.isEmpty()) {
+            return conjunction ? ENTITY_ALWAYS_TRUE : ENTITY_ALWAYS_FALSE;
+        }
+        if (children.size() == 1) {
+            return compileFields(children.get(0), binder);
+        }
+        return joinFields(expression, binder);
+    }
+    
+    private EntityPredicate joinFields(Expression expression, Function<Condition, EntityPredicate> binder) {
+        return FlatProgram.forEntity(expression, leaf -> {
+            if (!(leaf instanceof Condition)) {
+                throw new IllegalArgumentException("Cannot compile expression for entities: " + leaf);
+            }
+            return binder.apply((Condition) leaf);
+        }, properties.getReorderSampleInterval(), properties.getReorderSamples(), reorderLog);
+    }
+    
+    private CompiledPredicate join(Expression expression, EntitySchema schema) {
+        return FlatProgram.forData(expression, leaf -> compileLeaf(leaf, schema),
+                properties.getReorderSampleInterval(), properties.getReorderSamples(), reorderLog);
+    }
+    
+    /**
+     * @return true if the expression is made of AND/OR expressions and accepted
+     *         conditions only, as compiling it for entities requires
+     */
+    private static boolean hasOnlyConditions(Expression expression, Predicate<Condition> accepted) {
+        if (expression instanceof Condition) {
+            return accepted.test((Condition) expression);
+        }
+        List<Expression> children;
+        if (expression instanceof AndExpression) {
+            children = ((AndExpression) expression).getExpressions();
+        } else if (expression instanceof OrExpression) {
+            children = ((OrExpression) expression).getExpressions();
+        } else {
+            return false;
+        }
+        if (children != null) {
+            for (Expression child : children) {
+                if (!hasOnlyConditions(child, accepted)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
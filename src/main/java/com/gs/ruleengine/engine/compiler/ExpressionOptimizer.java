@@ -0,0 +1,470 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.model.Satisfiability;
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.OrExpression;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Rewrites expression trees into an equivalent normalized form:
+ * <ul>
+ *   <li>nested AND inside AND (and OR inside OR) is flattened and single-child nodes are unwrapped,</li>
+ *   <li>duplicate children of an AND/OR are removed,</li>
+ *   <li>constant children are folded, e.g. an AND with a provably false child is false,</li>
+ *   <li>EQUALS and IN conditions on the same field under an OR are merged into one IN condition,
+ *       and IN conditions with at most one element become constants or EQUALS,</li>
+ *   <li>contradictions such as {@code status EQUALS OPEN AND status EQUALS CLOSED} fold to false
+ *       and tautologies such as {@code x IS_NULL OR x IS_NOT_NULL} fold to true.</li>
+ * </ul>
+ * 
+ * A provably true expression is returned as an empty AND and a provably false one as
+ * an empty OR, which the compiler turns into constant predicates that never read
+ * entity data. Rewrites only rely on the evaluation rules of {@link Condition#evaluate(Map)}
+ * and hold for any runtime value type, so the result of evaluating the optimized tree is
+ * the same as evaluating the original. The input tree is not modified.
+ */
+public final class ExpressionOptimizer {
+    
+    private ExpressionOptimizer() {
+    }
+    
+    /**
+     * Optimizes an expression.
+     * 
+     * @param expression The expression to optimize
+     * @return The optimized expression, which may share nodes with the input
+     */
+    public static Expression optimize(Expression expression) {
+        if (expression instanceof Condition) {
+            return optimizeCondition((Condition) expression);
+        }
+        if (expression instanceof AndExpression) {
+            return optimizeAnd(((AndExpression) expression).getExpressions());
+        }
+        if (expression instanceof OrExpression) {
+            return optimizeOr(((OrExpression) expression).getExpressions());
+        }
+        return expression;
+    }
+    
+    /**
+     * Determines whether an optimized expression has a constant outcome.
+     * 
+     * @param expression An expression returned by {@link #optimize(Expression)}
+     * @return The satisfiability of the expression
+     */
+    public static Satisfiability satisfiability(Expression expression) {
+        if (isTrue(expression)) {
+            return Satisfiability.ALWAYS_TRUE;
+        }
+        if (isFalse(expression)) {
+            return Satisfiability.ALWAYS_FALSE;
+        }
+        return Satisfiability.CONDITIONAL;
+    }
+    
+    private static Expression optimizeCondition(Condition condition) {
+        Operator operator = condition.getOperator();
+        if ((operator == Operator.IN || operator == Operator.NOT_IN) && condition.getValue() instanceof Collection) {
+            return optimizeMembership(condition);
+        }
+        if (condition.getValue() != null || operator == null) {
+            return condition;
+        }
+        
+        // Against a null constant, EQUALS and strict comparisons never match and the
+        // remaining value operators match any non-null field value
+        switch (operator) {
+            case EQUALS:
+            case GREATER_THAN:
+            case LESS_THAN:
+                return alwaysFalse();
+            case NOT_EQUALS:
+            case GREATER_THAN_OR_EQUALS:
+            case LESS_THAN_OR_EQUALS:
+                return new Condition(condition.getField(), Operator.IS_NOT_NULL, null);
+            default:
+                return condition;
+        }
+    }
+    
+    private static Expression optimizeMembership(Condition condition) {
+        Collection<?> elements = (Collection<?>) condition.getValue();
+        if (elements.isEmpty()) {
+            return condition.getOperator() == Operator.IN
+                    ? alwaysFalse()
+                    : new Condition(condition.getField(), Operator.IS_NOT_NULL, null);
+        }
+        // NOT_IN differs from NOT_EQUALS for elements that do not convert to the field's type
+        if (condition.getOperator() == Operator.IN && elements.size() == 1) {
+            Object element = elements.iterator().next();
+            return element != null ? new Condition(condition.getField(), Operator.EQUALS, element) : alwaysFalse();
+        }
+        return condition;
+    }
+    
+    private static Expression optimizeAnd(List<Expression> expressions) {
+        List<Expression> children = new ArrayList<>();
+        Set<Object> keys = new HashSet<>();
+        
+        if (expressions != null) {
+            for (Expression expression : expressions) {
+                Expression child = optimize(expression);
+                if (isFalse(child)) {
+                    return alwaysFalse();
+                }
+                if (child instanceof AndExpression) {
+                    // Already flattened and free of constants
+                    for (Expression grandchild : ((AndExpression) child).getExpressions()) {
+                        addDistinct(children, keys, grandchild);
+                    }
+                } else {
+                    addDistinct(children, keys, child);
+                }
+            }
+        }
+        
+        if (hasContradiction(children)) {
+            return alwaysFalse();
+        }
+        if (children.size() == 1) {
+            return children.get(0);
+        }
+        return new AndExpression(children);
+    }
+    
+    private static Expression optimizeOr(List<Expression> expressions) {
+        List<Expression> children = new ArrayList<>();
+        Set<Object> keys = new HashSet<>();
+        
+        if (expressions != null) {
+            for (Expression expression : expressions) {
+                Expression child = optimize(expression);
+                if (isTrue(child)) {
+                    return alwaysTrue();
+                }
+                if (child instanceof OrExpression) {
+                    // Already flattened and free of constants
+                    for (Expression grandchild : ((OrExpression) child).getExpressions()) {
+                        addDistinct(children, keys, grandchild);
+                    }
+                } else {
+                    addDistinct(children, keys, child);
+                }
+            }
+        }
+        
+        if (hasTautology(children)) {
+            return alwaysTrue();
+        }
+        children = mergeMemberships(children);
+        if (children.size() == 1) {
+            return children.get(0);
+        }
+        return new OrExpression(children);
+    }
+    
+    /**
+     * Merges the EQUALS and IN conditions of an OR that test the same field into one IN
+     * condition, at the position of the first of them. IN matches like an OR of EQUALS
+     * conditions on its elements, and neither operator throws.
+     */
+    private static List<Expression> mergeMemberships(List<Expression> children) {
+        Map<String, Set<Object>> elementsByField = new HashMap<>();
+        Map<String, Integer> countsByField = new HashMap<>();
+        for (Expression child : children) {
+            String field = membershipField(child);
+            if (field != null) {
+                Condition condition = (Condition) child;
+                Set<Object> elements = elementsByField.computeIfAbsent(field, f -> new LinkedHashSet<>());
+                if (condition.getOperator() == Operator.IN) {
+                    elements.addAll((Collection<?>) condition.getValue());
+                } else {
+                    elements.add(condition.getValue());
+                }
+                countsByField.merge(field, 1, Integer::sum);
+            }
+        }
+        if (countsByField.values().stream().allMatch(count -> count < 2)) {
+            return children;
+        }
+        
+        List<Expression> merged = new ArrayList<>();
+        Set<String> mergedFields = new HashSet<>();
+        for (Expression child : children) {
+            String field = membershipField(child);
+            if (field == null || countsByField.get(field) < 2) {
+                merged.add(child);
+            } else if (mergedFields.add(field)) {
+                merged.add(new Condition(field, Operator.IN, new ArrayList<>(elementsByField.get(field))));
+            }
+        }
+        return merged;
+    }
+    
+    /**
+     * @return The field of an EQUALS condition with a non-null constant or of an IN
+     *         condition with an array value, or null for any other expression
+     */
+    private static String membershipField(Expression expression) {
+        if (!(expression instanceof Condition)) {
+            return null;
+        }
+        Condition condition = (Condition) expression;
+        if (condition.getField() == null) {
+            return null;
+        }
+        if (condition.getOperator() == Operator.EQUALS && condition.getValue() != null) {
+            return condition.getField();
+        }
+        if (condition.getOperator() == Operator.IN && condition.getValue() instanceof Collection) {
+            return condition.getField();
+        }
+        return null;
+    }
+    
+    private static void addDistinct(List<Expression> children, Set<Object> keys, Expression child) {
+        if (keys.add(key(child))) {
+            children.add(child);
+        }
+    }
+    
+    /**
+     * Builds a key that is equal for structurally equal expressions.
+     */
+    private static Object key(Expression expression) {
+        if (expression instanceof Condition) {
+            Condition condition = (Condition) expression;
+            return Arrays.asList("CONDITION", condition.getField(), condition.getOperator(), condition.getValue());
+        }
+        if (expression instanceof AndExpression || expression instanceof OrExpression) {
+            List<Expression> children = expression instanceof AndExpression
+                    ? ((AndExpression) expression).getExpressions()
+                    : ((OrExpression) expression).getExpressions();
+            List<Object> key = new ArrayList<>();
+            key.add(expression instanceof AndExpression ? "AND" : "OR");
+            for (Expression child : children) {
+                key.add(key(child));
+            }
+            return key;
+        }
+        // Unknown expression types are only equal to themselves
+        return expression;
+    }
+    
+    /**
+     * Checks whether no field value can satisfy all conditions of an AND at once.
+     */
+    private static boolean hasContradiction(List<Expression> children) {
+        List<Condition> conditions = conditions(children);
+        
+        for (int i = 0; i < conditions.size(); i++) {
+            Condition a = conditions.get(i);
+            for (int j = i + 1; j < conditions.size(); j++) {
+                Condition b = conditions.get(j);
+                if (Objects.equals(a.getField(), b.getField()) && contradicts(a, b)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Checks whether every field value satisfies at least one condition of an OR.
+     */
+    private static boolean hasTautology(List<Expression> children) {
+        List<Condition> conditions = conditions(children);
+        
+        for (int i = 0; i < conditions.size(); i++) {
+            Condition a = conditions.get(i);
+            for (int j = i + 1; j < conditions.size(); j++) {
+                Condition b = conditions.get(j);
+                if (Objects.equals(a.getField(), b.getField())
+                        && (isNullCheck(a, b) || isNullCheck(b, a))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isNullCheck(Condition a, Condition b) {
+        return a.getOperator() == Operator.IS_NULL && b.getOperator() == Operator.IS_NOT_NULL;
+    }
+    
+    private static boolean contradicts(Condition a, Condition b) {
+        // Every operator other than IS_NULL is false for a null field value
+        if (a.getOperator() == Operator.IS_NULL || b.getOperator() == Operator.IS_NULL) {
+            return a.getOperator() != b.getOperator();
+        }
+        if (a.getOperator() == null || b.getOperator() == null) {
+            return false;
+        }
+        
+        Object x = a.getValue();
+        Object y = b.getValue();
+        if (a.getOperator() == Operator.EQUALS && b.getOperator() == Operator.EQUALS) {
+            return neverBothEqual(x, y);
+        }
+        if (isNegation(a, b) || isNegation(b, a)) {
+            return true;
+        }
+        if (a.getOperator() == Operator.EQUALS) {
+            return outsideBound(x, b);
+        }
+        if (b.getOperator() == Operator.EQUALS) {
+            return outsideBound(y, a);
+        }
+        return emptyRange(a, b) || emptyRange(b, a);
+    }
+    
+    private static boolean isNegation(Condition a, Condition b) {
+        return a.getOperator() == Operator.EQUALS && b.getOperator() == Operator.NOT_EQUALS
+                && a.getValue() != null && b.getValue() != null
+                && a.getValue().getClass() == b.getValue().getClass()
+                && a.getValue().equals(b.getValue());
+    }
+    
+    /**
+     * Checks whether no field value can equal both constants after the conversions
+     * {@link Condition#evaluate(Map)} applies to string constants.
+     */
+    private static boolean neverBothEqual(Object x, Object y) {
+        if (x == null || y == null || x.equals(y)) {
+            return false;
+        }
+        if (!(x instanceof String) && !(y instanceof String)) {
+            return true;
+        }
+        if (!(x instanceof String) || !(y instanceof String)) {
+            // A string constant may convert to the other constant's value
+            return false;
+        }
+        
+        Double xNumber = parseNumber((String) x);
+        Double yNumber = parseNumber((String) y);
+        if (xNumber == null || yNumber == null) {
+            // At most one of them converts to a number, enum names are distinct
+            return true;
+        }
+        // Compared as doubles, so that "-0" and "0" both equal an integer 0
+        return xNumber.doubleValue() != yNumber.doubleValue();
+    }
+    
+    /**
+     * Checks whether a field value equal to a constant fails a comparison condition.
+     */
+    private static boolean outsideBound(Object constant, Condition bound) {
+        Integer cmp = compareConstants(constant, bound.getValue());
+        if (cmp == null) {
+            return false;
+        }
+        
+        switch (bound.getOperator()) {
+            case GREATER_THAN:
+                return cmp <= 0;
+            case GREATER_THAN_OR_EQUALS:
+                return cmp < 0;
+            case LESS_THAN:
+                return cmp >= 0;
+            case LESS_THAN_OR_EQUALS:
+                return cmp > 0;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Checks whether a lower and an upper bound leave no value between them. At least
+     * one bound must be strict: values that are not comparable to the constants
+     * compare as equal, which satisfies two non-strict bounds.
+     */
+    private static boolean emptyRange(Condition lower, Condition upper) {
+        boolean lowerStrict = lower.getOperator() == Operator.GREATER_THAN;
+        boolean upperStrict = upper.getOperator() == Operator.LESS_THAN;
+        
+        if (!lowerStrict && lower.getOperator() != Operator.GREATER_THAN_OR_EQUALS) {
+            return false;
+        }
+        if (!upperStrict && upper.getOperator() != Operator.LESS_THAN_OR_EQUALS) {
+            return false;
+        }
+        if (!lowerStrict && !upperStrict) {
+            return false;
+        }
+        
+        Integer cmp = compareConstants(lower.getValue(), upper.getValue());
+        return cmp != null && cmp >= 0;
+    }
+    
+    /**
+     * Compares two constants that are used as-is by the interpreter, i.e. non-string
+     * comparable values of the same class.
+     * 
+     * @return The comparison result, or null if the constants cannot be compared
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Integer compareConstants(Object x, Object y) {
+        if (x == null || y == null || x instanceof String || x.getClass() != y.getClass()
+                || !(x instanceof Comparable)) {
+            return null;
+        }
+        return ((Comparable) x).compareTo(y);
+    }
+    
+    private static Double parseNumber(String value) {
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static List<Condition> conditions(List<Expression> expressions) {
+        List<Condition> conditions = new ArrayList<>();
+        for (Expression expression : expressions) {
+            if (expression instanceof Condition) {
+                conditions.add((Condition) expression);
+            }
+        }
+        return conditions;
+    }
+    
+    private static boolean isTrue(Expression expression) {
+        if (!(expression instanceof AndExpression)) {
+            return false;
+        }
+        List<Expression> children = ((AndExpression) expression).getExpressions();
+        return children == null || children.isEmpty();
+    }
+    
+    private static boolean isFalse(Expression expression) {
+        if (!(expression instanceof OrExpression)) {
+            return false;
+        }
+        List<Expression> children = ((OrExpression) expression).getExpressions();
+        return children == null || children.isEmpty();
+    }
+    
+    private static Expression alwaysTrue() {
+        return new AndExpression(Collections.emptyList());
+    }
+    
+    private static Expression alwaysFalse() {
+        return new OrExpression(Collections.emptyList());
+    }
+}
@@ -0,0 +1,468 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.OrExpression;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * An AND/OR expression flattened into a single array of instructions, evaluated by a
+ * loop instead of a tree of nodes.
+ * 
+ * The conditions (and any other leaf expressions) are bound once into a pool of leaf
+ * predicates. Each instruction is an int holding an opcode and an operand: TEST sets
+ * the result register to the outcome of a leaf, CONST sets it to a constant, and
+ * JUMP_IF_FALSE / JUMP_IF_TRUE skip forward to the end of an AND / OR as soon as its
+ * result is decided. Because every operator short-circuits through a jump, the result
+ * of a subexpression is always the current register value and no operand stack is
+ * needed.
+ * 
+ * For {@code OR(AND(a, b), c)} the program is:
+ * <pre>
+ * 0: TEST a
+ * 1: JUMP_IF_FALSE 3
+ * 2: TEST b
+ * 3: JUMP_IF_TRUE 5
+ * 4: TEST c
+ * </pre>
+ * 
+ * Evaluation needs no recursion, whatever the depth of the expression, and a rule
+ * costs one instruction array and one leaf array rather than an object per AND/OR.
+ * 
+ * With a fixed order, children run in the order of the expression. An adaptive program
+ * instead keeps the AND/OR structure of the expression with an {@link AdaptiveNode} per
+ * AND/OR of two or more children. One in {@code sampleInterval} evaluations is a sample:
+ * every leaf is evaluated and timed, and the outcome and cost of each child, as the code
+ * evaluates it, is derived from those of the leaves and recorded. After
+ * {@code reorderSamples} samples the nodes rank their children and, if an order changed,
+ * the code is reassembled with the new order and replaces the previous code.
+ */
+final class FlatProgram {
+    
+    private static final int TEST = 0;
+    private static final int CONST = 1;
+    private static final int JUMP_IF_FALSE = 2;
+    private static final int JUMP_IF_TRUE = 3;
+    
+    private static final int OPCODE_BITS = 2;
+    private static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+    
+    private static final Block[] NO_CHILDREN = new Block[0];
+    
+    private FlatProgram() {
+    }
+    
+    /**
+     * Flattens an expression into a program evaluated on entity data.
+     * 
+     * @param expression The expression
+     * @param binder Binds the expressions other than AND and OR into leaf predicates
+     * @param sampleInterval One in this many evaluations is a sample, or 0 or less to keep
+     *        the children in the order of the expression
+     * @param reorderSamples The number of samples between reorders
+     * @param reorderLog The log that reorders are recorded in
+     * @return The program
+     * @throws IllegalArgumentException if the binder cannot bind a leaf expression
+     */
+    static CompiledPredicate forData(Expression expression, Function<Expression, CompiledPredicate> binder,
+            int sampleInterval, int reorderSamples, ReorderLog reorderLog) {
+        List<CompiledPredicate> leaves = new ArrayList<>();
+        Layout layout = layout(expression, binder, leaves, sampleInterval, reorderSamples, reorderLog);
+        return new DataProgram(layout, leaves.toArray(new CompiledPredicate[0]));
+    }
+    
+    /**
+     * Flattens an expression into a program evaluated on entity objects or records.
+     * 
+     * @param expression The expression
+     * @param binder Binds the expressions other than AND and OR into leaf predicates
+     * @param sampleInterval One in this many evaluations is a sample, or 0 or less to keep
+     *        the children in the order of the expression
+     * @param reorderSamples The number of samples between reorders
+     * @param reorderLog The log that reorders are recorded in
+     * @return The program
+     * @throws IllegalArgumentException if the binder cannot bind a leaf expression
+     */
+    static EntityPredicate forEntity(Expression expression, Function<Expression, EntityPredicate> binder,
+            int sampleInterval, int reorderSamples, ReorderLog reorderLog) {
+        List<EntityPredicate> leaves = new ArrayList<>();
+        Layout layout = layout(expression, binder, leaves, sampleInterval, reorderSamples, reorderLog);
+        return new EntityProgram(layout, leaves.toArray(new EntityPredicate[0]));
+    }
+    
+    private static <L> Layout layout(Expression expression, Function<Expression, L> binder, List<L> leaves,
+            int sampleInterval, int reorderSamples, ReorderLog reorderLog) {
+        boolean adaptive = sampleInterval > 0;
+        Block root = new Parser<>(binder, leaves, adaptive ? reorderLog : null).parse(expression);
+        return new Layout(root, adaptive ? sampleInterval : 0, Math.max(1, reorderSamples));
+    }
+    
+    /**
+     * The code of a program and, if it is adaptive, its layout, from which samples are
+     * recorded and the code is reassembled.
+     * 
+     * @param <T> The type of the value the leaves test
+     */
+    private abstract static class Program<T> {
+        
+        private final Layout layout;
+        
+        volatile int[] code;
+        
+        Program(Layout layout) {
+            this.code = new Assembler().assemble(layout.root);
+            this.layout = layout.isAdaptive() ? layout : null;
+        }
+        
+        abstract int leafCount();
+        
+        abstract boolean testLeaf(int leaf, T value);
+        
+        final boolean isSample() {
+            return layout != null && ThreadLocalRandom.current().nextInt(layout.sampleInterval) == 0;
+        }
+        
+        final boolean sample(T value) {
+            int leafCount = leafCount();
+            boolean[] results = new boolean[leafCount];
+            long[] nanos = new long[leafCount];
+            for (int leaf = 0; leaf < leafCount; leaf++) {
+                long start = System.nanoTime();
+                results[leaf] = testLeaf(leaf, value);
+                nanos[leaf] = System.nanoTime() - start;
+            }
+            
+            boolean result = layout.record(results, nanos);
+            if (layout.isReorderDue()) {
+                synchronized (layout) {
+                    if (layout.reorder()) {
+                        code = new Assembler().assemble(layout.root);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+    
+    private static final class DataProgram extends Program<Map<String, Object>> implements CompiledPredicate {
+        
+        private final CompiledPredicate[] leaves;
+        
+        DataProgram(Layout layout, CompiledPredicate[] leaves) {
+            super(layout);
+            this.leaves = leaves;
+        }
+        
+        @Override
+        public boolean test(Map<String, Object> entityData) {
+            if (isSample()) {
+                return sample(entityData);
+            }
+            
+            int[] code = this.code;
+            boolean result = false;
+            int pc = 0;
+            while (pc < code.length) {
+                int instruction = code[pc];
+                int operand = instruction >>> OPCODE_BITS;
+                switch (instruction & OPCODE_MASK) {
+                    case TEST:
+                        result = leaves[operand].test(entityData);
+                        pc++;
+                        break;
+                    case CONST:
+                        result = operand != 0;
+                        pc++;
+                        break;
+                    case JUMP_IF_FALSE:
+                        pc = result ? pc + 1 : operand;
+                        break;
+                    default:
+                        pc = result ? operand : pc + 1;
+                        break;
+                }
+            }
+            return result;
+        }
+        
+        @Override
+        int leafCount() {
+            return leaves.length;
+        }
+        
+        @Override
+        boolean testLeaf(int leaf, Map<String, Object> entityData) {
+            return leaves[leaf].test(entityData);
+        }
+    }
+    
+    private static final class EntityProgram extends Program<Object> implements EntityPredicate {
+        
+        private final EntityPredicate[] leaves;
+        
+        EntityProgram(Layout layout, EntityPredicate[] leaves) {
+            super(layout);
+            this.leaves = leaves;
+        }
+        
+        @Override
+        public boolean test(Object entity) {
+            if (isSample()) {
+                return sample(entity);
+            }
+            
+            int[] code = this.code;
+            boolean result = false;
+            int pc = 0;
+            while (pc < code.length) {
+                int instruction = code[pc];
+                int operand = instruction >>> OPCODE_BITS;
+                switch (instruction & OPCODE_MASK) {
+                    case TEST:
+                        result = leaves[operand].test(entity);
+                        pc++;
+                        break;
+                    case CONST:
+                        result = operand != 0;
+                        pc++;
+                        break;
+                    case JUMP_IF_FALSE:
+                        pc = result ? pc + 1 : operand;
+                        break;
+                    default:
+                        pc = result ? operand : pc + 1;
+                        break;
+                }
+            }
+            return result;
+        }
+        
+        @Override
+        int leafCount() {
+            return leaves.length;
+        }
+        
+        @Override
+        boolean testLeaf(int leaf, Object entity) {
+            return leaves[leaf].test(entity);
+        }
+    }
+    
+    /**
+     * A leaf or an AND/OR of the expression. Blocks are numbered in post-order, so that
+     * children are numbered before their parent and the root is numbered last.
+     */
+    private static final class Block {
+        
+        final int index;
+        final int leaf;
+        final boolean conjunction;
+        final Block[] children;
+        final AdaptiveNode node;
+        
+        Block(int index, int leaf, boolean conjunction, Block[] children, AdaptiveNode node) {
+            this.index = index;
+            this.leaf = leaf;
+            this.conjunction = conjunction;
+            this.children = children;
+            this.node = node;
+        }
+        
+        /**
+         * @return The positions of the children in evaluation order, or null if they
+         *         are evaluated in the order of the expression
+         */
+        int[] order() {
+            return node != null ? node.order() : null;
+        }
+    }
+    
+    /**
+     * The blocks of an expression and the sampling state of its adaptive AND/ORs.
+     */
+    private static final class Layout {
+        
+        final Block root;
+        final int sampleInterval;
+        private final int reorderSamples;
+        private final Block[] blocks;
+        private final AtomicInteger pendingSamples = new AtomicInteger();
+        
+        Layout(Block root, int sampleInterval, int reorderSamples) {
+            this.root = root;
+            this.sampleInterval = sampleInterval;
+            this.reorderSamples = reorderSamples;
+            this.blocks = new Block[root.index + 1];
+            collect(root);
+        }
+        
+        private void collect(Block block) {
+            blocks[block.index] = block;
+            for (Block child : block.children) {
+                collect(child);
+            }
+        }
+        
+        boolean isAdaptive() {
+            return sampleInterval > 0;
+        }
+        
+        /**
+         * Records a sample, deriving the outcome and cost of every block, as the code
+         * evaluates it in the current order, from those of the leaves.
+         * 
+         * @return The outcome of the expression
+         */
+        boolean record(boolean[] leafResults, long[] leafNanos) {
+            boolean[] results = new boolean[blocks.length];
+            long[] nanos = new long[blocks.length];
+            
+            for (Block block : blocks) {
+                if (block.leaf >= 0) {
+                    results[block.index] = leafResults[block.leaf];
+                    nanos[block.index] = leafNanos[block.leaf];
+                    continue;
+                }
+                
+                int[] order = block.order();
+                boolean result = block.conjunction;
+                boolean decided = false;
+                long cost = 0;
+                for (int i = 0; i < block.children.length; i++) {
+                    int position = order != null ? order[i] : i;
+                    Block child = block.children[position];
+                    if (block.node != null) {
+                        block.node.record(position, results[child.index], nanos[child.index]);
+                    }
+                    if (!decided) {
+                        cost += nanos[child.index];
+                        if (results[child.index] != block.conjunction) {
+                            result = !block.conjunction;
+                            decided = true;
+                        }
+                    }
+                }
+                results[block.index] = result;
+                nanos[block.index] = cost;
+            }
+            return results[root.index];
+        }
+        
+        boolean isReorderDue() {
+            if (pendingSamples.incrementAndGet() < reorderSamples) {
+                return false;
+            }
+            // Exactly one caller resets the counter and reorders
+            return pendingSamples.getAndSet(0) >= reorderSamples;
+        }
+        
+        /**
+         * @return true if some AND/OR changed the order of its children
+         */
+        boolean reorder() {
+            boolean reordered = false;
+            for (Block block : blocks) {
+                if (block.node != null && block.node.reorder()) {
+                    reordered = true;
+                }
+            }
+            return reordered;
+        }
+    }
+    
+    /**
+     * Builds the blocks of an expression, binding its leaves.
+     */
+    private static final class Parser<L> {
+        
+        private final Function<Expression, L> binder;
+        private final List<L> leaves;
+        private final ReorderLog reorderLog;
+        private int blockCount;
+        
+        /**
+         * @param reorderLog The log of the adaptive nodes, or null for a fixed order
+         */
+        Parser(Function<Expression, L> binder, List<L> leaves, ReorderLog reorderLog) {
+            this.binder = binder;
+            this.leaves = leaves;
+            this.reorderLog = reorderLog;
+        }
+        
+        Block parse(Expression expression) {
+            boolean conjunction = expression instanceof AndExpression;
+            if (!conjunction && !(expression instanceof OrExpression)) {
+                leaves.add(binder.apply(expression));
+                return new Block(blockCount++, leaves.size() - 1, false, NO_CHILDREN, null);
+            }
+            
+            List<Expression> children = conjunction
+                    ? ((AndExpression) expression).getExpressions()
+                    : ((OrExpression) expression).getExpressions();
+            if (children == null || children.isEmpty()) {
+                return new Block(blockCount++, -1, conjunction, NO_CHILDREN, null);
+            }
+            
+            Block[] blocks = new Block[children.size()];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = parse(children.get(i));
+            }
+            AdaptiveNode node = reorderLog != null && blocks.length > 1
+                    ? new AdaptiveNode(conjunction, children, reorderLog)
+                    : null;
+            return new Block(blockCount++, -1, conjunction, blocks, node);
+        }
+    }
+    
+    /**
+     * Emits the instructions of the blocks in a single pre-order pass, in the current
+     * order of their children, patching the jumps of each AND/OR once its end is known.
+     */
+    private static final class Assembler {
+        
+        private int[] code = new int[16];
+        private int size;
+        
+        int[] assemble(Block root) {
+            emit(root);
+            return Arrays.copyOf(code, size);
+        }
+        
+        private void emit(Block block) {
+            if (block.leaf >= 0) {
+                append(TEST, block.leaf);
+                return;
+            }
+            if (block.children.length == 0) {
+                append(CONST, block.conjunction ? 1 : 0);
+                return;
+            }
+            
+            int[] order = block.order();
+            int[] jumps = new int[block.children.length - 1];
+            for (int i = 0; i < block.children.length; i++) {
+                emit(block.children[order != null ? order[i] : i]);
+                if (i < jumps.length) {
+                    jumps[i] = size;
+                    append(block.conjunction ? JUMP_IF_FALSE : JUMP_IF_TRUE, 0);
+                }
+            }
+            for (int jump : jumps) {
+                code[jump] = (size << OPCODE_BITS) | (code[jump] & OPCODE_MASK);
+            }
+        }
+        
+        private void append(int opcode, int operand) {
+            if (size == code.length) {
+                code = Arrays.copyOf(code, size * 2);
+            }
+            code[size++] = (operand << OPCODE_BITS) | opcode;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.OrExpression;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Checks the regular expressions of MATCHES conditions before a rule is saved.
+ * 
+ * Every pattern must compile. In safe mode, patterns that can make the backtracking
+ * {@link Pattern} engine take exponential time are rejected as well: backreferences
+ * and lookarounds (which no linear-time engine supports), repeated groups containing
+ * a variable-length quantifier, such as {@code (a+)+}, and repeated alternations whose
+ * alternatives may start with the same character, such as {@code (a|ab)*}. The check
+ * is syntactic, so it also rejects some patterns that would run fast.
+ */
+public final class RegexSafety {
+    
+    private RegexSafety() {
+    }
+    
+    /**
+     * Checks the pattern of every MATCHES condition in an expression.
+     * 
+     * @param expression The expression to check
+     * @param safeMode Whether to reject patterns prone to catastrophic backtracking
+     * @throws IllegalArgumentException if a pattern is invalid, or unsafe in safe mode
+     */
+    public static void checkPatterns(Expression expression, boolean safeMode) {
+        if (expression instanceof Condition) {
+            Condition condition = (Condition) expression;
+            if (condition.getOperator() == Operator.MATCHES) {
+                if (condition.getValue() == null) {
+                    throw new IllegalArgumentException("Operator MATCHES on field '" + condition.getField() + "' requires a value");
+                }
+                check(condition.getValue().toString(), safeMode);
+            }
+        } else if (expression instanceof AndExpression) {
+            checkAll(((AndExpression) expression).getExpressions(), safeMode);
+        } else if (expression instanceof OrExpression) {
+            checkAll(((OrExpression) expression).getExpressions(), safeMode);
+        }
+    }
+    
+    private static void checkAll(List<Expression> expressions, boolean safeMode) {
+        if (expressions != null) {
+            for (Expression expression : expressions) {
+                checkPatterns(expression, safeMode);
+            }
+        }
+    }
+    
+    /**
+     * Checks a single pattern.
+     * 
+     * @param regex The pattern
+     * @param safeMode Whether to reject patterns prone to catastrophic backtracking
+     * @throws IllegalArgumentException if the pattern is invalid, or unsafe in safe mode
+     */
+    public static void check(String regex, boolean safeMode) {
+        try {
+            Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid pattern '" + regex + "': " + e.getDescription());
+        }
+        if (safeMode) {
+            new Parser(regex).parse();
+        }
+    }
+    
+    /**
+     * Walks a pattern that is known to compile, tracking for each group whether it
+     * contains a variable-length quantifier and which character each alternative
+     * starts with.
+     */
+    private static final class Parser {
+        
+        /** First character of a sequence that may start with any character. */
+        private static final int ANY = -1;
+        /** First character of a sequence that may be empty. */
+        private static final int EMPTY = -2;
+        
+        private final String regex;
+        private int pos;
+        
+        Parser(String regex) {
+            this.regex = regex;
+        }
+        
+        void parse() {
+            parseAlternation();
+        }
+        
+        private Group parseAlternation() {
+            Group group = new Group();
+            group.firsts.add(parseSequence(group));
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                group.firsts.add(parseSequence(group));
+            }
+            return group;
+        }
+        
+        /**
+         * Parses a sequence of atoms up to '|' or ')'.
+         * 
+         * @return The first character the sequence matches, ANY or EMPTY
+         */
+        private int parseSequence(Group group) {
+            int first = EMPTY;
+            while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+                Atom atom = parseAtom();
+                Quantifier quantifier = parseQuantifier();
+                
+                if (atom.group != null) {
+                    if (quantifier.repeats() && atom.group.variable) {
+                        throw unsafe("nested quantifier");
+                    }
+                    if (quantifier.repeats() && atom.group.overlapping()) {
+                        throw unsafe("repeated alternatives that may match the same text");
+                    }
+                    group.variable |= atom.group.variable;
+                }
+                group.variable |= quantifier.variable();
+                
+                if (first == EMPTY && !atom.zeroWidth) {
+                    first = quantifier.min == 0 ? ANY : atom.first;
+                }
+            }
+            return first;
+        }
+        
+        private Atom parseAtom() {
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case '\\':
+                    return parseEscape();
+                case '[':
+                    skipClass();
+                    return Atom.of(ANY);
+                case '(':
+                    return parseGroup();
+                case '.':
+                    return Atom.of(ANY);
+                case '^':
+                case '$':
+                    return Atom.ZERO_WIDTH;
+                default:
+                    return Atom.of(c);
+            }
+        }
+        
+        private Atom parseEscape() {
+            char c = regex.charAt(pos++);
+            if ((c >= '1' && c <= '9') || c == 'k') {
+                throw unsafe("backreference");
+            }
+            if (c == 'Q') {
+                int end = regex.indexOf("\\E", pos);
+                int start = pos;
+                pos = end < 0 ? regex.length() : end + 2;
+                int quotedEnd = end < 0 ? regex.length() : end;
+                return quotedEnd > start ? Atom.of(regex.charAt(start)) : Atom.ZERO_WIDTH;
+            }
+            if (c == 'b' || c == 'B' || c == 'A' || c == 'G' || c == 'Z' || c == 'z') {
+                return Atom.ZERO_WIDTH;
+            }
+            if ((c == 'p' || c == 'P' || c == 'x' || c == 'N') && pos < regex.length() && regex.charAt(pos) == '{') {
+                pos = regex.indexOf('}', pos) + 1;
+            } else if (c == 'c' || c == 'p' || c == 'P') {
+                pos++;
+            } else if (c == 'x') {
+                pos += 2;
+            } else if (c == 'u') {
+                pos += 4;
+            }
+            return Character.isLetterOrDigit(c) ? Atom.of(ANY) : Atom.of(c);
+        }
+        
+        private Atom parseGroup() {
+            if (regex.startsWith("?", pos)) {
+                pos++;
+                char c = regex.charAt(pos);
+                if (c == '=' || c == '!' || regex.startsWith("<=", pos) || regex.startsWith("<!", pos)) {
+                    throw unsafe("lookaround");
+                }
+                if (c == '<') {
+                    pos = regex.indexOf('>', pos) + 1;
+                } else if (c == ':' || c == '>') {
+                    pos++;
+                } else {
+                    // Inline flags, either alone as in (?i) or applied to a group as in (?i:x)
+                    while (regex.charAt(pos) != ':' && regex.charAt(pos) != ')') {
+                        pos++;
+                    }
+                    if (regex.charAt(pos++) == ')') {
+                        return Atom.ZERO_WIDTH;
+                    }
+                }
+            }
+            Group group = parseAlternation();
+            pos++;
+            Atom atom = new Atom(group.firsts.size() == 1 ? group.firsts.get(0) : ANY, false);
+            atom.group = group;
+            return atom;
+        }
+        
+        private void skipClass() {
+            int depth = 1;
+            if (regex.startsWith("^", pos)) {
+                pos++;
+            }
+            if (regex.startsWith("]", pos)) {
+                pos++;
+            }
+            while (depth > 0) {
+                char c = regex.charAt(pos++);
+                if (c == '\\') {
+                    pos++;
+                } else if (c == '[') {
+                    depth++;
+                } else if (c == ']') {
+                    depth--;
+                }
+            }
+        }
+        
+        private Quantifier parseQuantifier() {
+            if (pos >= regex.length()) {
+                return Quantifier.ONCE;
+            }
+            Quantifier quantifier;
+            char c = regex.charAt(pos);
+            if (c == '*') {
+                quantifier = new Quantifier(0, Integer.MAX_VALUE);
+                pos++;
+            } else if (c == '+') {
+                quantifier = new Quantifier(1, Integer.MAX_VALUE);
+                pos++;
+            } else if (c == '?') {
+                quantifier = new Quantifier(0, 1);
+                pos++;
+            } else if (c == '{') {
+                int end = regex.indexOf('}', pos);
+                String[] bounds = regex.substring(pos + 1, end).split(",", -1);
+                int min = Integer.parseInt(bounds[0].trim());
+                int max = bounds.length == 1 ? min
+                        : bounds[1].trim().isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(bounds[1].trim());
+                quantifier = new Quantifier(min, max);
+                pos = end + 1;
+            } else {
+                return Quantifier.ONCE;
+            }
+            // Lazy and possessive modifiers
+            if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+                pos++;
+            }
+            return quantifier;
+        }
+        
+        private IllegalArgumentException unsafe(String reason) {
+            return new IllegalArgumentException("Pattern '" + regex + "' is not allowed in safe mode: " + reason);
+        }
+    }
+    
+    private static final class Group {
+        
+        final List<Integer> firsts = new ArrayList<>();
+        boolean variable;
+        
+        /**
+         * Whether two alternatives may match at the same position.
+         */
+        boolean overlapping() {
+            for (int i = 0; i < firsts.size(); i++) {
+                for (int j = i + 1; j < firsts.size(); j++) {
+                    int a = firsts.get(i);
+                    int b = firsts.get(j);
+                    if (a < 0 || b < 0 || a == b) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+    
+    private static final class Atom {
+        
+        static final Atom ZERO_WIDTH = new Atom(Parser.EMPTY, true);
+        
+        final int first;
+        final boolean zeroWidth;
+        Group group;
+        
+        Atom(int first, boolean zeroWidth) {
+            this.first = first;
+            this.zeroWidth = zeroWidth;
+        }
+        
+        static Atom of(int first) {
+            return new Atom(first, false);
+        }
+    }
+    
+    private static final class Quantifier {
+        
+        static final Quantifier ONCE = new Quantifier(1, 1);
+        
+        final int min;
+        final int max;
+        
+        Quantifier(int min, int max) {
+            this.min = min;
+            this.max = max;
+        }
+        
+        boolean repeats() {
+            return max > 1;
+        }
+        
+        boolean variable() {
+            return min != max;
+        }
+    }
+}
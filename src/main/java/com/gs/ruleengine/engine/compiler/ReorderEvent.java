@@ -0,0 +1,59 @@
+package com.gs.ruleengine.engine.compiler;
+
+import java.util.List;
+
+/**
+ * Records that an adaptive AND/OR node changed the order in which it evaluates its children.
+ */
+public final class ReorderEvent {
+    
+    private final String time;
+    private final String operator;
+    private final List<String> previousOrder;
+    private final List<String> newOrder;
+    private final List<Double> passRates;
+    private final List<Long> averageNanos;
+    
+    ReorderEvent(String time, String operator, List<String> previousOrder, List<String> newOrder,
+            List<Double> passRates, List<Long> averageNanos) {
+        this.time = time;
+        this.operator = operator;
+        this.previousOrder = List.copyOf(previousOrder);
+        this.newOrder = List.copyOf(newOrder);
+        this.passRates = List.copyOf(passRates);
+        this.averageNanos = List.copyOf(averageNanos);
+    }
+    
+    public String getTime() {
+        return time;
+    }
+    
+    /**
+     * @return AND or OR
+     */
+    public String getOperator() {
+        return operator;
+    }
+    
+    public List<String> getPreviousOrder() {
+        return previousOrder;
+    }
+    
+    public List<String> getNewOrder() {
+        return newOrder;
+    }
+    
+    /**
+     * @return The observed pass rate of each child, in the new order
+     */
+    public List<Double> getPassRates() {
+        return passRates;
+    }
+    
+    /**
+     * @return The observed average evaluation time of each child in nanoseconds, in the new order
+     */
+    public List<Long> getAverageNanos() {
+        return averageNanos;
+    }
+}
@@ -0,0 +1,48 @@
+package com.gs.ruleengine.engine.compiler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the most recent {@link ReorderEvent}s and a count of all of them.
+ */
+public final class ReorderLog {
+    
+    private final int capacity;
+    private final Deque<ReorderEvent> events;
+    private final LongAdder total = new LongAdder();
+    
+    public ReorderLog(int capacity) {
+        this.capacity = capacity;
+        this.events = new ArrayDeque<>(capacity);
+    }
+    
+    void record(ReorderEvent event) {
+        total.increment();
+        synchronized (events) {
+            if (events.size() == capacity) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+    }
+    
+    /**
+     * @return The number of reorders since startup
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+    
+    /**
+     * @return The most recent reorders, oldest first
+     */
+    public List<ReorderEvent> getRecentEvents() {
+        synchronized (events) {
+            return new ArrayList<>(events);
+        }
+    }
+}
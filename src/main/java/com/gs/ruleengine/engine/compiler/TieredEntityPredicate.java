@@ -0,0 +1,61 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.model.expression.Expression;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Entity predicate that interprets its expression tree on a map view of the entity
+ * until it has been evaluated {@code threshold} times and then switches to the
+ * compiled form, as {@link TieredPredicate} does for entity data.
+ */
+final class TieredEntityPredicate implements EntityPredicate {
+    
+    private final Expression expression;
+    private final Function<Object, Map<String, Object>> view;
+    private final Supplier<EntityPredicate> compiler;
+    private final int threshold;
+    private final AtomicInteger invocations = new AtomicInteger();
+    
+    private volatile EntityPredicate compiled;
+    
+    /**
+     * @param expression The expression to evaluate
+     * @param view Creates the map view of an entity that the interpreter reads
+     * @param compiler Compiles the expression, or returns null if it cannot be compiled
+     * @param threshold The number of interpreted evaluations before compiling
+     */
+    TieredEntityPredicate(Expression expression, Function<Object, Map<String, Object>> view,
+            Supplier<EntityPredicate> compiler, int threshold) {
+        this.expression = expression;
+        this.view = view;
+        this.compiler = compiler;
+        this.threshold = threshold;
+    }
+    
+    @Override
+    public boolean test(Object entity) {
+        EntityPredicate current = compiled;
+        if (current != null) {
+            return current.test(entity);
+        }
+        
+        // Exactly one caller observes the threshold, so promotion happens once
+        if (invocations.incrementAndGet() == threshold) {
+            EntityPredicate promoted = compiler.get();
+            compiled = promoted != null ? promoted : this::interpret;
+        }
+        
+        return interpret(entity);
+    }
+    
+    private boolean interpret(Object entity) {
+        return expression.evaluate(view.apply(entity));
+    }
+    
+    boolean isPromoted() {
+        return compiled != null;
+    }
+}
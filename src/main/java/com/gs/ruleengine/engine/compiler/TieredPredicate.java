@@ -0,0 +1,47 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.engine.EntitySchema;
+import com.gs.ruleengine.model.expression.Expression;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Predicate that interprets its expression tree until it has been evaluated
+ * {@code threshold} times and then switches to the compiled form.
+ */
+final class TieredPredicate implements CompiledPredicate {
+    
+    private final Expression expression;
+    private final EntitySchema schema;
+    private final ExpressionCompiler compiler;
+    private final int threshold;
+    private final AtomicInteger invocations = new AtomicInteger();
+    
+    private volatile CompiledPredicate compiled;
+    
+    TieredPredicate(Expression expression, EntitySchema schema, ExpressionCompiler compiler, int threshold) {
+        this.expression = expression;
+        this.schema = schema;
+        this.compiler = compiler;
+        this.threshold = threshold;
+    }
+    
+    @Override
+    public boolean test(Map<String, Object> entityData) {
+        CompiledPredicate current = compiled;
+        if (current != null) {
+            return current.test(entityData);
+        }
+        
+        // Exactly one caller observes the threshold, so promotion happens once
+        if (invocations.incrementAndGet() == threshold) {
+            compiled = compiler.compileOrInterpret(expression, schema);
+        }
+        
+        return expression.evaluate(entityData);
+    }
+    
+    boolean isPromoted() {
+        return compiled != null;
+    }
+}
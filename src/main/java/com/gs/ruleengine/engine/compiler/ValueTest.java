@@ -0,0 +1,96 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.model.expression.Operator;
+
+/**
+ * The test applied by a condition that compares a field against a constant.
+ */
+enum ValueTest {
+    EQUALS,
+    NOT_EQUALS,
+    GREATER_THAN,
+    GREATER_THAN_OR_EQUALS,
+    LESS_THAN,
+    LESS_THAN_OR_EQUALS,
+    CONTAINS,
+    STARTS_WITH,
+    ENDS_WITH;
+    
+    static ValueTest of(Operator operator) {
+        switch (operator) {
+            case EQUALS:
+                return EQUALS;
+            case NOT_EQUALS:
+                return NOT_EQUALS;
+            case GREATER_THAN:
+                return GREATER_THAN;
+            case GREATER_THAN_OR_EQUALS:
+                return GREATER_THAN_OR_EQUALS;
+            case LESS_THAN:
+                return LESS_THAN;
+            case LESS_THAN_OR_EQUALS:
+                return LESS_THAN_OR_EQUALS;
+            case CONTAINS:
+                return CONTAINS;
+            case STARTS_WITH:
+                return STARTS_WITH;
+            case ENDS_WITH:
+                return ENDS_WITH;
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + operator);
+        }
+    }
+    
+    boolean isEquality() {
+        return this == EQUALS || this == NOT_EQUALS;
+    }
+    
+    boolean isText() {
+        return this == CONTAINS || this == STARTS_WITH || this == ENDS_WITH;
+    }
+    
+    /**
+     * Applies an equality test to the result of {@code Objects.equals}.
+     */
+    boolean testEquality(boolean equal) {
+        return this == EQUALS ? equal : !equal;
+    }
+    
+    /**
+     * Applies an equality or ordering test to the result of a three-way comparison.
+     */
+    boolean testComparison(int comparison) {
+        switch (this) {
+            case EQUALS:
+                return comparison == 0;
+            case NOT_EQUALS:
+                return comparison != 0;
+            case GREATER_THAN:
+                return comparison > 0;
+            case GREATER_THAN_OR_EQUALS:
+                return comparison >= 0;
+            case LESS_THAN:
+                return comparison < 0;
+            case LESS_THAN_OR_EQUALS:
+                return comparison <= 0;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Applies a text test to the string form of a field value.
+     */
+    boolean testText(String text, String operand) {
+        switch (this) {
+            case CONTAINS:
+                return text.contains(operand);
+            case STARTS_WITH:
+                return text.startsWith(operand);
+            case ENDS_WITH:
+                return text.endsWith(operand);
+            default:
+                return false;
+        }
+    }
+}
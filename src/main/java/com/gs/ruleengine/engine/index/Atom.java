@@ -0,0 +1,20 @@
+package com.gs.ruleengine.engine.index;
+
+import com.gs.ruleengine.engine.CompiledRule;
+import com.gs.ruleengine.model.expression.Operator;
+
+/**
+ * A condition of an indexed rule, held by the {@link FieldIndex} of the condition's field.
+ */
+final class Atom {
+    
+    final Operator operator;
+    final Object value;
+    final CompiledRule rule;
+    
+    Atom(Operator operator, Object value, CompiledRule rule) {
+        this.operator = operator;
+        this.value = value;
+        this.rule = rule;
+    }
+}
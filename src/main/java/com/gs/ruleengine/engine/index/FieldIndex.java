@@ -0,0 +1,27 @@
+package com.gs.ruleengine.engine.index;
+
+import com.gs.ruleengine.engine.CompiledRule;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable index over the conditions of several rules on one field, which finds
+ * the conditions a field value satisfies in one lookup.
+ */
+interface FieldIndex {
+    
+    /**
+     * @return An index that also contains the given conditions
+     */
+    FieldIndex withAtoms(List<Atom> added);
+    
+    /**
+     * @return An index without the conditions of a rule, or null if no conditions are left
+     */
+    FieldIndex withoutRule(Long ruleId);
+    
+    /**
+     * Adds the rules of every condition that may be satisfied by a non-null field value.
+     */
+    void collect(Object value, Set<CompiledRule> candidates);
+}
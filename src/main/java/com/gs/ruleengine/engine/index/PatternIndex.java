@@ -0,0 +1,174 @@
+package com.gs.ruleengine.engine.index;
+
+import com.gs.ruleengine.engine.CompiledRule;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Operator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Immutable index over the CONTAINS, STARTS_WITH and ENDS_WITH conditions on one
+ * field, which finds every satisfied condition in one pass over the text.
+ * 
+ * CONTAINS patterns are compiled into an Aho-Corasick automaton, STARTS_WITH patterns
+ * into a prefix trie and ENDS_WITH patterns into a trie of the reversed patterns.
+ * Patterns are the constants' {@code toString()}, as in {@link Condition#evaluate(Map)}.
+ * Because that method converts string constants for enum and number field values,
+ * such values satisfy every condition; conditions with a null constant never match.
+ */
+final class PatternIndex implements FieldIndex {
+    
+    private final List<Atom> atoms;
+    private final Node contains;
+    private final Node prefixes;
+    private final Node suffixes;
+    
+    PatternIndex(List<Atom> atoms) {
+        this.atoms = Collections.unmodifiableList(new ArrayList<>(atoms));
+        this.contains = new Node();
+        this.prefixes = new Node();
+        this.suffixes = new Node();
+        
+        for (Atom atom : this.atoms) {
+            if (atom.value == null) {
+                continue;
+            }
+            String pattern = atom.value.toString();
+            switch (atom.operator) {
+                case CONTAINS:
+                    contains.insert(pattern).rules.add(atom.rule);
+                    break;
+                case STARTS_WITH:
+                    prefixes.insert(pattern).rules.add(atom.rule);
+                    break;
+                case ENDS_WITH:
+                    suffixes.insert(new StringBuilder(pattern).reverse().toString()).rules.add(atom.rule);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Not a pattern operator: " + atom.operator);
+            }
+        }
+        linkFailures(contains);
+    }
+    
+    static boolean isPatternOperator(Operator operator) {
+        return operator == Operator.CONTAINS || operator == Operator.STARTS_WITH || operator == Operator.ENDS_WITH;
+    }
+    
+    @Override
+    public PatternIndex withAtoms(List<Atom> added) {
+        List<Atom> newAtoms = new ArrayList<>(atoms);
+        newAtoms.addAll(added);
+        return new PatternIndex(newAtoms);
+    }
+    
+    @Override
+    public PatternIndex withoutRule(Long ruleId) {
+        List<Atom> newAtoms = new ArrayList<>(atoms);
+        newAtoms.removeIf(atom -> atom.rule.getId().equals(ruleId));
+        return newAtoms.isEmpty() ? null : new PatternIndex(newAtoms);
+    }
+    
+    @Override
+    public void collect(Object value, Set<CompiledRule> candidates) {
+        if (value instanceof Enum || value instanceof Number) {
+            for (Atom atom : atoms) {
+                candidates.add(atom.rule);
+            }
+            return;
+        }
+        
+        String text = value.toString();
+        collectContains(text, candidates);
+        
+        Node node = prefixes;
+        candidates.addAll(node.rules);
+        for (int i = 0; i < text.length() && node != null; i++) {
+            node = node.children.get(text.charAt(i));
+            if (node != null) {
+                candidates.addAll(node.rules);
+            }
+        }
+        
+        node = suffixes;
+        candidates.addAll(node.rules);
+        for (int i = text.length() - 1; i >= 0 && node != null; i--) {
+            node = node.children.get(text.charAt(i));
+            if (node != null) {
+                candidates.addAll(node.rules);
+            }
+        }
+    }
+    
+    private void collectContains(String text, Set<CompiledRule> candidates) {
+        Node state = contains;
+        candidates.addAll(state.rules);
+        
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Node next = state.children.get(c);
+            while (next == null && state != contains) {
+                state = state.fail;
+                next = state.children.get(c);
+            }
+            state = next != null ? next : contains;
+            
+            for (Node match = state.rules.isEmpty() ? state.output : state; match != null; match = match.output) {
+                candidates.addAll(match.rules);
+            }
+        }
+    }
+    
+    /**
+     * Sets the failure link of every node to the node of its longest proper suffix in
+     * the trie, and the output link to the nearest node on the failure chain that ends
+     * a pattern.
+     */
+    private static void linkFailures(Node root) {
+        Queue<Node> queue = new ArrayDeque<>();
+        for (Node child : root.children.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        
+        while (!queue.isEmpty()) {
+            Node node = queue.remove();
+            for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+                char c = entry.getKey();
+                Node child = entry.getValue();
+                
+                Node fail = node.fail;
+                while (fail != root && !fail.children.containsKey(c)) {
+                    fail = fail.fail;
+                }
+                Node target = fail.children.get(c);
+                child.fail = target != null && target != child ? target : root;
+                // The root's patterns (the empty string) are collected once per lookup
+                child.output = child.fail != root && !child.fail.rules.isEmpty() ? child.fail : child.fail.output;
+                queue.add(child);
+            }
+        }
+    }
+    
+    private static final class Node {
+        
+        private final Map<Character, Node> children = new HashMap<>();
+        private final List<CompiledRule> rules = new ArrayList<>();
+        private Node fail;
+        private Node output;
+        
+        Node insert(String pattern) {
+            Node node = this;
+            for (int i = 0; i < pattern.length(); i++) {
+                node = node.children.computeIfAbsent(pattern.charAt(i), c -> new Node());
+            }
+            return node;
+        }
+    }
+}
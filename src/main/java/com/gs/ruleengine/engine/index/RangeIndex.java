@@ -0,0 +1,223 @@
+package com.gs.ruleengine.engine.index;
+
+import com.gs.ruleengine.engine.CompiledRule;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Operator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable sorted-breakpoint index over the range conditions (GREATER_THAN,
+ * LESS_THAN and their OR_EQUALS variants) on one field.
+ * 
+ * Which conditions a value satisfies depends on the value's class, because
+ * {@link Condition#evaluate(Map)} converts numeric string constants to the field's
+ * number type, compares numbers of different types numerically and other mismatched
+ * types as equal. So the constants are sorted separately for each supported value
+ * class, per operator; a lookup then finds the satisfied conditions of each operator
+ * with one binary search. Conditions whose constant is not of the value's class are
+ * reported as satisfied for every value of that class and left to the rule to decide,
+ * and values of other classes satisfy every condition.
+ */
+final class RangeIndex implements FieldIndex {
+    
+    private static final List<Class<?>> VALUE_CLASSES =
+            List.of(Integer.class, Long.class, Double.class, String.class, LocalDate.class);
+    
+    private static final Object NEVER = new Object();
+    
+    private final List<Atom> atoms;
+    private final Map<Class<?>, Table> tables;
+    
+    RangeIndex(List<Atom> atoms) {
+        this.atoms = Collections.unmodifiableList(new ArrayList<>(atoms));
+        
+        Map<Class<?>, Table> byClass = new HashMap<>();
+        for (Class<?> valueClass : VALUE_CLASSES) {
+            byClass.put(valueClass, new Table(valueClass, this.atoms));
+        }
+        this.tables = Collections.unmodifiableMap(byClass);
+    }
+    
+    static boolean isRangeOperator(Operator operator) {
+        return operator == Operator.GREATER_THAN || operator == Operator.GREATER_THAN_OR_EQUALS
+                || operator == Operator.LESS_THAN || operator == Operator.LESS_THAN_OR_EQUALS;
+    }
+    
+    @Override
+    public RangeIndex withAtoms(List<Atom> added) {
+        List<Atom> newAtoms = new ArrayList<>(atoms);
+        newAtoms.addAll(added);
+        return new RangeIndex(newAtoms);
+    }
+    
+    @Override
+    public RangeIndex withoutRule(Long ruleId) {
+        List<Atom> newAtoms = new ArrayList<>(atoms);
+        newAtoms.removeIf(atom -> atom.rule.getId().equals(ruleId));
+        return newAtoms.isEmpty() ? null : new RangeIndex(newAtoms);
+    }
+    
+    @Override
+    public void collect(Object value, Set<CompiledRule> candidates) {
+        Table table = tables.get(value.getClass());
+        if (table == null) {
+            for (Atom atom : atoms) {
+                candidates.add(atom.rule);
+            }
+            return;
+        }
+        table.collect(value, candidates);
+    }
+    
+    /**
+     * The conditions as seen by field values of one class.
+     */
+    private static final class Table {
+        
+        private final Map<Operator, Breakpoints> breakpoints = new EnumMap<>(Operator.class);
+        private final List<CompiledRule> alwaysSatisfied = new ArrayList<>();
+        
+        Table(Class<?> valueClass, List<Atom> atoms) {
+            Map<Operator, List<Object[]>> entries = new EnumMap<>(Operator.class);
+            
+            for (Atom atom : atoms) {
+                Object operand = operand(atom.value, valueClass);
+                if (operand == NEVER) {
+                    continue;
+                }
+                if (operand != null && operand.getClass() == valueClass) {
+                    entries.computeIfAbsent(atom.operator, op -> new ArrayList<>())
+                            .add(new Object[] {operand, atom.rule});
+                } else {
+                    alwaysSatisfied.add(atom.rule);
+                }
+            }
+            
+            for (Map.Entry<Operator, List<Object[]>> entry : entries.entrySet()) {
+                breakpoints.put(entry.getKey(), new Breakpoints(entry.getValue()));
+            }
+        }
+        
+        void collect(Object value, Set<CompiledRule> candidates) {
+            candidates.addAll(alwaysSatisfied);
+            
+            for (Map.Entry<Operator, Breakpoints> entry : breakpoints.entrySet()) {
+                Breakpoints points = entry.getValue();
+                switch (entry.getKey()) {
+                    case GREATER_THAN:
+                        points.addRange(0, points.firstNotBelow(value), candidates);
+                        break;
+                    case GREATER_THAN_OR_EQUALS:
+                        points.addRange(0, points.firstAbove(value), candidates);
+                        break;
+                    case LESS_THAN:
+                        points.addRange(points.firstAbove(value), points.size(), candidates);
+                        break;
+                    case LESS_THAN_OR_EQUALS:
+                        points.addRange(points.firstNotBelow(value), points.size(), candidates);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        
+        /**
+         * Gets the operand a condition compares a field value of the given class with,
+         * or NEVER if the condition is false for every such value.
+         */
+        private static Object operand(Object constant, Class<?> valueClass) {
+            if (!(constant instanceof String) || !Number.class.isAssignableFrom(valueClass)) {
+                return constant;
+            }
+            try {
+                if (valueClass == Integer.class) {
+                    return Integer.valueOf((String) constant);
+                } else if (valueClass == Long.class) {
+                    return Long.valueOf((String) constant);
+                }
+                return Double.valueOf((String) constant);
+            } catch (NumberFormatException e) {
+                return NEVER;
+            }
+        }
+    }
+    
+    /**
+     * Constants of one operator in ascending order, with the rule of each.
+     */
+    private static final class Breakpoints {
+        
+        private final Object[] constants;
+        private final CompiledRule[] rules;
+        
+        @SuppressWarnings("unchecked")
+        Breakpoints(List<Object[]> entries) {
+            entries.sort(Comparator.comparing(entry -> (Comparable<Object>) entry[0]));
+            constants = new Object[entries.size()];
+            rules = new CompiledRule[entries.size()];
+            for (int i = 0; i < constants.length; i++) {
+                constants[i] = entries.get(i)[0];
+                rules[i] = (CompiledRule) entries.get(i)[1];
+            }
+        }
+        
+        int size() {
+            return constants.length;
+        }
+        
+        /**
+         * @return The index of the first constant that the value is not above
+         */
+        int firstNotBelow(Object value) {
+            int low = 0;
+            int high = constants.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(value, constants[mid]) > 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+        
+        /**
+         * @return The index of the first constant that the value is below
+         */
+        int firstAbove(Object value) {
+            int low = 0;
+            int high = constants.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(value, constants[mid]) >= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+        
+        void addRange(int from, int to, Set<CompiledRule> candidates) {
+            for (int i = from; i < to; i++) {
+                candidates.add(rules[i]);
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        private static int compare(Object value, Object constant) {
+            // Same argument order as Condition, so the result matches its comparison
+            return ((Comparable<Object>) value).compareTo(constant);
+        }
+    }
+}
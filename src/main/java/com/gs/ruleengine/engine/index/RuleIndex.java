@@ -0,0 +1,401 @@
+package com.gs.ruleengine.engine.index;
+
+import com.gs.ruleengine.engine.CompiledRule;
+import com.gs.ruleengine.engine.EntitySchema;
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.OrExpression;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Immutable index that selects the rules which may match an entity, from the EQUALS,
+ * range and string pattern conditions the rules require.
+ * 
+ * A rule is indexed under a set of keys such that the rule can only be true if at
+ * least one key is satisfied: the condition itself for an EQUALS, range or pattern
+ * condition, an EQUALS key per element of an IN condition, the keys of one child of an AND (preferring EQUALS keys, then pattern
+ * keys, as the more selective ones), or the keys of every child of an OR. Rules
+ * without such keys (e.g. a single NOT_EQUALS condition) are not indexed and are
+ * always candidates.
+ * 
+ * EQUALS keys are looked up in an inverted index from {@code (field, value)} pairs to
+ * rules. Numeric string constants are never used as EQUALS keys because
+ * {@link Condition#evaluate(Map)} may convert them to several different field values
+ * ("5" and "05" both match 5). Range keys are looked up in a {@link RangeIndex} per
+ * field, which finds the satisfied conditions with a binary search per operator, and
+ * CONTAINS, STARTS_WITH and ENDS_WITH keys in a {@link PatternIndex} per field, which
+ * finds them in one pass over the text.
+ * 
+ * Updates return a new index that shares every posting list and field index the
+ * update does not touch; the field indexes of affected fields are rebuilt.
+ */
+public final class RuleIndex {
+    
+    private static final RuleIndex EMPTY = new RuleIndex(
+            Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+    
+    private final Map<String, Map<Object, List<CompiledRule>>> postings;
+    private final Map<String, FieldIndex> ranges;
+    private final Map<String, FieldIndex> patterns;
+    private final Map<Long, Set<Key>> keysByRule;
+    
+    private RuleIndex(
+            Map<String, Map<Object, List<CompiledRule>>> postings,
+            Map<String, FieldIndex> ranges,
+            Map<String, FieldIndex> patterns,
+            Map<Long, Set<Key>> keysByRule) {
+        this.postings = postings;
+        this.ranges = ranges;
+        this.patterns = patterns;
+        this.keysByRule = keysByRule;
+    }
+    
+    /**
+     * Builds an index over a list of rules.
+     * 
+     * @param rules The rules
+     * @return The index
+     */
+    public static RuleIndex of(List<CompiledRule> rules) {
+        RuleIndex index = EMPTY;
+        for (CompiledRule rule : rules) {
+            index = index.withRule(rule);
+        }
+        return index;
+    }
+    
+    /**
+     * Returns an index that also contains a rule, replacing any rule with the same ID.
+     * 
+     * @param rule The rule to add
+     * @return The updated index
+     */
+    public RuleIndex withRule(CompiledRule rule) {
+        RuleIndex base = keysByRule.containsKey(rule.getId()) ? withoutRule(rule.getId()) : this;
+        Set<Key> keys = rule.getExpression() != null ? keys(rule.getExpression()) : null;
+        if (keys == null) {
+            return base;
+        }
+        
+        Map<String, Map<Object, List<CompiledRule>>> newPostings = new HashMap<>(base.postings);
+        Map<String, List<Atom>> newRangeAtoms = new LinkedHashMap<>();
+        Map<String, List<Atom>> newPatternAtoms = new LinkedHashMap<>();
+        for (Key key : keys) {
+            if (key.operator == Operator.EQUALS) {
+                Map<Object, List<CompiledRule>> values = new HashMap<>(newPostings.getOrDefault(key.field, Collections.emptyMap()));
+                List<CompiledRule> rules = new ArrayList<>(values.getOrDefault(key.value, Collections.emptyList()));
+                rules.add(rule);
+                values.put(key.value, Collections.unmodifiableList(rules));
+                newPostings.put(key.field, Collections.unmodifiableMap(values));
+            } else {
+                Map<String, List<Atom>> atoms = RangeIndex.isRangeOperator(key.operator) ? newRangeAtoms : newPatternAtoms;
+                atoms.computeIfAbsent(key.field, field -> new ArrayList<>())
+                        .add(new Atom(key.operator, key.value, rule));
+            }
+        }
+        
+        Map<Long, Set<Key>> newKeysByRule = new HashMap<>(base.keysByRule);
+        newKeysByRule.put(rule.getId(), keys);
+        return new RuleIndex(
+                Collections.unmodifiableMap(newPostings),
+                withAtoms(base.ranges, newRangeAtoms, RangeIndex::new),
+                withAtoms(base.patterns, newPatternAtoms, PatternIndex::new),
+                Collections.unmodifiableMap(newKeysByRule));
+    }
+    
+    private static Map<String, FieldIndex> withAtoms(
+            Map<String, FieldIndex> indexes, Map<String, List<Atom>> added, Function<List<Atom>, FieldIndex> factory) {
+        if (added.isEmpty()) {
+            return indexes;
+        }
+        Map<String, FieldIndex> newIndexes = new HashMap<>(indexes);
+        for (Map.Entry<String, List<Atom>> entry : added.entrySet()) {
+            FieldIndex current = newIndexes.get(entry.getKey());
+            newIndexes.put(entry.getKey(), current != null
+                    ? current.withAtoms(entry.getValue())
+                    : factory.apply(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(newIndexes);
+    }
+    
+    /**
+     * Returns an index without a rule.
+     * 
+     * @param ruleId The ID of the rule to remove
+     * @return The updated index, or this index if the rule is not indexed
+     */
+    public RuleIndex withoutRule(Long ruleId) {
+        Set<Key> keys = keysByRule.get(ruleId);
+        if (keys == null) {
+            return this;
+        }
+        
+        Map<String, Map<Object, List<CompiledRule>>> newPostings = new HashMap<>(postings);
+        Map<String, FieldIndex> newRanges = new HashMap<>(ranges);
+        Map<String, FieldIndex> newPatterns = new HashMap<>(patterns);
+        for (Key key : keys) {
+            if (key.operator != Operator.EQUALS) {
+                Map<String, FieldIndex> indexes = RangeIndex.isRangeOperator(key.operator) ? newRanges : newPatterns;
+                FieldIndex index = indexes.get(key.field);
+                if (index != null) {
+                    // Removes all of the rule's conditions on the field at once
+                    FieldIndex remaining = index.withoutRule(ruleId);
+                    if (remaining == null) {
+                        indexes.remove(key.field);
+                    } else {
+                        indexes.put(key.field, remaining);
+                    }
+                }
+                continue;
+            }
+            
+            Map<Object, List<CompiledRule>> values = new HashMap<>(newPostings.get(key.field));
+            List<CompiledRule> rules = new ArrayList<>(values.get(key.value));
+            rules.removeIf(rule -> rule.getId().equals(ruleId));
+            
+            if (rules.isEmpty()) {
+                values.remove(key.value);
+            } else {
+                values.put(key.value, Collections.unmodifiableList(rules));
+            }
+            if (values.isEmpty()) {
+                newPostings.remove(key.field);
+            } else {
+                newPostings.put(key.field, Collections.unmodifiableMap(values));
+            }
+        }
+        
+        Map<Long, Set<Key>> newKeysByRule = new HashMap<>(keysByRule);
+        newKeysByRule.remove(ruleId);
+        return new RuleIndex(
+                Collections.unmodifiableMap(newPostings),
+                Collections.unmodifiableMap(newRanges),
+                Collections.unmodifiableMap(newPatterns),
+                Collections.unmodifiableMap(newKeysByRule));
+    }
+    
+    /**
+     * Checks whether a rule is indexed. Rules that are not indexed are candidates for every entity.
+     * 
+     * @param rule The rule
+     * @return true if the rule is indexed
+     */
+    public boolean isIndexed(CompiledRule rule) {
+        return keysByRule.containsKey(rule.getId());
+    }
+    
+    /**
+     * @return The number of indexed rules
+     */
+    public int getIndexedRuleCount() {
+        return keysByRule.size();
+    }
+    
+    /**
+     * Finds the indexed rules that may match an entity.
+     * 
+     * @param entityData Map of entity field names to their values
+     * @return The candidate rules, compared by identity
+     */
+    public Set<CompiledRule> candidates(Map<String, Object> entityData) {
+        return candidates((Function<String, Object>) entityData::get);
+    }
+    
+    /**
+     * Finds the indexed rules that may match an entity, reading its fields directly.
+     * 
+     * @param entity An instance of the schema's entity class
+     * @param schema The schema of the entity type
+     * @return The candidate rules, compared by identity
+     */
+    public Set<CompiledRule> candidates(Object entity, EntitySchema schema) {
+        return candidates(field -> schema.read(entity, field));
+    }
+    
+    private Set<CompiledRule> candidates(Function<String, Object> fields) {
+        Set<CompiledRule> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        
+        for (Map.Entry<String, Map<Object, List<CompiledRule>>> entry : postings.entrySet()) {
+            Object fieldValue = fields.apply(entry.getKey());
+            if (fieldValue == null) {
+                continue;
+            }
+            
+            Map<Object, List<CompiledRule>> values = entry.getValue();
+            addAll(candidates, values.get(fieldValue));
+            if (fieldValue instanceof Enum) {
+                // String constants are converted to the field's enum type
+                addAll(candidates, values.get(((Enum<?>) fieldValue).name()));
+            }
+        }
+        
+        collect(ranges, fields, candidates);
+        collect(patterns, fields, candidates);
+        return candidates;
+    }
+    
+    private static void collect(Map<String, FieldIndex> indexes, Function<String, Object> fields, Set<CompiledRule> candidates) {
+        for (Map.Entry<String, FieldIndex> entry : indexes.entrySet()) {
+            Object fieldValue = fields.apply(entry.getKey());
+            // Range and pattern conditions are false for a null field value
+            if (fieldValue != null) {
+                entry.getValue().collect(fieldValue, candidates);
+            }
+        }
+    }
+    
+    private static void addAll(Set<CompiledRule> candidates, List<CompiledRule> rules) {
+        if (rules != null) {
+            candidates.addAll(rules);
+        }
+    }
+    
+    /**
+     * Gets keys such that the expression can only be true if one of them is satisfied.
+     * 
+     * @return The keys, or null if the expression cannot be indexed
+     */
+    private static Set<Key> keys(Expression expression) {
+        if (expression instanceof Condition) {
+            Condition condition = (Condition) expression;
+            if (condition.getField() == null) {
+                return null;
+            }
+            if (condition.getOperator() == Operator.EQUALS && isIndexable(condition.getValue())) {
+                return Set.of(new Key(condition.getField(), Operator.EQUALS, condition.getValue()));
+            }
+            if (condition.getOperator() == Operator.IN && condition.getValue() instanceof Collection) {
+                // Matches like an OR of EQUALS conditions on the elements
+                Set<Key> keys = new LinkedHashSet<>();
+                for (Object element : (Collection<?>) condition.getValue()) {
+                    if (element == null) {
+                        continue;
+                    }
+                    if (!isIndexable(element)) {
+                        return null;
+                    }
+                    keys.add(new Key(condition.getField(), Operator.EQUALS, element));
+                }
+                return Collections.unmodifiableSet(keys);
+            }
+            if (RangeIndex.isRangeOperator(condition.getOperator()) || PatternIndex.isPatternOperator(condition.getOperator())) {
+                return Collections.singleton(new Key(condition.getField(), condition.getOperator(), condition.getValue()));
+            }
+            return null;
+        }
+        
+        if (expression instanceof AndExpression) {
+            List<Expression> children = ((AndExpression) expression).getExpressions();
+            Set<Key> best = null;
+            if (children != null) {
+                for (Expression child : children) {
+                    Set<Key> keys = keys(child);
+                    if (keys != null && (best == null || isBetter(keys, best))) {
+                        best = keys;
+                    }
+                }
+            }
+            return best;
+        }
+        
+        if (expression instanceof OrExpression) {
+            List<Expression> children = ((OrExpression) expression).getExpressions();
+            Set<Key> union = new LinkedHashSet<>();
+            if (children != null) {
+                for (Expression child : children) {
+                    Set<Key> keys = keys(child);
+                    if (keys == null) {
+                        return null;
+                    }
+                    union.addAll(keys);
+                }
+            }
+            return Collections.unmodifiableSet(union);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Prefers key sets with only EQUALS keys, then without range keys, then smaller key sets.
+     */
+    private static boolean isBetter(Set<Key> keys, Set<Key> best) {
+        int keysRank = rank(keys);
+        int bestRank = rank(best);
+        if (keysRank != bestRank) {
+            return keysRank < bestRank;
+        }
+        return keys.size() < best.size();
+    }
+    
+    private static int rank(Set<Key> keys) {
+        int rank = 0;
+        for (Key key : keys) {
+            if (RangeIndex.isRangeOperator(key.operator)) {
+                return 2;
+            }
+            if (key.operator != Operator.EQUALS) {
+                rank = 1;
+            }
+        }
+        return rank;
+    }
+    
+    private static boolean isIndexable(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (!(value instanceof String)) {
+            return true;
+        }
+        try {
+            Double.valueOf((String) value);
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+    
+    private static final class Key {
+        
+        private final String field;
+        private final Operator operator;
+        private final Object value;
+        
+        Key(String field, Operator operator, Object value) {
+            this.field = field;
+            this.operator = operator;
+            this.value = value;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return field.equals(key.field) && operator == key.operator && Objects.equals(value, key.value);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(field, operator, value);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.gs.ruleengine.engine.rete;
+
+import com.gs.ruleengine.engine.CompiledRule;
+import com.gs.ruleengine.engine.EntitySchema;
+import com.gs.ruleengine.engine.RuleSet;
+import com.gs.ruleengine.engine.compiler.CompiledPredicate;
+import com.gs.ruleengine.engine.compiler.ExpressionCompiler;
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.OrExpression;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Discrimination network shared by all rules of a {@link RuleSet}.
+ * 
+ * Every distinct condition (same field, operator and value) becomes a single alpha
+ * node, and every distinct AND/OR over the same children becomes a single join node,
+ * so rules that repeat a condition or a sub-expression point at the same node. The
+ * nodes of a network are evaluated lazily and at most once per entity: a node's
+ * result is remembered by the {@link Session} and reused by every rule sharing it.
+ * 
+ * Children are evaluated in authored order with the same short-circuiting as
+ * {@link Expression#evaluate(Map)}, so results are identical to evaluating each
+ * rule on its own.
+ */
+public final class ReteNetwork {
+    
+    private static final byte CONDITION = 0;
+    private static final byte AND = 1;
+    private static final byte OR = 2;
+    
+    private static final byte UNKNOWN = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    
+    private final RuleSet ruleSet;
+    private final byte[] kinds;
+    private final CompiledPredicate[] predicates;
+    private final int[][] children;
+    private final int[] roots;
+    private final int conditionCount;
+    
+    private ReteNetwork(RuleSet ruleSet, byte[] kinds, CompiledPredicate[] predicates, int[][] children,
+            int[] roots, int conditionCount) {
+        this.ruleSet = ruleSet;
+        this.kinds = kinds;
+        this.predicates = predicates;
+        this.children = children;
+        this.roots = roots;
+        this.conditionCount = conditionCount;
+    }
+    
+    /**
+     * Builds the network for a rule set. Conditions are compiled against the schema
+     * of the rule set's entity type.
+     * 
+     * @param ruleSet The rule set
+     * @param expressionCompiler The compiler used for alpha node predicates
+     * @return The network
+     */
+    public static ReteNetwork build(RuleSet ruleSet, ExpressionCompiler expressionCompiler) {
+        Builder builder = new Builder(EntitySchema.forEntityType(ruleSet.getEntityType()), expressionCompiler);
+        List<CompiledRule> rules = ruleSet.getRules();
+        int[] roots = new int[rules.size()];
+        
+        for (int i = 0; i < roots.length; i++) {
+            Expression expression = rules.get(i).getExpression();
+            roots[i] = expression != null ? builder.add(expression) : -1;
+        }
+        
+        return builder.build(ruleSet, roots);
+    }
+    
+    /**
+     * Gets the rule set this network was built from. Rule indexes used by
+     * {@link Session#matches(int)} refer to positions in {@link RuleSet#getRules()}.
+     * 
+     * @return The rule set
+     */
+    public RuleSet getRuleSet() {
+        return ruleSet;
+    }
+    
+    /**
+     * Gets the number of distinct conditions (alpha nodes) in the network.
+     * 
+     * @return The number of alpha nodes
+     */
+    public int getConditionCount() {
+        return conditionCount;
+    }
+    
+    /**
+     * Gets the number of nodes in the network, alpha and join nodes together.
+     * 
+     * @return The number of nodes
+     */
+    public int getNodeCount() {
+        return kinds.length;
+    }
+    
+    /**
+     * Starts evaluating the network against one entity.
+     * 
+     * @param entityData Map of entity field names to their values
+     * @return The session holding the node results for the entity
+     */
+    public Session newSession(Map<String, Object> entityData) {
+        return new Session(entityData);
+    }
+    
+    /**
+     * Node results for one entity. Not thread-safe; use one session per entity and thread.
+     */
+    public final class Session {
+        
+        private final Map<String, Object> entityData;
+        private final byte[] results;
+        
+        private Session(Map<String, Object> entityData) {
+            this.entityData = entityData;
+            this.results = new byte[kinds.length];
+        }
+        
+        /**
+         * Checks whether a rule has an expression in the network.
+         * 
+         * @param ruleIndex The position of the rule in {@link RuleSet#getRules()}
+         * @return true if the rule can be matched
+         */
+        public boolean hasExpression(int ruleIndex) {
+            return roots[ruleIndex] >= 0;
+        }
+        
+        /**
+         * Evaluates a rule, reusing results of nodes already evaluated in this session.
+         * 
+         * @param ruleIndex The position of the rule in {@link RuleSet#getRules()}
+         * @return true if the entity matches the rule
+         * @throws IllegalStateException if the rule has no expression
+         */
+        public boolean matches(int ruleIndex) {
+            int root = roots[ruleIndex];
+            if (root < 0) {
+                throw new IllegalStateException("Rule at index " + ruleIndex + " has no expression");
+            }
+            return evaluate(root);
+        }
+        
+        private boolean evaluate(int node) {
+            byte known = results[node];
+            if (known != UNKNOWN) {
+                return known == TRUE;
+            }
+            
+            boolean result;
+            switch (kinds[node]) {
+                case AND:
+                    result = true;
+                    for (int child : children[node]) {
+                        if (!evaluate(child)) {
+                            result = false;
+                            break;
+                        }
+                    }
+                    break;
+                case OR:
+                    result = false;
+                    for (int child : children[node]) {
+                        if (evaluate(child)) {
+                            result = true;
+                            break;
+                        }
+                    }
+                    break;
+                default:
+                    result = predicates[node].test(entityData);
+                    break;
+            }
+            
+            results[node] = result ? TRUE : FALSE;
+            return result;
+        }
+    }
+    
+    /**
+     * Adds expressions to the network, reusing a node for every expression that is
+     * structurally equal to one already added.
+     */
+    private static final class Builder {
+        
+        private final EntitySchema schema;
+        private final ExpressionCompiler expressionCompiler;
+        private final Map<Object, Integer> nodesByKey = new HashMap<>();
+        private final List<Byte> kinds = new ArrayList<>();
+        private final List<CompiledPredicate> predicates = new ArrayList<>();
+        private final List<int[]> children = new ArrayList<>();
+        private int conditionCount;
+        
+        Builder(EntitySchema schema, ExpressionCompiler expressionCompiler) {
+            this.schema = schema;
+            this.expressionCompiler = expressionCompiler;
+        }
+        
+        int add(Expression expression) {
+            if (expression instanceof Condition) {
+                Condition condition = (Condition) expression;
+                Object key = Arrays.asList(condition.getField(), condition.getOperator(), condition.getValue());
+                Integer node = nodesByKey.get(key);
+                if (node == null) {
+                    node = newNode(key, CONDITION, expressionCompiler.compileOrInterpret(condition, schema), null);
+                    conditionCount++;
+                }
+                return node;
+            }
+            if (expression instanceof AndExpression) {
+                return addJoin(AND, ((AndExpression) expression).getExpressions());
+            }
+            if (expression instanceof OrExpression) {
+                return addJoin(OR, ((OrExpression) expression).getExpressions());
+            }
+            
+            // Unknown expression types keep their own evaluation logic and are not shared
+            return newNode(new Object(), CONDITION, expression::evaluate, null);
+        }
+        
+        private int addJoin(byte kind, List<Expression> expressions) {
+            if (expressions != null && expressions.size() == 1) {
+                return add(expressions.get(0));
+            }
+            
+            int[] childNodes = new int[expressions != null ? expressions.size() : 0];
+            for (int i = 0; i < childNodes.length; i++) {
+                childNodes[i] = add(expressions.get(i));
+            }
+            
+            Object key = Arrays.asList(kind, Arrays.toString(childNodes));
+            Integer node = nodesByKey.get(key);
+            return node != null ? node : newNode(key, kind, null, childNodes);
+        }
+        
+        private int newNode(Object key, byte kind, CompiledPredicate predicate, int[] childNodes) {
+            int node = kinds.size();
+            kinds.add(kind);
+            predicates.add(predicate);
+            children.add(childNodes);
+            nodesByKey.put(key, node);
+            return node;
+        }
+        
+        ReteNetwork build(RuleSet ruleSet, int[] roots) {
+            byte[] kindArray = new byte[kinds.size()];
+            for (int i = 0; i < kindArray.length; i++) {
+                kindArray[i] = kinds.get(i);
+            }
+            return new ReteNetwork(ruleSet, kindArray, predicates.toArray(new CompiledPredicate[0]),
+                    children.toArray(new int[0][]), roots, conditionCount);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.gs.ruleengine.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.gs.ruleengine.model.expression.Expression;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.Lob;
 import javax.persistence.Table;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -25,6 +27,19 @@ public class Rule extends BaseEntity {
     @Column(columnDefinition = "TEXT")
     private String expressionJson;
     
+    @Column(columnDefinition = "TEXT")
+    private String optimizedExpressionJson;
+    
+    /**
+     * Binary form of the optimized expression, see {@link com.gs.ruleengine.engine.ExpressionCodec}.
+     */
+    @Lob
+    @JsonIgnore
+    private byte[] compiledExpression;
+    
+    @Enumerated(EnumType.STRING)
+    private Satisfiability satisfiability;
+    
     private boolean active = true;
     
     public Rule() {
@@ -63,6 +78,30 @@ public class Rule extends BaseEntity {
         this.expressionJson = expressionJson;
     }
     
+    public String getOptimizedExpressionJson() {
+        return optimizedExpressionJson;
+    }
+    
+    public void setOptimizedExpressionJson(String optimizedExpressionJson) {
+        this.optimizedExpressionJson = optimizedExpressionJson;
+    }
+    
+    public byte[] getCompiledExpression() {
+        return compiledExpression;
+    }
+    
+    public void setCompiledExpression(byte[] compiledExpression) {
+        this.compiledExpression = compiledExpression;
+    }
+    
+    public Satisfiability getSatisfiability() {
+        return satisfiability;
+    }
+    
+    public void setSatisfiability(Satisfiability satisfiability) {
+        this.satisfiability = satisfiability;
+    }
+    
     public boolean isActive() {
         return active;
     }
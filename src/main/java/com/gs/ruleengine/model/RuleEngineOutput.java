@@ -1,6 +1,8 @@
 package com.gs.ruleengine.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Output from the rule engine after evaluating a rule against an entity.
@@ -14,6 +16,9 @@ public class RuleEngineOutput {
     private boolean result;
     private LocalDateTime evaluationTime;
     
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<TraceStep> trace;
+    
     public RuleEngineOutput() {
         this.evaluationTime = LocalDateTime.now();
     }
@@ -74,4 +79,15 @@ public class RuleEngineOutput {
     public void setEvaluationTime(LocalDateTime evaluationTime) {
         this.evaluationTime = evaluationTime;
     }
+    
+    /**
+     * @return The decision path of the evaluation, or null if the evaluation was not traced
+     */
+    public List<TraceStep> getTrace() {
+        return trace;
+    }
+    
+    public void setTrace(List<TraceStep> trace) {
+        this.trace = trace;
+    }
 }
@@ -0,0 +1,10 @@
+package com.gs.ruleengine.model;
+
+/**
+ * Whether the outcome of a rule's expression depends on the entity it is evaluated against.
+ */
+public enum Satisfiability {
+    ALWAYS_TRUE,
+    ALWAYS_FALSE,
+    CONDITIONAL
+}
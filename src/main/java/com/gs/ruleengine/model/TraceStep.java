@@ -0,0 +1,94 @@
+package com.gs.ruleengine.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.gs.ruleengine.model.expression.Operator;
+
+/**
+ * One node visited while evaluating a rule in explain mode. Steps are listed in
+ * evaluation order; children that were skipped by short-circuiting are not listed.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TraceStep {
+    
+    private int depth;
+    private String type;
+    private String field;
+    private Operator operator;
+    private Object value;
+    private Object actualValue;
+    private boolean result;
+    
+    public TraceStep() {
+    }
+    
+    public TraceStep(int depth, String type) {
+        this.depth = depth;
+        this.type = type;
+    }
+    
+    public TraceStep(int depth, String field, Operator operator, Object value, Object actualValue, boolean result) {
+        this.depth = depth;
+        this.type = "CONDITION";
+        this.field = field;
+        this.operator = operator;
+        this.value = value;
+        this.actualValue = actualValue;
+        this.result = result;
+    }
+    
+    public int getDepth() {
+        return depth;
+    }
+    
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+    
+    public String getType() {
+        return type;
+    }
+    
+    public void setType(String type) {
+        this.type = type;
+    }
+    
+    public String getField() {
+        return field;
+    }
+    
+    public void setField(String field) {
+        this.field = field;
+    }
+    
+    public Operator getOperator() {
+        return operator;
+    }
+    
+    public void setOperator(Operator operator) {
+        this.operator = operator;
+    }
+    
+    public Object getValue() {
+        return value;
+    }
+    
+    public void setValue(Object value) {
+        this.value = value;
+    }
+    
+    public Object getActualValue() {
+        return actualValue;
+    }
+    
+    public void setActualValue(Object actualValue) {
+        this.actualValue = actualValue;
+    }
+    
+    public boolean isResult() {
+        return result;
+    }
+    
+    public void setResult(boolean result) {
+        this.result = result;
+    }
+}
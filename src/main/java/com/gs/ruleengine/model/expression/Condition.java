@@ -2,22 +2,42 @@ package com.gs.ruleengine.model.expression;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Objects;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.regex.Pattern;
 
 /**
  * Represents a leaf condition in the expression tree.
+ * 
+ * IN and NOT_IN take a JSON array value and compare the field value with each
+ * element as EQUALS would.
+ * 
+ * MATCHES takes a regular expression and is true if the expression matches any part
+ * of the field value's string form. Unlike the other operators its value is never
+ * converted to the field value's type. The pattern is compiled on first use and
+ * reused while the value stays the same.
+ * 
+ * BETWEEN, WITHIN_DAYS and BEFORE_TODAY test date and date-time fields (see
+ * {@link DateRange}). BETWEEN takes an array of two inclusive bounds, WITHIN_DAYS a
+ * number of days from today (negative for days ago) and BEFORE_TODAY no value.
+ * Today is read from the {@link RequestClock}.
+ * 
+ * Evaluation does not log: it runs once per condition per rule per entity. Use
+ * explain mode on the rule engine to see how conditions were decided.
  */
 public class Condition implements Expression {
     
-    private static final Logger logger = LoggerFactory.getLogger(Condition.class);
+    private static final Object INVALID = new Object();
     
     private String field;
     private Operator operator;
     private Object value;
     
+    private volatile Pattern pattern;
+    private volatile DateRange range;
+    private volatile Object rangeValue;
+    
     @JsonCreator
     public Condition(
             @JsonProperty("field") String field,
@@ -32,9 +52,6 @@ public class Condition implements Expression {
     public boolean evaluate(Map<String, Object> entityData) {
         Object fieldValue = entityData.get(field);
         
-        logger.info("Evaluating condition: field={}, operator={}, value={}, fieldValue={}", 
-                field, operator, value, fieldValue);
-        
         if (operator == Operator.IS_NULL) {
             return fieldValue == null;
         }
@@ -44,94 +61,186 @@ public class Condition implements Expression {
         }
         
         if (fieldValue == null) {
-            logger.info("Field value is null, returning false");
             return false;
         }
         
-        // Handle enum comparison - convert string value to enum if field value is an enum
-        if (fieldValue instanceof Enum && value instanceof String) {
-            try {
-                @SuppressWarnings("unchecked")
-                Class<? extends Enum> enumClass = ((Enum) fieldValue).getClass();
-                Object enumValue = Enum.valueOf(enumClass, (String) value);
-                logger.info("Converting string value '{}' to enum value '{}' for comparison", value, enumValue);
-                value = enumValue;
-            } catch (IllegalArgumentException e) {
-                logger.warn("Failed to convert string '{}' to enum type of {}", value, fieldValue.getClass().getName());
-                return false;
-            }
+        if (operator == Operator.MATCHES) {
+            return pattern().matcher(fieldValue.toString()).find();
+        }
+        if (operator == Operator.BETWEEN) {
+            return range().contains(fieldValue);
+        }
+        if (operator == Operator.WITHIN_DAYS) {
+            long days = DateRange.days(field, value);
+            long today = RequestClock.today().toEpochDay();
+            return DateRange.isOnDays(fieldValue, Math.min(today, today + days), Math.max(today, today + days));
+        }
+        if (operator == Operator.BEFORE_TODAY) {
+            return DateRange.isOnDays(fieldValue, Long.MIN_VALUE, RequestClock.today().toEpochDay() - 1);
         }
         
-        // Handle numeric comparison - convert string value to number if field value is a number
-        if (fieldValue instanceof Number && value instanceof String) {
-            try {
-                if (fieldValue instanceof Integer) {
-                    value = Integer.valueOf((String) value);
-                    logger.info("Converting string value '{}' to Integer for comparison", value);
-                } else if (fieldValue instanceof Long) {
-                    value = Long.valueOf((String) value);
-                    logger.info("Converting string value '{}' to Long for comparison", value);
-                } else if (fieldValue instanceof Double) {
-                    value = Double.valueOf((String) value);
-                    logger.info("Converting string value '{}' to Double for comparison", value);
-                }
-            } catch (NumberFormatException e) {
-                logger.warn("Failed to convert string '{}' to numeric type of {}", value, fieldValue.getClass().getName());
-                return false;
-            }
+        // Conversions are applied to a local copy so that a shared condition is never modified
+        Object operand = convert(fieldValue, value);
+        if (operand == INVALID) {
+            return false;
         }
         
         boolean result = false;
         switch (operator) {
             case EQUALS:
-                result = Objects.equals(fieldValue, value);
+                result = Objects.equals(fieldValue, operand);
                 break;
             case NOT_EQUALS:
-                result = !Objects.equals(fieldValue, value);
+                result = !Objects.equals(fieldValue, operand);
                 break;
             case GREATER_THAN:
-                result = compareValues(fieldValue, value) > 0;
+                result = compareValues(fieldValue, operand) > 0;
                 break;
             case GREATER_THAN_OR_EQUALS:
-                result = compareValues(fieldValue, value) >= 0;
+                result = compareValues(fieldValue, operand) >= 0;
                 break;
             case LESS_THAN:
-                result = compareValues(fieldValue, value) < 0;
+                result = compareValues(fieldValue, operand) < 0;
                 break;
             case LESS_THAN_OR_EQUALS:
-                result = compareValues(fieldValue, value) <= 0;
+                result = compareValues(fieldValue, operand) <= 0;
                 break;
             case CONTAINS:
-                result = fieldValue.toString().contains(value.toString());
+                result = fieldValue.toString().contains(operand.toString());
                 break;
             case STARTS_WITH:
-                result = fieldValue.toString().startsWith(value.toString());
+                result = fieldValue.toString().startsWith(operand.toString());
                 break;
             case ENDS_WITH:
-                result = fieldValue.toString().endsWith(value.toString());
+                result = fieldValue.toString().endsWith(operand.toString());
+                break;
+            case IN:
+                result = containsValue(fieldValue);
+                break;
+            case NOT_IN:
+                result = !containsValue(fieldValue);
                 break;
             default:
                 result = false;
                 break;
         }
         
-        logger.info("Condition evaluation result: {}", result);
         return result;
     }
     
+    /**
+     * Checks whether a field value equals any element of the array value, converting
+     * each element as EQUALS would convert a single constant. Elements that do not
+     * convert to the field value's type never match.
+     */
+    private boolean containsValue(Object fieldValue) {
+        if (!(value instanceof Collection)) {
+            throw new IllegalArgumentException("Operator " + operator + " on field '" + field + "' requires an array value");
+        }
+        for (Object element : (Collection<?>) value) {
+            Object operand = convert(fieldValue, element);
+            if (operand != INVALID && Objects.equals(fieldValue, operand)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private Pattern pattern() {
+        if (value == null) {
+            throw new IllegalArgumentException("Operator " + operator + " on field '" + field + "' requires a value");
+        }
+        String regex = value.toString();
+        Pattern compiled = pattern;
+        if (compiled == null || !compiled.pattern().equals(regex)) {
+            compiled = Pattern.compile(regex);
+            pattern = compiled;
+        }
+        return compiled;
+    }
+    
+    private DateRange range() {
+        DateRange parsed = range;
+        if (parsed == null || rangeValue != value) {
+            parsed = DateRange.between(field, value);
+            range = parsed;
+            rangeValue = value;
+        }
+        return parsed;
+    }
+    
+    /**
+     * Converts a string constant to the type of an enum or number field value.
+     * 
+     * @return The converted constant, the constant itself if no conversion applies,
+     *         or INVALID if the string is not valid for the field value's type
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object convert(Object fieldValue, Object constant) {
+        if (!(constant instanceof String)) {
+            return constant;
+        }
+        
+        // Handle enum comparison - convert string value to enum if field value is an enum
+        if (fieldValue instanceof Enum) {
+            try {
+                Class<? extends Enum> enumClass = ((Enum) fieldValue).getDeclaringClass();
+                return Enum.valueOf(enumClass, (String) constant);
+            } catch (IllegalArgumentException e) {
+                return INVALID;
+            }
+        }
+        
+        // Handle numeric comparison - convert string value to number if field value is a number
+        if (fieldValue instanceof Number) {
+            try {
+                if (fieldValue instanceof Integer) {
+                    return Integer.valueOf((String) constant);
+                } else if (fieldValue instanceof Long) {
+                    return Long.valueOf((String) constant);
+                } else if (fieldValue instanceof Double) {
+                    return Double.valueOf((String) constant);
+                }
+            } catch (NumberFormatException e) {
+                return INVALID;
+            }
+        }
+        
+        return constant;
+    }
+    
+    /**
+     * Compares a field value with a converted constant for the ordering operators.
+     * Integer, Long and Double values of different types are compared numerically,
+     * as longs if both are integral and as doubles otherwise. Other values are compared
+     * with {@link Comparable#compareTo}; values that cannot be compared compare as equal.
+     * 
+     * @param fieldValue The field value
+     * @param operand The constant
+     * @return The three-way comparison of the field value with the constant
+     */
     @SuppressWarnings("unchecked")
-    private int compareValues(Object o1, Object o2) {
-        if (o1 instanceof Comparable && o2 instanceof Comparable) {
+    public static int compareValues(Object fieldValue, Object operand) {
+        if (isWidened(fieldValue) && isWidened(operand) && fieldValue.getClass() != operand.getClass()) {
+            if (fieldValue instanceof Double || operand instanceof Double) {
+                return Double.compare(((Number) fieldValue).doubleValue(), ((Number) operand).doubleValue());
+            }
+            return Long.compare(((Number) fieldValue).longValue(), ((Number) operand).longValue());
+        }
+        if (fieldValue instanceof Comparable && operand instanceof Comparable) {
             try {
-                return ((Comparable<Object>) o1).compareTo(o2);
+                return ((Comparable<Object>) fieldValue).compareTo(operand);
             } catch (ClassCastException e) {
-                logger.warn("Cannot compare {} with {}: {}", o1, o2, e.getMessage());
                 return 0;
             }
         }
         return 0;
     }
     
+    private static boolean isWidened(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Double;
+    }
+    
     public String getField() {
         return field;
     }
@@ -0,0 +1,170 @@
+package com.gs.ruleengine.model.expression;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Inclusive range of points in time tested by the date operators, held as epoch days
+ * and nanoseconds of the day.
+ * 
+ * A LocalDateTime field value is tested at its date and time of day and a LocalDate
+ * field value at the start of its day. A bound given as a date covers its whole day,
+ * so a date-time on the upper bound's date is within the range. Strings, in field
+ * values or bounds, are parsed as ISO dates or date-times; a field value that is
+ * neither a date nor such a string is never within a range.
+ */
+public final class DateRange {
+    
+    private static final long START_OF_DAY = 0;
+    private static final long END_OF_DAY = LocalTime.MAX.toNanoOfDay();
+    
+    private final long fromDay;
+    private final long fromNano;
+    private final long toDay;
+    private final long toNano;
+    
+    private DateRange(long fromDay, long fromNano, long toDay, long toNano) {
+        this.fromDay = fromDay;
+        this.fromNano = fromNano;
+        this.toDay = toDay;
+        this.toNano = toNano;
+    }
+    
+    /**
+     * Creates the range of a BETWEEN condition.
+     * 
+     * @param field The field of the condition, for error messages
+     * @param value The value of the condition: an array of the lower and upper bound,
+     *              either of which may be null for an open-ended range
+     * @return The range
+     * @throws IllegalArgumentException if the value is not an array of two dates or date-times
+     */
+    public static DateRange between(String field, Object value) {
+        if (!(value instanceof Collection) || ((Collection<?>) value).size() != 2) {
+            throw new IllegalArgumentException("Operator BETWEEN on field '" + field + "' requires an array of two dates");
+        }
+        Iterator<?> bounds = ((Collection<?>) value).iterator();
+        Object from = bound(field, bounds.next());
+        Object to = bound(field, bounds.next());
+        
+        return new DateRange(
+                from == null ? Long.MIN_VALUE : epochDay(from),
+                from instanceof LocalDateTime ? nanoOfDay(from) : START_OF_DAY,
+                to == null ? Long.MAX_VALUE : epochDay(to),
+                to instanceof LocalDateTime ? nanoOfDay(to) : END_OF_DAY);
+    }
+    
+    /**
+     * Gets the number of days of a WITHIN_DAYS condition: the range is from today up to
+     * that many days ahead, or back to that many days ago if the number is negative.
+     * 
+     * @param field The field of the condition, for error messages
+     * @param value The value of the condition
+     * @return The number of days
+     * @throws IllegalArgumentException if the value is not a whole number
+     */
+    public static long days(String field, Object value) {
+        try {
+            if (value instanceof Integer || value instanceof Long) {
+                return ((Number) value).longValue();
+            }
+            if (value instanceof String) {
+                return Long.parseLong((String) value);
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Operator WITHIN_DAYS on field '" + field + "' requires a number of days");
+    }
+    
+    /**
+     * Checks whether a field value is within the range.
+     * 
+     * @param fieldValue The field value, which may be null
+     * @return true if the value is a date or date-time within the range
+     */
+    public boolean contains(Object fieldValue) {
+        if (fieldValue instanceof String) {
+            fieldValue = parse((String) fieldValue);
+        }
+        if (fieldValue instanceof LocalDate) {
+            return contains(((LocalDate) fieldValue).toEpochDay(), START_OF_DAY);
+        }
+        if (fieldValue instanceof LocalDateTime) {
+            return contains(epochDay(fieldValue), nanoOfDay(fieldValue));
+        }
+        return false;
+    }
+    
+    /**
+     * Checks whether a point in time is within the range.
+     * 
+     * @param day The epoch day
+     * @param nano The nanosecond of the day
+     * @return true if the point is within the range
+     */
+    public boolean contains(long day, long nano) {
+        if (day < fromDay || (day == fromDay && nano < fromNano)) {
+            return false;
+        }
+        return day < toDay || (day == toDay && nano <= toNano);
+    }
+    
+    /**
+     * Checks whether a field value falls on one of a range of days, without creating
+     * a range.
+     * 
+     * @param fieldValue The field value, which may be null
+     * @param fromDay The epoch day of the first day in the range
+     * @param toDay The epoch day of the last day in the range
+     * @return true if the value is a date or date-time on one of the days
+     */
+    public static boolean isOnDays(Object fieldValue, long fromDay, long toDay) {
+        if (fieldValue instanceof String) {
+            fieldValue = parse((String) fieldValue);
+        }
+        if (!(fieldValue instanceof LocalDate) && !(fieldValue instanceof LocalDateTime)) {
+            return false;
+        }
+        long day = epochDay(fieldValue);
+        return day >= fromDay && day <= toDay;
+    }
+    
+    private static Object bound(String field, Object bound) {
+        if (bound == null || bound instanceof LocalDate || bound instanceof LocalDateTime) {
+            return bound;
+        }
+        Object parsed = bound instanceof String ? parse((String) bound) : null;
+        if (parsed == null) {
+            throw new IllegalArgumentException("Operator BETWEEN on field '" + field + "' has an invalid date: " + bound);
+        }
+        return parsed;
+    }
+    
+    /**
+     * Parses an ISO date or date-time.
+     * 
+     * @return The LocalDate or LocalDateTime, or null if the text is neither
+     */
+    private static Object parse(String text) {
+        try {
+            return text.indexOf('T') >= 0 ? LocalDateTime.parse(text) : LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+    
+    private static long epochDay(Object date) {
+        return date instanceof LocalDateTime
+                ? ((LocalDateTime) date).toLocalDate().toEpochDay()
+                : ((LocalDate) date).toEpochDay();
+    }
+    
+    private static long nanoOfDay(Object dateTime) {
+        return ((LocalDateTime) dateTime).toLocalTime().toNanoOfDay();
+    }
+}
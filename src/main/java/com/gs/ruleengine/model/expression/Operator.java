@@ -14,5 +14,11 @@ public enum Operator {
     STARTS_WITH,
     ENDS_WITH,
     IS_NULL,
-    IS_NOT_NULL
+    IS_NOT_NULL,
+    IN,
+    NOT_IN,
+    MATCHES,
+    BETWEEN,
+    WITHIN_DAYS,
+    BEFORE_TODAY
 }
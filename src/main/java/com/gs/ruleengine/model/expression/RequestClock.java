@@ -0,0 +1,84 @@
+package com.gs.ruleengine.model.expression;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * The current date used by the relative date operators (WITHIN_DAYS and BEFORE_TODAY).
+ * 
+ * The rule engine {@link #freeze() freezes} the date on the evaluating thread for the
+ * duration of a request, so that every condition of every rule sees the same day and
+ * the system clock is read once per request rather than once per condition. Outside
+ * a frozen scope, each call reads the clock.
+ */
+public final class RequestClock {
+    
+    private static final ThreadLocal<LocalDate> FROZEN = new ThreadLocal<>();
+    
+    private static final Scope NESTED = () -> { };
+    private static final Scope OUTERMOST = FROZEN::remove;
+    
+    private static volatile Clock clock = Clock.systemDefaultZone();
+    
+    private RequestClock() {
+    }
+    
+    /**
+     * Freezes the current date on this thread until the returned scope is closed.
+     * Nested calls keep the date frozen by the outermost one.
+     * 
+     * @return The scope, to close when the request is done
+     */
+    public static Scope freeze() {
+        if (FROZEN.get() != null) {
+            return NESTED;
+        }
+        FROZEN.set(LocalDate.now(clock));
+        return OUTERMOST;
+    }
+    
+    /**
+     * Freezes a given date on this thread until the returned scope is closed, e.g. to
+     * carry the date of a request over to the threads evaluating it in parallel.
+     * Nested calls keep the date frozen by the outermost one.
+     * 
+     * @param date The date, normally {@link #today()} on the request thread
+     * @return The scope, to close when done
+     */
+    public static Scope freeze(LocalDate date) {
+        if (FROZEN.get() != null) {
+            return NESTED;
+        }
+        FROZEN.set(date);
+        return OUTERMOST;
+    }
+    
+    /**
+     * Gets the current date: the frozen date if there is one on this thread, or the
+     * date according to the clock otherwise.
+     * 
+     * @return Today
+     */
+    public static LocalDate today() {
+        LocalDate frozen = FROZEN.get();
+        return frozen != null ? frozen : LocalDate.now(clock);
+    }
+    
+    /**
+     * Replaces the clock, e.g. with a fixed clock in tests.
+     * 
+     * @param newClock The clock to read the current date from
+     */
+    public static void setClock(Clock newClock) {
+        clock = newClock;
+    }
+    
+    /**
+     * A frozen date, released when closed.
+     */
+    public interface Scope extends AutoCloseable {
+        
+        @Override
+        void close();
+    }
+}
@@ -1,9 +1,24 @@
 package com.gs.ruleengine.repository;
 
 import com.gs.ruleengine.model.Roster;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface RosterRepository extends JpaRepository<Roster, Long> {
+    
+    /**
+     * Streams all rosters in ID order through a database cursor, without loading them
+     * all at once. Must be called, and the stream consumed and closed, in a transaction.
+     */
+    @Query("select r from Roster r order by r.id")
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<Roster> streamAll();
 }
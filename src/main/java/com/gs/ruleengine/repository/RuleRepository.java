@@ -9,5 +9,5 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface RuleRepository extends JpaRepository<Rule, Long> {
     
-    List<Rule> findByEntityTypeAndActiveTrue(EntityType entityType);
+    List<Rule> findByEntityTypeAndActiveTrueOrderByIdAsc(EntityType entityType);
 }
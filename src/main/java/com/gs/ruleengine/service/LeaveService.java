@@ -4,7 +4,10 @@ import com.gs.ruleengine.model.Leave;
 import com.gs.ruleengine.repository.LeaveRepository;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -21,10 +24,22 @@ public class LeaveService {
         return leaveRepository.findAll();
     }
     
+    public Page<Leave> findAll(Pageable pageable) {
+        return leaveRepository.findAll(pageable);
+    }
+    
+    public Stream<Leave> streamAll() {
+        return leaveRepository.streamAll();
+    }
+    
     public Optional<Leave> findById(Long id) {
         return leaveRepository.findById(id);
     }
     
+    public List<Leave> findAllById(Iterable<Long> ids) {
+        return leaveRepository.findAllById(ids);
+    }
+    
     public Leave save(Leave leave) {
         return leaveRepository.save(leave);
     }
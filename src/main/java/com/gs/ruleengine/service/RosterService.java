@@ -4,7 +4,10 @@ import com.gs.ruleengine.model.Roster;
 import com.gs.ruleengine.repository.RosterRepository;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -21,10 +24,22 @@ public class RosterService {
         return rosterRepository.findAll();
     }
     
+    public Page<Roster> findAll(Pageable pageable) {
+        return rosterRepository.findAll(pageable);
+    }
+    
+    public Stream<Roster> streamAll() {
+        return rosterRepository.streamAll();
+    }
+    
     public Optional<Roster> findById(Long id) {
         return rosterRepository.findById(id);
     }
     
+    public List<Roster> findAllById(Iterable<Long> ids) {
+        return rosterRepository.findAllById(ids);
+    }
+    
     public Roster save(Roster roster) {
         return rosterRepository.save(roster);
     }
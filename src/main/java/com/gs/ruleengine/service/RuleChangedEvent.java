@@ -0,0 +1,28 @@
+package com.gs.ruleengine.service;
+
+import com.gs.ruleengine.model.EntityType;
+
+/**
+ * Published by {@link RuleService} after a rule has been saved or deleted.
+ */
+public class RuleChangedEvent {
+    
+    private final Long ruleId;
+    private final EntityType entityType;
+    
+    public RuleChangedEvent(Long ruleId, EntityType entityType) {
+        this.ruleId = ruleId;
+        this.entityType = entityType;
+    }
+    
+    public Long getRuleId() {
+        return ruleId;
+    }
+    
+    /**
+     * @return The entity type of the rule after the change, or null if the rule was deleted
+     */
+    public EntityType getEntityType() {
+        return entityType;
+    }
+}
@@ -6,16 +6,19 @@ import com.gs.ruleengine.repository.RuleRepository;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 @Service
 public class RuleService {
     
     private final RuleRepository ruleRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired
-    public RuleService(RuleRepository ruleRepository) {
+    public RuleService(RuleRepository ruleRepository, ApplicationEventPublisher eventPublisher) {
         this.ruleRepository = ruleRepository;
+        this.eventPublisher = eventPublisher;
     }
     
     public List<Rule> findAll() {
@@ -27,14 +30,17 @@ public class RuleService {
     }
     
     public List<Rule> findActiveRulesByEntityType(EntityType entityType) {
-        return ruleRepository.findByEntityTypeAndActiveTrue(entityType);
+        return ruleRepository.findByEntityTypeAndActiveTrueOrderByIdAsc(entityType);
     }
     
     public Rule save(Rule rule) {
-        return ruleRepository.save(rule);
+        Rule savedRule = ruleRepository.save(rule);
+        eventPublisher.publishEvent(new RuleChangedEvent(savedRule.getId(), savedRule.getEntityType()));
+        return savedRule;
     }
     
     public void deleteById(Long id) {
         ruleRepository.deleteById(id);
+        eventPublisher.publishEvent(new RuleChangedEvent(id, null));
     }
 }
@@ -4,7 +4,10 @@ import com.gs.ruleengine.model.Ticket;
 import com.gs.ruleengine.repository.TicketRepository;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -21,10 +24,22 @@ public class TicketService {
         return ticketRepository.findAll();
     }
     
+    public Page<Ticket> findAll(Pageable pageable) {
+        return ticketRepository.findAll(pageable);
+    }
+    
+    public Stream<Ticket> streamAll() {
+        return ticketRepository.streamAll();
+    }
+    
     public Optional<Ticket> findById(Long id) {
         return ticketRepository.findById(id);
     }
     
+    public List<Ticket> findAllById(Iterable<Long> ids) {
+        return ticketRepository.findAllById(ids);
+    }
+    
     public Ticket save(Ticket ticket) {
         return ticketRepository.save(ticket);
     }
@@ -1,10 +1,12 @@
 package com.gs.ruleengine.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.ruleengine.config.RuleEngineProperties;
 import com.gs.ruleengine.dto.RuleDto;
 import com.gs.ruleengine.engine.ExpressionDeserializer;
 import com.gs.ruleengine.model.EntityType;
 import com.gs.ruleengine.model.Rule;
+import com.gs.ruleengine.model.expression.AndExpression;
 import com.gs.ruleengine.model.expression.Condition;
 import com.gs.ruleengine.model.expression.Expression;
 import com.gs.ruleengine.model.expression.Operator;
@@ -24,6 +26,8 @@ import java.util.Optional;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -43,6 +47,9 @@ class RuleControllerTest {
     @MockBean
     private ExpressionDeserializer expressionDeserializer;
 
+    @MockBean
+    private RuleEngineProperties properties;
+
     private Rule testRule;
     private RuleDto testRuleDto;
     private Expression testExpression;
@@ -123,7 +130,49 @@ class RuleControllerTest {
                 .andExpect(jsonPath("$.id", is(1)))
                 .andExpect(jsonPath("$.name", is("Test Rule")))
                 .andExpect(jsonPath("$.entityType", is("TICKET")))
-                .andExpect(jsonPath("$.active", is(true)));
+                .andExpect(jsonPath("$.active", is(true)))
+                .andExpect(jsonPath("$.satisfiability", is("CONDITIONAL")));
+    }
+
+    @Test
+    void createRule_Contradiction() throws Exception {
+        testRuleDto.setExpression(new AndExpression(Arrays.asList(
+                new Condition("status", Operator.EQUALS, "OPEN"),
+                new Condition("status", Operator.EQUALS, "CLOSED"))));
+        
+        when(expressionDeserializer.serialize(any(Expression.class))).thenReturn(testExpressionJson);
+        when(ruleService.save(any(Rule.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        mockMvc.perform(post("/api/rules")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testRuleDto)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.satisfiability", is("ALWAYS_FALSE")));
+    }
+
+    @Test
+    void createRule_InvalidPattern() throws Exception {
+        testRuleDto.setExpression(new Condition("title", Operator.MATCHES, "fire("));
+
+        mockMvc.perform(post("/api/rules")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testRuleDto)))
+                .andExpect(status().isBadRequest());
+        
+        verify(ruleService, never()).save(any(Rule.class));
+    }
+
+    @Test
+    void createRule_UnsafePatternInSafeMode() throws Exception {
+        testRuleDto.setExpression(new Condition("title", Operator.MATCHES, "^(a+)+$"));
+        when(properties.isRegexSafeMode()).thenReturn(true);
+
+        mockMvc.perform(post("/api/rules")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testRuleDto)))
+                .andExpect(status().isBadRequest());
+        
+        verify(ruleService, never()).save(any(Rule.class));
     }
 
     @Test
@@ -1,14 +1,20 @@
 package com.gs.ruleengine.controller;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.ruleengine.dto.BatchRuleExecutionRequest;
 import com.gs.ruleengine.dto.RuleExecutionRequest;
 import com.gs.ruleengine.dto.RuleExecutionResponse;
 import com.gs.ruleengine.engine.ActionEngine;
 import com.gs.ruleengine.engine.RuleEngine;
+import com.gs.ruleengine.engine.batch.BatchRuleEvaluator;
 import com.gs.ruleengine.model.ActionOutput;
 import com.gs.ruleengine.model.ActionType;
 import com.gs.ruleengine.model.EntityType;
 import com.gs.ruleengine.model.RuleEngineOutput;
+import com.gs.ruleengine.model.TraceStep;
+import com.gs.ruleengine.model.expression.Operator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,19 +22,28 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(RuleEngineController.class)
@@ -46,6 +61,9 @@ class RuleEngineControllerTest {
     @MockBean
     private ActionEngine actionEngine;
 
+    @MockBean
+    private BatchRuleEvaluator batchRuleEvaluator;
+
     private RuleExecutionRequest request;
     private RuleEngineOutput ruleOutput;
     private ActionOutput actionOutput;
@@ -111,6 +129,26 @@ class RuleEngineControllerTest {
                 .andExpect(jsonPath("$.actionOutputs[0].actionConfigurationId", is(1)));
     }
 
+    @Test
+    void executeRules_Explain() throws Exception {
+        ruleOutput.setTrace(Collections.singletonList(
+                new TraceStep(0, "status", Operator.EQUALS, "OPEN", "OPEN", true)));
+        List<RuleEngineOutput> ruleOutputs = Collections.singletonList(ruleOutput);
+        
+        when(ruleEngine.evaluateRules(EntityType.TICKET, 1L, true)).thenReturn(ruleOutputs);
+        when(actionEngine.executeActions(ruleOutputs)).thenReturn(Collections.emptyList());
+
+        mockMvc.perform(post("/api/rule-engine/execute")
+                .param("explain", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ruleEngineOutputs[0].trace", hasSize(1)))
+                .andExpect(jsonPath("$.ruleEngineOutputs[0].trace[0].type", is("CONDITION")))
+                .andExpect(jsonPath("$.ruleEngineOutputs[0].trace[0].field", is("status")))
+                .andExpect(jsonPath("$.ruleEngineOutputs[0].trace[0].result", is(true)));
+    }
+
     @Test
     void executeRules_NoRulesFound() throws Exception {
         when(ruleEngine.evaluateRules(any(), anyLong())).thenReturn(Collections.emptyList());
@@ -123,4 +161,97 @@ class RuleEngineControllerTest {
                 .andExpect(jsonPath("$.ruleEngineOutputs", hasSize(0)))
                 .andExpect(jsonPath("$.actionOutputs", hasSize(0)));
     }
+
+    @Test
+    void executeRulesBatch() throws Exception {
+        BatchRuleExecutionRequest batchRequest = new BatchRuleExecutionRequest();
+        batchRequest.setEntityType(EntityType.TICKET);
+        batchRequest.setEntityIds(Arrays.asList(1L, 2L));
+        List<RuleEngineOutput> ruleOutputs = Arrays.asList(
+                ruleOutput, new RuleEngineOutput(1L, "Test Rule", EntityType.TICKET, 2L, false));
+        
+        when(ruleEngine.evaluateRulesBatch(EntityType.TICKET, Arrays.asList(1L, 2L))).thenReturn(ruleOutputs);
+        when(actionEngine.executeActions(ruleOutputs)).thenReturn(Collections.singletonList(actionOutput));
+
+        mockMvc.perform(post("/api/rule-engine/execute/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ruleEngineOutputs", hasSize(2)))
+                .andExpect(jsonPath("$.ruleEngineOutputs[1].entityId", is(2)))
+                .andExpect(jsonPath("$.ruleEngineOutputs[1].result", is(false)))
+                .andExpect(jsonPath("$.actionOutputs", hasSize(1)));
+    }
+
+    @Test
+    void executeRulesBatch_WithoutEntityIds() throws Exception {
+        BatchRuleExecutionRequest batchRequest = new BatchRuleExecutionRequest();
+        batchRequest.setEntityType(EntityType.TICKET);
+        batchRequest.setEntityIds(Collections.emptyList());
+
+        mockMvc.perform(post("/api/rule-engine/execute/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findMatchingEntities() throws Exception {
+        when(batchRuleEvaluator.findMatchingEntities(EntityType.TICKET)).thenReturn(Map.of(1L, Arrays.asList(3L, 7L)));
+
+        mockMvc.perform(get("/api/rule-engine/matches").param("entityType", "TICKET"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.1", hasSize(2)))
+                .andExpect(jsonPath("$.1[0]", is(3)));
+    }
+
+    @Test
+    void evaluateAll_StreamsNdjson() throws Exception {
+        String lines = "{\"ruleId\":1,\"entityId\":1,\"result\":true}\n{\"ruleId\":1,\"entityId\":2,\"result\":false}\n";
+        when(batchRuleEvaluator.writeOutputs(eq(EntityType.TICKET), any(OutputStream.class))).thenAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write(lines.getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/rule-engine/evaluate-all").param("entityType", "TICKET"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(lines));
+    }
+
+    @Test
+    void evaluateData_ParsesBodyInEngine() throws Exception {
+        when(ruleEngine.evaluateRulesWithJson(eq(EntityType.TICKET), any(JsonParser.class))).thenAnswer(invocation -> {
+            JsonParser parser = invocation.getArgument(1);
+            Map<?, ?> entityData = parser.readValueAs(Map.class);
+            return List.of(new RuleEngineOutput(1L, "Test Rule", EntityType.TICKET, 1L, "OPEN".equals(entityData.get("status"))));
+        });
+
+        mockMvc.perform(post("/api/rule-engine/evaluate")
+                .param("entityType", "TICKET")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":1,\"status\":\"OPEN\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].result", is(true)));
+    }
+
+    @Test
+    void evaluateData_WithMalformedJson() throws Exception {
+        when(ruleEngine.evaluateRulesWithJson(eq(EntityType.TICKET), any(JsonParser.class))).thenAnswer(invocation -> {
+            JsonParser parser = invocation.getArgument(1);
+            throw new JsonParseException(parser, "Entity data must be a JSON object");
+        });
+
+        mockMvc.perform(post("/api/rule-engine/evaluate")
+                .param("entityType", "TICKET")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1]"))
+                .andExpect(status().isBadRequest());
+    }
 }
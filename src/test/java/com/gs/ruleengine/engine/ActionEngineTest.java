@@ -26,6 +26,8 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -302,4 +304,51 @@ class ActionEngineTest {
         assertEquals("Action 2", output2.getActionName());
         assertEquals(ActionType.PROPERTY_UPDATE, output2.getActionType());
     }
+    
+    @Test
+    void testExecuteActions_BatchLooksUpRulesAndEntitiesOnce() {
+        Ticket ticket2 = new Ticket();
+        ticket2.setId(2L);
+        
+        RuleEngineOutput rule1Ticket1 = new RuleEngineOutput(1L, "Rule 1", EntityType.TICKET, 1L, true);
+        RuleEngineOutput rule2Ticket1 = new RuleEngineOutput(2L, "Rule 2", EntityType.TICKET, 1L, true);
+        RuleEngineOutput rule1Ticket2 = new RuleEngineOutput(1L, "Rule 1", EntityType.TICKET, 2L, false);
+        RuleEngineOutput rule2Ticket2 = new RuleEngineOutput(2L, "Rule 2", EntityType.TICKET, 2L, true);
+        
+        when(actionConfigurationService.findByRuleId(1L)).thenReturn(List.of(emailActionConfig));
+        when(actionConfigurationService.findByRuleId(2L)).thenReturn(List.of());
+        when(ticketService.findById(1L)).thenReturn(Optional.of(testTicket));
+        when(ticketService.findById(2L)).thenReturn(Optional.of(ticket2));
+        
+        Map<String, Object> ticket1Data = Map.of("id", 1L);
+        Map<String, Object> ticket2Data = Map.of("id", 2L);
+        when(entityDataExtractor.extractData(testTicket)).thenReturn(ticket1Data);
+        when(entityDataExtractor.extractData(ticket2)).thenReturn(ticket2Data);
+        
+        when(emailActionHandler.canHandle(emailActionConfig)).thenReturn(true);
+        ActionOutput sent = new ActionOutput(1L, "Email Action", ActionType.EMAIL, 1L, "Rule 1", 1L, EntityType.TICKET, true, "Email sent successfully");
+        ActionOutput skipped = new ActionOutput(1L, "Email Action", ActionType.EMAIL, 1L, "Rule 1", 2L, EntityType.TICKET, true, "Skipped");
+        when(emailActionHandler.execute(rule1Ticket1, emailActionConfig, ticket1Data)).thenReturn(sent);
+        when(emailActionHandler.execute(rule1Ticket2, emailActionConfig, ticket2Data)).thenReturn(skipped);
+        
+        actionEngine = new DefaultActionEngine(
+                actionConfigurationService,
+                ticketService,
+                rosterService,
+                leaveService,
+                entityDataExtractor,
+                List.of(emailActionHandler)
+        );
+        
+        // Execute
+        List<ActionOutput> outputs = actionEngine.executeActions(
+                Arrays.asList(rule1Ticket1, rule2Ticket1, rule1Ticket2, rule2Ticket2));
+        
+        // Verify
+        assertEquals(Arrays.asList(sent, skipped), outputs);
+        verify(actionConfigurationService, times(1)).findByRuleId(1L);
+        verify(actionConfigurationService, times(1)).findByRuleId(2L);
+        verify(ticketService, times(1)).findById(1L);
+        verify(ticketService, times(1)).findById(2L);
+    }
 }
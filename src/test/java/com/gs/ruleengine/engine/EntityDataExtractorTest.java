@@ -0,0 +1,73 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.Leave;
+import com.gs.ruleengine.model.LeaveStatus;
+import com.gs.ruleengine.model.LeaveType;
+import com.gs.ruleengine.model.Roster;
+import com.gs.ruleengine.model.Ticket;
+import com.gs.ruleengine.model.TicketStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityDataExtractorTest {
+
+    private final EntityDataExtractor extractor = new EntityDataExtractor();
+
+    @Test
+    void testExtractedDataMatchesGetters() throws Exception {
+        Ticket ticket = new Ticket();
+        ticket.setId(1L);
+        ticket.setTitle("Printer on fire");
+        ticket.setStatus(TicketStatus.OPEN);
+        ticket.setPriority(3);
+
+        Roster roster = new Roster();
+        roster.setId(2L);
+
+        Leave leave = new Leave();
+        leave.setId(3L);
+        leave.setType(LeaveType.ANNUAL);
+        leave.setStatus(LeaveStatus.PENDING);
+        leave.setStartDate(LocalDate.of(2024, 3, 1));
+
+        assertEquals(readGetters(ticket), extractor.extractData(ticket));
+        assertEquals(readGetters(roster), extractor.extractData(roster));
+        assertEquals(readGetters(leave), extractor.extractData(leave));
+        assertTrue(extractor.extractData(ticket).containsKey("assignee"));
+        assertTrue(extractor.extractData((Ticket) null).isEmpty());
+    }
+
+    @Test
+    void testAccessorsAreBuiltForOtherClasses() throws Exception {
+        Period period = Period.of(1, 2, 3);
+        EntitySchema schema = EntitySchema.forEntityClass(Period.class);
+
+        assertNull(schema.getEntityType());
+        assertSame(schema, EntitySchema.forEntityClass(Period.class));
+        assertEquals(2, schema.read(period, "months"));
+        assertEquals(readGetters(period).keySet(), schema.getFieldTypes().keySet());
+        assertSame(EntitySchema.forEntityType(EntityType.TICKET),
+                EntitySchema.forEntityClass(Ticket.class));
+    }
+
+    private static Map<String, Object> readGetters(Object entity) throws Exception {
+        Map<String, Object> data = new HashMap<>();
+        for (PropertyDescriptor propertyDescriptor : BeanUtils.getPropertyDescriptors(entity.getClass())) {
+            Method readMethod = propertyDescriptor.getReadMethod();
+            if (!"class".equals(propertyDescriptor.getName()) && readMethod != null) {
+                data.put(propertyDescriptor.getName(), readMethod.invoke(entity));
+            }
+        }
+        return data;
+    }
+}
@@ -0,0 +1,104 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.Leave;
+import com.gs.ruleengine.model.LeaveStatus;
+import com.gs.ruleengine.model.LeaveType;
+import com.gs.ruleengine.model.Ticket;
+import com.gs.ruleengine.model.TicketStatus;
+import org.springframework.beans.BeanUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures the cost of extracting the data of one entity with {@link EntityDataExtractor}
+ * against the reflective extraction it replaced (property descriptors and
+ * {@link Method#invoke} for every property), and of reading a single field through an
+ * {@link EntitySchema} accessor against {@link Method#invoke}. Not a test; run the main
+ * method.
+ */
+public final class EntityExtractionBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2_000_000;
+    private static final int MEASURED_ROUNDS = 5_000_000;
+
+    private EntityExtractionBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        EntityDataExtractor extractor = new EntityDataExtractor();
+
+        Ticket ticket = new Ticket();
+        ticket.setId(1L);
+        ticket.setTitle("Printer on fire");
+        ticket.setStatus(TicketStatus.OPEN);
+        ticket.setPriority(3);
+        ticket.setAssignee("raj");
+
+        Leave leave = new Leave();
+        leave.setId(2L);
+        leave.setEmployeeId("E-17");
+        leave.setType(LeaveType.ANNUAL);
+        leave.setStatus(LeaveStatus.APPROVED);
+        leave.setStartDate(LocalDate.of(2024, 3, 1));
+        leave.setEndDate(LocalDate.of(2024, 3, 8));
+
+        FieldAccessor priority = EntitySchema.forEntityType(EntityType.TICKET).getAccessor("priority");
+        Method getPriority = Ticket.class.getMethod("getPriority");
+
+        System.out.printf("%-36s %12s%n", "step", "ns/op");
+        report("ticket, reflective extraction", () -> reflectiveExtract(ticket).size());
+        report("ticket, EntityDataExtractor", () -> extractor.extractData(ticket).size());
+        report("leave, reflective extraction", () -> reflectiveExtract(leave).size());
+        report("leave, EntityDataExtractor", () -> extractor.extractData(leave).size());
+        report("ticket.priority, Method.invoke", () -> {
+            try {
+                return (Integer) getPriority.invoke(ticket);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        report("ticket.priority, FieldAccessor", () -> (Integer) priority.get(ticket));
+    }
+
+    private static void report(String step, Operation operation) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += operation.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            sink += operation.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-36s %12.1f%s%n", step, (double) elapsed / MEASURED_ROUNDS, sink == 42 ? " " : "");
+    }
+
+    /**
+     * The extraction EntityDataExtractor performed before it used accessor tables.
+     */
+    private static Map<String, Object> reflectiveExtract(Object entity) {
+        Map<String, Object> data = new HashMap<>();
+        for (PropertyDescriptor propertyDescriptor : BeanUtils.getPropertyDescriptors(entity.getClass())) {
+            Method readMethod = propertyDescriptor.getReadMethod();
+            if ("class".equals(propertyDescriptor.getName()) || readMethod == null) {
+                continue;
+            }
+            try {
+                data.put(propertyDescriptor.getName(), readMethod.invoke(entity));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return data;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        int run();
+    }
+}
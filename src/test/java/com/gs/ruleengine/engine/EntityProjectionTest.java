@@ -0,0 +1,121 @@
+package com.gs.ruleengine.engine;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.Ticket;
+import com.gs.ruleengine.model.TicketStatus;
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityProjectionTest {
+
+    private final EntitySchema schema = EntitySchema.forEntityType(EntityType.TICKET);
+
+    @Test
+    void testViewReadsOnlyReferencedFieldsOnce() {
+        Expression expression = new AndExpression(Arrays.asList(
+            new Condition("status", Operator.EQUALS, "OPEN"),
+            new Condition("priority", Operator.GREATER_THAN, 2),
+            new Condition("notAField", Operator.IS_NULL, null)
+        ));
+        EntityProjection projection = EntityProjection.of(schema, ExpressionFields.referencedBy(expression));
+        CountingTicket ticket = new CountingTicket();
+
+        Map<String, Object> view = projection.view(ticket);
+
+        assertEquals(Set.of("status", "priority"), projection.getFields());
+        assertEquals(0, ticket.priorityReads);
+        assertEquals(3, view.get("priority"));
+        assertEquals(3, view.get("priority"));
+        assertEquals(1, ticket.priorityReads);
+        assertNull(view.get("notAField"));
+        assertNull(view.get("description"));
+        assertFalse(view.containsKey("description"));
+        assertEquals(0, ticket.descriptionReads);
+        assertTrue(expression.evaluate(view));
+    }
+
+    @Test
+    void testFailingGetterReadsAsNull() {
+        EntityProjection projection = EntityProjection.of(schema, Arrays.asList("title", "status"));
+        Ticket ticket = new Ticket() {
+            @Override
+            public String getTitle() {
+                throw new IllegalStateException("not loaded");
+            }
+        };
+        ticket.setStatus(TicketStatus.CLOSED);
+
+        Map<String, Object> view = projection.view(ticket);
+
+        assertNull(view.get("title"));
+        assertEquals(TicketStatus.CLOSED, view.get("status"));
+        assertEquals(2, view.size());
+    }
+
+    @Test
+    void testRecordFromJsonBindsProjectedFieldsOnly() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        EntityProjection projection = EntityProjection.of(schema, Arrays.asList("status", "priority", "assignee"));
+        String json = "{\"id\":42,\"description\":{\"text\":\"long\",\"lines\":[1,2,3]},"
+                + "\"status\":\"OPEN\",\"priority\":3,\"assignee\":{\"name\":\"sam\"},\"title\":null}";
+
+        EntityRecord record;
+        try (JsonParser parser = objectMapper.createParser(json)) {
+            record = projection.record(parser);
+        }
+
+        assertEquals(42L, record.getEntityId());
+        assertEquals(Map.of("status", "OPEN", "priority", 3, "assignee", Map.of("name", "sam")), record.asMap());
+        // Values are typed as in the map the same JSON is parsed into
+        Map<?, ?> parsed = objectMapper.readValue(json, Map.class);
+        for (String field : projection.getFields()) {
+            assertEquals(parsed.get(field), record.asMap().get(field), field);
+        }
+        assertNull(record.get(schema.getSlot("description")));
+    }
+
+    @Test
+    void testRecordFromJsonRejectsNonObjects() throws IOException {
+        EntityProjection projection = EntityProjection.of(schema, Arrays.asList("status"));
+
+        try (JsonParser parser = new ObjectMapper().createParser("[1,2]")) {
+            assertThrows(IOException.class, () -> projection.record(parser));
+        }
+    }
+
+    private static final class CountingTicket extends Ticket {
+
+        private int priorityReads;
+        private int descriptionReads;
+
+        CountingTicket() {
+            setStatus(TicketStatus.OPEN);
+            setPriority(3);
+            setDescription("A very long description");
+        }
+
+        @Override
+        public Integer getPriority() {
+            priorityReads++;
+            return super.getPriority();
+        }
+
+        @Override
+        public String getDescription() {
+            descriptionReads++;
+            return super.getDescription();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.Ticket;
+import com.gs.ruleengine.model.TicketStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Metamodel;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EntityRowLoaderTest {
+
+    private static final String TICKET_QUERY = "select e.id, e.status from Ticket e where e.id in :ids";
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private Metamodel metamodel;
+
+    @Mock
+    private javax.persistence.metamodel.EntityType<Ticket> ticketModel;
+
+    @Mock
+    private Attribute<Ticket, TicketStatus> statusAttribute;
+
+    @Mock
+    private TypedQuery<Tuple> query;
+
+    @Mock
+    private Tuple tuple;
+
+    private EntityRowLoader rowLoader;
+
+    @BeforeEach
+    void setUp() {
+        rowLoader = new EntityRowLoader(entityManager);
+        when(entityManager.getMetamodel()).thenReturn(metamodel);
+        when(metamodel.entity(Ticket.class)).thenReturn(ticketModel);
+    }
+
+    @Test
+    void testFindRecordsSelectsProjectedColumns() {
+        EntityProjection projection = EntityProjection.of(EntitySchema.forEntityType(EntityType.TICKET), List.of("status"));
+        when(ticketModel.getName()).thenReturn("Ticket");
+        doReturn(statusAttribute).when(ticketModel).getAttribute("status");
+        when(statusAttribute.getPersistentAttributeType()).thenReturn(Attribute.PersistentAttributeType.BASIC);
+        when(entityManager.createQuery(TICKET_QUERY, Tuple.class)).thenReturn(query);
+        when(query.setParameter("ids", List.of(7L))).thenReturn(query);
+        when(query.setFlushMode(FlushModeType.COMMIT)).thenReturn(query);
+        when(query.setHint("org.hibernate.readOnly", true)).thenReturn(query);
+        when(query.getResultList()).thenReturn(List.of(tuple));
+        when(tuple.get(0)).thenReturn(7L);
+        when(tuple.get(1)).thenReturn(TicketStatus.OPEN);
+
+        Map<Long, EntityRecord> records = rowLoader.findRecords(EntityType.TICKET, projection, List.of(7L));
+        rowLoader.findRecords(EntityType.TICKET, projection, List.of(7L));
+
+        assertEquals(1, records.size());
+        assertEquals(TicketStatus.OPEN, records.get(7L).get(EntitySchema.forEntityType(EntityType.TICKET).getSlot("status")));
+        assertEquals(Map.of("status", TicketStatus.OPEN), records.get(7L).asMap());
+        // The query is generated once per projection
+        verify(metamodel, times(1)).entity(Ticket.class);
+    }
+
+    @Test
+    void testFindRecordsReturnsNullForFieldsThatAreNotColumns() {
+        EntityProjection projection = EntityProjection.of(EntitySchema.forEntityType(EntityType.TICKET), List.of("status"));
+        doThrow(new IllegalArgumentException("no attribute")).when(ticketModel).getAttribute("status");
+
+        assertNull(rowLoader.findRecords(EntityType.TICKET, projection, List.of(7L)));
+        verify(entityManager, never()).createQuery(anyString(), any());
+    }
+}
@@ -0,0 +1,137 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.model.TicketStatus;
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.OrExpression;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionCodecTest {
+
+    private static final String JSON = "{\"type\":\"CONDITION\",\"field\":\"status\",\"operator\":\"EQUALS\",\"value\":\"OPEN\"}";
+
+    @Test
+    void testRoundTripKeepsStructureAndConstantTypes() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        object.put("a", 1);
+        object.put("b", null);
+        Expression expression = new OrExpression(Arrays.asList(
+            new AndExpression(Arrays.asList(
+                new Condition("status", Operator.EQUALS, "OPEN"),
+                new Condition("priority", Operator.GREATER_THAN, 5),
+                new Condition("id", Operator.LESS_THAN, 5000000000L),
+                new Condition("score", Operator.EQUALS, 2.5),
+                new Condition("flag", Operator.EQUALS, true))),
+            new Condition("priority", Operator.IN, Arrays.asList(1, 2L, "3", null)),
+            new Condition("status", Operator.NOT_EQUALS, TicketStatus.CLOSED),
+            new Condition("date", Operator.BETWEEN, Arrays.asList(LocalDate.of(2024, 3, 1), LocalDateTime.of(2024, 3, 2, 12, 30))),
+            new Condition("amount", Operator.EQUALS, new BigDecimal("1.50")),
+            new Condition("count", Operator.EQUALS, new BigInteger("123456789012345678901234567890")),
+            new Condition("title", Operator.MATCHES, "café \\d+"),
+            new Condition("other", Operator.EQUALS, object),
+            new Condition("assignee", Operator.IS_NULL, null),
+            new Condition(null, null, "x"),
+            new AndExpression(Collections.emptyList()),
+            new OrExpression(null)
+        ));
+
+        Expression decoded = ExpressionCodec.decode(ExpressionCodec.encode(expression, JSON), JSON);
+
+        assertSameExpression(expression, decoded);
+        assertNull(((OrExpression) ((OrExpression) decoded).getExpressions().get(11)).getExpressions());
+    }
+
+    @Test
+    void testDecodedExpressionEvaluatesLikeOriginal() {
+        // The constants Jackson produces for [1, "2", 3000000000] and "fire"
+        Expression expression = new AndExpression(Arrays.asList(
+            new Condition("priority", Operator.IN, Arrays.asList(1, "2", 3000000000L)),
+            new Condition("title", Operator.CONTAINS, "fire")
+        ));
+        Expression decoded = ExpressionCodec.decode(ExpressionCodec.encode(expression, JSON), JSON);
+
+        for (Object priority : Arrays.asList(1, 2, 3, 1L, 3000000000L, "2")) {
+            Map<String, Object> entityData = Map.of("priority", priority, "title", "Printer on fire");
+            assertEquals(expression.evaluate(entityData), decoded.evaluate(entityData), "priority " + priority);
+        }
+    }
+
+    @Test
+    void testRejectsStaleCorruptAndUnknownData() {
+        byte[] data = ExpressionCodec.encode(new Condition("status", Operator.EQUALS, "OPEN"), JSON);
+
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.decode(data, JSON.replace("OPEN", "CLOSED")));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.decode(data, null));
+
+        byte[] corrupt = data.clone();
+        corrupt[corrupt.length - 1] ^= 1;
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.decode(corrupt, JSON));
+
+        byte[] newerVersion = data.clone();
+        newerVersion[4] = 99;
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.decode(newerVersion, JSON));
+
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.decode(Arrays.copyOf(data, 8), JSON));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.decode(JSON.getBytes(), JSON));
+    }
+
+    @Test
+    void testUnsupportedConstantIsRejected() {
+        Condition condition = new Condition("title", Operator.EQUALS, new StringBuilder("x"));
+
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCodec.encode(condition, JSON));
+    }
+
+    private static void assertSameExpression(Expression expected, Expression actual) {
+        assertEquals(expected.getClass(), actual.getClass());
+        if (expected instanceof Condition) {
+            Condition condition = (Condition) expected;
+            Condition decoded = (Condition) actual;
+            assertEquals(condition.getField(), decoded.getField());
+            assertEquals(condition.getOperator(), decoded.getOperator());
+            assertSameValue(condition.getValue(), decoded.getValue());
+            return;
+        }
+        List<Expression> children = expected instanceof AndExpression
+                ? ((AndExpression) expected).getExpressions()
+                : ((OrExpression) expected).getExpressions();
+        List<Expression> decodedChildren = actual instanceof AndExpression
+                ? ((AndExpression) actual).getExpressions()
+                : ((OrExpression) actual).getExpressions();
+        if (children == null) {
+            assertNull(decodedChildren);
+            return;
+        }
+        assertEquals(children.size(), decodedChildren.size());
+        for (int i = 0; i < children.size(); i++) {
+            assertSameExpression(children.get(i), decodedChildren.get(i));
+        }
+    }
+
+    private static void assertSameValue(Object expected, Object actual) {
+        assertEquals(expected, actual);
+        if (expected instanceof Iterable) {
+            Iterator<?> decoded = ((Iterable<?>) actual).iterator();
+            for (Object element : (Iterable<?>) expected) {
+                assertSameValue(element, decoded.next());
+            }
+        } else if (expected != null) {
+            assertEquals(expected.getClass(), actual.getClass());
+        }
+    }
+}
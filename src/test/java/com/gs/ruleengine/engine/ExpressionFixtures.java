@@ -0,0 +1,31 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.OrExpression;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Factory methods for building expression trees in tests, to be imported statically.
+ */
+public final class ExpressionFixtures {
+    
+    private ExpressionFixtures() {
+    }
+    
+    public static Condition condition(String field, Operator operator, Object value) {
+        return new Condition(field, operator, value);
+    }
+    
+    public static AndExpression and(Expression... expressions) {
+        return new AndExpression(expressions.length == 0 ? Collections.emptyList() : Arrays.asList(expressions));
+    }
+    
+    public static OrExpression or(Expression... expressions) {
+        return new OrExpression(expressions.length == 0 ? Collections.emptyList() : Arrays.asList(expressions));
+    }
+}
@@ -0,0 +1,124 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.config.RuleEngineProperties;
+import com.gs.ruleengine.engine.compiler.ExpressionCompiler;
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.RuleEngineOutput;
+import com.gs.ruleengine.model.Ticket;
+import com.gs.ruleengine.model.TicketStatus;
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.OrExpression;
+import com.gs.ruleengine.service.LeaveService;
+import com.gs.ruleengine.service.RosterService;
+import com.gs.ruleengine.service.RuleService;
+import com.gs.ruleengine.service.TicketService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compares sequential and parallel evaluation of one ticket against rule sets of
+ * increasing size, to find the rule count from which {@code rule-engine.parallel-threshold}
+ * pays off on a given machine. Not a test; run the main method with an optional
+ * parallelism argument.
+ */
+public final class ParallelEvaluationBenchmark {
+
+    private static final int[] RULE_COUNTS = {50, 100, 250, 500, 1000, 2000, 3000, 5000};
+    private static final int WARMUP_ROUNDS = 2000;
+    private static final int MEASURED_ROUNDS = 2000;
+
+    /** Receives the match counts, so that the JIT cannot discard the evaluations. */
+    private static volatile long sink;
+
+    private ParallelEvaluationBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        RuleEngineProperties sequentialProperties = new RuleEngineProperties();
+        RuleEngineProperties parallelProperties = new RuleEngineProperties();
+        parallelProperties.setParallelThreshold(1);
+        parallelProperties.setParallelism(args.length > 0 ? Integer.parseInt(args[0]) : 0);
+
+        DefaultRuleEngine sequential = engine(sequentialProperties);
+        DefaultRuleEngine parallel = engine(parallelProperties);
+        Ticket ticket = new Ticket();
+        ticket.setId(1L);
+        ticket.setTitle("Printer on fire");
+        ticket.setStatus(TicketStatus.OPEN);
+        ticket.setPriority(3);
+        ticket.setAssignee("raj");
+
+        System.out.printf("%8s %16s %16s %8s%n", "rules", "sequential (us)", "parallel (us)", "speedup");
+        try {
+            for (int ruleCount : RULE_COUNTS) {
+                RuleSet ruleSet = ruleSet(ruleCount, sequentialProperties);
+                double sequentialMicros = measure(sequential, ruleSet, ticket);
+                double parallelMicros = measure(parallel, ruleSet, ticket);
+                System.out.printf("%8d %16.1f %16.1f %8.2f%n",
+                        ruleCount, sequentialMicros, parallelMicros, sequentialMicros / parallelMicros);
+            }
+        } finally {
+            parallel.destroy();
+        }
+    }
+
+    private static double measure(DefaultRuleEngine engine, RuleSet ruleSet, Ticket ticket) {
+        long matches = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            matches += evaluate(engine, ruleSet, ticket);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            matches += evaluate(engine, ruleSet, ticket);
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += matches;
+        return elapsed / 1000.0 / MEASURED_ROUNDS;
+    }
+
+    /**
+     * Wires the engine as RuleEngineTest does, with mocked services behind a real registry.
+     */
+    private static DefaultRuleEngine engine(RuleEngineProperties properties) {
+        RuleRegistry ruleRegistry = new RuleRegistry(mock(RuleService.class), mock(ExpressionDeserializer.class),
+                new ExpressionCompiler(properties), properties);
+        return new DefaultRuleEngine(ruleRegistry, mock(TicketService.class), mock(RosterService.class),
+                mock(LeaveService.class), mock(EntityRowLoader.class), properties);
+    }
+
+    private static int evaluate(DefaultRuleEngine engine, RuleSet ruleSet, Ticket ticket) {
+        int matches = 0;
+        for (RuleEngineOutput output : engine.evaluateRuleSet(ruleSet, ticket.getId(), ticket)) {
+            matches += output.isResult() ? 1 : 0;
+        }
+        return matches;
+    }
+
+    /**
+     * Builds rules that the rule index cannot rule out, so that every rule is evaluated.
+     */
+    private static RuleSet ruleSet(int ruleCount, RuleEngineProperties properties) {
+        ExpressionCompiler compiler = new ExpressionCompiler(properties);
+        EntitySchema schema = EntitySchema.forEntityType(EntityType.TICKET);
+        List<CompiledRule> rules = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            Expression expression = new OrExpression(Arrays.asList(
+                new AndExpression(Arrays.asList(
+                    new Condition("status", Operator.NOT_EQUALS, "CLOSED"),
+                    new Condition("priority", Operator.LESS_THAN, i % 7))),
+                new Condition("title", Operator.MATCHES, "fire.*" + i + "$"),
+                new Condition("assignee", Operator.NOT_IN, Arrays.asList("raj" + i, "sam"))
+            ));
+            rules.add(new CompiledRule((long) i, "Rule " + i, EntityType.TICKET, expression,
+                    compiler.compile(expression, schema), compiler.compileForEntity(expression, schema)));
+        }
+        return new RuleSet(EntityType.TICKET, rules, System.nanoTime());
+    }
+}
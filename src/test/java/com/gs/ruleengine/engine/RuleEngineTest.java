@@ -1,10 +1,15 @@
 package com.gs.ruleengine.engine;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.ruleengine.config.RuleEngineProperties;
+import com.gs.ruleengine.engine.compiler.ExpressionCompiler;
 import com.gs.ruleengine.model.EntityType;
 import com.gs.ruleengine.model.Rule;
 import com.gs.ruleengine.model.RuleEngineOutput;
 import com.gs.ruleengine.model.Ticket;
 import com.gs.ruleengine.model.TicketStatus;
+import com.gs.ruleengine.model.TraceStep;
 import com.gs.ruleengine.model.expression.AndExpression;
 import com.gs.ruleengine.model.expression.Condition;
 import com.gs.ruleengine.model.expression.Expression;
@@ -17,18 +22,24 @@ import com.gs.ruleengine.service.TicketService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -47,12 +58,11 @@ class RuleEngineTest {
     private LeaveService leaveService;
     
     @Mock
-    private EntityDataExtractor entityDataExtractor;
+    private EntityRowLoader rowLoader;
     
     @Mock
     private ExpressionDeserializer expressionDeserializer;
     
-    @InjectMocks
     private DefaultRuleEngine ruleEngine;
     
     private Rule testRule;
@@ -62,6 +72,11 @@ class RuleEngineTest {
     
     @BeforeEach
     void setUp() {
+        RuleRegistry ruleRegistry = new RuleRegistry(ruleService, expressionDeserializer,
+                new ExpressionCompiler(new RuleEngineProperties()), new RuleEngineProperties());
+        ruleEngine = new DefaultRuleEngine(ruleRegistry, ticketService, rosterService, leaveService, rowLoader,
+                new RuleEngineProperties());
+        
         // Setup test rule
         testRule = new Rule();
         testRule.setId(1L);
@@ -92,14 +107,6 @@ class RuleEngineTest {
         when(ticketService.findById(1L)).thenReturn(Optional.of(testTicket));
         when(expressionDeserializer.deserialize(testExpressionJson)).thenReturn(testExpression);
         
-        Map<String, Object> ticketData = Map.of(
-            "id", 1L,
-            "title", "Test Ticket",
-            "status", TicketStatus.OPEN,
-            "priority", 1
-        );
-        when(entityDataExtractor.extractData(testTicket)).thenReturn(ticketData);
-        
         // Execute
         RuleEngineOutput output = ruleEngine.evaluateRule(1L, 1L);
         
@@ -112,6 +119,48 @@ class RuleEngineTest {
         assertTrue(output.isResult());
     }
     
+    @Test
+    void testEvaluateRule_Explain() {
+        // Setup mocks
+        when(ruleService.findById(1L)).thenReturn(Optional.of(testRule));
+        when(ticketService.findById(1L)).thenReturn(Optional.of(testTicket));
+        when(expressionDeserializer.deserialize(testExpressionJson)).thenReturn(testExpression);
+        testTicket.setPriority(2);
+        
+        // Execute
+        RuleEngineOutput output = ruleEngine.evaluateRule(1L, 1L, true);
+        
+        // Verify
+        assertNotNull(output);
+        assertFalse(output.isResult());
+        
+        List<TraceStep> trace = output.getTrace();
+        assertNotNull(trace);
+        assertEquals(3, trace.size());
+        assertEquals("AND", trace.get(0).getType());
+        assertFalse(trace.get(0).isResult());
+        assertEquals("status", trace.get(1).getField());
+        assertTrue(trace.get(1).isResult());
+        assertEquals("priority", trace.get(2).getField());
+        assertEquals(2, trace.get(2).getActualValue());
+        assertFalse(trace.get(2).isResult());
+    }
+    
+    @Test
+    void testEvaluateRule_NoTraceByDefault() {
+        // Setup mocks
+        when(ruleService.findById(1L)).thenReturn(Optional.of(testRule));
+        when(ticketService.findById(1L)).thenReturn(Optional.of(testTicket));
+        when(expressionDeserializer.deserialize(testExpressionJson)).thenReturn(testExpression);
+        
+        // Execute
+        RuleEngineOutput output = ruleEngine.evaluateRule(1L, 1L);
+        
+        // Verify
+        assertTrue(output.isResult());
+        assertNull(output.getTrace());
+    }
+    
     @Test
     void testEvaluateRule_RuleNotFound() {
         // Setup mocks
@@ -144,14 +193,6 @@ class RuleEngineTest {
         when(ticketService.findById(1L)).thenReturn(Optional.of(testTicket));
         when(expressionDeserializer.deserialize(any())).thenReturn(null);
         
-        Map<String, Object> ticketData = Map.of(
-            "id", 1L,
-            "title", "Test Ticket",
-            "status", TicketStatus.OPEN,
-            "priority", 1
-        );
-        when(entityDataExtractor.extractData(testTicket)).thenReturn(ticketData);
-        
         // Execute
         RuleEngineOutput output = ruleEngine.evaluateRule(1L, 1L);
         
@@ -179,7 +220,8 @@ class RuleEngineTest {
         List<Rule> rules = Arrays.asList(rule1, rule2);
         
         when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(rules);
-        when(ticketService.findById(1L)).thenReturn(Optional.of(testTicket));
+        when(rowLoader.findRecords(eq(EntityType.TICKET), any(), eq(List.of(1L))))
+                .thenReturn(Map.of(1L, ticketRecord(TicketStatus.OPEN, 1)));
         
         Condition condition1 = new Condition("status", Operator.EQUALS, TicketStatus.OPEN);
         when(expressionDeserializer.deserialize(rule1.getExpressionJson())).thenReturn(condition1);
@@ -187,14 +229,6 @@ class RuleEngineTest {
         Condition condition2 = new Condition("priority", Operator.EQUALS, 1);
         when(expressionDeserializer.deserialize(rule2.getExpressionJson())).thenReturn(condition2);
         
-        Map<String, Object> ticketData = Map.of(
-            "id", 1L,
-            "title", "Test Ticket",
-            "status", TicketStatus.OPEN,
-            "priority", 1
-        );
-        when(entityDataExtractor.extractData(testTicket)).thenReturn(ticketData);
-        
         // Execute
         List<RuleEngineOutput> outputs = ruleEngine.evaluateRules(EntityType.TICKET, 1L);
         
@@ -215,6 +249,47 @@ class RuleEngineTest {
         assertEquals(EntityType.TICKET, output2.getEntityType());
         assertEquals(1L, output2.getEntityId());
         assertTrue(output2.isResult());
+        
+        verify(ticketService, never()).findById(anyLong());
+    }
+    
+    @Test
+    void testEvaluateRules_ParallelKeepsRuleOrder() {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.setParallelThreshold(2);
+        properties.setParallelism(4);
+        DefaultRuleEngine parallelEngine = new DefaultRuleEngine(null, ticketService, rosterService, leaveService, rowLoader,
+                properties);
+        
+        ExpressionCompiler compiler = new ExpressionCompiler(properties);
+        EntitySchema schema = EntitySchema.forEntityType(EntityType.TICKET);
+        List<CompiledRule> rules = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Expression expression = i % 5 == 0
+                    ? new Condition("createdAt", Operator.WITHIN_DAYS, 0)
+                    : new Condition("priority", Operator.EQUALS, i % 3);
+            rules.add(new CompiledRule((long) i, "Rule " + i, EntityType.TICKET, expression,
+                    compiler.compile(expression, schema), compiler.compileForEntity(expression, schema)));
+        }
+        RuleSet ruleSet = new RuleSet(EntityType.TICKET, rules, System.nanoTime());
+        Map<String, Object> ticketData = Map.of("id", 1L, "priority", 1, "createdAt", testTicket.getCreatedAt());
+        
+        try {
+            List<RuleEngineOutput> sequential = ruleEngine.evaluateRuleSet(ruleSet, 1L, testTicket);
+            List<RuleEngineOutput> onEntity = parallelEngine.evaluateRuleSet(ruleSet, 1L, testTicket);
+            List<RuleEngineOutput> onData = parallelEngine.evaluateRuleSet(ruleSet, 1L, ticketData, false);
+            
+            assertEquals(500, sequential.size());
+            for (int i = 0; i < 500; i++) {
+                assertEquals((long) i, onEntity.get(i).getRuleId());
+                assertEquals((long) i, onData.get(i).getRuleId());
+                assertEquals(i % 5 == 0 || i % 3 == 1, sequential.get(i).isResult(), "rule " + i);
+                assertEquals(sequential.get(i).isResult(), onEntity.get(i).isResult(), "rule " + i);
+                assertEquals(sequential.get(i).isResult(), onData.get(i).isResult(), "rule " + i);
+            }
+        } finally {
+            parallelEngine.destroy();
+        }
     }
     
     @Test
@@ -241,16 +316,82 @@ class RuleEngineTest {
         rule.setActive(true);
         
         when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(rule));
-        when(ticketService.findById(anyLong())).thenReturn(Optional.empty());
+        when(rowLoader.findRecords(eq(EntityType.TICKET), any(), eq(List.of(1L)))).thenReturn(Map.of());
         
         // Execute
         List<RuleEngineOutput> outputs = ruleEngine.evaluateRules(EntityType.TICKET, 1L);
-        
+
         // Verify
         assertNotNull(outputs);
         assertTrue(outputs.isEmpty());
     }
-    
+
+    @Test
+    void testEvaluateRulesBatch_LoadsEntitiesInChunks() {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.setBatchChunkSize(2);
+        RuleRegistry ruleRegistry = new RuleRegistry(ruleService, expressionDeserializer,
+                new ExpressionCompiler(properties), properties);
+        properties.setProjectionQueries(false);
+        DefaultRuleEngine batchEngine = new DefaultRuleEngine(ruleRegistry, ticketService, rosterService, leaveService, rowLoader,
+                properties);
+
+        Ticket ticket2 = new Ticket();
+        ticket2.setId(2L);
+        ticket2.setStatus(TicketStatus.CLOSED);
+        ticket2.setPriority(1);
+
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(testRule));
+        when(expressionDeserializer.deserialize(testExpressionJson)).thenReturn(testExpression);
+        when(ticketService.findAllById(List.of(1L, 2L))).thenReturn(List.of(ticket2, testTicket));
+        when(ticketService.findAllById(List.of(3L))).thenReturn(List.of());
+
+        // Execute; ticket 3 does not exist and duplicate IDs are evaluated once
+        List<RuleEngineOutput> outputs = batchEngine.evaluateRulesBatch(EntityType.TICKET, Arrays.asList(1L, 2L, 1L, 3L));
+
+        // Verify
+        assertEquals(2, outputs.size());
+        assertEquals(1L, outputs.get(0).getEntityId());
+        assertTrue(outputs.get(0).isResult());
+        assertEquals(2L, outputs.get(1).getEntityId());
+        assertFalse(outputs.get(1).isResult());
+
+        verify(ruleService).findActiveRulesByEntityType(EntityType.TICKET);
+        verify(ticketService, never()).findById(anyLong());
+        verify(rowLoader, never()).findRecords(any(), any(), any());
+    }
+
+    @Test
+    void testEvaluateRulesBatch_LoadsReferencedColumnsInChunks() {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.setBatchChunkSize(2);
+        RuleRegistry ruleRegistry = new RuleRegistry(ruleService, expressionDeserializer,
+                new ExpressionCompiler(properties), properties);
+        DefaultRuleEngine batchEngine = new DefaultRuleEngine(ruleRegistry, ticketService, rosterService, leaveService, rowLoader,
+                properties);
+
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(testRule));
+        when(expressionDeserializer.deserialize(testExpressionJson)).thenReturn(testExpression);
+        when(rowLoader.findRecords(eq(EntityType.TICKET), any(), eq(List.of(1L, 2L)))).thenReturn(Map.of(
+                1L, ticketRecord(TicketStatus.OPEN, 1),
+                2L, ticketRecord(TicketStatus.CLOSED, 1)));
+        when(rowLoader.findRecords(eq(EntityType.TICKET), any(), eq(List.of(3L)))).thenReturn(null);
+        when(ticketService.findAllById(List.of(3L))).thenReturn(List.of());
+
+        // Execute; ticket 3 falls back to loading entities and does not exist
+        List<RuleEngineOutput> outputs = batchEngine.evaluateRulesBatch(EntityType.TICKET, Arrays.asList(1L, 2L, 3L));
+
+        // Verify
+        assertEquals(2, outputs.size());
+        assertTrue(outputs.get(0).isResult());
+        assertFalse(outputs.get(1).isResult());
+
+        ArgumentCaptor<EntityProjection> projection = ArgumentCaptor.forClass(EntityProjection.class);
+        verify(rowLoader).findRecords(eq(EntityType.TICKET), projection.capture(), eq(List.of(1L, 2L)));
+        assertEquals(Set.of("status", "priority"), projection.getValue().getFields());
+        verify(ticketService, never()).findAllById(List.of(1L, 2L));
+    }
+
     @Test
     void testEvaluateRuleWithData_Success() {
         // Setup mocks
@@ -294,4 +435,45 @@ class RuleEngineTest {
         // Verify
         assertNull(output);
     }
+    
+    @Test
+    void testEvaluateRulesWithJson_BindsReferencedFields() throws IOException {
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(testRule));
+        when(expressionDeserializer.deserialize(testExpressionJson)).thenReturn(new AndExpression(Arrays.asList(
+            new Condition("status", Operator.EQUALS, "OPEN"),
+            new Condition("priority", Operator.EQUALS, 1)
+        )));
+        String json = "{\"id\":7,\"title\":\"Test Ticket\",\"description\":{\"body\":[\"skipped\"]},"
+                + "\"status\":\"OPEN\",\"priority\":1}";
+        
+        List<RuleEngineOutput> outputs;
+        try (JsonParser parser = new ObjectMapper().createParser(json)) {
+            outputs = ruleEngine.evaluateRulesWithJson(EntityType.TICKET, parser);
+        }
+        
+        assertEquals(1, outputs.size());
+        assertEquals(7L, outputs.get(0).getEntityId());
+        assertTrue(outputs.get(0).isResult());
+    }
+    
+    @Test
+    void testEvaluateRulesWithJson_ReadsFieldsOutsideSchema() throws IOException {
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(testRule));
+        when(expressionDeserializer.deserialize(testExpressionJson)).thenReturn(
+            new Condition("escalationLevel", Operator.GREATER_THAN, 1));
+        
+        List<RuleEngineOutput> outputs;
+        try (JsonParser parser = new ObjectMapper().createParser("{\"id\":7,\"escalationLevel\":2}")) {
+            outputs = ruleEngine.evaluateRulesWithJson(EntityType.TICKET, parser);
+        }
+        
+        assertEquals(1, outputs.size());
+        assertEquals(7L, outputs.get(0).getEntityId());
+        assertTrue(outputs.get(0).isResult());
+    }
+    
+    private static EntityRecord ticketRecord(TicketStatus status, int priority) {
+        return EntityProjection.of(EntitySchema.forEntityType(EntityType.TICKET), List.of("status", "priority"))
+                .record(Map.of("status", status, "priority", priority));
+    }
 }
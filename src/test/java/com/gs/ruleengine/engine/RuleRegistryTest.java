@@ -0,0 +1,213 @@
+package com.gs.ruleengine.engine;
+
+import com.gs.ruleengine.config.RuleEngineProperties;
+import com.gs.ruleengine.engine.compiler.ExpressionCompiler;
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.Rule;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.service.RuleChangedEvent;
+import com.gs.ruleengine.service.RuleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RuleRegistryTest {
+
+    private static final String OPEN_JSON = "{\"type\":\"CONDITION\",\"field\":\"status\",\"operator\":\"EQUALS\",\"value\":\"OPEN\"}";
+
+    @Mock
+    private RuleService ruleService;
+    
+    @Mock
+    private ExpressionDeserializer expressionDeserializer;
+    
+    private RuleEngineProperties properties;
+    private RuleRegistry ruleRegistry;
+    private Rule rule;
+    
+    @BeforeEach
+    void setUp() {
+        properties = new RuleEngineProperties();
+        ruleRegistry = new RuleRegistry(ruleService, expressionDeserializer, new ExpressionCompiler(properties), properties);
+        
+        rule = new Rule();
+        rule.setId(1L);
+        rule.setName("Open Tickets");
+        rule.setEntityType(EntityType.TICKET);
+        rule.setExpressionJson(OPEN_JSON);
+        rule.setActive(true);
+    }
+    
+    @Test
+    void testActiveRulesAreLoadedAndParsedOnce() {
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(rule));
+        when(expressionDeserializer.deserialize(OPEN_JSON)).thenReturn(new Condition("status", Operator.EQUALS, "OPEN"));
+        
+        List<CompiledRule> first = ruleRegistry.getActiveRules(EntityType.TICKET);
+        List<CompiledRule> second = ruleRegistry.getActiveRules(EntityType.TICKET);
+        
+        assertEquals(1, first.size());
+        assertSame(first, second);
+        assertEquals("Open Tickets", first.get(0).getName());
+        assertNotNull(first.get(0).getExpression());
+        verify(ruleService, times(1)).findActiveRulesByEntityType(EntityType.TICKET);
+        verify(expressionDeserializer, times(1)).deserialize(OPEN_JSON);
+    }
+    
+    @Test
+    void testCompiledExpressionIsLoadedWithoutParsingJson() {
+        rule.setCompiledExpression(ExpressionCodec.encode(new Condition("status", Operator.EQUALS, "OPEN"), OPEN_JSON));
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(rule));
+        
+        CompiledRule compiled = ruleRegistry.getActiveRules(EntityType.TICKET).get(0);
+        
+        assertEquals("status", ((Condition) compiled.getExpression()).getField());
+        assertNotNull(compiled.getPredicate());
+        verify(expressionDeserializer, never()).deserialize(OPEN_JSON);
+    }
+    
+    @Test
+    void testStaleCompiledExpressionFallsBackToJson() {
+        rule.setCompiledExpression(ExpressionCodec.encode(new Condition("status", Operator.EQUALS, "CLOSED"), "{}"));
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(rule));
+        when(expressionDeserializer.deserialize(OPEN_JSON)).thenReturn(new Condition("status", Operator.EQUALS, "OPEN"));
+        
+        CompiledRule compiled = ruleRegistry.getActiveRules(EntityType.TICKET).get(0);
+        
+        assertEquals("OPEN", ((Condition) compiled.getExpression()).getValue());
+    }
+    
+    @Test
+    void testFindRuleIsServedFromSnapshot() {
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(rule));
+        
+        ruleRegistry.getActiveRules(EntityType.TICKET);
+        Optional<CompiledRule> found = ruleRegistry.findRule(1L);
+        
+        assertTrue(found.isPresent());
+        assertEquals(1L, found.get().getId());
+        verify(ruleService, never()).findById(anyLong());
+    }
+    
+    @Test
+    void testRuleChangeUpdatesSnapshot() {
+        Rule otherRule = new Rule();
+        otherRule.setId(2L);
+        otherRule.setName("Other");
+        otherRule.setEntityType(EntityType.TICKET);
+        otherRule.setExpressionJson(OPEN_JSON);
+        
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(rule));
+        when(ruleService.findById(2L)).thenReturn(Optional.of(otherRule));
+        
+        List<CompiledRule> before = ruleRegistry.getActiveRules(EntityType.TICKET);
+        assertEquals(1, before.size());
+        
+        ruleRegistry.onRuleChanged(new RuleChangedEvent(2L, EntityType.TICKET));
+        
+        List<CompiledRule> after = ruleRegistry.getActiveRules(EntityType.TICKET);
+        assertEquals(2, after.size());
+        assertSame(before.get(0), after.get(0));
+        assertEquals(2L, after.get(1).getId());
+        verify(ruleService, times(1)).findActiveRulesByEntityType(EntityType.TICKET);
+    }
+    
+    @Test
+    void testDeletedRuleIsRemovedFromSnapshot() {
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(rule));
+        
+        assertEquals(1, ruleRegistry.getActiveRules(EntityType.TICKET).size());
+        
+        ruleRegistry.onRuleChanged(new RuleChangedEvent(1L, null));
+        
+        assertTrue(ruleRegistry.getActiveRules(EntityType.TICKET).isEmpty());
+        assertEquals(0, ruleRegistry.getRuleSet(EntityType.TICKET).getRuleIndex().getIndexedRuleCount());
+    }
+    
+    @Test
+    void testRuleMovedToOtherEntityType() {
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(rule));
+        when(ruleService.findActiveRulesByEntityType(EntityType.ROSTER)).thenReturn(List.of());
+        ruleRegistry.getActiveRules(EntityType.TICKET);
+        ruleRegistry.getActiveRules(EntityType.ROSTER);
+        
+        rule.setEntityType(EntityType.ROSTER);
+        when(ruleService.findById(1L)).thenReturn(Optional.of(rule));
+        ruleRegistry.onRuleChanged(new RuleChangedEvent(1L, EntityType.ROSTER));
+        
+        assertTrue(ruleRegistry.getActiveRules(EntityType.TICKET).isEmpty());
+        assertEquals(1, ruleRegistry.getActiveRules(EntityType.ROSTER).size());
+        verify(ruleService, times(1)).findActiveRulesByEntityType(EntityType.ROSTER);
+    }
+    
+    @Test
+    void testDeactivatedRuleIsRemovedFromSnapshot() {
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(rule));
+        ruleRegistry.getActiveRules(EntityType.TICKET);
+        
+        rule.setActive(false);
+        when(ruleService.findById(1L)).thenReturn(Optional.of(rule));
+        ruleRegistry.onRuleChanged(new RuleChangedEvent(1L, EntityType.TICKET));
+        
+        assertTrue(ruleRegistry.getActiveRules(EntityType.TICKET).isEmpty());
+    }
+    
+    @Test
+    void testReactivatedRuleTakesItsPlaceInIdOrder() {
+        Rule secondRule = ticketRule(2L);
+        Rule thirdRule = ticketRule(3L);
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(rule, thirdRule));
+        when(ruleService.findById(2L)).thenReturn(Optional.of(secondRule));
+        ruleRegistry.getActiveRules(EntityType.TICKET);
+        
+        ruleRegistry.onRuleChanged(new RuleChangedEvent(2L, EntityType.TICKET));
+        List<CompiledRule> updated = ruleRegistry.getActiveRules(EntityType.TICKET);
+        
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(rule, secondRule, thirdRule));
+        RuleRegistry reloaded = new RuleRegistry(ruleService, expressionDeserializer, new ExpressionCompiler(properties), properties);
+        List<CompiledRule> rebuilt = reloaded.getActiveRules(EntityType.TICKET);
+        
+        assertEquals(List.of(1L, 2L, 3L), ruleIds(updated));
+        assertEquals(ruleIds(rebuilt), ruleIds(updated));
+    }
+    
+    @Test
+    void testCachingDisabledLoadsEveryTime() {
+        properties.setEnableCaching(false);
+        when(ruleService.findActiveRulesByEntityType(EntityType.TICKET)).thenReturn(List.of(rule));
+        
+        ruleRegistry.getActiveRules(EntityType.TICKET);
+        ruleRegistry.getActiveRules(EntityType.TICKET);
+        
+        verify(ruleService, times(2)).findActiveRulesByEntityType(EntityType.TICKET);
+    }
+    
+    private static Rule ticketRule(Long id) {
+        Rule ticketRule = new Rule();
+        ticketRule.setId(id);
+        ticketRule.setName("Rule " + id);
+        ticketRule.setEntityType(EntityType.TICKET);
+        ticketRule.setExpressionJson(OPEN_JSON);
+        ticketRule.setActive(true);
+        return ticketRule;
+    }
+    
+    private static List<Long> ruleIds(List<CompiledRule> rules) {
+        return rules.stream().map(CompiledRule::getId).collect(Collectors.toList());
+    }
+}
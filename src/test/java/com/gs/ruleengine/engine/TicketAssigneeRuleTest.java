@@ -1,5 +1,7 @@
 package com.gs.ruleengine.engine;
 
+import com.gs.ruleengine.config.RuleEngineProperties;
+import com.gs.ruleengine.engine.compiler.ExpressionCompiler;
 import com.gs.ruleengine.model.ActionConfiguration;
 import com.gs.ruleengine.model.ActionOutput;
 import com.gs.ruleengine.model.ActionType;
@@ -58,7 +60,7 @@ public class TicketAssigneeRuleTest {
     private LeaveService leaveService;
     
     @Mock
-    private EntityDataExtractor entityDataExtractor;
+    private EntityRowLoader rowLoader;
     
     @Mock
     private ExpressionDeserializer expressionDeserializer;
@@ -66,7 +68,6 @@ public class TicketAssigneeRuleTest {
     @Mock
     private ObjectMapper objectMapper;
     
-    @InjectMocks
     private DefaultRuleEngine ruleEngine;
     
     @InjectMocks
@@ -81,6 +82,11 @@ public class TicketAssigneeRuleTest {
     
     @BeforeEach
     void setUp() {
+        RuleRegistry ruleRegistry = new RuleRegistry(ruleService, expressionDeserializer,
+                new ExpressionCompiler(new RuleEngineProperties()), new RuleEngineProperties());
+        ruleEngine = new DefaultRuleEngine(ruleRegistry, ticketService, rosterService, leaveService, rowLoader,
+                new RuleEngineProperties());
+        
         // Setup test rule for checking ticket status OPEN and assignee "raj"
         testRule = new Rule();
         testRule.setId(1L);
@@ -125,7 +131,6 @@ public class TicketAssigneeRuleTest {
         when(ruleService.findById(1L)).thenReturn(Optional.of(testRule));
         when(ticketService.findById(1L)).thenReturn(Optional.of(testTicket));
         when(expressionDeserializer.deserialize(testExpressionJson)).thenReturn(testExpression);
-        when(entityDataExtractor.extractData(testTicket)).thenReturn(entityData);
         
         // Execute
         RuleEngineOutput output = ruleEngine.evaluateRule(1L, 1L);
@@ -143,13 +148,11 @@ public class TicketAssigneeRuleTest {
     void testEvaluateRule_DoesNotMatchCondition_WrongStatus() {
         // Change ticket status to something other than OPEN
         testTicket.setStatus(TicketStatus.CLOSED);
-        entityData.put("status", TicketStatus.CLOSED);
         
         // Setup mocks
         when(ruleService.findById(1L)).thenReturn(Optional.of(testRule));
         when(ticketService.findById(1L)).thenReturn(Optional.of(testTicket));
         when(expressionDeserializer.deserialize(testExpressionJson)).thenReturn(testExpression);
-        when(entityDataExtractor.extractData(testTicket)).thenReturn(entityData);
         
         // Execute
         RuleEngineOutput output = ruleEngine.evaluateRule(1L, 1L);
@@ -163,13 +166,11 @@ public class TicketAssigneeRuleTest {
     void testEvaluateRule_DoesNotMatchCondition_WrongAssignee() {
         // Change assignee to something other than "raj"
         testTicket.setAssignee("john");
-        entityData.put("assignee", "john");
         
         // Setup mocks
         when(ruleService.findById(1L)).thenReturn(Optional.of(testRule));
         when(ticketService.findById(1L)).thenReturn(Optional.of(testTicket));
         when(expressionDeserializer.deserialize(testExpressionJson)).thenReturn(testExpression);
-        when(entityDataExtractor.extractData(testTicket)).thenReturn(entityData);
         
         // Execute
         RuleEngineOutput output = ruleEngine.evaluateRule(1L, 1L);
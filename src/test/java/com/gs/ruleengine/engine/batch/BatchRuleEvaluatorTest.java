@@ -0,0 +1,119 @@
+package com.gs.ruleengine.engine.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.ruleengine.config.JacksonConfig;
+import com.gs.ruleengine.config.RuleEngineProperties;
+import com.gs.ruleengine.engine.CompiledRule;
+import com.gs.ruleengine.engine.RuleRegistry;
+import com.gs.ruleengine.engine.RuleSet;
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.Ticket;
+import com.gs.ruleengine.model.TicketStatus;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.service.LeaveService;
+import com.gs.ruleengine.service.RosterService;
+import com.gs.ruleengine.service.TicketService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BatchRuleEvaluatorTest {
+
+    @Mock
+    private RuleRegistry ruleRegistry;
+
+    @Mock
+    private TicketService ticketService;
+
+    @Mock
+    private RosterService rosterService;
+
+    @Mock
+    private LeaveService leaveService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+
+    private BatchRuleEvaluator batchRuleEvaluator;
+
+    @BeforeEach
+    void setUp() {
+        RuleEngineProperties properties = new RuleEngineProperties();
+        properties.setBatchChunkSize(2);
+        batchRuleEvaluator = new BatchRuleEvaluator(ruleRegistry, ticketService, rosterService, leaveService,
+                properties, entityManager, objectMapper);
+    }
+
+    @Test
+    void testWriteOutputsStreamsOneLinePerEntityAndRule() throws Exception {
+        CompiledRule open = new CompiledRule(1L, "Open", EntityType.TICKET,
+                new Condition("status", Operator.EQUALS, "OPEN"), null);
+        CompiledRule urgent = new CompiledRule(2L, "Urgent", EntityType.TICKET,
+                new Condition("priority", Operator.GREATER_THAN, 3), null);
+        CompiledRule invalid = new CompiledRule(3L, "Invalid", EntityType.TICKET, null, null);
+        when(ruleRegistry.getRuleSet(EntityType.TICKET))
+                .thenReturn(new RuleSet(EntityType.TICKET, Arrays.asList(open, invalid, urgent), System.nanoTime()));
+
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Ticket ticket = new Ticket();
+            ticket.setId((long) i);
+            ticket.setStatus(i == 2 ? TicketStatus.CLOSED : TicketStatus.OPEN);
+            ticket.setPriority(i + 2);
+            tickets.add(ticket);
+        }
+        when(ticketService.streamAll()).thenReturn(tickets.stream());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long entities = batchRuleEvaluator.writeOutputs(EntityType.TICKET, out);
+
+        assertEquals(3, entities);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(6, lines.length);
+
+        boolean[][] expected = {{true, false}, {false, true}, {true, true}};
+        for (int i = 0; i < lines.length; i++) {
+            JsonNode output = objectMapper.readTree(lines[i]);
+            assertEquals(i / 2 + 1, output.get("entityId").asLong(), lines[i]);
+            assertEquals(i % 2 == 0 ? 1 : 2, output.get("ruleId").asLong(), lines[i]);
+            assertEquals("TICKET", output.get("entityType").asText(), lines[i]);
+            assertEquals(expected[i / 2][i % 2], output.get("result").asBoolean(), lines[i]);
+        }
+
+        // Every entity is released from the persistence context once evaluated
+        for (Ticket ticket : tickets) {
+            verify(entityManager).detach(ticket);
+        }
+    }
+
+    @Test
+    void testWriteOutputsWithoutRulesDoesNotReadEntities() throws Exception {
+        when(ruleRegistry.getRuleSet(EntityType.LEAVE))
+                .thenReturn(new RuleSet(EntityType.LEAVE, List.of(), System.nanoTime()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, batchRuleEvaluator.writeOutputs(EntityType.LEAVE, out));
+        assertEquals(0, out.size());
+        verify(leaveService, never()).streamAll();
+    }
+}
@@ -0,0 +1,156 @@
+package com.gs.ruleengine.engine.batch;
+
+import com.gs.ruleengine.engine.EntityDataExtractor;
+import com.gs.ruleengine.engine.EntitySchema;
+import com.gs.ruleengine.engine.ExpressionFields;
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.Roster;
+import com.gs.ruleengine.model.Ticket;
+import com.gs.ruleengine.model.TicketStatus;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.RequestClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static com.gs.ruleengine.engine.ExpressionFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarEvaluatorTest {
+
+    private static final String[] ASSIGNEES = {"raj", "mia", null, "sam"};
+
+    private final EntityDataExtractor extractor = new EntityDataExtractor();
+
+    @AfterEach
+    void resetClock() {
+        RequestClock.setClock(Clock.systemDefaultZone());
+    }
+
+    @Test
+    void testTicketConditionsMatchInterpreter() {
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            Ticket ticket = new Ticket();
+            ticket.setId((long) i);
+            ticket.setTitle(i % 3 == 0 ? "Printer on fire" : "Password reset " + i);
+            ticket.setStatus(i % 7 == 0 ? null : TicketStatus.values()[i % TicketStatus.values().length]);
+            ticket.setPriority(i % 11 == 0 ? null : i % 5);
+            ticket.setAssignee(ASSIGNEES[i % ASSIGNEES.length]);
+            tickets.add(ticket);
+        }
+
+        List<Expression> expressions = Arrays.asList(
+            condition("status", Operator.EQUALS, "OPEN"),
+            condition("status", Operator.NOT_EQUALS, TicketStatus.CLOSED),
+            condition("status", Operator.GREATER_THAN, "IN_PROGRESS"),
+            condition("status", Operator.EQUALS, "NOT_A_STATUS"),
+            condition("status", Operator.CONTAINS, "OPE"),
+            condition("status", Operator.IS_NULL, null),
+            condition("priority", Operator.GREATER_THAN, 2),
+            condition("priority", Operator.LESS_THAN_OR_EQUALS, "1"),
+            condition("priority", Operator.EQUALS, "abc"),
+            condition("priority", Operator.EQUALS, 3L),
+            condition("priority", Operator.STARTS_WITH, "4"),
+            condition("priority", Operator.IS_NOT_NULL, null),
+            condition("assignee", Operator.EQUALS, "raj"),
+            condition("assignee", Operator.ENDS_WITH, "m"),
+            condition("title", Operator.CONTAINS, "fire"),
+            condition("id", Operator.GREATER_THAN_OR_EQUALS, 100),
+            condition("missing", Operator.IS_NULL, null),
+            condition("missing", Operator.EQUALS, "x"),
+            condition("title", Operator.CONTAINS, null),
+            condition("title", null, "x"),
+            condition("status", Operator.IN, Arrays.asList("OPEN", "NOT_A_STATUS", TicketStatus.CLOSED)),
+            condition("priority", Operator.IN, Arrays.asList(1, "3", "abc", 4L)),
+            condition("priority", Operator.NOT_IN, Arrays.asList(0, "2")),
+            condition("id", Operator.IN, Arrays.asList(5L, "7", 9)),
+            condition("assignee", Operator.NOT_IN, Arrays.asList("raj", null)),
+            condition("status", Operator.MATCHES, "^(OPEN|CLOSED)$"),
+            condition("title", Operator.MATCHES, "reset \\d*5"),
+            condition("priority", Operator.MATCHES, "[13]"),
+            and(condition("status", Operator.EQUALS, "OPEN"), condition("priority", Operator.GREATER_THAN, 2)),
+            or(condition("assignee", Operator.IS_NULL, null), condition("title", Operator.CONTAINS, "fire")),
+            or(condition("title", Operator.CONTAINS, null), condition("priority", Operator.GREATER_THAN, 2)),
+            and(),
+            or()
+        );
+
+        assertMatchesInterpreter(EntityType.TICKET, tickets, expressions);
+    }
+
+    @Test
+    void testRosterConditionsMatchInterpreter() {
+        LocalDate start = LocalDate.of(2024, 3, 1);
+        RequestClock.setClock(Clock.fixed(start.plusDays(20).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        List<Roster> rosters = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            Roster roster = new Roster();
+            roster.setId((long) i);
+            roster.setDepartment(i % 2 == 0 ? "OPS" : "DEV");
+            roster.setDate(i % 9 == 0 ? null : start.plusDays(i));
+            roster.setHoursAllocated(i % 10);
+            rosters.add(roster);
+        }
+
+        List<Expression> expressions = Arrays.asList(
+            condition("date", Operator.LESS_THAN, start.plusDays(30)),
+            condition("date", Operator.EQUALS, start.plusDays(10)),
+            condition("date", Operator.GREATER_THAN, "2024-03-10"),
+            condition("hoursAllocated", Operator.GREATER_THAN_OR_EQUALS, 8),
+            condition("date", Operator.IN, Arrays.asList(start.plusDays(3), "2024-03-05")),
+            condition("date", Operator.BETWEEN, Arrays.asList("2024-03-05", start.plusDays(12))),
+            condition("date", Operator.BETWEEN, Arrays.asList("2024-03-05T12:00", null)),
+            condition("date", Operator.BETWEEN, Arrays.asList("2024-03-05", "later")),
+            condition("date", Operator.WITHIN_DAYS, 7),
+            condition("date", Operator.WITHIN_DAYS, "-3"),
+            condition("date", Operator.BEFORE_TODAY, null),
+            condition("department", Operator.BEFORE_TODAY, null),
+            and(condition("department", Operator.EQUALS, "OPS"), condition("hoursAllocated", Operator.LESS_THAN, "4"))
+        );
+
+        assertMatchesInterpreter(EntityType.ROSTER, rosters, expressions);
+    }
+
+    private void assertMatchesInterpreter(EntityType entityType, List<?> entities, List<Expression> expressions) {
+        EntitySchema schema = EntitySchema.forEntityType(entityType);
+
+        for (Expression expression : expressions) {
+            ColumnBatch batch = ColumnBatch.load(schema, entities, ExpressionFields.referencedBy(expression));
+            BitSet matches = ColumnarEvaluator.evaluate(expression, batch);
+
+            for (int row = 0; row < entities.size(); row++) {
+                boolean expected;
+                try {
+                    expected = expression.evaluate(extract(entities.get(row)));
+                } catch (RuntimeException e) {
+                    expected = false;
+                }
+                assertEquals(expected, matches.get(row), "row " + row + " of " + describe(expression));
+                assertEquals((long) row, batch.getId(row));
+            }
+        }
+    }
+
+    private Map<String, Object> extract(Object entity) {
+        return entity instanceof Ticket ? extractor.extractData((Ticket) entity) : extractor.extractData((Roster) entity);
+    }
+
+    private static String describe(Expression expression) {
+        if (expression instanceof Condition) {
+            Condition condition = (Condition) expression;
+            return condition.getField() + " " + condition.getOperator() + " " + condition.getValue();
+        }
+        return expression.getClass().getSimpleName();
+    }
+}
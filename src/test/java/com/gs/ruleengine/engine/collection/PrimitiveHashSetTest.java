@@ -0,0 +1,51 @@
+package com.gs.ruleengine.engine.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimitiveHashSetTest {
+
+    @Test
+    void testIntHashSetMatchesHashSet() {
+        Random random = new Random(7);
+        IntHashSet set = new IntHashSet(4);
+        Set<Integer> expected = new HashSet<>();
+
+        for (int i = 0; i < 1000; i++) {
+            int value = random.nextInt(2000) - 1000;
+            assertEquals(expected.add(value), set.add(value));
+        }
+        assertTrue(set.add(Integer.MIN_VALUE));
+        expected.add(Integer.MIN_VALUE);
+
+        assertEquals(expected.size(), set.size());
+        for (int value = -1100; value < 1100; value++) {
+            assertEquals(expected.contains(value), set.contains(value), String.valueOf(value));
+        }
+        assertTrue(set.contains(Integer.MIN_VALUE));
+    }
+
+    @Test
+    void testLongHashSetMatchesHashSet() {
+        Random random = new Random(7);
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 1000; i++) {
+            long value = (random.nextInt(2000) - 1000) * 1_000_000_007L;
+            assertEquals(expected.add(value), set.add(value));
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (long value = -1100; value < 1100; value++) {
+            long scaled = value * 1_000_000_007L;
+            assertEquals(expected.contains(scaled), set.contains(scaled), String.valueOf(scaled));
+        }
+        assertFalse(set.contains(1L));
+    }
+}
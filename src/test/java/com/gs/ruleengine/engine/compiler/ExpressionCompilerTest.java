@@ -0,0 +1,630 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.config.RuleEngineProperties;
+import com.gs.ruleengine.engine.EntityDataExtractor;
+import com.gs.ruleengine.engine.EntityProjection;
+import com.gs.ruleengine.engine.EntityRecord;
+import com.gs.ruleengine.engine.EntitySchema;
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.Ticket;
+import com.gs.ruleengine.model.TicketStatus;
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.OrExpression;
+import com.gs.ruleengine.model.expression.RequestClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionCompilerTest {
+
+    private static final EntitySchema TICKET = EntitySchema.forEntityType(EntityType.TICKET);
+
+    private RuleEngineProperties properties;
+    private ExpressionCompiler compiler;
+    private Map<String, Object> data;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RuleEngineProperties();
+        compiler = new ExpressionCompiler(properties);
+        
+        data = new HashMap<>();
+        data.put("status", TicketStatus.OPEN);
+        data.put("priority", 5);
+        data.put("title", "Printer on fire");
+        data.put("assignee", null);
+    }
+    
+    @AfterEach
+    void resetClock() {
+        RequestClock.setClock(Clock.systemDefaultZone());
+    }
+    
+    @Test
+    void testCompiledConditionsMatchInterpreter() {
+        List<Object[]> cases = Arrays.asList(
+            new Object[] {"status", Operator.EQUALS, "OPEN"},
+            new Object[] {"status", Operator.EQUALS, "CLOSED"},
+            new Object[] {"status", Operator.EQUALS, "NOT_A_STATUS"},
+            new Object[] {"status", Operator.NOT_EQUALS, "CLOSED"},
+            new Object[] {"status", Operator.CONTAINS, "OP"},
+            new Object[] {"priority", Operator.EQUALS, 5},
+            new Object[] {"priority", Operator.EQUALS, "5"},
+            new Object[] {"priority", Operator.GREATER_THAN, "3"},
+            new Object[] {"priority", Operator.GREATER_THAN_OR_EQUALS, 5},
+            new Object[] {"priority", Operator.LESS_THAN, 7},
+            new Object[] {"priority", Operator.LESS_THAN_OR_EQUALS, "abc"},
+            new Object[] {"title", Operator.CONTAINS, "fire"},
+            new Object[] {"title", Operator.STARTS_WITH, "Printer"},
+            new Object[] {"title", Operator.ENDS_WITH, "water"},
+            new Object[] {"assignee", Operator.IS_NULL, null},
+            new Object[] {"assignee", Operator.IS_NOT_NULL, null},
+            new Object[] {"assignee", Operator.EQUALS, "raj"},
+            new Object[] {"missing", Operator.EQUALS, "x"},
+            new Object[] {"status", Operator.IN, Arrays.asList("CLOSED", "OPEN")},
+            new Object[] {"status", Operator.NOT_IN, Arrays.asList("NOT_A_STATUS", "CLOSED")},
+            new Object[] {"priority", Operator.IN, Arrays.asList("abc", 5L, "5")},
+            new Object[] {"priority", Operator.NOT_IN, Arrays.asList(4, null)},
+            new Object[] {"assignee", Operator.IN, Arrays.asList("raj", "mia")},
+            new Object[] {"title", Operator.MATCHES, "on f(i|a)re"},
+            new Object[] {"title", Operator.MATCHES, "on fire"},
+            new Object[] {"title", Operator.MATCHES, "^Printer"},
+            new Object[] {"title", Operator.MATCHES, "^on"},
+            new Object[] {"status", Operator.MATCHES, "^OP"},
+            new Object[] {"priority", Operator.MATCHES, "\\d"},
+            new Object[] {"assignee", Operator.MATCHES, "raj"}
+        );
+        
+        for (Object[] c : cases) {
+            boolean interpreted = new Condition((String) c[0], (Operator) c[1], c[2]).evaluate(data);
+            CompiledPredicate compiled = compiler.compile(new Condition((String) c[0], (Operator) c[1], c[2]), null);
+            
+            assertEquals(interpreted, compiled.test(data), Arrays.toString(c));
+            // Second evaluation reuses the converted constant
+            assertEquals(interpreted, compiled.test(data), Arrays.toString(c));
+        }
+    }
+    
+    @Test
+    void testSchemaBoundConditionsMatchInterpreter() {
+        List<Object[]> cases = Arrays.asList(
+            new Object[] {"status", Operator.EQUALS, "OPEN"},
+            new Object[] {"status", Operator.EQUALS, TicketStatus.OPEN},
+            new Object[] {"status", Operator.NOT_EQUALS, "NOT_A_STATUS"},
+            new Object[] {"status", Operator.GREATER_THAN, "IN_PROGRESS"},
+            new Object[] {"status", Operator.STARTS_WITH, "OP"},
+            new Object[] {"status", Operator.STARTS_WITH, "OPEN"},
+            new Object[] {"priority", Operator.EQUALS, 5},
+            new Object[] {"priority", Operator.EQUALS, 5L},
+            new Object[] {"priority", Operator.GREATER_THAN_OR_EQUALS, 5L},
+            new Object[] {"priority", Operator.LESS_THAN, "10"},
+            new Object[] {"priority", Operator.NOT_EQUALS, "x"},
+            new Object[] {"priority", Operator.CONTAINS, "05"},
+            new Object[] {"title", Operator.EQUALS, "Printer on fire"},
+            new Object[] {"title", Operator.LESS_THAN, "Q"},
+            new Object[] {"title", Operator.EQUALS, 5},
+            new Object[] {"title", Operator.ENDS_WITH, "fire"},
+            new Object[] {"createdAt", Operator.IS_NOT_NULL, null},
+            new Object[] {"status", Operator.IN, Arrays.asList("OPEN", "NOT_A_STATUS")},
+            new Object[] {"status", Operator.IN, Arrays.asList(TicketStatus.CLOSED, "IN_PROGRESS")},
+            new Object[] {"status", Operator.NOT_IN, Arrays.asList("CLOSED")},
+            new Object[] {"priority", Operator.IN, Arrays.asList(1, "5", 9)},
+            new Object[] {"priority", Operator.IN, Arrays.asList(5L)},
+            new Object[] {"priority", Operator.NOT_IN, Arrays.asList("x", 5)},
+            new Object[] {"title", Operator.IN, Arrays.asList("Printer on fire", 5)},
+            new Object[] {"title", Operator.NOT_IN, Arrays.asList()},
+            new Object[] {"title", Operator.MATCHES, "fire$"},
+            new Object[] {"title", Operator.MATCHES, "Printer on"},
+            new Object[] {"status", Operator.MATCHES, "^OPEN"},
+            new Object[] {"priority", Operator.MATCHES, "^5"}
+        );
+        
+        Map<String, Object> postedData = new HashMap<>(data);
+        postedData.put("status", "OPEN");
+        postedData.put("priority", 5L);
+        
+        for (Map<String, Object> entityData : Arrays.asList(data, postedData)) {
+            for (Object[] c : cases) {
+                Condition condition = new Condition((String) c[0], (Operator) c[1], c[2]);
+                boolean interpreted = condition.evaluate(entityData);
+                CompiledPredicate bound = compiler.compile(condition, TICKET);
+                
+                assertEquals(interpreted, bound.test(entityData), Arrays.toString(c) + " " + entityData);
+            }
+        }
+    }
+    
+    @Test
+    void testMembershipRequiresArrayValue() {
+        Condition condition = new Condition("priority", Operator.IN, 5);
+        
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(condition, TICKET));
+        assertThrows(IllegalArgumentException.class, () -> condition.evaluate(data));
+    }
+    
+    @Test
+    void testDateConditionsMatchInterpreter() {
+        LocalDate today = LocalDate.of(2024, 3, 10);
+        RequestClock.setClock(Clock.fixed(today.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        EntitySchema leave = EntitySchema.forEntityType(EntityType.LEAVE);
+        
+        List<Object[]> cases = Arrays.asList(
+            new Object[] {"startDate", Operator.BETWEEN, Arrays.asList("2024-03-01", "2024-03-12")},
+            new Object[] {"startDate", Operator.BETWEEN, Arrays.asList(today, null)},
+            new Object[] {"endDate", Operator.BETWEEN, Arrays.asList("2024-03-09T12:00", "2024-03-20")},
+            new Object[] {"createdAt", Operator.BETWEEN, Arrays.asList("2024-03-09", "2024-03-10T08:00")},
+            new Object[] {"startDate", Operator.WITHIN_DAYS, 5},
+            new Object[] {"startDate", Operator.WITHIN_DAYS, "-2"},
+            new Object[] {"endDate", Operator.WITHIN_DAYS, 0},
+            new Object[] {"createdAt", Operator.WITHIN_DAYS, -1},
+            new Object[] {"startDate", Operator.BEFORE_TODAY, null},
+            new Object[] {"endDate", Operator.BEFORE_TODAY, null},
+            new Object[] {"createdAt", Operator.BEFORE_TODAY, null},
+            new Object[] {"reason", Operator.BEFORE_TODAY, null},
+            new Object[] {"missing", Operator.WITHIN_DAYS, 3}
+        );
+        
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int offset = -4; offset <= 4; offset += 2) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("startDate", today.plusDays(offset));
+            row.put("endDate", today.plusDays(offset + 1).toString());
+            row.put("createdAt", today.plusDays(offset / 2).atTime(offset + 4, 0));
+            row.put("reason", "Vacation");
+            rows.add(row);
+        }
+        
+        for (Map<String, Object> entityData : rows) {
+            for (Object[] c : cases) {
+                Condition condition = new Condition((String) c[0], (Operator) c[1], c[2]);
+                boolean interpreted = condition.evaluate(entityData);
+                
+                assertEquals(interpreted, compiler.compile(condition, leave).test(entityData), Arrays.toString(c) + " " + entityData);
+                assertEquals(interpreted, compiler.compile(condition, null).test(entityData), Arrays.toString(c) + " " + entityData);
+            }
+        }
+        
+        assertThrows(IllegalArgumentException.class,
+                () -> compiler.compile(new Condition("startDate", Operator.BETWEEN, "2024-03-01"), leave));
+        assertThrows(IllegalArgumentException.class,
+                () -> compiler.compile(new Condition("startDate", Operator.WITHIN_DAYS, "soon"), leave));
+    }
+    
+    @Test
+    void testEntityPredicatesMatchInterpreter() {
+        EntityDataExtractor extractor = new EntityDataExtractor();
+        List<Expression> expressions = Arrays.asList(
+            new Condition("status", Operator.EQUALS, "OPEN"),
+            new Condition("status", Operator.NOT_EQUALS, TicketStatus.CLOSED),
+            new Condition("status", Operator.IS_NULL, null),
+            new Condition("priority", Operator.GREATER_THAN, 2),
+            new Condition("priority", Operator.EQUALS, 3L),
+            new Condition("priority", Operator.LESS_THAN_OR_EQUALS, "1"),
+            new Condition("priority", Operator.IN, Arrays.asList(1, "3", 4L)),
+            new Condition("id", Operator.GREATER_THAN_OR_EQUALS, 10),
+            new Condition("id", Operator.LESS_THAN, 4.5),
+            new Condition("priority", Operator.GREATER_THAN_OR_EQUALS, 3000000000L),
+            new Condition("priority", Operator.LESS_THAN, 2.5),
+            new Condition("id", Operator.NOT_IN, Arrays.asList(5L, "7")),
+            new Condition("title", Operator.CONTAINS, "fire"),
+            new Condition("title", Operator.MATCHES, "reset \\d$"),
+            new Condition("assignee", Operator.IS_NOT_NULL, null),
+            new Condition("assignee", Operator.EQUALS, "raj"),
+            new Condition("missing", Operator.IS_NULL, null),
+            new Condition("missing", Operator.EQUALS, "x"),
+            new AndExpression(Arrays.asList(
+                new Condition("status", Operator.EQUALS, "OPEN"),
+                new Condition("priority", Operator.GREATER_THAN, 2))),
+            new OrExpression(Arrays.asList(
+                new Condition("assignee", Operator.IS_NULL, null),
+                new Condition("title", Operator.CONTAINS, "fire"))),
+            new AndExpression(Collections.emptyList()),
+            new OrExpression(Collections.emptyList())
+        );
+        
+        for (int i = 0; i < 20; i++) {
+            Ticket ticket = ticket(i);
+            Map<String, Object> entityData = extractor.extractData(ticket);
+            for (Expression expression : expressions) {
+                assertEquals(expression.evaluate(entityData), compiler.compileForEntity(expression, TICKET).test(ticket),
+                        expression + " on ticket " + i);
+            }
+        }
+    }
+    
+    @Test
+    void testRecordPredicatesMatchInterpreter() {
+        properties.setReorderSampleInterval(0);
+        EntityDataExtractor extractor = new EntityDataExtractor();
+        Random random = new Random(7);
+        List<Map<String, Object>> dataSets = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            dataSets.add(extractor.extractData(ticket(i)));
+        }
+        // Entity data posted as JSON holds enum names and other number types
+        Map<String, Object> postedData = new HashMap<>(data);
+        postedData.put("status", "OPEN");
+        postedData.put("priority", 5L);
+        dataSets.add(data);
+        dataSets.add(postedData);
+        
+        for (int n = 0; n < 300; n++) {
+            Expression expression = randomExpression(random, 4);
+            EntityPredicate recordProgram = compiler.compileForRecord(expression, TICKET);
+            
+            for (Map<String, Object> entityData : dataSets) {
+                EntityRecord record = EntityProjection.of(TICKET, entityData.keySet()).record(entityData);
+                assertEquals(expression.evaluate(entityData), recordProgram.test(record), expression + " on " + entityData);
+            }
+        }
+        
+        Condition unknownField = new Condition("missing", Operator.IS_NULL, null);
+        assertThrows(IllegalArgumentException.class, () -> compiler.compileForRecord(unknownField, TICKET));
+        assertNull(compiler.recordPredicate(unknownField, TICKET));
+    }
+    
+    @Test
+    void testNumberConstantsOfOtherTypesCompareNumerically() {
+        Condition beyondInt = new Condition("priority", Operator.GREATER_THAN_OR_EQUALS, 3000000000L);
+        Condition fraction = new Condition("priority", Operator.GREATER_THAN, 4.5);
+        Ticket ticket = ticket(4);
+        
+        assertFalse(compiler.compile(beyondInt, TICKET).test(data));
+        assertFalse(compiler.compileForEntity(beyondInt, TICKET).test(ticket));
+        assertTrue(compiler.compile(fraction, TICKET).test(data));
+        assertFalse(compiler.compileForEntity(fraction, TICKET).test(ticket));
+        
+        // Posted data of another number type compares numerically as well
+        data.put("priority", 5L);
+        assertTrue(compiler.compile(fraction, TICKET).test(data));
+        assertTrue(compiler.compile(new Condition("priority", Operator.LESS_THAN, 6), TICKET).test(data));
+    }
+    
+    @Test
+    void testEntityPredicateDoesNotAllocate() {
+        // Samples of adaptive programs allocate their statistics; evaluations in a fixed order allocate nothing
+        properties.setReorderSampleInterval(0);
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        EntityPredicate predicate = compiler.compileForEntity(new AndExpression(Arrays.asList(
+            new Condition("priority", Operator.GREATER_THAN_OR_EQUALS, 0),
+            new Condition("id", Operator.LESS_THAN, 1000L),
+            new Condition("status", Operator.NOT_EQUALS, "CLOSED"),
+            new Condition("title", Operator.CONTAINS, "e"),
+            new Condition("priority", Operator.IN, Arrays.asList(0, 1, 2, 3, 4)),
+            new Condition("createdAt", Operator.IS_NOT_NULL, null)
+        )), TICKET);
+        Ticket[] tickets = new Ticket[16];
+        for (int i = 0; i < tickets.length; i++) {
+            tickets[i] = ticket(i);
+        }
+        
+        int matches = 0;
+        for (int i = 0; i < 200_000; i++) {
+            matches += predicate.test(tickets[i % tickets.length]) ? 1 : 0;
+        }
+        
+        int evaluations = 100_000;
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < evaluations; i++) {
+            matches += predicate.test(tickets[i % tickets.length]) ? 1 : 0;
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        
+        assertTrue(matches > 0);
+        // Allows for the bookkeeping of the measurement itself, far below a byte per evaluation
+        assertTrue(allocated < evaluations / 10, allocated + " bytes allocated in " + evaluations + " evaluations");
+    }
+    
+    @Test
+    void testLiteralPatternsMatchLikeRegex() {
+        List<String> texts = Arrays.asList("a.b", "axb", "1+1=2", "(x)", "x(y)z", "^a", "a", "");
+        List<String> patterns = Arrays.asList("a.b", "a\\.b", "1\\+1", "^1\\+1", "\\(x\\)", "^\\^a", "^", "", "^a", "a$");
+        
+        for (String pattern : patterns) {
+            CompiledPredicate compiled = compiler.compile(new Condition("title", Operator.MATCHES, pattern), TICKET);
+            for (String text : texts) {
+                Map<String, Object> entityData = Collections.singletonMap("title", text);
+                assertEquals(Pattern.compile(pattern).matcher(text).find(), compiled.test(entityData), pattern + " on " + text);
+            }
+        }
+    }
+    
+    @Test
+    void testInvalidPatternFallsBackToInterpreter() {
+        Condition condition = new Condition("title", Operator.MATCHES, "fire(");
+        
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(condition, TICKET));
+        assertThrows(IllegalArgumentException.class, () -> condition.evaluate(data));
+    }
+    
+    @Test
+    void testCompiledAndOrExpressions() {
+        Expression expression = new OrExpression(Arrays.asList(
+            new AndExpression(Arrays.asList(
+                new Condition("status", Operator.EQUALS, "OPEN"),
+                new Condition("priority", Operator.GREATER_THAN, 7))),
+            new AndExpression(Arrays.asList(
+                new Condition("title", Operator.CONTAINS, "fire"),
+                new Condition("assignee", Operator.IS_NULL, null)))
+        ));
+        
+        CompiledPredicate compiled = compiler.compile(expression, TICKET);
+        assertTrue(compiled.test(data));
+        
+        data.put("assignee", "raj");
+        assertFalse(compiled.test(data));
+        
+        assertTrue(compiler.compile(new AndExpression(List.of()), TICKET).test(data));
+        assertFalse(compiler.compile(new OrExpression(List.of()), TICKET).test(data));
+    }
+    
+    @Test
+    void testFlatProgramsMatchInterpreter() {
+        properties.setReorderSampleInterval(0);
+        EntityDataExtractor extractor = new EntityDataExtractor();
+        Random random = new Random(42);
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            tickets.add(ticket(i));
+        }
+        
+        for (int n = 0; n < 300; n++) {
+            Expression expression = randomExpression(random, 4);
+            CompiledPredicate program = compiler.compile(expression, TICKET);
+            EntityPredicate entityProgram = compiler.compileForEntity(expression, TICKET);
+            
+            for (Ticket ticket : tickets) {
+                Map<String, Object> entityData = extractor.extractData(ticket);
+                boolean interpreted = expression.evaluate(entityData);
+                assertEquals(interpreted, program.test(entityData), expression + " on " + entityData);
+                assertEquals(interpreted, entityProgram.test(ticket), expression + " on " + entityData);
+            }
+        }
+    }
+    
+    @Test
+    void testReorderedProgramsMatchInterpreter() {
+        properties.setReorderSampleInterval(2);
+        properties.setReorderSamples(3);
+        EntityDataExtractor extractor = new EntityDataExtractor();
+        Random random = new Random(11);
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            tickets.add(ticket(i));
+        }
+        
+        for (int n = 0; n < 200; n++) {
+            Expression expression = randomExpression(random, 4);
+            CompiledPredicate program = compiler.compile(expression, TICKET);
+            EntityPredicate entityProgram = compiler.compileForEntity(expression, TICKET);
+            
+            for (int round = 0; round < 5; round++) {
+                for (Ticket ticket : tickets) {
+                    Map<String, Object> entityData = extractor.extractData(ticket);
+                    boolean interpreted = expression.evaluate(entityData);
+                    assertEquals(interpreted, program.test(entityData), expression + " on " + entityData);
+                    assertEquals(interpreted, entityProgram.test(ticket), expression + " on " + entityData);
+                }
+            }
+        }
+        assertTrue(compiler.getReorderLog().getTotal() > 0);
+    }
+    
+    @Test
+    void testTieredPredicateIsPromotedAfterThreshold() {
+        properties.setCompileThreshold(3);
+        CompiledPredicate predicate = compiler.tiered(new Condition("priority", Operator.GREATER_THAN, "3"), TICKET);
+        
+        assertTrue(predicate instanceof TieredPredicate);
+        TieredPredicate tiered = (TieredPredicate) predicate;
+        
+        assertTrue(tiered.test(data));
+        assertTrue(tiered.test(data));
+        assertFalse(tiered.isPromoted());
+        assertTrue(tiered.test(data));
+        assertTrue(tiered.isPromoted());
+        assertTrue(tiered.test(data));
+    }
+    
+    @Test
+    void testEntityPredicateIsPromotedAfterThreshold() {
+        properties.setCompileThreshold(3);
+        Ticket ticket = ticket(9);
+        EntityPredicate predicate = compiler.entityPredicate(new AndExpression(Arrays.asList(
+            new Condition("priority", Operator.GREATER_THAN, "3"),
+            new Condition("assignee", Operator.EQUALS, "raj")
+        )), TICKET);
+        
+        assertTrue(predicate instanceof TieredEntityPredicate);
+        TieredEntityPredicate tiered = (TieredEntityPredicate) predicate;
+        
+        assertTrue(tiered.test(ticket));
+        assertTrue(tiered.test(ticket));
+        assertFalse(tiered.isPromoted());
+        assertTrue(tiered.test(ticket));
+        assertTrue(tiered.isPromoted());
+        assertTrue(tiered.test(ticket));
+        
+        properties.setCompileThreshold(-1);
+        assertNull(compiler.entityPredicate(new Condition("priority", Operator.GREATER_THAN, "3"), TICKET));
+    }
+    
+    @Test
+    void testRecordPredicateIsPromotedAfterThreshold() {
+        properties.setCompileThreshold(2);
+        Expression expression = new OrExpression(Arrays.asList(
+            new Condition("assignee", Operator.IS_NOT_NULL, null),
+            new Condition("priority", Operator.GREATER_THAN, 3)
+        ));
+        EntityRecord record = EntityProjection.of(TICKET, data.keySet()).record(data);
+        EntityPredicate predicate = compiler.recordPredicate(expression, TICKET);
+        
+        assertTrue(predicate instanceof TieredEntityPredicate);
+        TieredEntityPredicate tiered = (TieredEntityPredicate) predicate;
+        
+        assertTrue(tiered.test(record));
+        assertFalse(tiered.isPromoted());
+        assertTrue(tiered.test(record));
+        assertTrue(tiered.isPromoted());
+        assertTrue(tiered.test(record));
+        
+        // Fields outside the schema are left to the interpreter on the entity data
+        assertNull(compiler.recordPredicate(new OrExpression(Arrays.asList(
+            new Condition("priority", Operator.GREATER_THAN, 3),
+            new Condition("missing", Operator.IS_NULL, null)
+        )), TICKET));
+    }
+    
+    @Test
+    void testAdaptiveEntityPredicateRunsFailingChildFirst() {
+        properties.setCompileThreshold(0);
+        properties.setReorderSampleInterval(1);
+        properties.setReorderSamples(10);
+        Ticket ticket = ticket(6);
+        
+        EntityPredicate predicate = compiler.entityPredicate(new AndExpression(Arrays.asList(
+            new Condition("title", Operator.CONTAINS, "fire"),
+            new Condition("status", Operator.EQUALS, "CLOSED")
+        )), TICKET);
+        
+        for (int i = 0; i < 10; i++) {
+            assertFalse(predicate.test(ticket));
+        }
+        
+        assertEquals(1, compiler.getReorderLog().getTotal());
+        assertEquals(Arrays.asList("status EQUALS CLOSED", "title CONTAINS fire"),
+                compiler.getReorderLog().getRecentEvents().get(0).getNewOrder());
+        ticket.setStatus(TicketStatus.CLOSED);
+        assertTrue(predicate.test(ticket));
+    }
+    
+    @Test
+    void testCompilationFailureFallsBackToInterpreter() {
+        Condition invalid = new Condition("title", Operator.CONTAINS, null);
+        
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(invalid, TICKET));
+        
+        properties.setCompileThreshold(0);
+        CompiledPredicate predicate = compiler.tiered(new Condition("status", null, "OPEN"), TICKET);
+        assertNotNull(predicate);
+        assertFalse(predicate instanceof TieredPredicate);
+    }
+    
+    @Test
+    void testAdaptiveAndRunsFailingChildFirst() {
+        properties.setReorderSampleInterval(1);
+        properties.setReorderSamples(10);
+        
+        Expression expression = new AndExpression(Arrays.asList(
+            new Condition("title", Operator.CONTAINS, "fire"),
+            new Condition("status", Operator.EQUALS, "CLOSED")
+        ));
+        CompiledPredicate compiled = compiler.compile(expression, TICKET);
+        
+        for (int i = 0; i < 10; i++) {
+            assertFalse(compiled.test(data));
+        }
+        
+        assertEquals(1, compiler.getReorderLog().getTotal());
+        ReorderEvent event = compiler.getReorderLog().getRecentEvents().get(0);
+        assertEquals("AND", event.getOperator());
+        assertEquals(Arrays.asList("status EQUALS CLOSED", "title CONTAINS fire"), event.getNewOrder());
+        assertEquals(Arrays.asList(0.0, 1.0), event.getPassRates());
+        
+        // Reordering does not change results
+        data.put("status", TicketStatus.CLOSED);
+        assertTrue(compiled.test(data));
+        data.put("title", "Printer jammed");
+        assertFalse(compiled.test(data));
+    }
+    
+    @Test
+    void testAdaptiveOrRunsPassingChildFirst() {
+        properties.setReorderSampleInterval(1);
+        properties.setReorderSamples(10);
+        
+        Expression expression = new OrExpression(Arrays.asList(
+            new Condition("assignee", Operator.IS_NOT_NULL, null),
+            new Condition("priority", Operator.GREATER_THAN, 3),
+            new Condition("title", Operator.STARTS_WITH, "Printer")
+        ));
+        CompiledPredicate compiled = compiler.compile(expression, TICKET);
+        
+        for (int i = 0; i < 10; i++) {
+            assertTrue(compiled.test(data));
+        }
+        
+        ReorderEvent event = compiler.getReorderLog().getRecentEvents().get(0);
+        assertEquals("OR", event.getOperator());
+        assertEquals("assignee IS_NOT_NULL null", event.getNewOrder().get(2));
+    }
+    
+    @Test
+    void testFixedOrderWhenSamplingDisabled() {
+        properties.setReorderSampleInterval(0);
+        
+        CompiledPredicate compiled = compiler.compile(new AndExpression(Arrays.asList(
+            new Condition("title", Operator.CONTAINS, "fire"),
+            new Condition("status", Operator.EQUALS, "CLOSED")
+        )), TICKET);
+        
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(compiled.test(data));
+        }
+        assertEquals(0, compiler.getReorderLog().getTotal());
+    }
+    
+    private static Ticket ticket(int i) {
+        Ticket ticket = new Ticket();
+        ticket.setId((long) i);
+        ticket.setTitle(i % 3 == 0 ? "Printer on fire" : "Password reset " + i);
+        ticket.setStatus(i % 7 == 0 ? null : TicketStatus.values()[i % TicketStatus.values().length]);
+        ticket.setPriority(i % 6 == 5 ? null : i % 5);
+        ticket.setAssignee(i % 4 == 0 ? null : "raj");
+        return ticket;
+    }
+    
+    private static Expression randomExpression(Random random, int depth) {
+        int kind = random.nextInt(depth > 0 ? 6 : 3);
+        if (kind < 3) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    return new Condition("status", Operator.EQUALS, TicketStatus.values()[random.nextInt(TicketStatus.values().length)]);
+                case 1:
+                    return new Condition("priority", Operator.GREATER_THAN, random.nextInt(5));
+                case 2:
+                    return new Condition("title", Operator.CONTAINS, random.nextBoolean() ? "fire" : "reset");
+                case 3:
+                    return new Condition("assignee", Operator.IS_NULL, null);
+                default:
+                    return new Condition("id", Operator.LESS_THAN, (long) random.nextInt(12));
+            }
+        }
+        List<Expression> children = new ArrayList<>();
+        int size = random.nextInt(4);
+        for (int i = 0; i < size; i++) {
+            children.add(randomExpression(random, depth - 1));
+        }
+        return kind == 3 ? new OrExpression(children) : new AndExpression(children);
+    }
+}
@@ -0,0 +1,170 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.model.Satisfiability;
+import com.gs.ruleengine.model.TicketStatus;
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.OrExpression;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.gs.ruleengine.engine.ExpressionFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionOptimizerTest {
+
+    @Test
+    void testFlattensNestedAndRemovesDuplicates() {
+        Expression expression = and(
+            condition("status", Operator.EQUALS, "OPEN"),
+            and(condition("priority", Operator.GREATER_THAN, 3), condition("status", Operator.EQUALS, "OPEN")),
+            or(condition("title", Operator.CONTAINS, "fire"))
+        );
+
+        Expression optimized = ExpressionOptimizer.optimize(expression);
+
+        assertTrue(optimized instanceof AndExpression);
+        List<Expression> children = ((AndExpression) optimized).getExpressions();
+        assertEquals(3, children.size());
+        assertEquals("status", ((Condition) children.get(0)).getField());
+        assertEquals("priority", ((Condition) children.get(1)).getField());
+        assertEquals("title", ((Condition) children.get(2)).getField());
+        assertEquals(Satisfiability.CONDITIONAL, ExpressionOptimizer.satisfiability(optimized));
+    }
+
+    @Test
+    void testUnwrapsSingleChild() {
+        Condition condition = condition("status", Operator.EQUALS, "OPEN");
+
+        assertSame(condition, ExpressionOptimizer.optimize(or(and(condition))));
+    }
+
+    @Test
+    void testDetectsContradictions() {
+        List<Expression> contradictions = Arrays.asList(
+            and(condition("status", Operator.EQUALS, "OPEN"), condition("status", Operator.EQUALS, "CLOSED")),
+            and(condition("status", Operator.EQUALS, TicketStatus.OPEN), condition("status", Operator.EQUALS, TicketStatus.CLOSED)),
+            and(condition("priority", Operator.EQUALS, "5"), condition("priority", Operator.EQUALS, "6")),
+            and(condition("assignee", Operator.EQUALS, "raj"), condition("assignee", Operator.NOT_EQUALS, "raj")),
+            and(condition("assignee", Operator.IS_NULL, null), condition("assignee", Operator.EQUALS, "raj")),
+            and(condition("priority", Operator.GREATER_THAN, 5), condition("priority", Operator.LESS_THAN, 3)),
+            and(condition("priority", Operator.GREATER_THAN_OR_EQUALS, 5), condition("priority", Operator.LESS_THAN, 5)),
+            and(condition("priority", Operator.EQUALS, 2), condition("priority", Operator.GREATER_THAN, 3)),
+            and(condition("title", Operator.CONTAINS, "fire"), or()),
+            condition("assignee", Operator.EQUALS, null)
+        );
+
+        for (Expression expression : contradictions) {
+            Expression optimized = ExpressionOptimizer.optimize(expression);
+            assertEquals(Satisfiability.ALWAYS_FALSE, ExpressionOptimizer.satisfiability(optimized));
+        }
+    }
+
+    @Test
+    void testDetectsTautologies() {
+        List<Expression> tautologies = Arrays.asList(
+            or(condition("assignee", Operator.IS_NULL, null), condition("assignee", Operator.IS_NOT_NULL, null)),
+            or(condition("title", Operator.CONTAINS, "fire"), and()),
+            and(and(), or(and()))
+        );
+
+        for (Expression expression : tautologies) {
+            Expression optimized = ExpressionOptimizer.optimize(expression);
+            assertEquals(Satisfiability.ALWAYS_TRUE, ExpressionOptimizer.satisfiability(optimized));
+        }
+    }
+
+    @Test
+    void testKeepsSatisfiableCombinations() {
+        List<Expression> satisfiable = Arrays.asList(
+            // "5" and 5 both match a priority of 5
+            and(condition("priority", Operator.EQUALS, "5"), condition("priority", Operator.EQUALS, 5)),
+            // "5" and "5.0" both match a double field of 5.0
+            and(condition("score", Operator.EQUALS, "5"), condition("score", Operator.EQUALS, "5.0")),
+            // "-0" and "0" both match a priority of 0
+            and(condition("priority", Operator.EQUALS, "-0"), condition("priority", Operator.EQUALS, "0")),
+            // Values that are not comparable to the constants compare as equal
+            and(condition("priority", Operator.GREATER_THAN_OR_EQUALS, 5), condition("priority", Operator.LESS_THAN_OR_EQUALS, 3)),
+            or(condition("assignee", Operator.EQUALS, "raj"), condition("assignee", Operator.NOT_EQUALS, "raj"))
+        );
+
+        for (Expression expression : satisfiable) {
+            Expression optimized = ExpressionOptimizer.optimize(expression);
+            assertEquals(Satisfiability.CONDITIONAL, ExpressionOptimizer.satisfiability(optimized));
+        }
+        assertTrue(satisfiable.get(2).evaluate(Map.of("priority", 0)));
+    }
+
+    @Test
+    void testOptimizedExpressionsMatchInterpreter() {
+        List<Expression> expressions = Arrays.asList(
+            and(condition("status", Operator.EQUALS, "OPEN"), and(condition("priority", Operator.GREATER_THAN, 3))),
+            or(condition("priority", Operator.LESS_THAN, 3), or(condition("status", Operator.EQUALS, "OPEN"))),
+            and(condition("priority", Operator.GREATER_THAN, 5), condition("priority", Operator.LESS_THAN, 3)),
+            and(condition("priority", Operator.GREATER_THAN_OR_EQUALS, 5), condition("priority", Operator.LESS_THAN_OR_EQUALS, 3)),
+            condition("assignee", Operator.NOT_EQUALS, null),
+            condition("priority", Operator.GREATER_THAN_OR_EQUALS, null),
+            condition("priority", Operator.LESS_THAN, null),
+            or(condition("assignee", Operator.EQUALS, "raj"), condition("priority", Operator.EQUALS, "4"),
+                condition("assignee", Operator.IN, Arrays.asList("mia", null)), condition("priority", Operator.EQUALS, 5)),
+            condition("status", Operator.IN, Arrays.asList("CLOSED")),
+            condition("status", Operator.IN, Arrays.asList()),
+            condition("status", Operator.NOT_IN, Arrays.asList())
+        );
+
+        List<Map<String, Object>> entities = Arrays.asList(
+            entity(TicketStatus.OPEN, 5, "raj"),
+            entity(TicketStatus.CLOSED, 1, null),
+            entity("OPEN", 4L, "raj"),
+            entity(null, null, null)
+        );
+
+        for (Expression expression : expressions) {
+            Expression optimized = ExpressionOptimizer.optimize(expression);
+            for (Map<String, Object> entity : entities) {
+                assertEquals(expression.evaluate(entity), optimized.evaluate(entity), entity.toString());
+            }
+        }
+    }
+
+    @Test
+    void testMergesEqualsIntoIn() {
+        Expression optimized = ExpressionOptimizer.optimize(or(
+            condition("assignee", Operator.EQUALS, "raj"),
+            condition("priority", Operator.GREATER_THAN, 3),
+            condition("assignee", Operator.EQUALS, "mia"),
+            condition("assignee", Operator.IN, Arrays.asList("sam", "raj"))));
+
+        assertTrue(optimized instanceof OrExpression);
+        List<Expression> children = ((OrExpression) optimized).getExpressions();
+        assertEquals(2, children.size());
+        Condition in = (Condition) children.get(0);
+        assertEquals(Operator.IN, in.getOperator());
+        assertEquals(Arrays.asList("raj", "mia", "sam"), in.getValue());
+    }
+
+    @Test
+    void testInputIsNotModified() {
+        AndExpression inner = and(condition("priority", Operator.GREATER_THAN, 3));
+        AndExpression expression = and(condition("status", Operator.EQUALS, "OPEN"), inner);
+
+        ExpressionOptimizer.optimize(expression);
+
+        assertEquals(2, expression.getExpressions().size());
+        assertSame(inner, expression.getExpressions().get(1));
+    }
+
+    private static Map<String, Object> entity(Object status, Object priority, Object assignee) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("status", status);
+        data.put("priority", priority);
+        data.put("assignee", assignee);
+        return data;
+    }
+}
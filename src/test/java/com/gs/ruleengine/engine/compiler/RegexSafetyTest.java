@@ -0,0 +1,53 @@
+package com.gs.ruleengine.engine.compiler;
+
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Condition;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.OrExpression;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegexSafetyTest {
+
+    @Test
+    void testSafePatternsAreAccepted() {
+        for (String regex : Arrays.asList(
+                "fire", "^Printer", "on f.re$", "[a-z]+\\d*", "(ab)+", "(cat|dog)*", "(?i)printer",
+                "(?:x|y){2,5}", "\\(a+\\)+", "[(a+)]+", "a{3}", "(a{2}){3}", "\\p{L}+", "\\Q(a+)+\\E")) {
+            assertDoesNotThrow(() -> RegexSafety.check(regex, true), regex);
+        }
+    }
+
+    @Test
+    void testCatastrophicPatternsAreRejectedInSafeMode() {
+        for (String regex : Arrays.asList(
+                "(a+)+", "^(a*)*$", "(\\w+\\s?)*", "(a|ab)*", "(a|a)+", "(.*a){10}", "((ab)*c)+",
+                "(x|\\d)+", "(a|)+", "(\\w)\\1", "(?<n>a)\\k<n>", "a(?=b)", "(?<!a)b")) {
+            assertThrows(IllegalArgumentException.class, () -> RegexSafety.check(regex, true), regex);
+            assertDoesNotThrow(() -> RegexSafety.check(regex, false), regex);
+        }
+    }
+
+    @Test
+    void testInvalidPatternsAreAlwaysRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RegexSafety.check("fire(", false));
+        assertThrows(IllegalArgumentException.class, () -> RegexSafety.check("[a-", true));
+    }
+
+    @Test
+    void testPatternsAreCheckedThroughoutExpression() {
+        AndExpression expression = new AndExpression(Arrays.asList(
+            new Condition("status", Operator.EQUALS, "OPEN"),
+            new OrExpression(Arrays.asList(
+                new Condition("title", Operator.MATCHES, "fire"),
+                new Condition("assignee", Operator.MATCHES, "(r+)+")))));
+
+        assertDoesNotThrow(() -> RegexSafety.checkPatterns(expression, false));
+        assertThrows(IllegalArgumentException.class, () -> RegexSafety.checkPatterns(expression, true));
+        assertThrows(IllegalArgumentException.class,
+                () -> RegexSafety.checkPatterns(new Condition("title", Operator.MATCHES, null), false));
+    }
+}
@@ -0,0 +1,253 @@
+package com.gs.ruleengine.engine.index;
+
+import com.gs.ruleengine.engine.CompiledRule;
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.TicketStatus;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static com.gs.ruleengine.engine.ExpressionFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleIndexTest {
+
+    @Test
+    void testCandidatesRequireEqualsKey() {
+        CompiledRule raj = rule(1L, and(condition("assignee", Operator.EQUALS, "raj"), condition("priority", Operator.GREATER_THAN, 2)));
+        CompiledRule mia = rule(2L, condition("assignee", Operator.EQUALS, "mia"));
+        CompiledRule open = rule(3L, condition("status", Operator.EQUALS, "OPEN"));
+        CompiledRule other = rule(4L, condition("title", Operator.NOT_EQUALS, "fire"));
+        RuleIndex index = RuleIndex.of(List.of(raj, mia, open, other));
+
+        Set<CompiledRule> candidates = index.candidates(Map.of("assignee", "raj", "status", TicketStatus.OPEN));
+
+        assertTrue(candidates.contains(raj));
+        assertFalse(candidates.contains(mia));
+        assertTrue(candidates.contains(open));
+        assertFalse(index.isIndexed(other));
+        assertEquals(3, index.getIndexedRuleCount());
+    }
+
+    @Test
+    void testOrRequiresKeyOnEveryBranch() {
+        CompiledRule either = rule(1L, or(condition("assignee", Operator.EQUALS, "raj"), condition("department", Operator.EQUALS, "OPS")));
+        CompiledRule partial = rule(2L, or(condition("assignee", Operator.EQUALS, "raj"), condition("title", Operator.NOT_EQUALS, "fire")));
+        CompiledRule never = rule(3L, or());
+        RuleIndex index = RuleIndex.of(List.of(either, partial, never));
+
+        assertTrue(index.candidates(Map.of("department", "OPS")).contains(either));
+        assertFalse(index.candidates(Map.of("department", "DEV")).contains(either));
+        assertFalse(index.isIndexed(partial));
+        assertTrue(index.isIndexed(never));
+        assertFalse(index.candidates(Map.of("department", "OPS")).contains(never));
+    }
+
+    @Test
+    void testNumericStringConstantsAreNotIndexed() {
+        RuleIndex index = RuleIndex.of(List.of(rule(1L, condition("priority", Operator.EQUALS, "05"))));
+
+        assertEquals(0, index.getIndexedRuleCount());
+    }
+
+    @Test
+    void testRangeCandidates() {
+        CompiledRule high = rule(1L, condition("priority", Operator.GREATER_THAN, 3));
+        CompiledRule atMostTwo = rule(2L, condition("priority", Operator.LESS_THAN_OR_EQUALS, "2"));
+        CompiledRule mixed = rule(3L, and(condition("priority", Operator.GREATER_THAN_OR_EQUALS, 1),
+            condition("assignee", Operator.EQUALS, "raj")));
+        CompiledRule band = rule(4L, and(condition("hours", Operator.GREATER_THAN, 4), condition("hours", Operator.LESS_THAN, 8)));
+        RuleIndex index = RuleIndex.of(List.of(high, atMostTwo, mixed, band));
+
+        Set<CompiledRule> candidates = index.candidates(Map.of("priority", 4, "hours", 6));
+        assertTrue(candidates.contains(high));
+        assertFalse(candidates.contains(atMostTwo));
+        assertFalse(candidates.contains(mixed));
+        assertTrue(candidates.contains(band));
+
+        candidates = index.candidates(Map.of("priority", 2, "assignee", "raj", "hours", 3));
+        assertFalse(candidates.contains(high));
+        assertTrue(candidates.contains(atMostTwo));
+        assertTrue(candidates.contains(mixed));
+        assertFalse(candidates.contains(band));
+    }
+
+    @Test
+    void testRangeIndexUpdates() {
+        CompiledRule high = rule(1L, condition("priority", Operator.GREATER_THAN, 3));
+        CompiledRule low = rule(2L, condition("priority", Operator.LESS_THAN, 3));
+        RuleIndex index = RuleIndex.of(List.of(high, low));
+
+        RuleIndex withoutHigh = index.withoutRule(1L);
+        assertFalse(withoutHigh.candidates(Map.of("priority", 5)).contains(high));
+        assertTrue(withoutHigh.candidates(Map.of("priority", 1)).contains(low));
+
+        RuleIndex empty = withoutHigh.withoutRule(2L);
+        assertEquals(0, empty.getIndexedRuleCount());
+        assertTrue(empty.candidates(Map.of("priority", 1)).isEmpty());
+    }
+
+    @Test
+    void testPatternCandidates() {
+        CompiledRule fire = rule(1L, condition("title", Operator.CONTAINS, "fire"));
+        CompiledRule ire = rule(2L, condition("title", Operator.CONTAINS, "ire"));
+        CompiledRule printer = rule(3L, condition("title", Operator.STARTS_WITH, "Printer"));
+        CompiledRule urgent = rule(4L, condition("title", Operator.ENDS_WITH, "!"));
+        CompiledRule any = rule(5L, condition("title", Operator.CONTAINS, ""));
+        CompiledRule nothing = rule(6L, condition("title", Operator.CONTAINS, null));
+        CompiledRule vpn = rule(7L, and(condition("priority", Operator.GREATER_THAN, 2), condition("title", Operator.CONTAINS, "vpn")));
+        RuleIndex index = RuleIndex.of(List.of(fire, ire, printer, urgent, any, nothing, vpn));
+
+        Set<CompiledRule> candidates = index.candidates(Map.of("title", "Printer on fire", "priority", 3));
+        assertEquals(Set.of(fire, ire, printer, any), Set.copyOf(candidates));
+
+        candidates = index.candidates(Map.of("title", "the vpn is down!", "priority", 1));
+        assertEquals(Set.of(urgent, any, vpn), Set.copyOf(candidates));
+    }
+
+    @Test
+    void testPatternCandidatesAreExactForStrings() {
+        Random random = new Random(42);
+        List<CompiledRule> rules = new ArrayList<>();
+        Operator[] operators = {Operator.CONTAINS, Operator.STARTS_WITH, Operator.ENDS_WITH};
+        for (int i = 0; i < 200; i++) {
+            rules.add(rule((long) i, condition("title", operators[i % 3], randomText(random, 1 + random.nextInt(4)))));
+        }
+        RuleIndex index = RuleIndex.of(rules);
+
+        for (int i = 0; i < 200; i++) {
+            Map<String, Object> data = Map.of("title", randomText(random, random.nextInt(12)));
+            Set<CompiledRule> candidates = index.candidates(data);
+            for (CompiledRule rule : rules) {
+                assertEquals(rule.getExpression().evaluate(data), candidates.contains(rule),
+                        "rule " + rule.getId() + " for " + data);
+            }
+        }
+    }
+
+    @Test
+    void testIncrementalUpdates() {
+        CompiledRule raj = rule(1L, condition("assignee", Operator.EQUALS, "raj"));
+        RuleIndex empty = RuleIndex.of(List.of());
+        RuleIndex withRaj = empty.withRule(raj);
+
+        CompiledRule replaced = rule(1L, condition("assignee", Operator.EQUALS, "mia"));
+        RuleIndex withMia = withRaj.withRule(replaced);
+
+        assertTrue(empty.candidates(Map.of("assignee", "raj")).isEmpty());
+        assertTrue(withRaj.candidates(Map.of("assignee", "raj")).contains(raj));
+        assertTrue(withMia.candidates(Map.of("assignee", "raj")).isEmpty());
+        assertTrue(withMia.candidates(Map.of("assignee", "mia")).contains(replaced));
+        assertEquals(1, withMia.getIndexedRuleCount());
+
+        RuleIndex removed = withMia.withoutRule(1L);
+        assertEquals(0, removed.getIndexedRuleCount());
+        assertTrue(removed.candidates(Map.of("assignee", "mia")).isEmpty());
+        assertSame(removed, removed.withoutRule(1L));
+    }
+
+    @Test
+    void testMatchingRulesAreAlwaysCandidates() {
+        Object[] statuses = {TicketStatus.OPEN, TicketStatus.CLOSED, "OPEN", null};
+        Object[] priorities = {1, 3, 4, 3L, 5L, 3.0, "3", "abc", null};
+        Object[] assignees = {"raj", "mia", null};
+        Object[] titles = {"Printer on fire", "Reset password", "", TicketStatus.OPEN, 42, null};
+        Object[] dates = {LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 20), "2024-03-10", null};
+
+        List<Expression> expressions = Arrays.asList(
+            condition("status", Operator.EQUALS, "OPEN"),
+            condition("status", Operator.EQUALS, TicketStatus.CLOSED),
+            condition("status", Operator.EQUALS, "NOT_A_STATUS"),
+            condition("priority", Operator.EQUALS, 3),
+            condition("priority", Operator.EQUALS, 3L),
+            condition("priority", Operator.EQUALS, "3"),
+            condition("priority", Operator.EQUALS, "abc"),
+            condition("assignee", Operator.EQUALS, "raj"),
+            condition("assignee", Operator.NOT_EQUALS, "raj"),
+            and(condition("status", Operator.EQUALS, "OPEN"), condition("assignee", Operator.EQUALS, "mia")),
+            and(condition("priority", Operator.GREATER_THAN, 2), condition("assignee", Operator.EQUALS, "raj")),
+            or(condition("status", Operator.EQUALS, TicketStatus.OPEN), condition("priority", Operator.EQUALS, 1)),
+            or(and(condition("status", Operator.EQUALS, "OPEN"), condition("priority", Operator.EQUALS, 3)),
+                condition("assignee", Operator.EQUALS, "mia")),
+            condition("priority", Operator.GREATER_THAN, 2),
+            condition("priority", Operator.GREATER_THAN_OR_EQUALS, 3L),
+            condition("priority", Operator.LESS_THAN, "4"),
+            condition("priority", Operator.LESS_THAN_OR_EQUALS, "x"),
+            condition("priority", Operator.GREATER_THAN, 2.5),
+            condition("priority", Operator.LESS_THAN_OR_EQUALS, null),
+            condition("assignee", Operator.GREATER_THAN, "m"),
+            condition("status", Operator.LESS_THAN, "OPEN"),
+            and(condition("priority", Operator.GREATER_THAN, 1), condition("priority", Operator.LESS_THAN, 4)),
+            or(condition("priority", Operator.GREATER_THAN_OR_EQUALS, 4), condition("assignee", Operator.EQUALS, "raj")),
+            condition("title", Operator.CONTAINS, "fire"),
+            condition("title", Operator.CONTAINS, "re"),
+            condition("title", Operator.CONTAINS, "OPE"),
+            condition("title", Operator.CONTAINS, "042"),
+            condition("title", Operator.STARTS_WITH, "Printer"),
+            condition("title", Operator.STARTS_WITH, ""),
+            condition("title", Operator.ENDS_WITH, "word"),
+            condition("title", Operator.ENDS_WITH, 2),
+            or(condition("title", Operator.CONTAINS, "fire"), condition("title", Operator.ENDS_WITH, "word")),
+            condition("status", Operator.IN, Arrays.asList("OPEN", TicketStatus.CLOSED)),
+            condition("priority", Operator.IN, Arrays.asList(1, 3L, null)),
+            condition("priority", Operator.IN, Arrays.asList(1, "3")),
+            condition("assignee", Operator.NOT_IN, Arrays.asList("raj")),
+            condition("date", Operator.GREATER_THAN, LocalDate.of(2024, 3, 10)),
+            condition("date", Operator.LESS_THAN_OR_EQUALS, "2024-03-10"),
+            and(),
+            or()
+        );
+
+        List<CompiledRule> rules = new ArrayList<>();
+        for (int i = 0; i < expressions.size(); i++) {
+            rules.add(rule((long) i, expressions.get(i)));
+        }
+        RuleIndex index = RuleIndex.of(rules);
+
+        for (Object status : statuses) {
+            for (Object priority : priorities) {
+                for (Object assignee : assignees) {
+                    for (Object date : dates) {
+                        for (Object title : titles) {
+                            Map<String, Object> data = new HashMap<>();
+                            data.put("status", status);
+                            data.put("priority", priority);
+                            data.put("assignee", assignee);
+                            data.put("date", date);
+                            data.put("title", title);
+
+                            Set<CompiledRule> candidates = index.candidates(data);
+                            for (CompiledRule rule : rules) {
+                                if (rule.getExpression().evaluate(data)) {
+                                    assertTrue(!index.isIndexed(rule) || candidates.contains(rule),
+                                            "rule " + rule.getId() + " for " + data);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append("abc".charAt(random.nextInt(3)));
+        }
+        return text.toString();
+    }
+
+    private static CompiledRule rule(Long id, Expression expression) {
+        return new CompiledRule(id, "Rule " + id, EntityType.TICKET, expression, null);
+    }
+}
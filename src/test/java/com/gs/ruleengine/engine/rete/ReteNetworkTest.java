@@ -0,0 +1,128 @@
+package com.gs.ruleengine.engine.rete;
+
+import com.gs.ruleengine.config.RuleEngineProperties;
+import com.gs.ruleengine.engine.CompiledRule;
+import com.gs.ruleengine.engine.RuleSet;
+import com.gs.ruleengine.engine.compiler.ExpressionCompiler;
+import com.gs.ruleengine.model.EntityType;
+import com.gs.ruleengine.model.TicketStatus;
+import com.gs.ruleengine.model.expression.AndExpression;
+import com.gs.ruleengine.model.expression.Expression;
+import com.gs.ruleengine.model.expression.Operator;
+import com.gs.ruleengine.model.expression.OrExpression;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.gs.ruleengine.engine.ExpressionFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReteNetworkTest {
+
+    private ExpressionCompiler compiler;
+    private Map<String, Object> data;
+
+    @BeforeEach
+    void setUp() {
+        compiler = new ExpressionCompiler(new RuleEngineProperties());
+
+        data = new HashMap<>();
+        data.put("status", TicketStatus.OPEN);
+        data.put("priority", 5);
+        data.put("title", "Printer on fire");
+        data.put("assignee", "raj");
+    }
+
+    @Test
+    void testSharedConditionsBecomeOneNode() {
+        RuleSet ruleSet = ruleSet(
+            and(condition("status", Operator.EQUALS, "OPEN"), condition("priority", Operator.GREATER_THAN, 3)),
+            and(condition("status", Operator.EQUALS, "OPEN"), condition("assignee", Operator.EQUALS, "raj")),
+            or(condition("priority", Operator.GREATER_THAN, 3), condition("title", Operator.CONTAINS, "fire")),
+            and(condition("status", Operator.EQUALS, "OPEN"), condition("priority", Operator.GREATER_THAN, 3))
+        );
+
+        ReteNetwork network = ReteNetwork.build(ruleSet, compiler);
+
+        assertEquals(4, network.getConditionCount());
+        // Rules 1 and 4 share the same AND node
+        assertEquals(7, network.getNodeCount());
+    }
+
+    @Test
+    void testEachConditionEvaluatedOncePerEntity() {
+        RuleSet ruleSet = ruleSet(
+            and(condition("status", Operator.EQUALS, "OPEN"), condition("priority", Operator.GREATER_THAN, 3)),
+            and(condition("status", Operator.EQUALS, "OPEN"), condition("assignee", Operator.EQUALS, "raj")),
+            or(condition("priority", Operator.GREATER_THAN, 3), condition("title", Operator.CONTAINS, "fire")),
+            condition("status", Operator.EQUALS, "OPEN")
+        );
+
+        List<String> reads = new ArrayList<>();
+        Map<String, Object> countingData = new HashMap<>(data) {
+            @Override
+            public Object get(Object key) {
+                reads.add((String) key);
+                return super.get(key);
+            }
+        };
+
+        ReteNetwork.Session session = ReteNetwork.build(ruleSet, compiler).newSession(countingData);
+        for (int i = 0; i < ruleSet.getRules().size(); i++) {
+            assertTrue(session.matches(i));
+        }
+
+        // The OR short-circuits on the shared priority condition, so title is never read
+        assertEquals(Arrays.asList("status", "priority", "assignee"), reads);
+    }
+
+    @Test
+    void testResultsMatchInterpreter() {
+        List<Expression> expressions = Arrays.asList(
+            condition("status", Operator.EQUALS, "OPEN"),
+            condition("status", Operator.EQUALS, "CLOSED"),
+            and(condition("status", Operator.EQUALS, "OPEN"), condition("priority", Operator.LESS_THAN, 3)),
+            or(condition("status", Operator.EQUALS, "CLOSED"), condition("priority", Operator.LESS_THAN, 3)),
+            or(condition("status", Operator.EQUALS, "CLOSED"), condition("title", Operator.STARTS_WITH, "Printer")),
+            and(
+                or(condition("assignee", Operator.IS_NULL, null), condition("assignee", Operator.EQUALS, "raj")),
+                and(condition("priority", Operator.GREATER_THAN_OR_EQUALS, "5"))
+            ),
+            new AndExpression(Collections.emptyList()),
+            new OrExpression(Collections.emptyList()),
+            condition("missing", Operator.IS_NOT_NULL, null)
+        );
+
+        RuleSet ruleSet = ruleSet(expressions.toArray(new Expression[0]));
+        ReteNetwork.Session session = ReteNetwork.build(ruleSet, compiler).newSession(data);
+
+        for (int i = 0; i < expressions.size(); i++) {
+            assertEquals(expressions.get(i).evaluate(data), session.matches(i), "rule " + i);
+        }
+    }
+
+    @Test
+    void testRuleWithoutExpression() {
+        RuleSet ruleSet = new RuleSet(EntityType.TICKET, Collections.singletonList(
+                new CompiledRule(1L, "Rule 1", EntityType.TICKET, null, null)), System.nanoTime());
+
+        ReteNetwork.Session session = ReteNetwork.build(ruleSet, compiler).newSession(data);
+
+        assertFalse(session.hasExpression(0));
+        assertThrows(IllegalStateException.class, () -> session.matches(0));
+    }
+
+    private RuleSet ruleSet(Expression... expressions) {
+        List<CompiledRule> rules = new ArrayList<>();
+        for (int i = 0; i < expressions.length; i++) {
+            rules.add(new CompiledRule((long) i + 1, "Rule " + (i + 1), EntityType.TICKET, expressions[i], null));
+        }
+        return new RuleSet(EntityType.TICKET, rules, System.nanoTime());
+    }
+}
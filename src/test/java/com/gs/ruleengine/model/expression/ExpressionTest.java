@@ -1,6 +1,12 @@
 package com.gs.ruleengine.model.expression;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -8,6 +14,11 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class ExpressionTest {
 
+    @AfterEach
+    void resetClock() {
+        RequestClock.setClock(Clock.systemDefaultZone());
+    }
+
     @Test
     void testConditionEquals() {
         Map<String, Object> data = new HashMap<>();
@@ -47,6 +58,24 @@ class ExpressionTest {
         assertFalse(condition.evaluate(data));
     }
     
+    @Test
+    void testNumbersOfDifferentTypesCompareNumerically() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("priority", 5);
+        
+        assertFalse(new Condition("priority", Operator.GREATER_THAN_OR_EQUALS, 3000000000L).evaluate(data));
+        assertTrue(new Condition("priority", Operator.LESS_THAN, 3000000000L).evaluate(data));
+        assertTrue(new Condition("priority", Operator.GREATER_THAN, 4.5).evaluate(data));
+        assertFalse(new Condition("priority", Operator.GREATER_THAN, 5.5).evaluate(data));
+        
+        data.put("priority", 5L);
+        assertTrue(new Condition("priority", Operator.GREATER_THAN, 3).evaluate(data));
+        assertFalse(new Condition("priority", Operator.LESS_THAN_OR_EQUALS, 3).evaluate(data));
+        
+        // Equality still compares with equals
+        assertFalse(new Condition("priority", Operator.EQUALS, 5).evaluate(data));
+    }
+    
     @Test
     void testConditionLessThan() {
         Map<String, Object> data = new HashMap<>();
@@ -74,6 +103,92 @@ class ExpressionTest {
         assertFalse(condition.evaluate(data));
     }
     
+    @Test
+    void testConditionIn() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("assignee", "raj");
+        data.put("priority", 3);
+        
+        assertTrue(new Condition("assignee", Operator.IN, Arrays.asList("mia", "raj")).evaluate(data));
+        assertFalse(new Condition("assignee", Operator.IN, Arrays.asList("mia", "sam")).evaluate(data));
+        assertTrue(new Condition("priority", Operator.IN, Arrays.asList("abc", "3")).evaluate(data));
+        assertFalse(new Condition("priority", Operator.IN, Arrays.asList(3L)).evaluate(data));
+        
+        assertTrue(new Condition("assignee", Operator.NOT_IN, Arrays.asList("mia", "sam")).evaluate(data));
+        assertFalse(new Condition("assignee", Operator.NOT_IN, Arrays.asList("raj")).evaluate(data));
+        assertFalse(new Condition("missing", Operator.NOT_IN, Arrays.asList("raj")).evaluate(data));
+    }
+    
+    @Test
+    void testConditionMatches() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("title", "Printer on fire");
+        data.put("priority", 15);
+        
+        assertTrue(new Condition("title", Operator.MATCHES, "on f.re").evaluate(data));
+        assertTrue(new Condition("title", Operator.MATCHES, "^Printer").evaluate(data));
+        assertFalse(new Condition("title", Operator.MATCHES, "^fire").evaluate(data));
+        // Not converted to a number, so matched against the string form of the value
+        assertTrue(new Condition("priority", Operator.MATCHES, "^1\\d$").evaluate(data));
+        assertFalse(new Condition("missing", Operator.MATCHES, ".*").evaluate(data));
+    }
+    
+    @Test
+    void testConditionBetween() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("startDate", LocalDate.of(2024, 3, 10));
+        data.put("createdAt", LocalDateTime.of(2024, 3, 31, 18, 30));
+        data.put("posted", "2024-03-10");
+        
+        assertTrue(new Condition("startDate", Operator.BETWEEN, Arrays.asList("2024-03-01", "2024-03-10")).evaluate(data));
+        assertFalse(new Condition("startDate", Operator.BETWEEN, Arrays.asList("2024-03-11", null)).evaluate(data));
+        assertTrue(new Condition("startDate", Operator.BETWEEN, Arrays.asList(null, LocalDate.of(2024, 3, 10))).evaluate(data));
+        // A date bound covers its whole day
+        assertTrue(new Condition("createdAt", Operator.BETWEEN, Arrays.asList("2024-03-01", "2024-03-31")).evaluate(data));
+        assertFalse(new Condition("createdAt", Operator.BETWEEN, Arrays.asList("2024-03-01", "2024-03-31T18:00")).evaluate(data));
+        assertTrue(new Condition("posted", Operator.BETWEEN, Arrays.asList("2024-03-10", "2024-03-10")).evaluate(data));
+        assertFalse(new Condition("missing", Operator.BETWEEN, Arrays.asList("2024-03-10", "2024-03-10")).evaluate(data));
+        
+        Condition invalid = new Condition("startDate", Operator.BETWEEN, Arrays.asList("2024-03-01", "soon"));
+        assertThrows(IllegalArgumentException.class, () -> invalid.evaluate(data));
+    }
+    
+    @Test
+    void testRelativeDateConditions() {
+        RequestClock.setClock(Clock.fixed(LocalDate.of(2024, 3, 10).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        Map<String, Object> data = new HashMap<>();
+        data.put("startDate", LocalDate.of(2024, 3, 14));
+        data.put("endDate", LocalDate.of(2024, 3, 9));
+        data.put("createdAt", LocalDateTime.of(2024, 3, 10, 23, 59));
+        
+        assertTrue(new Condition("startDate", Operator.WITHIN_DAYS, 4).evaluate(data));
+        assertFalse(new Condition("startDate", Operator.WITHIN_DAYS, "3").evaluate(data));
+        assertTrue(new Condition("endDate", Operator.WITHIN_DAYS, -1).evaluate(data));
+        assertFalse(new Condition("endDate", Operator.WITHIN_DAYS, 7).evaluate(data));
+        assertTrue(new Condition("createdAt", Operator.WITHIN_DAYS, 0).evaluate(data));
+        
+        assertTrue(new Condition("endDate", Operator.BEFORE_TODAY, null).evaluate(data));
+        assertFalse(new Condition("startDate", Operator.BEFORE_TODAY, null).evaluate(data));
+        assertFalse(new Condition("createdAt", Operator.BEFORE_TODAY, null).evaluate(data));
+    }
+    
+    @Test
+    void testFrozenClockKeepsDateForRequest() {
+        RequestClock.setClock(Clock.fixed(LocalDate.of(2024, 3, 10).atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        Map<String, Object> data = new HashMap<>();
+        data.put("endDate", LocalDate.of(2024, 3, 10));
+        Condition condition = new Condition("endDate", Operator.BEFORE_TODAY, null);
+        
+        try (RequestClock.Scope scope = RequestClock.freeze()) {
+            RequestClock.setClock(Clock.offset(Clock.systemUTC(), Duration.ofDays(3650)));
+            try (RequestClock.Scope nested = RequestClock.freeze()) {
+                assertEquals(LocalDate.of(2024, 3, 10), RequestClock.today());
+            }
+            assertFalse(condition.evaluate(data));
+        }
+        assertTrue(condition.evaluate(data));
+    }
+    
     @Test
     void testAndExpression() {
         Map<String, Object> data = new HashMap<>();
@@ -169,4 +284,18 @@ class ExpressionTest {
         Condition condition = new Condition("nonExistentField", Operator.EQUALS, "value");
         assertFalse(condition.evaluate(data));
     }
+    
+    @Test
+    void testEvaluateDoesNotModifyCondition() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("priority", 5);
+        
+        Condition condition = new Condition("priority", Operator.GREATER_THAN, "3");
+        assertTrue(condition.evaluate(data));
+        assertEquals("3", condition.getValue());
+        
+        data.put("priority", 5L);
+        assertTrue(condition.evaluate(data));
+        assertEquals("3", condition.getValue());
+    }
 }